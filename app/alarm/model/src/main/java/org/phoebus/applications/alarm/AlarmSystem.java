@@ -115,6 +115,12 @@ public class AlarmSystem
      */
     public static final long idle_timeout_ms;
 
+    /** Period in milliseconds for combining state updates of alarm tree nodes */
+    @Preference public static int node_update_ms;
+
+    /** Alarm configurations that use binary encoding for state and config messages */
+    @Preference public static String[] binary_topics;
+
     /** Name of the sender, the 'from' field of automated email actions */
     @Preference  public static String automated_email_sender;
 
@@ -185,4 +191,15 @@ public class AlarmSystem
 
         IdentificationHelper.initialize();
     }
+
+    /** @param config_name Name of alarm configuration, which is also the name of its topic
+     *  @return <code>true</code> if state and config messages for that configuration use binary encoding
+     */
+    public static boolean useBinaryEncoding(final String config_name)
+    {
+        for (String topic : binary_topics)
+            if (topic.equals(config_name))
+                return true;
+        return false;
+    }
 }
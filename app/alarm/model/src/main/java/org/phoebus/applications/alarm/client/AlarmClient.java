@@ -25,9 +25,12 @@ import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.phoebus.applications.alarm.AlarmSystem;
 import org.phoebus.applications.alarm.model.AlarmTreeItem;
 import org.phoebus.applications.alarm.model.AlarmTreePath;
+import org.phoebus.applications.alarm.model.json.BinaryModelWriter;
 import org.phoebus.applications.alarm.model.json.JsonModelReader;
 import org.phoebus.applications.alarm.model.json.JsonModelWriter;
 import org.phoebus.applications.alarm.model.json.JsonTags;
@@ -76,10 +79,13 @@ public class AlarmClient
     private final AtomicBoolean disable_notify = new AtomicBoolean(false);
 
     /** Kafka consumer */
-    private final Consumer<String, String> consumer;
+    private final Consumer<String, byte[]> consumer;
 
     /** Kafka producer */
-    private final Producer<String, String> producer;
+    private final Producer<String, byte[]> producer;
+
+    /** Send configuration in binary encoding? */
+    private final boolean binary;
 
     /** Message handling thread */
     private final Thread thread;
@@ -105,8 +111,10 @@ public class AlarmClient
 
         root = new AlarmClientNode(null, config_name);
         final List<String> topics = List.of(config_topic);
-        consumer = KafkaHelper.connectConsumer(server, topics, topics);
-        producer = KafkaHelper.connectProducer(server);
+        // Read values as bytes to handle both JSON and binary messages
+        consumer = KafkaHelper.connectConsumer(server, topics, topics, new ByteArrayDeserializer());
+        producer = KafkaHelper.connectProducer(server, new ByteArraySerializer());
+        binary = AlarmSystem.useBinaryEncoding(config_name);
 
         thread = new Thread(this::run, "AlarmClientModel " + config_name);
         thread.setDaemon(true);
@@ -163,8 +171,8 @@ public class AlarmClient
         final String cmd = maintenance ? JsonTags.MAINTENANCE : JsonTags.NORMAL;
         try
         {
-            final String json = new String (JsonModelWriter.commandToBytes(cmd));
-            final ProducerRecord<String, String> record = new ProducerRecord<>(command_topic, AlarmSystem.COMMAND_PREFIX + root.getPathName(), json);
+            final byte[] json = JsonModelWriter.commandToBytes(cmd);
+            final ProducerRecord<String, byte[]> record = new ProducerRecord<>(command_topic, AlarmSystem.COMMAND_PREFIX + root.getPathName(), json);
             producer.send(record);
         }
         catch (final Exception ex)
@@ -179,8 +187,8 @@ public class AlarmClient
         final String cmd = disable_notify ? JsonTags.DISABLE_NOTIFY : JsonTags.ENABLE_NOTIFY;
         try
         {
-            final String json = new String (JsonModelWriter.commandToBytes(cmd));
-            final ProducerRecord<String, String> record = new ProducerRecord<>(command_topic, AlarmSystem.COMMAND_PREFIX + root.getPathName(), json);
+            final byte[] json = JsonModelWriter.commandToBytes(cmd);
+            final ProducerRecord<String, byte[]> record = new ProducerRecord<>(command_topic, AlarmSystem.COMMAND_PREFIX + root.getPathName(), json);
             producer.send(record);
         }
         catch (final Exception ex)
@@ -226,15 +234,15 @@ public class AlarmClient
         // TODO Because of Kafka bug, this will hang if Kafka isn't running.
         // Fixed according to https://issues.apache.org/jira/browse/KAFKA-1894 ,
         // but update to kafka-client 1.1.1 (latest in July 2018) makes no difference.
-        final ConsumerRecords<String, String> records = consumer.poll(POLL_PERIOD);
-        for (final ConsumerRecord<String, String> record : records)
+        final ConsumerRecords<String, byte[]> records = consumer.poll(POLL_PERIOD);
+        for (final ConsumerRecord<String, byte[]> record : records)
             handleUpdate(record);
     }
 
     /** Handle one received update
      *  @param record Kafka record
      */
-    private void handleUpdate(final ConsumerRecord<String, String> record)
+    private void handleUpdate(final ConsumerRecord<String, byte[]> record)
     {
         final int sep = record.key().indexOf(':');
         if (sep < 0)
@@ -246,21 +254,21 @@ public class AlarmClient
         final String type = record.key().substring(0, sep+1);
         final String path = record.key().substring(sep+1);
         final long timestamp = record.timestamp();
-        final String node_config = record.value();
+        final byte[] node_config = record.value();
 
         if (record.timestampType() != TimestampType.CREATE_TIME)
-            logger.log(Level.WARNING, "Expect updates with CreateTime, got " + record.timestampType() + ": " + record.timestamp() + " " + path + " = " + node_config);
+            logger.log(Level.WARNING, "Expect updates with CreateTime, got " + record.timestampType() + ": " + record.timestamp() + " " + path + " = " + JsonModelReader.toJsonText(node_config));
 
         logger.log(Level.FINE, () ->
             record.topic() + " @ " +
             TimestampFormats.MILLI_FORMAT.format(Instant.ofEpochMilli(timestamp)) + " " +
-            type + path + " = " + node_config);
+            type + path + " = " + JsonModelReader.toJsonText(node_config));
 
         try
         {
             // Only update listeners if the node changed
             AlarmTreeItem<?> changed_node = null;
-            final Object json = node_config == null ? null : JsonModelReader.parseJsonText(node_config);
+            final Object json = node_config == null ? null : JsonModelReader.parse(node_config);
             if (type.equals(AlarmSystem.CONFIG_PREFIX))
             {
                 if (json == null)
@@ -277,7 +285,7 @@ public class AlarmClient
                 else
                 {   // Configuration update
                     if (JsonModelReader.isStateUpdate(json))
-                        logger.log(Level.WARNING, "Got config update with state content: " + record.key() + " " + node_config);
+                        logger.log(Level.WARNING, "Got config update with state content: " + record.key() + " " + JsonModelReader.toJsonText(node_config));
                     else
                     {
                         AlarmTreeItem<?> node = findNode(path);
@@ -293,18 +301,18 @@ public class AlarmClient
             {   // State update
                 if (json == null)
                 {   // State update for deleted node, ignore
-                    logger.log(Level.FINE, () -> "Got state update for deleted node: " + record.key() + " " + node_config);
+                    logger.log(Level.FINE, () -> "Got state update for deleted node: " + record.key() + " " + JsonModelReader.toJsonText(node_config));
                     return;
                 }
                 else if (! JsonModelReader.isStateUpdate(json))
                 {
-                    logger.log(Level.WARNING, "Got state update with config content: " + record.key() + " " + node_config);
+                    logger.log(Level.WARNING, "Got state update with config content: " + record.key() + " " + JsonModelReader.toJsonText(node_config));
                     return;
                 }
                 else if (deleted_paths.contains(path))
                 {
                     // It it _deleted_??
-                    logger.log(Level.FINE, () -> "Ignoring state for deleted item: " + record.key() + " " + node_config);
+                    logger.log(Level.FINE, () -> "Ignoring state for deleted item: " + record.key() + " " + JsonModelReader.toJsonText(node_config));
                     return;
                 }
                 else
@@ -344,7 +352,7 @@ public class AlarmClient
         {
             logger.log(Level.WARNING,
                        "Alarm config update error for path " + path +
-                       ", config " + node_config, ex);
+                       ", config " + JsonModelReader.toJsonText(node_config), ex);
         }
     }
 
@@ -515,8 +523,9 @@ public class AlarmClient
      */
     public void sendItemConfigurationUpdate(final String path, final AlarmTreeItem<?> config) throws Exception
     {
-        final String json = new String(JsonModelWriter.toJsonBytes(config));
-        final ProducerRecord<String, String> record = new ProducerRecord<>(config_topic, AlarmSystem.CONFIG_PREFIX + path, json);
+        final byte[] json = binary ? new BinaryModelWriter().toBytes(config)
+                                   : JsonModelWriter.toJsonBytes(config);
+        final ProducerRecord<String, byte[]> record = new ProducerRecord<>(config_topic, AlarmSystem.CONFIG_PREFIX + path, json);
         producer.send(record);
     }
 
@@ -539,11 +548,12 @@ public class AlarmClient
 
             // Create and send a message identifying who is deleting the node.
             // The id message must arrive before the tombstone.
-            final String json = new String(JsonModelWriter.deleteMessageToBytes());
-            final ProducerRecord<String, String> id = new ProducerRecord<>(config_topic, AlarmSystem.CONFIG_PREFIX + item.getPathName(), json);
+            final byte[] json = binary ? new BinaryModelWriter().deleteMessageToBytes()
+                                       : JsonModelWriter.deleteMessageToBytes();
+            final ProducerRecord<String, byte[]> id = new ProducerRecord<>(config_topic, AlarmSystem.CONFIG_PREFIX + item.getPathName(), json);
             producer.send(id);
 
-            final ProducerRecord<String, String> tombstone = new ProducerRecord<>(config_topic, AlarmSystem.CONFIG_PREFIX + item.getPathName(), null);
+            final ProducerRecord<String, byte[]> tombstone = new ProducerRecord<>(config_topic, AlarmSystem.CONFIG_PREFIX + item.getPathName(), null);
             producer.send(tombstone);
         }
         catch (Exception ex)
@@ -560,8 +570,8 @@ public class AlarmClient
         try
         {
             final String cmd = acknowledge ? "acknowledge" : "unacknowledge";
-            final String json = new String (JsonModelWriter.commandToBytes(cmd));
-            final ProducerRecord<String, String> record = new ProducerRecord<>(command_topic, AlarmSystem.COMMAND_PREFIX + item.getPathName(), json);
+            final byte[] json = JsonModelWriter.commandToBytes(cmd);
+            final ProducerRecord<String, byte[]> record = new ProducerRecord<>(command_topic, AlarmSystem.COMMAND_PREFIX + item.getPathName(), json);
             producer.send(record);
         }
         catch (final Exception ex)
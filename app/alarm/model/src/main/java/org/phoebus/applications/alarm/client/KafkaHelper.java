@@ -20,6 +20,7 @@ import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.common.serialization.Serializer;
@@ -54,6 +55,23 @@ public class KafkaHelper
      *  @return {@link Consumer}
      */
     public static Consumer<String, String> connectConsumer(final String kafka_servers, final List<String> topics, final List<String> from_beginning)
+    {
+        return connectConsumer(kafka_servers, topics, from_beginning, new StringDeserializer());
+    }
+
+    /** Create a consumer for alarm-type topics
+     *
+     *  <p>De-serialize key as string, value with provided deserializer.
+     *  Use {@link ByteArrayDeserializer} to handle both JSON and binary messages.
+     *
+     *  @param kafka_servers Servers to read
+     *  @param topics Topics to which to subscribe
+     *  @param from_beginning Topics to read from the beginning
+     *  @param value_deserializer Deserializer for the values
+     *  @return {@link Consumer}
+     */
+    public static <V> Consumer<String, V> connectConsumer(final String kafka_servers, final List<String> topics, final List<String> from_beginning,
+                                                          final Deserializer<V> value_deserializer)
     {
         final Properties props = new Properties();
         props.put("bootstrap.servers", kafka_servers);
@@ -66,9 +84,8 @@ public class KafkaHelper
 
         logger.fine(group_id + " subscribes to " + kafka_servers + " for " + topics);
 
-        // Read key, value as string
-        final Deserializer<String> deserializer = new StringDeserializer();
-        final Consumer<String, String> consumer = new KafkaConsumer<>(props, deserializer, deserializer);
+        // Read key as string
+        final Consumer<String, V> consumer = new KafkaConsumer<>(props, new StringDeserializer(), value_deserializer);
 
         // Rewind whenever assigned to partition
         final ConsumerRebalanceListener crl = new ConsumerRebalanceListener()
@@ -104,16 +121,24 @@ public class KafkaHelper
      *  @return {@link Producer}
      */
     public static Producer<String, String> connectProducer(final String kafka_servers)
+    {
+        return connectProducer(kafka_servers, new StringSerializer());
+    }
+
+    /** Create producer for alarm information
+     *  @param kafka_servers
+     *  @param value_serializer Serializer for the values
+     *  @return {@link Producer}
+     */
+    public static <V> Producer<String, V> connectProducer(final String kafka_servers, final Serializer<V> value_serializer)
     {
         final Properties props = new Properties();
         props.put("bootstrap.servers", kafka_servers);
         // Collect messages for 20ms until sending them out as a batch
         props.put("linger.ms", 20);
 
-        // Write String key, value
-        final Serializer<String> serializer = new StringSerializer();
-
-        final Producer<String, String> producer = new KafkaProducer<>(props, serializer, serializer);
+        // Write String key
+        final Producer<String, V> producer = new KafkaProducer<>(props, new StringSerializer(), value_serializer);
 
         return producer;
     }
@@ -132,12 +157,13 @@ public class KafkaHelper
         props.put(StreamsConfig.APPLICATION_ID_CONFIG, "Stream-To-Long-Term");
         props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, kafka_servers);
         props.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.String().getClass());
-        props.put(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, Serdes.String().getClass());
+        // Pass values through as bytes, which works for both JSON and binary messages
+        props.put(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, Serdes.ByteArray().getClass());
 
         final StreamsBuilder builder = new StreamsBuilder();
 
         // Aggregate the topics by mapping the topic key value pairs one to one into the aggregate topic.
-        builder.<String, String>stream(topics).mapValues(pair -> pair).to(aggregate_topic);
+        builder.<String, byte[]>stream(topics).mapValues(pair -> pair).to(aggregate_topic);
 
         return new KafkaStreams(builder.build(), props);
     }
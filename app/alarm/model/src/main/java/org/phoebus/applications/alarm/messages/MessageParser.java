@@ -6,8 +6,11 @@ import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.Serializer;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.phoebus.applications.alarm.model.EnabledState;
+import org.phoebus.applications.alarm.model.json.BinaryModelWriter;
+import org.phoebus.applications.alarm.model.json.JsonModelReader;
 import java.time.format.DateTimeFormatter;
 
 public class MessageParser<T> implements Serializer<T>, Deserializer<T> {
@@ -57,7 +60,11 @@ public class MessageParser<T> implements Serializer<T>, Deserializer<T> {
 
         T data;
         try {
-            data = objectMapper.readValue(bytes, tClass);
+            // Alarm state and config messages may use binary encoding
+            if (BinaryModelWriter.isBinary(bytes))
+                data = objectMapper.treeToValue((JsonNode) JsonModelReader.parse(bytes), tClass);
+            else
+                data = objectMapper.readValue(bytes, tClass);
         } catch (Exception e) {
             throw new SerializationException(e);
         }
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.phoebus.applications.alarm.model.json;
+
+import java.nio.charset.StandardCharsets;
+
+import org.phoebus.applications.alarm.model.SeverityLevel;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/** Read alarm messages in the binary encoding of the {@link BinaryModelWriter}
+ *
+ *  <p>Creates the same JSON tree as parsing the corresponding JSON text.
+ */
+@SuppressWarnings("nls")
+class BinaryModelReader
+{
+    private static final SeverityLevel[] SEVERITIES = SeverityLevel.values();
+
+    private static final JsonNodeFactory nodes = JsonNodeFactory.instance;
+
+    private final byte[] data;
+    private int pos;
+
+    /** @param data Binary message
+     *  @return JSON tree
+     *  @throws Exception on error
+     */
+    static JsonNode parse(final byte[] data) throws Exception
+    {
+        if (! BinaryModelWriter.isBinary(data))
+            throw new Exception("Missing binary message header");
+        if (data[1] != BinaryModelWriter.VERSION)
+            throw new Exception("Cannot decode binary message version " + data[1]);
+        return new BinaryModelReader(data).readMessage();
+    }
+
+    private BinaryModelReader(final byte[] data)
+    {
+        this.data = data;
+        pos = 2;
+    }
+
+    private JsonNode readMessage() throws Exception
+    {
+        final ObjectNode message = nodes.objectNode();
+        while (pos < data.length)
+            readField(message);
+        return message;
+    }
+
+    private void readField(final ObjectNode object) throws Exception
+    {
+        final int key = readByte();
+        if (key >= BinaryModelWriter.KEYS.length)
+            throw new Exception("Unknown key " + key + " at offset " + (pos-1));
+        object.set(BinaryModelWriter.KEYS[key], readValue());
+    }
+
+    private JsonNode readValue() throws Exception
+    {
+        final int type = readByte();
+        switch (type)
+        {
+        case BinaryModelWriter.STRING:
+        {
+            final int len = (int) readVarint();
+            if (len < 0  ||  pos + len > data.length)
+                throw new Exception("Invalid string length " + len + " at offset " + pos);
+            final String text = new String(data, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return nodes.textNode(text);
+        }
+        case BinaryModelWriter.TRUE:
+            return nodes.booleanNode(true);
+        case BinaryModelWriter.FALSE:
+            return nodes.booleanNode(false);
+        case BinaryModelWriter.NUMBER:
+        {
+            final long zigzag = readVarint();
+            final long value = (zigzag >>> 1) ^ -(zigzag & 1);
+            if (value >= Integer.MIN_VALUE  &&  value <= Integer.MAX_VALUE)
+                return nodes.numberNode((int) value);
+            return nodes.numberNode(value);
+        }
+        case BinaryModelWriter.SEVERITY_LEVEL:
+        {
+            final int ordinal = readByte();
+            if (ordinal >= SEVERITIES.length)
+                throw new Exception("Invalid severity " + ordinal);
+            return nodes.textNode(SEVERITIES[ordinal].name());
+        }
+        case BinaryModelWriter.OBJECT:
+        {
+            final ObjectNode object = nodes.objectNode();
+            for (long count = readVarint(); count > 0; --count)
+                readField(object);
+            return object;
+        }
+        case BinaryModelWriter.ARRAY:
+        {
+            final ArrayNode array = nodes.arrayNode();
+            for (long count = readVarint(); count > 0; --count)
+                array.add(readValue());
+            return array;
+        }
+        default:
+            throw new Exception("Unknown value type " + type + " at offset " + (pos-1));
+        }
+    }
+
+    private int readByte() throws Exception
+    {
+        if (pos >= data.length)
+            throw new Exception("Binary message ends early");
+        return data[pos++] & 0xFF;
+    }
+
+    private long readVarint() throws Exception
+    {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            final int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new Exception("Invalid varint at offset " + pos);
+    }
+}
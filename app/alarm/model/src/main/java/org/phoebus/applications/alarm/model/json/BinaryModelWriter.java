@@ -0,0 +1,317 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.phoebus.applications.alarm.model.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.phoebus.applications.alarm.client.ClientState;
+import org.phoebus.applications.alarm.client.IdentificationHelper;
+import org.phoebus.applications.alarm.model.AlarmState;
+import org.phoebus.applications.alarm.model.AlarmTreeItem;
+import org.phoebus.applications.alarm.model.AlarmTreeLeaf;
+import org.phoebus.applications.alarm.model.BasicState;
+import org.phoebus.applications.alarm.model.SeverityLevel;
+import org.phoebus.applications.alarm.model.TitleDetail;
+import org.phoebus.applications.alarm.model.TitleDetailDelay;
+
+/** Write alarm state and configuration in compact binary encoding
+ *
+ *  <p>Binary messages carry the same information as the JSON
+ *  messages of the {@link JsonModelWriter}, and
+ *  {@link JsonModelReader#parse(byte[])} turns them into the same
+ *  JSON tree, so code that handles JSON messages also handles binary ones.
+ *
+ *  <p>Encoding:
+ *  <pre>
+ *  byte MAGIC, not a valid start of JSON text
+ *  byte VERSION
+ *  Object fields until end of message
+ *
+ *  Field:
+ *    byte Key, index into {@link #KEYS}
+ *    Value
+ *
+ *  Value:
+ *    byte Type, followed by type-specific data:
+ *    STRING:   varint length, UTF-8 bytes
+ *    TRUE, FALSE
+ *    NUMBER:   zig-zag varint
+ *    SEVERITY: byte ordinal of SeverityLevel, read as name of the severity
+ *    OBJECT:   varint number of fields, fields
+ *    ARRAY:    varint number of elements, values
+ *  </pre>
+ *
+ *  <p>An instance re-uses its buffer and is not thread-safe.
+ */
+@SuppressWarnings("nls")
+public class BinaryModelWriter
+{
+    /** First byte of binary message */
+    public static final byte MAGIC = (byte) 0xA1;
+
+    /** Version of the encoding */
+    static final byte VERSION = 1;
+
+    /** Keys, identified by their index.
+     *  Only add to the end of this list, never re-order!
+     */
+    static final String[] KEYS =
+    {
+        JsonTags.SEVERITY,
+        JsonTags.LATCH,
+        JsonTags.MESSAGE,
+        JsonTags.VALUE,
+        JsonTags.TIME,
+        JsonTags.SECONDS,
+        JsonTags.NANO,
+        JsonTags.CURRENT_SEVERITY,
+        JsonTags.CURRENT_MESSAGE,
+        JsonTags.MODE,
+        JsonTags.NOTIFY,
+        JsonTags.USER,
+        JsonTags.HOST,
+        JsonTags.DESCRIPTION,
+        JsonTags.ENABLED,
+        JsonTags.LATCHING,
+        JsonTags.ANNUNCIATING,
+        JsonTags.DELAY,
+        JsonTags.COUNT,
+        JsonTags.FILTER,
+        JsonTags.GUIDANCE,
+        JsonTags.DISPLAYS,
+        JsonTags.COMMANDS,
+        JsonTags.ACTIONS,
+        JsonTags.TITLE,
+        JsonTags.DETAILS,
+        JsonTags.DELETE
+    };
+
+    // Key indices
+    private static final int SEVERITY = 0, LATCH = 1, MESSAGE = 2, VALUE = 3, TIME = 4, SECONDS = 5, NANO = 6,
+                             CURRENT_SEVERITY = 7, CURRENT_MESSAGE = 8, MODE = 9, NOTIFY = 10,
+                             USER = 11, HOST = 12, DESCRIPTION = 13, ENABLED = 14, LATCHING = 15,
+                             ANNUNCIATING = 16, DELAY = 17, COUNT = 18, FILTER = 19,
+                             GUIDANCE = 20, DISPLAYS = 21, COMMANDS = 22, ACTIONS = 23,
+                             TITLE = 24, DETAILS = 25, DELETE = 26;
+
+    /** Value types */
+    static final byte STRING = 1, TRUE = 2, FALSE = 3, NUMBER = 4, SEVERITY_LEVEL = 5, OBJECT = 6, ARRAY = 7;
+
+    private byte[] buf = new byte[256];
+    private int size;
+
+    /** @param data Message data
+     *  @return <code>true</code> if data uses binary encoding, <code>false</code> for JSON text
+     */
+    public static boolean isBinary(final byte[] data)
+    {
+        return data != null  &&  data.length >= 2  &&  data[0] == MAGIC;
+    }
+
+    /** @param state {@link BasicState} or {@link ClientState}
+     *  @param maintenance_mode true if in maintenance mode
+     *  @param disable_notify true if notifications are disabled
+     *  @return Binary encoding of the state
+     */
+    public byte[] toBytes(final BasicState state, final boolean maintenance_mode, final boolean disable_notify)
+    {
+        start();
+        writeKey(SEVERITY);
+        writeSeverity(state.severity);
+        if (state instanceof AlarmState  &&  ((AlarmState) state).isLatched())
+            writeBoolean(LATCH, true);
+        if (state instanceof ClientState)
+        {
+            final ClientState as = (ClientState) state;
+            writeString(MESSAGE, as.message);
+            writeString(VALUE, as.value);
+            writeKey(TIME);
+            writeByte(OBJECT);
+            writeVarint(2);
+            writeNumber(SECONDS, as.time.getEpochSecond());
+            writeNumber(NANO, as.time.getNano());
+            writeKey(CURRENT_SEVERITY);
+            writeSeverity(as.current_severity);
+            writeString(CURRENT_MESSAGE, as.current_message);
+        }
+        if (maintenance_mode)
+            writeString(MODE, JsonTags.MAINTENANCE);
+        if (disable_notify)
+            writeBoolean(NOTIFY, false);
+        return result();
+    }
+
+    /** @param item Alarm tree item
+     *  @return Binary encoding of the item's configuration
+     */
+    public byte[] toBytes(final AlarmTreeItem<?> item)
+    {
+        start();
+        writeString(USER, IdentificationHelper.getUser());
+        writeString(HOST, IdentificationHelper.getHost());
+
+        if (item instanceof AlarmTreeLeaf)
+        {
+            final AlarmTreeLeaf leaf = (AlarmTreeLeaf) item;
+            writeString(DESCRIPTION, leaf.getDescription());
+            if (leaf.getEnabledDate() != null)
+                writeString(ENABLED, leaf.getEnabled().toString());
+            else if (! leaf.isEnabled())
+                writeBoolean(ENABLED, false);
+            if (! leaf.isLatching())
+                writeBoolean(LATCHING, false);
+            if (! leaf.isAnnunciating())
+                writeBoolean(ANNUNCIATING, false);
+            if (leaf.getDelay() > 0)
+                writeNumber(DELAY, leaf.getDelay());
+            if (leaf.getCount() > 0)
+                writeNumber(COUNT, leaf.getCount());
+            if (! leaf.getFilter().isEmpty())
+                writeString(FILTER, leaf.getFilter());
+        }
+
+        writeTitleDetail(GUIDANCE, item.getGuidance());
+        writeTitleDetail(DISPLAYS, item.getDisplays());
+        writeTitleDetail(COMMANDS, item.getCommands());
+        writeTitleDetailDelay(ACTIONS, item.getActions());
+        return result();
+    }
+
+    /** @return Binary encoding of a message that identifies who deletes an item */
+    public byte[] deleteMessageToBytes()
+    {
+        start();
+        writeString(USER, IdentificationHelper.getUser());
+        writeString(HOST, IdentificationHelper.getHost());
+        writeString(DELETE, "Deleting");
+        return result();
+    }
+
+    private void writeTitleDetail(final int key, final List<TitleDetail> infos)
+    {
+        if (infos.isEmpty())
+            return;
+        writeKey(key);
+        writeByte(ARRAY);
+        writeVarint(infos.size());
+        for (TitleDetail info : infos)
+        {
+            writeByte(OBJECT);
+            writeVarint(2);
+            writeString(TITLE, info.title);
+            writeString(DETAILS, info.detail);
+        }
+    }
+
+    private void writeTitleDetailDelay(final int key, final List<TitleDetailDelay> infos)
+    {
+        if (infos.isEmpty())
+            return;
+        writeKey(key);
+        writeByte(ARRAY);
+        writeVarint(infos.size());
+        for (TitleDetailDelay info : infos)
+        {
+            writeByte(OBJECT);
+            writeVarint(3);
+            writeString(TITLE, info.title);
+            writeString(DETAILS, info.detail);
+            writeNumber(DELAY, info.delay);
+        }
+    }
+
+    private void start()
+    {
+        size = 0;
+        writeByte(MAGIC);
+        writeByte(VERSION);
+    }
+
+    private byte[] result()
+    {
+        return Arrays.copyOf(buf, size);
+    }
+
+    private void ensureCapacity(final int needed)
+    {
+        if (size + needed > buf.length)
+            buf = Arrays.copyOf(buf, Math.max(2*buf.length, size + needed));
+    }
+
+    private void writeByte(final int value)
+    {
+        ensureCapacity(1);
+        buf[size++] = (byte) value;
+    }
+
+    private void writeVarint(long value)
+    {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0)
+        {
+            buf[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[size++] = (byte) value;
+    }
+
+    private void writeKey(final int key)
+    {
+        writeByte(key);
+    }
+
+    private void writeSeverity(final SeverityLevel severity)
+    {
+        writeByte(SEVERITY_LEVEL);
+        writeByte(severity.ordinal());
+    }
+
+    private void writeBoolean(final int key, final boolean value)
+    {
+        writeKey(key);
+        writeByte(value ? TRUE : FALSE);
+    }
+
+    private void writeNumber(final int key, final long value)
+    {
+        writeKey(key);
+        writeByte(NUMBER);
+        // Zig-zag encoding keeps small negative numbers short
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    private void writeString(final int key, final String value)
+    {
+        writeKey(key);
+        writeByte(STRING);
+        final int len = value.length();
+        // Write ASCII text directly, fall back to full UTF-8 encoding
+        ensureCapacity(5 + len);
+        final int start = size;
+        writeVarint(len);
+        int i = 0;
+        for (/**/; i<len; ++i)
+        {
+            final char c = value.charAt(i);
+            if (c >= 0x80)
+                break;
+            buf[size++] = (byte) c;
+        }
+        if (i < len)
+        {
+            size = start;
+            final byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length);
+            ensureCapacity(utf8.length);
+            System.arraycopy(utf8, 0, buf, size, utf8.length);
+            size += utf8.length;
+        }
+    }
+}
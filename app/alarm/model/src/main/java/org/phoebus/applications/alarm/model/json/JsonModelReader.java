@@ -9,6 +9,7 @@ package org.phoebus.applications.alarm.model.json;
 
 import static org.phoebus.applications.alarm.AlarmSystem.logger;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -59,6 +60,40 @@ public class JsonModelReader
         }
     }
 
+    /** Parse message in JSON text or binary encoding
+     *  @param data Message created by {@link JsonModelWriter} or {@link BinaryModelWriter}
+     *  @return JSON object
+     *  @throws Exception
+     */
+    public static Object parse(final byte[] data) throws Exception
+    {
+        if (BinaryModelWriter.isBinary(data))
+            return BinaryModelReader.parse(data);
+        return JsonModelWriter.mapper.readTree(data);
+    }
+
+    /** Get JSON text for message, for example to log it
+     *  @param data Message created by {@link JsonModelWriter} or {@link BinaryModelWriter}, may be <code>null</code>
+     *  @return JSON text, <code>null</code> for <code>null</code> data
+     */
+    public static String toJsonText(final byte[] data)
+    {
+        if (data == null)
+            return null;
+        if (BinaryModelWriter.isBinary(data))
+        {
+            try
+            {
+                return BinaryModelReader.parse(data).toString();
+            }
+            catch (Exception ex)
+            {
+                return "Invalid binary message: " + ex.getMessage();
+            }
+        }
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
     /** Is this the configuration or alarm state for a leaf?
      *  @param json JSON returned by {@link #parseJsonText(String)}
      *  @return <code>true</code> for {@link AlarmTreeLeaf}, <code>false</code> for {@link AlarmClientNode}
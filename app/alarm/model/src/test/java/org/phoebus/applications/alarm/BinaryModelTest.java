@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.phoebus.applications.alarm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.Test;
+import org.phoebus.applications.alarm.client.AlarmClientLeaf;
+import org.phoebus.applications.alarm.client.AlarmClientNode;
+import org.phoebus.applications.alarm.client.ClientState;
+import org.phoebus.applications.alarm.messages.AlarmMessage;
+import org.phoebus.applications.alarm.messages.MessageParser;
+import org.phoebus.applications.alarm.model.BasicState;
+import org.phoebus.applications.alarm.model.SeverityLevel;
+import org.phoebus.applications.alarm.model.TitleDetail;
+import org.phoebus.applications.alarm.model.TitleDetailDelay;
+import org.phoebus.applications.alarm.model.json.BinaryModelWriter;
+import org.phoebus.applications.alarm.model.json.JsonModelReader;
+import org.phoebus.applications.alarm.model.json.JsonModelWriter;
+
+/** JUnit test of {@link BinaryModelWriter}
+ *
+ *  <p>Binary messages must decode into the same JSON tree as the JSON text.
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class BinaryModelTest
+{
+    private final BinaryModelWriter writer = new BinaryModelWriter();
+
+    private void checkSame(final byte[] json, final byte[] binary) throws Exception
+    {
+        System.out.println(new String(json) + " (" + json.length + " bytes JSON, " + binary.length + " bytes binary)");
+        assertFalse(BinaryModelWriter.isBinary(json));
+        assertTrue(BinaryModelWriter.isBinary(binary));
+        assertTrue(binary.length < json.length);
+        assertEquals(JsonModelReader.parse(json), JsonModelReader.parse(binary));
+        assertEquals(JsonModelReader.parse(json).toString(), JsonModelReader.toJsonText(binary));
+    }
+
+    @Test
+    public void testState() throws Exception
+    {
+        final BasicState node_state = new BasicState(SeverityLevel.MAJOR_ACK);
+        checkSame(JsonModelWriter.toJsonBytes(node_state, false, false),
+                  writer.toBytes(node_state, false, false));
+
+        final ClientState pv_state = new ClientState(SeverityLevel.MINOR, "LOW", "3.14",
+                                                     Instant.ofEpochSecond(1600000000, 123456789),
+                                                     SeverityLevel.MAJOR, "LOLO, Ünits °C", true);
+        checkSame(JsonModelWriter.toJsonBytes(pv_state, true, true),
+                  writer.toBytes(pv_state, true, true));
+
+        final Object json = JsonModelReader.parse(writer.toBytes(pv_state, true, false));
+        assertTrue(JsonModelReader.isStateUpdate(json));
+        assertTrue(JsonModelReader.isLeafConfigOrState(json));
+        assertTrue(JsonModelReader.isMaintenanceMode(json));
+        assertFalse(JsonModelReader.isDisableNotify(json));
+        final ClientState decoded = JsonModelReader.parseClientState(json);
+        assertEquals(pv_state.severity, decoded.severity);
+        assertEquals(pv_state.message, decoded.message);
+        assertEquals(pv_state.time, decoded.time);
+        assertEquals(pv_state.current_message, decoded.current_message);
+    }
+
+    @Test
+    public void testConfig() throws Exception
+    {
+        final AlarmClientNode node = new AlarmClientNode(null, "Area");
+        node.setGuidance(List.of(new TitleDetail("Call", "Call the expert")));
+        node.setDisplays(List.of(new TitleDetail("Main", "file:/some/main.bob"),
+                                 new TitleDetail("Other", "file:/some/other.bob")));
+        checkSame(JsonModelWriter.toJsonBytes(node), writer.toBytes(node));
+
+        final AlarmClientLeaf pv = new AlarmClientLeaf(null, "Some:PV");
+        pv.setDescription("Some PV");
+        pv.setEnabled(false);
+        pv.setLatching(false);
+        pv.setDelay(5);
+        pv.setCount(-2);
+        pv.setFilter("Other:PV > 2");
+        pv.setActions(List.of(new TitleDetailDelay("Email", "mailto:someone@example.org", 10)));
+        checkSame(JsonModelWriter.toJsonBytes(pv), writer.toBytes(pv));
+
+        checkSame(JsonModelWriter.deleteMessageToBytes(), writer.deleteMessageToBytes());
+    }
+
+    @Test
+    public void testMessageParser() throws Exception
+    {
+        final MessageParser<AlarmMessage> parser = new MessageParser<>(AlarmMessage.class);
+        final ClientState pv_state = new ClientState(SeverityLevel.MINOR, "LOW", "3.14",
+                                                     Instant.ofEpochSecond(1600000000, 123456789),
+                                                     SeverityLevel.MAJOR, "LOLO");
+        final AlarmMessage from_json = parser.deserialize("Test", JsonModelWriter.toJsonBytes(pv_state, false, false));
+        final AlarmMessage from_binary = parser.deserialize("Test", writer.toBytes(pv_state, false, false));
+        assertEquals(from_json.getSeverity(), from_binary.getSeverity());
+        assertEquals(from_json.getCurrent_message(), from_binary.getCurrent_message());
+        assertEquals(from_json.getTime(), from_binary.getTime());
+        assertEquals(from_json.getAlarmTime(), from_binary.getAlarmTime());
+    }
+}
@@ -14,10 +14,12 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 
 import org.csstudio.trends.databrowser3.Activator;
@@ -27,6 +29,7 @@ import org.csstudio.trends.databrowser3.model.ArchiveDataSource;
 import org.csstudio.trends.databrowser3.model.PVItem;
 import org.csstudio.trends.databrowser3.model.RequestType;
 import org.csstudio.trends.databrowser3.preferences.Preferences;
+import org.epics.vtype.Time;
 import org.epics.vtype.VType;
 import org.phoebus.archive.reader.ArchiveReader;
 import org.phoebus.archive.reader.ArchiveReaders;
@@ -44,6 +47,10 @@ import org.phoebus.util.time.TimestampFormats;
  *  <p>Actually spawns another thread so that the 'main' job can
  *  poll the progress monitor for cancellation and ask the secondary
  *  thread to cancel.
+ *
+ *  <p>Unless disabled via preferences, the time range is split into
+ *  {@link ArchiveTile}s which are read from the {@link ArchiveTileCache}
+ *  or fetched in parallel.
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
@@ -55,6 +62,9 @@ public class ArchiveFetchJob implements JobRunnable
     /** Limit the number of concurrently running jobs */
     private static final Semaphore concurrent_requests = new Semaphore(Preferences.concurrent_requests, true);
 
+    /** Limit the number of concurrent tile requests per archive URL */
+    private static final ConcurrentHashMap<String, Semaphore> tile_permits = new ConcurrentHashMap<>();
+
     /** Item for which to fetch samples */
     private final PVItem item;
 
@@ -79,8 +89,8 @@ public class ArchiveFetchJob implements JobRunnable
         private volatile String message = "Queued";
         private volatile boolean cancelled = false;
 
-        /** Archive reader that's currently queried */
-        private AtomicReference<ArchiveReader> reader = new AtomicReference<>();
+        /** Archive readers that are currently queried */
+        private final Set<ArchiveReader> readers = ConcurrentHashMap.newKeySet();
 
         /** @return Message that somehow indicates progress */
         public String getMessage()
@@ -93,11 +103,150 @@ public class ArchiveFetchJob implements JobRunnable
         {
             cancelled = true;
 
-            final ArchiveReader the_reader = reader.get();
-            if (the_reader != null)
+            for (ArchiveReader the_reader : readers)
                 the_reader.cancel();
         }
 
+        /** Fetch samples from one archive reader
+         *  @param url Archive data source
+         *  @param start Start time
+         *  @param end End time
+         *  @param bins Number of bins for optimized request
+         *  @return Samples
+         *  @throws Exception on error
+         */
+        private List<VType> fetch(final String url, final Instant start, final Instant end, final int bins) throws Exception
+        {
+            try
+            (
+                final ArchiveReader the_reader = ArchiveReaders.createReader(url);
+            )
+            {
+                readers.add(the_reader);
+                try
+                (
+                    final ValueIterator value_iter = (item.getRequestType() == RequestType.RAW)
+                                        ? the_reader.getRawValues(item.getResolvedName(), start, end)
+                                        : the_reader.getOptimizedValues(item.getResolvedName(), start, end, bins)
+                )
+                {
+                    // Get samples into array
+                    final List<VType> result = new ArrayList<>();
+                    while (value_iter.hasNext())
+                        result.add(value_iter.next());
+                    return result;
+                }
+                finally
+                {
+                    readers.remove(the_reader);
+                }
+            }
+        }
+
+        /** Fetch samples from one archive data source in tiles
+         *
+         *  <p>Tiles are read from the cache or fetched in parallel.
+         *
+         *  @param url Archive data source
+         *  @param bins Number of bins for optimized request
+         *  @return Samples
+         *  @throws Exception on error
+         */
+        private List<VType> fetchTiles(final String url, final int bins) throws Exception
+        {
+            final List<ArchiveTile> tiles = ArchiveTile.cover(url, item.getResolvedName(), start, end,
+                                                              item.getRequestType() == RequestType.RAW ? 0 : bins,
+                                                              Preferences.archive_tiles);
+            final ArchiveTileCache cache = ArchiveTileCache.getInstance();
+            final Semaphore permits = tile_permits.computeIfAbsent(url,
+                                          u -> new Semaphore(Preferences.archive_tile_threads, true));
+            final List<Future<List<VType>>> results = new ArrayList<>(tiles.size());
+            for (ArchiveTile tile : tiles)
+                results.add(Activator.thread_pool.submit(() -> fetchTile(tile, cache, permits)));
+            try
+            {
+                // Concatenate tiles.
+                // A tile may start with the last sample before its start time,
+                // which has already been provided by the previous tile.
+                final List<VType> result = new ArrayList<>();
+                Instant last = null;
+                for (Future<List<VType>> tile : results)
+                {
+                    boolean leading = true;
+                    for (VType sample : getTile(tile))
+                    {
+                        final Time time = Time.timeOf(sample);
+                        if (leading  &&  last != null  &&  time != null  &&
+                            ! time.getTimestamp().isAfter(last))
+                            continue;
+                        leading = false;
+                        result.add(sample);
+                        if (time != null)
+                            last = time.getTimestamp();
+                    }
+                }
+                return result;
+            }
+            finally
+            {
+                // Don't start remaining tiles after an error
+                for (Future<List<VType>> tile : results)
+                    tile.cancel(false);
+            }
+        }
+
+        /** @param tile Tile to fetch from cache or archive
+         *  @param cache Tile cache or <code>null</code>
+         *  @param permits Permits for accessing the archive
+         *  @return Samples of the tile
+         *  @throws Exception on error
+         */
+        private List<VType> fetchTile(final ArchiveTile tile, final ArchiveTileCache cache, final Semaphore permits) throws Exception
+        {
+            if (cache != null)
+            {
+                final List<VType> cached = cache.get(tile);
+                if (cached != null)
+                {
+                    logger.log(Level.FINE, () -> "Cached " + tile);
+                    return cached;
+                }
+            }
+            permits.acquire();
+            try
+            {
+                if (cancelled)
+                    return List.of();
+                logger.log(Level.FINE, () -> "Fetching " + tile);
+                final List<VType> samples = fetch(tile.getUrl(), tile.getStart(), tile.getEnd(), tile.getBins());
+                if (cache != null  &&  ! cancelled)
+                    cache.put(tile, samples);
+                return samples;
+            }
+            finally
+            {
+                permits.release();
+            }
+        }
+
+        /** @param tile Tile that's being fetched
+         *  @return Samples of the tile
+         *  @throws Exception on error, including {@link UnknownChannelException}
+         */
+        private List<VType> getTile(final Future<List<VType>> tile) throws Exception
+        {
+            try
+            {
+                return tile.get();
+            }
+            catch (ExecutionException ex)
+            {
+                if (ex.getCause() instanceof Exception)
+                    throw (Exception) ex.getCause();
+                throw ex;
+            }
+        }
+
         /** {@inheritDoc} */
         @Override
         public void run()
@@ -127,35 +276,21 @@ public class ArchiveFetchJob implements JobRunnable
                 message = MessageFormat.format(Messages.ArchiveFetchDetailFmt,
                                                archive.getName(), ++i, archives.size());
                 try
-                (
-                    final ArchiveReader the_reader = ArchiveReaders.createReader(url);
-                )
                 {
-                    reader.set(the_reader);
-                    try
-                    (
-                        final ValueIterator value_iter = (item.getRequestType() == RequestType.RAW)
-                                            ? the_reader.getRawValues(item.getResolvedName(), start, end)
-                                            : the_reader.getOptimizedValues(item.getResolvedName(), start, end, bins)
-                    )
-                    {
-                        // Get samples into array
-                        final List<VType> result = new ArrayList<>();
-                        while (value_iter.hasNext())
-                            result.add(value_iter.next());
-                        samples += result.size();
-                        item.mergeArchivedSamples(archive.getName(), result);
-                    }
-                    catch (UnknownChannelException e)
-                    {
-                        // Do not immediately notify about unknown channels. First search for the data in all archive
-                        // sources and only report this kind of errors at the end
-                        archives_without_channel.add(archive);
-                    }
-                    finally
-                    {
-                        reader.set(null);
-                    }
+                    final List<VType> result = (Preferences.archive_tiles > 0)
+                                             ? fetchTiles(url, bins)
+                                             : fetch(url, start, end, bins);
+                    // Don't merge what might be incomplete
+                    if (cancelled)
+                        break;
+                    samples += result.size();
+                    item.mergeArchivedSamples(archive.getName(), result);
+                }
+                catch (UnknownChannelException e)
+                {
+                    // Do not immediately notify about unknown channels. First search for the data in all archive
+                    // sources and only report this kind of errors at the end
+                    archives_without_channel.add(archive);
                 }
                 catch (Exception ex)
                 {   // Tell listener unless it's the result of a 'cancel'?
@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.archive;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Time range of an archive request
+ *
+ *  <p>Archive requests are split into tiles on a fixed time grid.
+ *  The tile duration is a power of two seconds,
+ *  and tile <code>index</code> covers
+ *  <code>[index * seconds, (index+1) * seconds)</code> in epoch seconds.
+ *  When panning, the same tiles are thus requested again
+ *  and can be fetched from the {@link ArchiveTileCache}.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ArchiveTile
+{
+    private final String url, channel;
+    private final long seconds, index;
+    private final int bins;
+
+    /** @param url Archive data source URL
+     *  @param channel Channel name
+     *  @param seconds Tile duration
+     *  @param index Tile index
+     *  @param bins Number of bins for optimized request, 0 for raw data
+     */
+    public ArchiveTile(final String url, final String channel, final long seconds, final long index, final int bins)
+    {
+        this.url = url;
+        this.channel = channel;
+        this.seconds = seconds;
+        this.index = index;
+        this.bins = bins;
+    }
+
+    /** Determine tiles for a request
+     *
+     *  <p>The tile duration is the smallest power of two seconds
+     *  that covers the requested range with at most <code>tiles</code> tiles,
+     *  and the bins are distributed onto the tiles, again rounded up
+     *  to a power of two to allow re-use while zooming.
+     *
+     *  @param url Archive data source URL
+     *  @param channel Channel name
+     *  @param start Start of the request
+     *  @param end End of the request
+     *  @param bins Bins for the complete request, 0 for raw data
+     *  @param tiles Desired number of tiles
+     *  @return Tiles that cover the request, in time order
+     */
+    public static List<ArchiveTile> cover(final String url, final String channel,
+                                          final Instant start, final Instant end,
+                                          final int bins, final int tiles)
+    {
+        final long first_second = start.getEpochSecond();
+        final long last_second = end.getEpochSecond();
+        final long span = Math.max(1, last_second - first_second);
+        long seconds = 1;
+        while (seconds * tiles < span)
+            seconds *= 2;
+
+        int tile_bins = 0;
+        if (bins > 0)
+        {
+            final long needed = (bins * seconds + span - 1) / span;
+            tile_bins = 1;
+            while (tile_bins < needed)
+                tile_bins *= 2;
+        }
+
+        final List<ArchiveTile> result = new ArrayList<>();
+        final long last = Math.floorDiv(last_second, seconds);
+        for (long index = Math.floorDiv(first_second, seconds);  index <= last;  ++index)
+            result.add(new ArchiveTile(url, channel, seconds, index, tile_bins));
+        return result;
+    }
+
+    /** @return Archive data source URL */
+    public String getUrl()
+    {
+        return url;
+    }
+
+    /** @return Channel name */
+    public String getChannel()
+    {
+        return channel;
+    }
+
+    /** @return Number of bins for optimized request, 0 for raw data */
+    public int getBins()
+    {
+        return bins;
+    }
+
+    /** @return Start time of the tile */
+    public Instant getStart()
+    {
+        return Instant.ofEpochSecond(index * seconds);
+    }
+
+    /** @return End time of the tile */
+    public Instant getEnd()
+    {
+        return Instant.ofEpochSecond((index + 1) * seconds);
+    }
+
+    /** @return Key that identifies the tile */
+    public String getKey()
+    {
+        return url + "\n" + channel + "\n" + seconds + "\n" + index + "\n" + bins;
+    }
+
+    /** @return File name for the tile, a hash of its key */
+    public String getFileName()
+    {
+        try
+        {
+            final byte[] hash = MessageDigest.getInstance("SHA-1").digest(getKey().getBytes(StandardCharsets.UTF_8));
+            final StringBuilder buf = new StringBuilder(2 * hash.length + 5);
+            for (byte b : hash)
+                buf.append(String.format("%02x", b & 0xFF));
+            return buf.append(".tile").toString();
+        }
+        catch (Exception ex)
+        {
+            throw new IllegalStateException("Cannot hash tile key", ex);
+        }
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return getKey().hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object obj)
+    {
+        if (! (obj instanceof ArchiveTile))
+            return false;
+        return getKey().equals(((ArchiveTile) obj).getKey());
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Tile " + channel + " " + getStart() + " - " + getEnd() +
+               (bins > 0 ? ", " + bins + " bins" : ", raw") + " from " + url;
+    }
+}
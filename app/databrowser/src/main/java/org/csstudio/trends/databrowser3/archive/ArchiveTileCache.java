@@ -0,0 +1,457 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.archive;
+
+import static org.csstudio.trends.databrowser3.Activator.logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Level;
+
+import org.csstudio.trends.databrowser3.preferences.Preferences;
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.ListNumber;
+import org.epics.util.stats.Range;
+import org.epics.util.text.NumberFormats;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.EnumDisplay;
+import org.epics.vtype.Time;
+import org.epics.vtype.VByte;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VFloat;
+import org.epics.vtype.VInt;
+import org.epics.vtype.VLong;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VShort;
+import org.epics.vtype.VStatistics;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+import org.phoebus.framework.workbench.Locations;
+
+/** On-disk cache of archived samples for {@link ArchiveTile}s
+ *
+ *  <p>Each tile is saved in a file named by the hash of its key.
+ *  When the total file size exceeds the limit,
+ *  the least recently used tiles are deleted.
+ *  The last modification time of a file is updated on access,
+ *  so the LRU order persists across restarts.
+ *
+ *  <p>Tiles that end within {@link #OPEN_TILE_DELAY} of 'now'
+ *  may still receive new samples in the archive.
+ *  They are never cached, and a cached copy is removed.
+ *
+ *  <p>Tile file format, using {@link DataOutputStream}:
+ *  <pre>
+ *  int MAGIC, int VERSION, UTF tile key, int sample count
+ *  For each sample:
+ *    byte type (DOUBLE, ..., DOUBLE_ARRAY)
+ *    long epoch seconds, int nanoseconds
+ *    byte severity, byte status, UTF alarm name
+ *    For numeric types:
+ *      boolean new display, if true: 8 doubles for ranges, int precision, UTF units
+ *    Value:
+ *      DOUBLE, FLOAT: double
+ *      LONG, INT, SHORT, BYTE: long
+ *      STATISTICS: double average, stddev, min, max, int count
+ *      STRING: UTF text
+ *      ENUM: int index, int count, UTF labels
+ *      DOUBLE_ARRAY: int count, doubles
+ *  </pre>
+ */
+@SuppressWarnings("nls")
+public class ArchiveTileCache
+{
+    /** Time after the end of a tile before it may be cached */
+    public static final Duration OPEN_TILE_DELAY = Duration.ofMinutes(5);
+
+    private static final int MAGIC = 0x50544C45; // 'PTLE'
+    private static final int VERSION = 1;
+
+    private static final byte DOUBLE = 1, FLOAT = 2, LONG = 3, INT = 4, SHORT = 5, BYTE = 6,
+                              STATISTICS = 7, STRING = 8, ENUM = 9, DOUBLE_ARRAY = 10;
+
+    private static final AlarmSeverity[] SEVERITIES = AlarmSeverity.values();
+    private static final AlarmStatus[] STATI = AlarmStatus.values();
+
+    private static ArchiveTileCache instance = null;
+    private static boolean initialized = false;
+
+    private final File directory;
+    private final long max_bytes;
+
+    /** Size of cached files, in LRU order, least recently used first */
+    private final Map<String, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+    private long total_bytes = 0;
+
+    /** @return Cache configured by preferences, or <code>null</code> if disabled */
+    public static synchronized ArchiveTileCache getInstance()
+    {
+        if (! initialized)
+        {
+            initialized = true;
+            if (Preferences.archive_tile_cache_size > 0)
+            {
+                final File dir = Preferences.archive_tile_cache.isBlank()
+                               ? new File(Locations.user(), "databrowser_tiles")
+                               : new File(Preferences.archive_tile_cache);
+                try
+                {
+                    instance = new ArchiveTileCache(dir, Preferences.archive_tile_cache_size * 1024L * 1024L);
+                }
+                catch (Exception ex)
+                {
+                    logger.log(Level.WARNING, "Cannot use archive tile cache in " + dir, ex);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /** @param directory Cache directory, will be created
+     *  @param max_bytes Maximum size of cached tiles
+     *  @throws Exception on error
+     */
+    public ArchiveTileCache(final File directory, final long max_bytes) throws Exception
+    {
+        this.directory = directory;
+        this.max_bytes = max_bytes;
+        Files.createDirectories(directory.toPath());
+        final File[] existing = directory.listFiles((dir, name) -> name.endsWith(".tile"));
+        if (existing != null)
+        {
+            Arrays.sort(existing, Comparator.comparingLong(File::lastModified));
+            for (File file : existing)
+            {
+                files.put(file.getName(), file.length());
+                total_bytes += file.length();
+            }
+        }
+        evict();
+    }
+
+    /** @param tile Tile
+     *  @return <code>true</code> if the archive may still add samples to the tile
+     */
+    public static boolean isOpen(final ArchiveTile tile)
+    {
+        return tile.getEnd().plus(OPEN_TILE_DELAY).isAfter(Instant.now());
+    }
+
+    /** @return Total size of cached tiles */
+    public synchronized long getSize()
+    {
+        return total_bytes;
+    }
+
+    /** @param tile Tile to read
+     *  @return Samples of the tile, or <code>null</code> if not cached
+     */
+    public List<VType> get(final ArchiveTile tile)
+    {
+        final String name = tile.getFileName();
+        final File file = new File(directory, name);
+        synchronized (this)
+        {
+            if (files.get(name) == null)
+                return null;
+            if (isOpen(tile))
+            {
+                remove(name);
+                return null;
+            }
+        }
+        try
+        (
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())));
+        )
+        {
+            if (in.readInt() != MAGIC  ||  in.readInt() != VERSION  ||  ! tile.getKey().equals(in.readUTF()))
+                throw new IOException("Invalid tile file");
+            final int count = in.readInt();
+            final List<VType> samples = new ArrayList<>(count);
+            Display display = Display.none();
+            for (int i=0; i<count; ++i)
+            {
+                final byte type = in.readByte();
+                final Time time = Time.of(Instant.ofEpochSecond(in.readLong(), in.readInt()));
+                final Alarm alarm = Alarm.of(SEVERITIES[in.readByte()], STATI[in.readByte()], in.readUTF());
+                if (type != STRING  &&  type != ENUM  &&  in.readBoolean())
+                    display = readDisplay(in);
+                samples.add(readValue(in, type, alarm, time, display));
+            }
+            file.setLastModified(System.currentTimeMillis());
+            return samples;
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot read " + tile + " from " + file, ex);
+            synchronized (this)
+            {
+                remove(name);
+            }
+            return null;
+        }
+    }
+
+    /** @param tile Tile to cache
+     *  @param samples Samples of the tile
+     *  @return <code>true</code> if cached, <code>false</code> if tile is still open or has unsupported samples
+     */
+    public boolean put(final ArchiveTile tile, final List<VType> samples)
+    {
+        if (isOpen(tile))
+            return false;
+        for (VType sample : samples)
+            if (getType(sample) == 0)
+                return false;
+
+        final String name = tile.getFileName();
+        final File file = new File(directory, name);
+        File tmp = null;
+        try
+        {
+            tmp = File.createTempFile("tile", ".tmp", directory);
+            try
+            (
+                final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())));
+            )
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(tile.getKey());
+                out.writeInt(samples.size());
+                Display display = null;
+                for (VType sample : samples)
+                {
+                    final byte type = getType(sample);
+                    out.writeByte(type);
+                    final Time time = Time.timeOf(sample);
+                    out.writeLong(time.getTimestamp().getEpochSecond());
+                    out.writeInt(time.getTimestamp().getNano());
+                    final Alarm alarm = Alarm.alarmOf(sample);
+                    out.writeByte(alarm.getSeverity().ordinal());
+                    out.writeByte(alarm.getStatus().ordinal());
+                    out.writeUTF(alarm.getName());
+                    if (type != STRING  &&  type != ENUM)
+                    {
+                        final Display sample_display = Display.displayOf(sample);
+                        final boolean changed = ! Objects.equals(display, sample_display);
+                        out.writeBoolean(changed);
+                        if (changed)
+                        {
+                            writeDisplay(out, sample_display);
+                            display = sample_display;
+                        }
+                    }
+                    writeValue(out, type, sample);
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot cache " + tile + " in " + file, ex);
+            if (tmp != null)
+                tmp.delete();
+            return false;
+        }
+        synchronized (this)
+        {
+            final Long previous = files.put(name, file.length());
+            if (previous != null)
+                total_bytes -= previous;
+            total_bytes += file.length();
+            evict();
+        }
+        return true;
+    }
+
+    /** Remove least recently used files until size is within limit */
+    private void evict()
+    {
+        final Iterator<Map.Entry<String, Long>> iter = files.entrySet().iterator();
+        while (total_bytes > max_bytes  &&  iter.hasNext())
+        {
+            final Map.Entry<String, Long> entry = iter.next();
+            iter.remove();
+            total_bytes -= entry.getValue();
+            new File(directory, entry.getKey()).delete();
+        }
+    }
+
+    private void remove(final String name)
+    {
+        final Long size = files.remove(name);
+        if (size != null)
+            total_bytes -= size;
+        new File(directory, name).delete();
+    }
+
+    /** @param sample Sample
+     *  @return Type code, 0 if sample cannot be cached
+     */
+    private static byte getType(final VType sample)
+    {
+        final Time time = Time.timeOf(sample);
+        if (time == null  ||  Alarm.alarmOf(sample) == null)
+            return 0;
+        if (sample instanceof VStatistics)
+            return STATISTICS;
+        if (sample instanceof VDouble)
+            return DOUBLE;
+        if (sample instanceof VFloat)
+            return FLOAT;
+        if (sample instanceof VLong)
+            return LONG;
+        if (sample instanceof VInt)
+            return INT;
+        if (sample instanceof VShort)
+            return SHORT;
+        if (sample instanceof VByte)
+            return BYTE;
+        if (sample instanceof VString)
+            return STRING;
+        if (sample instanceof VEnum)
+            return ENUM;
+        if (sample instanceof VNumberArray)
+            return DOUBLE_ARRAY;
+        return 0;
+    }
+
+    private static void writeDisplay(final DataOutputStream out, final Display display) throws IOException
+    {
+        for (Range range : new Range[] { display.getDisplayRange(), display.getAlarmRange(),
+                                         display.getWarningRange(), display.getControlRange() })
+        {
+            out.writeDouble(range.getMinimum());
+            out.writeDouble(range.getMaximum());
+        }
+        final NumberFormat format = display.getFormat();
+        // Precision of custom format, -1 for default
+        if (format instanceof DecimalFormat  &&  ! format.equals(Display.defaultNumberFormat()))
+            out.writeInt(format.getMaximumFractionDigits());
+        else
+            out.writeInt(-1);
+        out.writeUTF(display.getUnit());
+    }
+
+    private static Display readDisplay(final DataInputStream in) throws IOException
+    {
+        final Range[] ranges = new Range[4];
+        for (int i=0; i<ranges.length; ++i)
+            ranges[i] = Range.of(in.readDouble(), in.readDouble());
+        final int precision = in.readInt();
+        final String units = in.readUTF();
+        return Display.of(ranges[0], ranges[1], ranges[2], ranges[3], units,
+                          precision < 0 ? Display.defaultNumberFormat() : NumberFormats.precisionFormat(precision));
+    }
+
+    private static void writeValue(final DataOutputStream out, final byte type, final VType sample) throws IOException
+    {
+        switch (type)
+        {
+        case STATISTICS:
+            final VStatistics stats = (VStatistics) sample;
+            out.writeDouble(stats.getAverage());
+            out.writeDouble(stats.getStdDev());
+            out.writeDouble(stats.getMin());
+            out.writeDouble(stats.getMax());
+            out.writeInt(stats.getNSamples());
+            break;
+        case DOUBLE:
+        case FLOAT:
+            out.writeDouble(((VNumber) sample).getValue().doubleValue());
+            break;
+        case STRING:
+            out.writeUTF(((VString) sample).getValue());
+            break;
+        case ENUM:
+            final VEnum value = (VEnum) sample;
+            out.writeInt(value.getIndex());
+            final List<String> labels = value.getDisplay().getChoices();
+            out.writeInt(labels.size());
+            for (String label : labels)
+                out.writeUTF(label);
+            break;
+        case DOUBLE_ARRAY:
+            final ListNumber data = ((VNumberArray) sample).getData();
+            out.writeInt(data.size());
+            for (int i=0; i<data.size(); ++i)
+                out.writeDouble(data.getDouble(i));
+            break;
+        default:
+            out.writeLong(((VNumber) sample).getValue().longValue());
+        }
+    }
+
+    private static VType readValue(final DataInputStream in, final byte type,
+                                   final Alarm alarm, final Time time, final Display display) throws IOException
+    {
+        switch (type)
+        {
+        case DOUBLE:
+            return VDouble.of(in.readDouble(), alarm, time, display);
+        case FLOAT:
+            return VFloat.of((float) in.readDouble(), alarm, time, display);
+        case LONG:
+            return VLong.of(in.readLong(), alarm, time, display);
+        case INT:
+            return VInt.of((int) in.readLong(), alarm, time, display);
+        case SHORT:
+            return VShort.of((short) in.readLong(), alarm, time, display);
+        case BYTE:
+            return VByte.of((byte) in.readLong(), alarm, time, display);
+        case STATISTICS:
+            return VStatistics.of(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(), in.readInt(),
+                                  alarm, time, display);
+        case STRING:
+            return VString.of(in.readUTF(), alarm, time);
+        case ENUM:
+        {
+            final int index = in.readInt();
+            final int count = in.readInt();
+            final List<String> labels = new ArrayList<>(count);
+            for (int i=0; i<count; ++i)
+                labels.add(in.readUTF());
+            return VEnum.of(index, EnumDisplay.of(labels), alarm, time);
+        }
+        case DOUBLE_ARRAY:
+        {
+            final double[] data = new double[in.readInt()];
+            for (int i=0; i<data.length; ++i)
+                data[i] = in.readDouble();
+            return VNumberArray.of(ArrayDouble.of(data), alarm, time, display);
+        }
+        default:
+            throw new IOException("Unknown sample type " + type);
+        }
+    }
+}
@@ -0,0 +1,638 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VByte;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VFloat;
+import org.epics.vtype.VInt;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VShort;
+import org.epics.vtype.VStatistics;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+import org.phoebus.archive.vtype.VTypeHelper;
+
+/** Samples of a scalar numeric PV in primitive arrays
+ *
+ *  <p>Time stamps, values and statistics are kept in columns
+ *  of primitive arrays instead of one {@link PlotSample} with
+ *  {@link VType} per sample.
+ *  Source, alarm and display information rarely change,
+ *  so each sample only keeps an index into a {@link MetaTable}.
+ *  A scalar sample thus requires 18 bytes,
+ *  plus 28 bytes for the min/max/stddev/count columns
+ *  which are only allocated for archived statistics.
+ *
+ *  <p>{@link #get(int)} returns a {@link PlotSample} that copies
+ *  the sample's data, so it remains valid when the samples change,
+ *  and creates its {@link VType} on demand.
+ *
+ *  <p>Samples that cannot be represented, like arrays or text,
+ *  are rejected by {@link #add(PlotSample)}, and the caller
+ *  then needs to fall back to keeping {@link PlotSample} objects.
+ *
+ *  <p>Once the capacity is reached, adding a sample
+ *  replaces the oldest sample like a ring buffer.
+ *
+ *  <p>Not thread-safe, all access is via {@link PVSamples}.
+ */
+class ColumnarSamples
+{
+    /** Kinds of samples */
+    private static final byte DOUBLE = 0, FLOAT = 1, INT = 2, SHORT = 3, BYTE = 4, STATISTICS = 5, INFO = 6;
+
+    /** Initial array size, arrays grow up to the capacity */
+    private static final int INITIAL_SIZE = 16;
+
+    private static final long NANOS = 1000000000L;
+
+    /** Kind, source, alarm and display of samples */
+    private static class Meta
+    {
+        final byte kind;
+        final String source;
+        final Alarm alarm;
+        final Display display;
+        /** Info text of samples, derived from alarm */
+        final String info;
+
+        Meta(final byte kind, final String source, final Alarm alarm, final Display display)
+        {
+            this.kind = kind;
+            this.source = source;
+            this.alarm = alarm;
+            this.display = display;
+            info = kind == INFO ? alarm.getName() : PlotSample.decodeAlarm(alarm);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(kind, source, alarm, display);
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (! (obj instanceof Meta))
+                return false;
+            final Meta other = (Meta) obj;
+            return kind == other.kind                  &&
+                   Objects.equals(source, other.source) &&
+                   Objects.equals(alarm, other.alarm)   &&
+                   Objects.equals(display, other.display);
+        }
+    }
+
+    /** Table of {@link Meta} information, shared by samples that are merged */
+    static class MetaTable
+    {
+        /** Maximum number of entries, limited by the 'char' index */
+        private static final int MAX_SIZE = Character.MAX_VALUE + 1;
+
+        private final List<Meta> metas = new ArrayList<>();
+        private final Map<Meta, Integer> indices = new HashMap<>();
+        private Meta last = null;
+        private int last_index = -1;
+
+        /** @return Index of meta info, -1 if table is full */
+        private int lookup(final byte kind, final String source, final Alarm alarm, final Display display)
+        {
+            // Most samples share the meta info of the previous sample,
+            // often even the very same objects
+            if (last != null  &&  last.kind == kind  &&
+                Objects.equals(last.source, source)  &&
+                (last.alarm == alarm  ||  last.alarm.equals(alarm))  &&
+                Objects.equals(last.display, display))
+                return last_index;
+            final Meta meta = new Meta(kind, source, alarm, display);
+            Integer index = indices.get(meta);
+            if (index == null)
+            {
+                if (metas.size() >= MAX_SIZE)
+                    return -1;
+                index = metas.size();
+                metas.add(meta);
+                indices.put(meta, index);
+            }
+            last = metas.get(index);
+            last_index = index;
+            return index;
+        }
+
+        private Meta get(final int index)
+        {
+            return metas.get(index);
+        }
+    }
+
+    /** View of one sample, copied from the columns */
+    private static class SampleView extends PlotSample
+    {
+        private final Meta meta;
+        private final long time;
+        private final double value, stddev, min, max;
+        private final int count;
+        private final AtomicInteger waveform_index;
+
+        SampleView(final AtomicInteger waveform_index, final Meta meta, final long time, final double value,
+                   final double stddev, final double min, final double max, final int count)
+        {
+            super(waveform_index, meta.source);
+            this.waveform_index = waveform_index;
+            this.meta = meta;
+            this.time = time;
+            this.value = value;
+            this.stddev = stddev;
+            this.min = min;
+            this.max = max;
+            this.count = count;
+        }
+
+        @Override
+        public VType getVType()
+        {
+            final Time vtime = Time.of(toInstant(time));
+            switch (meta.kind)
+            {
+            case FLOAT:
+                return VFloat.of((float) value, meta.alarm, vtime, meta.display);
+            case INT:
+                return VInt.of((int) value, meta.alarm, vtime, meta.display);
+            case SHORT:
+                return VShort.of((short) value, meta.alarm, vtime, meta.display);
+            case BYTE:
+                return VByte.of((byte) value, meta.alarm, vtime, meta.display);
+            case STATISTICS:
+                return VStatistics.of(value, stddev, min, max, count, meta.alarm, vtime, meta.display);
+            case INFO:
+                return VString.of(meta.info, meta.alarm, vtime);
+            case DOUBLE:
+            default:
+                return VDouble.of(value, meta.alarm, vtime, meta.display);
+            }
+        }
+
+        @Override
+        public Instant getPosition()
+        {
+            return toInstant(time);
+        }
+
+        @Override
+        public double getValue()
+        {
+            if (meta.kind == INFO)
+                return org.phoebus.core.vtypes.VTypeHelper.toDouble(getVType(), waveform_index.get());
+            return value;
+        }
+
+        /** @return Is this a statistics sample that provides min, max, .. for the waveform index? */
+        private boolean haveStats()
+        {
+            // See PlotSample.getStats()
+            return meta.kind == STATISTICS  &&  waveform_index.get() == 0;
+        }
+
+        @Override
+        public double getStdDev()
+        {
+            return haveStats() ? stddev : Double.NaN;
+        }
+
+        @Override
+        public double getMin()
+        {
+            return haveStats() ? min : Double.NaN;
+        }
+
+        @Override
+        public double getMax()
+        {
+            return haveStats() ? max : Double.NaN;
+        }
+
+        @Override
+        public String getInfo()
+        {
+            return meta.info;
+        }
+
+        @Override
+        public String toString()
+        {
+            return VTypeHelper.toString(getVType());
+        }
+    }
+
+    private final MetaTable metas;
+
+    /** Waveform index, passed to sample views */
+    private final AtomicInteger waveform_index;
+
+    /** Maximum number of samples */
+    private int capacity;
+
+    // Valid samples are in [start], [start+1], ..., [start+size-1]
+    // with wrap-around at [capacity-1].
+    // While the arrays are smaller than the capacity, start is 0.
+    private int start = 0, size = 0;
+
+    /** Time stamps in epoch nanoseconds */
+    private long[] times;
+    /** Numeric value, average for statistics */
+    private double[] values;
+    /** Index into meta table */
+    private char[] meta;
+    /** Statistics, <code>null</code> until there are statistics samples */
+    private double[] stddevs, mins, maxs;
+    private int[] counts;
+
+    /** @param metas Meta information table, may be shared with other samples
+     *  @param waveform_index Waveform index
+     *  @param capacity Maximum number of samples
+     */
+    ColumnarSamples(final MetaTable metas, final AtomicInteger waveform_index, final int capacity)
+    {
+        this(metas, waveform_index, capacity, INITIAL_SIZE);
+    }
+
+    /** @param metas Meta information table, may be shared with other samples
+     *  @param waveform_index Waveform index
+     *  @param capacity Maximum number of samples
+     *  @param initial_size Expected number of samples
+     */
+    ColumnarSamples(final MetaTable metas, final AtomicInteger waveform_index, final int capacity, final int initial_size)
+    {
+        this.metas = metas;
+        this.waveform_index = waveform_index;
+        this.capacity = capacity;
+        allocate(Math.max(1, Math.min(capacity, initial_size)));
+    }
+
+    /** @return Meta information table */
+    MetaTable getMetaTable()
+    {
+        return metas;
+    }
+
+    /** @return Waveform index */
+    AtomicInteger getWaveformIndex()
+    {
+        return waveform_index;
+    }
+
+    private void allocate(final int length)
+    {
+        times = new long[length];
+        values = new double[length];
+        meta = new char[length];
+        if (stddevs != null)
+            allocateStatistics(length);
+    }
+
+    private void allocateStatistics(final int length)
+    {
+        stddevs = new double[length];
+        mins = new double[length];
+        maxs = new double[length];
+        counts = new int[length];
+    }
+
+    /** @param instant Time stamp
+     *  @return Epoch nanoseconds, or <code>null</code> if outside of supported range
+     */
+    private static Long toNanos(final Instant instant)
+    {
+        try
+        {
+            return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), NANOS), instant.getNano());
+        }
+        catch (ArithmeticException ex)
+        {
+            return null;
+        }
+    }
+
+    private static Instant toInstant(final long nanos)
+    {
+        return Instant.ofEpochSecond(Math.floorDiv(nanos, NANOS), Math.floorMod(nanos, NANOS));
+    }
+
+    /** @return Number of samples */
+    int size()
+    {
+        return size;
+    }
+
+    /** @return Maximum number of samples */
+    int getCapacity()
+    {
+        return capacity;
+    }
+
+    /** Set new capacity, preserving the newest samples
+     *  @param new_capacity New sample count capacity
+     *  @throws Exception on out-of-memory error
+     */
+    void setCapacity(final int new_capacity) throws Exception
+    {
+        try
+        {
+            final int keep = Math.min(size, new_capacity);
+            resize(Math.max(keep, Math.min(new_capacity, INITIAL_SIZE)), size - keep);
+            capacity = new_capacity;
+        }
+        catch (OutOfMemoryError err)
+        {
+            throw new Exception("Out of memory: " + err.getMessage()); //$NON-NLS-1$
+        }
+    }
+
+    /** Copy samples into arrays of new length, starting at index 0
+     *  @param length New array length
+     *  @param first First sample to keep
+     */
+    private void resize(final int length, final int first)
+    {
+        final long[] old_times = times;
+        final double[] old_values = values, old_stddevs = stddevs, old_mins = mins, old_maxs = maxs;
+        final char[] old_meta = meta;
+        final int[] old_counts = counts;
+        final int old_length = old_times.length, old_start = start;
+        final int keep = size - first;
+        allocate(length);
+        for (int i=0; i<keep; ++i)
+        {
+            final int o = (old_start + first + i) % old_length;
+            times[i] = old_times[o];
+            values[i] = old_values[o];
+            meta[i] = old_meta[o];
+            if (old_stddevs != null)
+            {
+                stddevs[i] = old_stddevs[o];
+                mins[i] = old_mins[o];
+                maxs[i] = old_maxs[o];
+                counts[i] = old_counts[o];
+            }
+        }
+        start = 0;
+        size = keep;
+    }
+
+    /** @param sample Sample to add
+     *  @return <code>true</code> if added,
+     *          <code>false</code> if sample cannot be represented
+     */
+    boolean add(final PlotSample sample)
+    {
+        final VType value = sample.getVType();
+        final Time time = Time.timeOf(value);
+        if (time == null  ||  !time.isValid()  ||  time.getUserTag() != null)
+            return false;
+        final Long nanos = toNanos(time.getTimestamp());
+        if (nanos == null)
+            return false;
+        final Alarm alarm = Alarm.alarmOf(value);
+        final byte kind;
+        double number = Double.NaN;
+        if (value instanceof VStatistics)
+        {
+            final VStatistics stats = (VStatistics) value;
+            if (stats.getAverage() == null  ||  stats.getStdDev() == null  ||
+                stats.getMin() == null  ||  stats.getMax() == null  ||  stats.getNSamples() == null)
+                return false;
+            kind = STATISTICS;
+            number = stats.getAverage();
+        }
+        else if (value instanceof VNumber)
+        {
+            if (value instanceof VDouble)
+                kind = DOUBLE;
+            else if (value instanceof VFloat)
+                kind = FLOAT;
+            else if (value instanceof VInt)
+                kind = INT;
+            else if (value instanceof VShort)
+                kind = SHORT;
+            else if (value instanceof VByte)
+                kind = BYTE;
+            else
+                return false;
+            number = ((VNumber) value).getValue().doubleValue();
+        }
+        else if (value instanceof VString  &&
+                 alarm.getSeverity() == AlarmSeverity.UNDEFINED  &&
+                 alarm.getStatus() == AlarmStatus.UNDEFINED  &&
+                 alarm.getName().equals(((VString) value).getValue())  &&
+                 alarm.getName().equals(sample.getInfo()))
+            kind = INFO;  // Info marker like 'disconnected'
+        else
+            return false;
+        final int index = metas.lookup(kind, sample.getSource(), alarm,
+                                       kind == INFO ? null : Display.displayOf(value));
+        // Info text must be the one derived from the alarm
+        if (index < 0  ||  ! metas.get(index).info.equals(sample.getInfo()))
+            return false;
+
+        final int i = nextIndex();
+        times[i] = nanos;
+        values[i] = number;
+        meta[i] = (char) index;
+        if (kind == STATISTICS)
+        {
+            if (stddevs == null)
+                allocateStatistics(times.length);
+            final VStatistics stats = (VStatistics) value;
+            stddevs[i] = stats.getStdDev();
+            mins[i] = stats.getMin();
+            maxs[i] = stats.getMax();
+            counts[i] = stats.getNSamples();
+        }
+        else if (stddevs != null)
+        {
+            stddevs[i] = mins[i] = maxs[i] = Double.NaN;
+            counts[i] = 0;
+        }
+        return true;
+    }
+
+    /** @return Array index for next sample, replacing oldest sample when full */
+    private int nextIndex()
+    {
+        if (size >= capacity)
+        {
+            final int i = start;
+            start = (start + 1) % times.length;
+            return i;
+        }
+        if (size >= times.length)
+            resize((int) Math.min(capacity, 2L * times.length), 0);
+        return size++;
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @return Array index
+     */
+    private int arrayIndex(final int i)
+    {
+        if (i < 0  ||  i >= size)
+            throw new ArrayIndexOutOfBoundsException(i);
+        final int a = start + i;
+        return a < times.length ? a : a - times.length;
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @return Time stamp in epoch nanoseconds
+     */
+    long getTime(final int i)
+    {
+        return times[arrayIndex(i)];
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @return Sample
+     */
+    PlotSample get(final int i)
+    {
+        final int a = arrayIndex(i);
+        final Meta info = metas.get(meta[a]);
+        if (stddevs != null)
+            return new SampleView(waveform_index, info, times[a], values[a],
+                                  stddevs[a], mins[a], maxs[a], counts[a]);
+        return new SampleView(waveform_index, info, times[a], values[a],
+                              Double.NaN, Double.NaN, Double.NaN, 0);
+    }
+
+    /** @param time Time stamp
+     *  @return Index of last sample before the time, or -1
+     */
+    int findSampleLessThan(final Instant time)
+    {
+        final Long nanos = toNanos(time);
+        if (nanos == null)
+            return time.getEpochSecond() < 0 ? -1 : size - 1;
+        return findSampleLessThan(nanos);
+    }
+
+    /** @param nanos Time stamp in epoch nanoseconds
+     *  @return Index of last sample before the time, or -1
+     */
+    int findSampleLessThan(final long nanos)
+    {
+        // First sample at or after the time..
+        int low = 0, high = size;
+        while (low < high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (getTime(mid) < nanos)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        // .. and the one before
+        return low - 1;
+    }
+
+    /** @param nanos Time stamp in epoch nanoseconds
+     *  @return Index of first sample after the time, or -1
+     */
+    int findSampleGreaterThan(final long nanos)
+    {
+        int low = 0, high = size;
+        while (low < high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (getTime(mid) <= nanos)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low < size ? low : -1;
+    }
+
+    /** Append samples
+     *  @param other Samples that use the same {@link MetaTable}
+     *  @param first Index of first sample to copy
+     *  @param count Number of samples to copy
+     */
+    void append(final ColumnarSamples other, final int first, final int count)
+    {
+        if (start != 0)
+            throw new IllegalStateException("Cannot append to ring"); //$NON-NLS-1$
+        if (other.metas != metas)
+            throw new IllegalArgumentException("Different meta table"); //$NON-NLS-1$
+        if (size + count > times.length)
+            resize(Math.max(size + count, Math.min(capacity, 2 * times.length)), 0);
+        if (other.stddevs != null  &&  stddevs == null)
+        {
+            allocateStatistics(times.length);
+            Arrays.fill(stddevs, Double.NaN);
+            Arrays.fill(mins, Double.NaN);
+            Arrays.fill(maxs, Double.NaN);
+        }
+        // Copy in up to two sections of the other's ring
+        int copied = 0;
+        while (copied < count)
+        {
+            final int src = other.arrayIndex(first + copied);
+            final int len = Math.min(count - copied, other.times.length - src);
+            final int dst = start + size;
+            System.arraycopy(other.times, src, times, dst, len);
+            System.arraycopy(other.values, src, values, dst, len);
+            System.arraycopy(other.meta, src, meta, dst, len);
+            if (other.stddevs != null)
+            {
+                System.arraycopy(other.stddevs, src, stddevs, dst, len);
+                System.arraycopy(other.mins, src, mins, dst, len);
+                System.arraycopy(other.maxs, src, maxs, dst, len);
+                System.arraycopy(other.counts, src, counts, dst, len);
+            }
+            else if (stddevs != null)
+            {
+                Arrays.fill(stddevs, dst, dst+len, Double.NaN);
+                Arrays.fill(mins, dst, dst+len, Double.NaN);
+                Arrays.fill(maxs, dst, dst+len, Double.NaN);
+                Arrays.fill(counts, dst, dst+len, 0);
+            }
+            size += len;
+            copied += len;
+        }
+    }
+
+    /** @return Samples as {@link PlotSample} objects */
+    PlotSample[] toArray()
+    {
+        final PlotSample[] result = new PlotSample[size];
+        for (int i=0; i<size; ++i)
+            result[i] = get(i);
+        return result;
+    }
+
+    /** Delete all samples */
+    void clear()
+    {
+        start = size = 0;
+        allocate(Math.min(capacity, INITIAL_SIZE));
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010-2018 Oak Ridge National Laboratory.
+ * Copyright (c) 2010-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,11 +7,10 @@
  ******************************************************************************/
 package org.csstudio.trends.databrowser3.model;
 
+import java.time.Instant;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
-import org.epics.vtype.VType;
-
 /** One input to the formula: Model item that provides data, Variable name
  *  for use in the formula
  *  @author Kay Kasemir
@@ -25,8 +24,25 @@ public class FormulaInput
     /** The variable name for this input. */
     final private String variable_name;
 
-    /** Index of the sample that next() will return or -1 when 'done' */
-    private int index = -1;
+    /** Time of the last sample that was read, <code>null</code> if none */
+    private Instant last = null;
+
+    /** {@link PlotSamples#getHistoryChanges()} when samples were read */
+    private int history_changes = -1;
+
+    /** Time of the first sample of the input, <code>null</code> if none */
+    Instant first = null;
+
+    /** Number of samples that were read */
+    int count = 0;
+
+    /** Time stamps of the samples that were read */
+    Instant[] time = new Instant[0];
+
+    /** Minimum, value and maximum of the samples that were read.
+     *  Minimum and maximum are NaN for samples without statistics.
+     */
+    double[] min = new double[0], val = new double[0], max = new double[0];
 
     /** Constructor
      *  @param item ModelItem that provides the input data
@@ -50,57 +66,80 @@ public class FormulaInput
         return variable_name;
     }
 
-    /** Reset the sample iterator to the first sample
-     *  @see #next()
-     *  @return First sample or <code>null</code>
+    /** Read samples of the input's ModelItem
+     *
+     *  <p>Places the values of the samples into the
+     *  {@link #time}, {@link #min}, {@link #val} and {@link #max}
+     *  arrays, using the first {@link #count} elements.
+     *  Remembers the time of the last sample,
+     *  so the next call can read only the samples
+     *  that were added since.
+     *
+     *  <p>A continuation of the last sample to 'now' is ignored.
+     *
+     *  @param all Read all samples, or only the samples added since the last call?
+     *  @return <code>true</code> if samples were read,
+     *          <code>false</code> if samples had been changed
+     *          other than by adding newer samples,
+     *          so all samples need to be read
      *  @throws Exception on error
+     *  @see PlotSamples#getHistoryChanges()
      */
-    public VType first() throws Exception
+    boolean read(final boolean all) throws Exception
     {
         final PlotSamples samples = item.getSamples();
         if (! samples.getLock().tryLock(10, TimeUnit.SECONDS))
             throw new TimeoutException("Cannot lock " + samples);
         try
         {
-            if (samples.size() > 0)
-                index = 0;
-            else
-                index = -1;
-            return next();
-        }
-        finally
-        {
-            samples.getLock().unlock();
-        }
-    }
+            final int changes = samples.getHistoryChanges();
+            if (! all  &&  changes != history_changes)
+                return false;
+            history_changes = changes;
+            if (all)
+                last = null;
 
-    /** Iterate over the samples of the input's ModelItem
-     *  @return Next value or <code>null</code>
-     *  @throws Exception
-     */
-    public VType next() throws Exception
-    {
-        if (index < 0)
-            return null;
-        final VType result;
-        final PlotSamples samples = item.getSamples();
-        if (! samples.getLock().tryLock(10, TimeUnit.SECONDS))
-            throw new TimeoutException("Cannot lock " + samples);
-        try
-        {
-            if (index < samples.size())
-                result = samples.get(index++).getVType();
+            final int size = samples.getActualSize();
+            first = size > 0 ? samples.get(0).getPosition() : null;
+            // Locate samples after the last one that was read,
+            // searching backwards since those are typically few.
+            // New samples that are not newer than the last one
+            // were reported as history changes.
+            int start = size;
+            if (last == null)
+                start = 0;
             else
+                while (start > 0  &&  samples.get(start-1).getPosition().compareTo(last) > 0)
+                    --start;
+
+            count = size - start;
+            if (time.length < count)
+            {
+                time = new Instant[count];
+                min = new double[count];
+                val = new double[count];
+                max = new double[count];
+            }
+            for (int i=0; i<count; ++i)
             {
-                result = null;
-                index = -1;
+                final PlotSample sample = samples.get(start + i);
+                time[i] = sample.getPosition();
+                // min, max are NaN unless sample has statistics
+                min[i] = sample.getMin();
+                max[i] = sample.getMax();
+                val[i] = sample.getValue();
+                // Use NaN for any non-number
+                if (Double.isInfinite(val[i]))
+                    val[i] = Double.NaN;
             }
+            if (count > 0)
+                last = time[count-1];
         }
         finally
         {
             samples.getLock().unlock();
         }
-        return result;
+        return true;
     }
 
     /** Check for new samples.
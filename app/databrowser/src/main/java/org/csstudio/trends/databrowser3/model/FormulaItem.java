@@ -11,13 +11,14 @@ import static org.csstudio.trends.databrowser3.Activator.logger;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.List;
 import java.util.Optional;
 import java.util.logging.Level;
 
 import javax.xml.stream.XMLStreamWriter;
 
+import org.csstudio.apputil.formula.CompiledFormula;
 import org.csstudio.apputil.formula.Formula;
 import org.csstudio.apputil.formula.VariableNode;
 import org.csstudio.trends.databrowser3.Messages;
@@ -72,6 +73,27 @@ public class FormulaItem extends ModelItem
      */
     private VariableNode variables[];
 
+    /** Compiled formula, <code>null</code> if formula needs VType evaluation.
+     *  Slots correspond to entries in <code>inputs[]</code>
+     *  @see #formula for locking
+     */
+    private CompiledFormula compiled;
+
+    /** Computed samples, without continuation to 'now'
+     *  @see #formula for locking
+     */
+    private final ArrayList<PlotSample> result = new ArrayList<>();
+
+    /** Compute all samples instead of adding new ones?
+     *  @see #formula for locking
+     */
+    private boolean compute_all = true;
+
+    /** 'Current' numeric min/val/max of each input
+     *  @see #formula for locking
+     */
+    private double min[], val[], max[];
+
     /** Samples of the formula, computed from inputs.
      *  Access must lock samples
      */
@@ -87,6 +109,7 @@ public class FormulaItem extends ModelItem
             final FormulaInput inputs[]) throws Exception
     {
         super(name);
+        samples.set(result);
         updateFormula(expression, inputs);
         // Compute initial values
         samples.lockForWriting();
@@ -144,6 +167,8 @@ public class FormulaItem extends ModelItem
             for (int i=0; i<variables.length; ++i)
                 variables[i] = new VariableNode(inputs[i].getVariableName());
             this.formula = new Formula(expression, variables);
+            compiled = formula.compile();
+            compute_all = true;
         }
         finally
         {
@@ -152,142 +177,209 @@ public class FormulaItem extends ModelItem
         fireItemLookChanged();
     }
 
-    /** Evaluate formula for each input sample
+    /** Evaluate formula for input samples
      *  <p>
      *  Iterates over the input samples in a manner of spreadsheet or
      *  staircase-interpolation: An input with a time stamp is valid
      *  until there's a sample with a greater time stamp.
+     *  <p>
+     *  Only evaluates the 'lines of the spreadsheet' for input samples
+     *  that were added since the last call.
+     *  Re-computes all lines when the formula changed,
+     *  or when input samples changed other than by adding newer samples,
+     *  for example when archived data was merged.
+     *  Computed lines older than any input sample are dropped.
      */
     private void compute()
     {
         if (! samples.lock.isWriteLockedByCurrentThread())
             logger.log(Level.WARNING, "Samples for " + getName() + " are not locked! " + samples.lock, new Exception("Stack detail"));
 
-        final List<PlotSample> result = new ArrayList<>();
-        final Display display = Display.none();
-
         try
         {
-            // 'Current' value for each input or null when no more
-            // In computation loop, values is actually moved to the _next_
-            // value
-            final VType values[] = new VType[inputs.length];
-
-            // 'Current' numeric min/val/max of values
-            final double min[] = new double[inputs.length];
-            final double val[] = new double[inputs.length];
-            final double max[] = new double[inputs.length];
-
-            // Determine first sample for each input
-            boolean more_input = false;
-            for (int i = 0; i < values.length; i++)
+            boolean all = compute_all;
+            // Read new samples from each input
+            if (! all)
+                for (FormulaInput input : inputs)
+                    if (! input.read(false))
+                    {
+                        all = true;
+                        break;
+                    }
+            // New samples that are not newer than the last line of the
+            // spreadsheet change existing lines
+            if (! all  &&  ! result.isEmpty())
             {
+                final Instant end = result.get(result.size()-1).getPosition();
+                for (FormulaInput input : inputs)
+                    if (input.count > 0  &&  input.time[0].compareTo(end) <= 0)
+                    {
+                        all = true;
+                        break;
+                    }
+            }
+
+            if (all)
+            {   // Start over with all samples
+                compute_all = false;
+                result.clear();
+                samples.history_changes.incrementAndGet();
+                min = new double[inputs.length];
+                val = new double[inputs.length];
+                max = new double[inputs.length];
                 // Initially, none have any data
-                min[i] = val[i] = max[i] = Double.NaN;
-                // Is there an initial value for any input?
-                values[i] = inputs[i].first();
-                if (values[i] != null)
-                    more_input = true;
+                Arrays.fill(min, Double.NaN);
+                Arrays.fill(val, Double.NaN);
+                Arrays.fill(max, Double.NaN);
+                for (FormulaInput input : inputs)
+                    input.read(true);
             }
 
-            // Compute result for each 'line in the spreadsheet'
-            Instant time;
-            while (more_input)
-            {   // Find oldest time stamp of all the inputs
-                time = null;
-                for (int i = 0; i < values.length; i++)
+            computeLines();
+
+            // Drop lines before the first sample of any input,
+            // for example when the oldest live samples were replaced
+            Instant start = null;
+            for (FormulaInput input : inputs)
+                if (input.first != null  &&  (start == null  ||  input.first.compareTo(start) < 0))
+                    start = input.first;
+            int old = 0;
+            if (start != null)
+                while (old < result.size()  &&  result.get(old).getPosition().compareTo(start) < 0)
+                    ++old;
+            if (old > 0)
+                result.subList(0, old).clear();
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Error computing " + this, ex);
+            // Start over next time
+            compute_all = true;
+        }
+    }
+
+    /** Add 'lines of the spreadsheet' for the samples read from the inputs
+     *  <p>
+     *  First determines the input values for each line as columns of numbers,
+     *  then evaluates the formula for all lines,
+     *  and finally adds a sample for each line to the result.
+     */
+    private void computeLines()
+    {
+        // Each input sample starts at most one line
+        int lines = 0;
+        for (FormulaInput input : inputs)
+            lines += input.count;
+        if (lines <= 0)
+            return;
+
+        // Numeric min/val/max of inputs for each line, [input][line]
+        final Instant[] time = new Instant[lines];
+        final double[][] line_min = new double[inputs.length][lines];
+        final double[][] line_val = new double[inputs.length][lines];
+        final double[][] line_max = new double[inputs.length][lines];
+        final boolean[] have_min_max = new boolean[lines];
+        boolean any_min_max = false;
+
+        // Index of next sample for each input
+        final int[] index = new int[inputs.length];
+        lines = 0;
+        while (true)
+        {   // Find oldest time stamp of all the inputs
+            Instant line_time = null;
+            for (int i = 0; i < inputs.length; i++)
+                if (index[i] < inputs[i].count)
                 {
-                    if (values[i] == null)
-                        continue;
-                    final Instant sample_time = org.phoebus.core.vtypes.VTypeHelper.getTimestamp(values[i]);
-                    if (time == null  ||  sample_time.compareTo(time) < 0)
-                        time = sample_time;
+                    final Instant sample_time = inputs[i].time[index[i]];
+                    if (line_time == null  ||  sample_time.compareTo(line_time) < 0)
+                        line_time = sample_time;
                 }
-                if (time == null)
-                {   // No input left with any data
-                    more_input = false;
-                    break;
+            if (line_time == null)
+                break; // No input left with any data
+
+            // 'line_time' now defines the current spreadsheet line.
+            // Set min/max/val to sample from each input for that time.
+            // Inputs with samples that are newer than 'line_time'
+            // leave min/max/val[i] as is until 'line_time' catches up.
+            boolean line_min_max = true;
+            for (int i = 0; i < inputs.length; i++)
+            {
+                final FormulaInput input = inputs[i];
+                if (index[i] < input.count  &&  input.time[index[i]].compareTo(line_time) <= 0)
+                {   // Input is valid before-and-up-to 'line_time'
+                    min[i] = input.min[index[i]];
+                    val[i] = input.val[index[i]];
+                    max[i] = input.max[index[i]];
+                    ++index[i];
                 }
+                if (Double.isNaN(min[i])  ||  Double.isNaN(max[i]))
+                    line_min_max = false;
+                line_min[i][lines] = min[i];
+                line_val[i][lines] = val[i];
+                line_max[i][lines] = max[i];
+            }
+            time[lines] = line_time;
+            have_min_max[lines] = line_min_max;
+            any_min_max |= line_min_max;
+            ++lines;
+        }
 
-                // 'time' now defines the current spreadsheet line.
-                // Set min/max/val to sample from each input for that time.
-                // This might move values[i] resp. the inputs' iterators
-                // to the 'next' sample
-                boolean have_min_max = true;
-                for (int i = 0; i < values.length; i++)
-                {
-                    if (values[i] == null) // No more data
-                    {
-                        min[i] = val[i] = max[i] = Double.NaN;
-                        have_min_max = false;
-                    }
-                    else if (org.phoebus.core.vtypes.VTypeHelper.getTimestamp(values[i]).compareTo(time) <= 0)
-                    {   // Input is valid before-and-up-to 'time'
-                        if (values[i] instanceof VStatistics)
-                        {
-                            final VStatistics mmv = (VStatistics)values[i];
-                            min[i] = mmv.getMin();
-                            val[i] = mmv.getAverage();
-                            max[i] = mmv.getMax();
-                        }
-                        else
-                        {
-                            min[i] = max[i] = Double.NaN;
-                            val[i] = VTypeHelper.toDouble(values[i]);
-                            // Use NaN for any non-number
-                            if (Double.isInfinite(val[i]))
-                                val[i] = Double.NaN;
-                            have_min_max = false;
-                        }
-                        // Move to next input sample
-                        values[i] = inputs[i].next();
-                    }
-                    else
-                    {   // values[i].getTime() > time, so leave min/max/val[i]
-                        // as is until 'time' catches up with the next input sample.
-                        // Just update the have_min_max flag
-                        if (Double.isNaN(min[i])  ||  Double.isNaN(max[i]))
-                            have_min_max = false;
-                    }
-                }
+        // Evaluate formula for val, and if needed min and max
+        final double[] res_val = new double[lines];
+        evaluate(line_val, time, lines, res_val);
+        final double[] res_min, res_max;
+        if (any_min_max)
+        {
+            res_min = new double[lines];
+            res_max = new double[lines];
+            evaluate(line_min, time, lines, res_min);
+            evaluate(line_max, time, lines, res_max);
+        }
+        else
+            res_min = res_max = null;
 
-                // Set variables[] from val to get res_val
-                final Time timestamp = Time.of(time);
-                for (int i = 0; i < values.length; i++)
-                    variables[i].setValue(VDouble.of(val[i], OK_FORMULA, timestamp, display));
-                // Evaluate formula for these inputs
-                final double res_val = VTypeHelper.toDouble(formula.eval());
-                final VType value;
-
-                if (have_min_max)
-                {   // Set variables[] from min
-                    for (int i = 0; i < values.length; i++)
-                        variables[i].setValue(VDouble.of(min[i], OK_FORMULA, timestamp, display));
-                    final double res_min = VTypeHelper.toDouble(formula.eval());
-                    // Set variables[] from max
-                    for (int i = 0; i < values.length; i++)
-                        variables[i].setValue(VDouble.of(max[i], OK_FORMULA, timestamp, display));
-                    final double res_max = VTypeHelper.toDouble(formula.eval());
-                    // Use min, max, average(=res_val)
-                    value = VStatistics.of(res_val, 0.0, res_min, res_max, 1, OK_FORMULA, timestamp, display);
-                }
+        final Display display = Display.none();
+        result.ensureCapacity(result.size() + lines);
+        for (int line = 0; line < lines; ++line)
+        {
+            final Time timestamp = Time.of(time[line]);
+            final VType value;
+            if (have_min_max[line])
+            {   // Use min, max, average(=res_val)
+                value = VStatistics.of(res_val[line], 0.0, res_min[line], res_max[line], 1, OK_FORMULA, timestamp, display);
+            }
+            else
+            {   // No min/max.
+                if (Double.isNaN(res_val[line]))
+                    value = VDouble.of(res_val[line], INVALID_FORMULA, timestamp, display);
                 else
-                {   // No min/max.
-                    if (Double.isNaN(res_val))
-                        value = VDouble.of(res_val, INVALID_FORMULA, timestamp, display);
-                    else
-                        value = VDouble.of(res_val, OK_FORMULA, timestamp, display);
-                }
-                result.add(new PlotSample(Messages.Formula, value));
+                    value = VDouble.of(res_val[line], OK_FORMULA, timestamp, display);
             }
+            result.add(new PlotSample(Messages.Formula, value));
         }
-        catch (Exception ex)
+    }
+
+    /** @param input Value for each input, [input][line]
+     *  @param time Time stamp for each line
+     *  @param lines Number of lines to evaluate
+     *  @param results Array for the value of the formula in each line
+     */
+    private void evaluate(final double[][] input, final Instant[] time, final int lines, final double[] results)
+    {
+        if (compiled != null)
         {
-            logger.log(Level.WARNING, "Error computing " + this, ex);
+            compiled.eval(input, lines, results);
+            return;
+        }
+        final Display display = Display.none();
+        for (int line = 0; line < lines; ++line)
+        {
+            // Set variables[] from input
+            final Time timestamp = Time.of(time[line]);
+            for (int i = 0; i < input.length; i++)
+                variables[i].setValue(VDouble.of(input[i][line], OK_FORMULA, timestamp, display));
+            results[line] = VTypeHelper.toDouble(formula.eval());
         }
-
-        // Update PlotSamples
-        samples.set(result);
     }
 
     /** Re-evaluate the formula in case some of the input samples changed.
@@ -36,6 +36,13 @@ public class FormulaSamples extends PlotSampleArray
         return raw+1;
     }
 
+    /** @return Sample count without the last sample extended to 'now' */
+    @Override
+    public int getActualSize()
+    {
+        return super.size();
+    }
+
     /** @param index 0... size()-1
      *  @return Sample from historic or live sample subsection
      */
@@ -28,6 +28,10 @@ import org.epics.vtype.VType;
  *  the live data ring buffer rolls around, the 'border' time adjustments
  *  might then uncover historic samples that were previously
  *  hidden below the 'live' time range.
+ *  <p>
+ *  Scalar numeric samples are kept in {@link ColumnarSamples}.
+ *  Once archived data contains samples that cannot be represented that way,
+ *  all samples are kept as {@link PlotSample}s.
  *
  *  @author Kay Kasemir
  *  @author Takashi Nakamoto changed HistoricSamples to handle waveform index.
@@ -51,7 +55,10 @@ public class HistoricSamples extends PlotSamples
 
     // No locking in here, all access is via PVSamples
 
-    /** "All" historic samples */
+    /** "All" historic samples as columns, or <code>null</code> when using {@link #samples} */
+    private ColumnarSamples columns;
+
+    /** "All" historic samples if they cannot use {@link #columns} */
     private PlotSample samples[] = new PlotSample[0];
 
     /** If set, samples beyond this time are hidden from access */
@@ -70,6 +77,18 @@ public class HistoricSamples extends PlotSamples
     HistoricSamples(final AtomicInteger waveform_index)
     {
         this.waveform_index = waveform_index;
+        columns = createColumns(0);
+    }
+
+    /** @param size Expected number of samples
+     *  @return Empty columnar samples that share the current meta information
+     */
+    private ColumnarSamples createColumns(final int size)
+    {
+        final ColumnarSamples.MetaTable metas = columns == null
+                                              ? new ColumnarSamples.MetaTable()
+                                              : columns.getMetaTable();
+        return new ColumnarSamples(metas, waveform_index, Integer.MAX_VALUE, size);
     }
 
     /** Define a new 'border' time beyond which no samples
@@ -88,13 +107,19 @@ public class HistoricSamples extends PlotSamples
     /** Update visible size */
     private void computeVisibleSize()
     {
+        final int old_size = visible_size;
         if (border_time.isPresent())
         {
-            final int last_index = searcher.findSampleLessThan(new HistoricSampleAccess(), border_time.get());
+            final int last_index = columns != null
+                                 ? columns.findSampleLessThan(border_time.get())
+                                 : searcher.findSampleLessThan(new HistoricSampleAccess(), border_time.get());
             visible_size = (last_index < 0)   ?   0   :   last_index + 1;
         }
         else
-            visible_size = samples.length;
+            visible_size = getRawSize();
+        // Moving the border in front of the live samples uncovers historic samples
+        if (visible_size != old_size)
+            history_changes.incrementAndGet();
     }
 
     /** {@inheritDoc} */
@@ -104,7 +129,7 @@ public class HistoricSamples extends PlotSamples
     {
         if (i >= visible_size)
             throw new IndexOutOfBoundsException("Index " + i + " exceeds visible size " + visible_size);
-        return samples[i];
+        return getRawSample(i);
     }
 
     /** {@inheritDoc} */
@@ -118,6 +143,8 @@ public class HistoricSamples extends PlotSamples
      * @return the number of samples, ignoring the border time
      */
     public int getRawSize() {
+        if (columns != null)
+            return columns.size();
         return samples.length;
     }
 
@@ -128,6 +155,8 @@ public class HistoricSamples extends PlotSamples
      * @return the plot sample
      */
     public PlotSample getRawSample(int i) {
+        if (columns != null)
+            return columns.get(i);
         return samples[i];
     }
 
@@ -142,14 +171,39 @@ public class HistoricSamples extends PlotSamples
             return;
         // Turn IValues into PlotSamples
         final PlotSample new_samples[] = new PlotSample[result.size()];
+        ColumnarSamples new_columns = columns == null ? null : createColumns(new_samples.length);
         for (int i=0; i<new_samples.length; ++i)
-            new_samples[i] = new PlotSample(waveform_index, source, result.get(i));
+        {
+            final PlotSample sample = new PlotSample(waveform_index, source, result.get(i));
+            if (new_columns != null  &&  ! new_columns.add(sample))
+            {   // Switch to PlotSample objects
+                samples = columns.toArray();
+                columns = null;
+                for (int j=0; j<i; ++j)
+                    new_samples[j] = new_columns.get(j);
+                new_columns = null;
+            }
+            if (new_columns == null)
+                new_samples[i] = sample;
+        }
+        if (new_columns != null)
+        {   // Merge columns
+            final ColumnarSamples merged = PlotSampleMerger.merge(columns, new_columns);
+            if (merged == columns)
+                return;
+            columns = merged;
+            have_new_samples.set(true);
+            history_changes.incrementAndGet();
+            computeVisibleSize();
+            return;
+        }
         // Merge with existing samples
         final PlotSample merged[] = PlotSampleMerger.merge(samples, new_samples);
         if (merged == samples)
             return;
         samples = merged;
         have_new_samples.set(true);
+        history_changes.incrementAndGet();
         computeVisibleSize();
     }
 
@@ -158,5 +212,9 @@ public class HistoricSamples extends PlotSamples
     {
         visible_size = 0;
         samples = new PlotSample[0];
+        history_changes.incrementAndGet();
+        // Start over, dropping the meta information of old samples
+        columns = null;
+        columns = createColumns(0);
     }
 }
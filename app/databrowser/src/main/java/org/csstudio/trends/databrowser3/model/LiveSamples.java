@@ -15,6 +15,11 @@ import org.phoebus.framework.util.RingBuffer;
 /** Ring buffer for 'live' samples.
  *  <p>
  *  New samples are always added to the end of a ring buffer.
+ *  <p>
+ *  Scalar numeric samples are kept in {@link ColumnarSamples}.
+ *  Once a sample arrives that cannot be represented that way,
+ *  for example a waveform or text, all samples are moved
+ *  into a ring buffer of {@link PlotSample}s.
  *
  *  @author Kay Kasemir
  *  @author Takashi Nakamoto changed LiveSamples to handle waveform index.
@@ -23,8 +28,11 @@ public class LiveSamples extends PlotSamples
 {
     // No locking in here, all access is via PVSamples
 
-    private RingBuffer<PlotSample> samples =
-        new RingBuffer<PlotSample>(Preferences.live_buffer_size);
+    /** Columnar samples, or <code>null</code> when using {@link #samples} */
+    private ColumnarSamples columns;
+
+    /** Samples that cannot use {@link #columns}, or <code>null</code> */
+    private RingBuffer<PlotSample> samples = null;
 
     /** Waveform index */
     final private AtomicInteger waveform_index;
@@ -32,11 +40,14 @@ public class LiveSamples extends PlotSamples
     LiveSamples(final AtomicInteger waveform_index)
     {
         this.waveform_index = waveform_index;
+        columns = new ColumnarSamples(new ColumnarSamples.MetaTable(), waveform_index, Preferences.live_buffer_size);
     }
 
     /** @return Maximum number of samples in ring buffer */
     public int getCapacity()
     {
+        if (columns != null)
+            return columns.getCapacity();
         return samples.getCapacity();
     }
 
@@ -50,13 +61,34 @@ public class LiveSamples extends PlotSamples
     {
         if (new_capacity < 10)
             new_capacity = 10;
-        samples.setCapacity(new_capacity);
+        if (columns != null)
+            columns.setCapacity(new_capacity);
+        else
+            samples.setCapacity(new_capacity);
     }
 
     /** @param sample Sample to add to ring buffer */
     void add(final PlotSample sample)
     {
         sample.setWaveformIndex(waveform_index);
+        // A sample that is not newer than the last one
+        // changes the existing history instead of extending it
+        final int size = size();
+        if (size > 0  &&  sample.getPosition().compareTo(get(size-1).getPosition()) <= 0)
+            history_changes.incrementAndGet();
+        if (columns != null)
+        {
+            if (columns.add(sample))
+            {
+                have_new_samples.set(true);
+                return;
+            }
+            // Switch to PlotSample objects
+            samples = new RingBuffer<>(columns.getCapacity());
+            for (int i=0; i<columns.size(); ++i)
+                samples.add(columns.get(i));
+            columns = null;
+        }
         samples.add(sample);
         have_new_samples.set(true);
     }
@@ -64,19 +96,25 @@ public class LiveSamples extends PlotSamples
     @Override
     public int size()
     {
+        if (columns != null)
+            return columns.size();
         return samples.size();
     }
 
     @Override
     public PlotSample get(final int i)
     {
+        if (columns != null)
+            return columns.get(i);
         return samples.get(i);
     }
 
     /** Delete all samples */
     public void clear()
     {
-        samples.clear();
+        columns = new ColumnarSamples(new ColumnarSamples.MetaTable(), waveform_index, getCapacity());
+        samples = null;
         have_new_samples.set(true);
+        history_changes.incrementAndGet();
     }
 }
@@ -110,7 +110,10 @@ public class PVItem extends ModelItem
         if (index < 0)
             index = 0;
         if (waveform_index.getAndSet(index) != index)
+        {
+            samples.waveformIndexChanged();
             fireItemDataConfigChanged(false);
+        }
     }
 
     /** Set new item name, which changes the underlying PV name
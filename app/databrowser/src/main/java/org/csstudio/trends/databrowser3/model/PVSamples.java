@@ -97,6 +97,15 @@ public class PVSamples extends PlotSamples
         return raw+1;
     }
 
+    /** @return Size of the actual historic and live samples
+     *          without the continuation to 'now'
+     */
+    @Override
+    public int getActualSize()
+    {
+        return getRawSize();
+    }
+
     /** @return Size of the actual historic and live samples
      *          without the continuation to 'now'
      */
@@ -126,6 +135,16 @@ public class PVSamples extends PlotSamples
             return new PlotSample(sample.getSource(), VTypeHelper.transformTimestampToNow(sample.getVType()));
     }
 
+    /** Historic samples end before the start of the live samples,
+     *  which are added in time order.
+     *  @return <code>true</code>
+     */
+    @Override
+    public boolean isSorted()
+    {
+        return true;
+    }
+
     /** Get 'raw' sample, no continuation until 'now'
      *  @param index 0... getRawSize()-1
      *  @return Sample from historic or live sample subsection
@@ -148,6 +167,13 @@ public class PVSamples extends PlotSamples
         return history.hasNewSamples() | live.hasNewSamples();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public int getHistoryChanges()
+    {
+        return history.getHistoryChanges() + live.getHistoryChanges();
+    }
+
     /** Test if samples changed since the last time this method was called.
      *  @return <code>true</code> if there were new samples
      */
@@ -222,6 +248,22 @@ public class PVSamples extends PlotSamples
         samplesAddedSinceLastRefresh++;
     }
 
+    /** Waveform index changed, which changes the value of all samples */
+    void waveformIndexChanged()
+    {
+        if (! lockForWriting())
+            return;
+        try
+        {
+            live.history_changes.incrementAndGet();
+            live.have_new_samples.set(true);
+        }
+        finally
+        {
+            unlockForWriting();
+        }
+    }
+
     /** Delete all samples */
     public void clear()
     {
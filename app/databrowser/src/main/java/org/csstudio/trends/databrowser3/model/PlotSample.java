@@ -71,7 +71,14 @@ public class PlotSample implements PlotDataItem<Instant>
 
     private static String decodeAlarm(VType value)
     {
-        final Alarm alarm = Alarm.alarmOf(value);
+        return decodeAlarm(Alarm.alarmOf(value));
+    }
+
+    /** @param alarm Alarm, may be <code>null</code>
+     *  @return Info text for the alarm
+     */
+    static String decodeAlarm(final Alarm alarm)
+    {
         if (alarm != null)
         {
             if (alarm.getSeverity() == AlarmSeverity.NONE)
@@ -110,6 +117,18 @@ public class PlotSample implements PlotDataItem<Instant>
              info);
     }
 
+    /** Initialize sample that provides its value by overriding {@link #getVType()} etc.
+     *  @param waveform_index Waveform index
+     *  @param source Info about the source of this sample
+     */
+    PlotSample(final AtomicInteger waveform_index, final  String source)
+    {
+        this.waveform_index = waveform_index;
+        this.value = null;
+        this.source = source;
+        this.info = null;
+    }
+
     /** Package-level constructor, only used in unit tests */
     PlotSample(final double x, final double y)
     {
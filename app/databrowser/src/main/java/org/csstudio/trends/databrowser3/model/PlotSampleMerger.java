@@ -109,4 +109,61 @@ public class PlotSampleMerger
 
         throw new Error("Cannot handle this case");  //$NON-NLS-1$
     }
+
+    /** Add newly received samples to existing columnar samples.
+     *
+     *  <p>Same as {@link #merge(PlotSample[], PlotSample[])},
+     *  but copying the primitive columns.
+     *
+     *  @param old Existing data
+     *  @param add Newly received data, using the same meta table as the existing data
+     *  @return Samples that combine new and old data
+     */
+    static ColumnarSamples merge(final ColumnarSamples old, final ColumnarSamples add)
+    {
+        // If one is empty, return the other as is:
+        if (old == null  ||  old.size() <= 0)
+            return add;
+        if (add == null  ||  add.size() <= 0)
+            return old;
+        final int No = old.size();
+        final int Na = add.size();
+        final long old_start = old.getTime(0);
+        final long add_start = add.getTime(0);
+        final long add_end = add.getTime(Na-1);
+
+        // All new samples are before old samples
+        if (add_end < old_start)
+            return concat(old, add, 0, 0, 0, No);
+        // New samples start before old, maybe overlap
+        if (add_start <= old_start)
+        {
+            final int x = old.findSampleGreaterThan(add_end);
+            if (x < 0)
+                return add;
+            return concat(old, add, 0, 0, x, No - x);
+        }
+        // New samples start within old time sample range
+        final int l = old.findSampleLessThan(add_start);
+        final int r = old.findSampleGreaterThan(add_end);
+        final int Nl = (l < 0) ? 0 : l + 1;
+        final int Nr = (r < 0) ? 0 : No-r;
+        return concat(old, add, 0, Nl, r, Nr);
+    }
+
+    /** @return old[left_start, +left_count], add, old[right_start, +right_count] */
+    private static ColumnarSamples concat(final ColumnarSamples old, final ColumnarSamples add,
+                                          final int left_start, final int left_count,
+                                          final int right_start, final int right_count)
+    {
+        final int total = left_count + add.size() + right_count;
+        final ColumnarSamples result = new ColumnarSamples(old.getMetaTable(), old.getWaveformIndex(),
+                                                           Integer.MAX_VALUE, total);
+        if (left_count > 0)
+            result.append(old, left_start, left_count);
+        result.append(add, 0, add.size());
+        if (right_count > 0)
+            result.append(old, right_start, right_count);
+        return result;
+    }
 }
@@ -13,6 +13,7 @@ import java.time.Instant;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
@@ -35,6 +36,11 @@ abstract public class PlotSamples implements PlotDataProvider<Instant>
      */
     final protected AtomicBoolean have_new_samples = new AtomicBoolean();
 
+    /** To be incremented when samples change other than by adding newer samples
+     *  @see #getHistoryChanges()
+     */
+    final protected AtomicInteger history_changes = new AtomicInteger();
+
     /** Lock for writing */
     public boolean lockForWriting()
     {
@@ -73,6 +79,28 @@ abstract public class PlotSamples implements PlotDataProvider<Instant>
     @Override
     abstract public PlotSample get(int index);
 
+    /** @return Number of actual samples,
+     *          without for example a continuation of the last sample to 'now'
+     */
+    public int getActualSize()
+    {
+        return size();
+    }
+
+    /** Count changes to samples that already existed.
+     *
+     *  <p>Adding samples that are newer than the existing
+     *  samples does not change the count, and neither does
+     *  dropping the oldest samples, for example from a ring buffer.
+     *  Inserting, replacing or removing other samples does.
+     *
+     *  @return Count that changes when the sample history changed
+     */
+    public int getHistoryChanges()
+    {
+        return history_changes.get();
+    }
+
     /** Test if samples changed since the last time
      *  <code>testAndClearNewSamplesFlag</code> was called.
      *  @return <code>true</code> if there were new samples
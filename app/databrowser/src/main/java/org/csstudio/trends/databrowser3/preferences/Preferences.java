@@ -50,6 +50,10 @@ public class Preferences
 
     @Preference public static int archive_fetch_delay;
     @Preference public static int concurrent_requests;
+    @Preference public static int archive_tiles;
+    @Preference public static int archive_tile_threads;
+    @Preference public static String archive_tile_cache;
+    @Preference public static int archive_tile_cache_size;
     @Preference public static ArchiveRescale archive_rescale;
     public static List<ArchiveDataSource> archive_urls;
     public static List<ArchiveDataSource> archives;
@@ -78,6 +82,8 @@ public class Preferences
         // Allow at least one at a time
         if (concurrent_requests < 1)
         	concurrent_requests = 1;
+        if (archive_tile_threads < 1)
+            archive_tile_threads = 1;
         
         archive_urls = parseArchives(prefs.get("urls"));
         archives = parseArchives(prefs.get("archives"));
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.archive.reader.segment;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.phoebus.archive.reader.ArchiveReader;
+import org.phoebus.archive.reader.UnknownChannelException;
+import org.phoebus.archive.reader.ValueIterator;
+import org.phoebus.util.segment.SegmentFormat;
+
+/** ArchiveReader for the memory-mapped segment files of the archive engine
+ *
+ *  <p>Each channel has a directory below the archive root,
+ *  with one segment file for each time partition of the channel's samples.
+ *  See {@link SegmentFormat} for the directory layout and file format.
+ */
+@SuppressWarnings("nls")
+public class SegmentArchiveReader implements ArchiveReader
+{
+    private final Path root;
+
+    /** @param root Root directory of the archive
+     *  @throws Exception on error
+     */
+    public SegmentArchiveReader(final Path root) throws Exception
+    {
+        if (! Files.isDirectory(root))
+            throw new Exception("Cannot find segment archive directory " + root);
+        this.root = root;
+    }
+
+    @Override
+    public String getDescription()
+    {
+        return "Segment archive\n" + root;
+    }
+
+    @Override
+    public Collection<String> getNamesByPattern(final String glob_pattern) throws Exception
+    {
+        final List<String> result = new ArrayList<>();
+        if (glob_pattern.isEmpty())
+            return result;
+        final String reg_exp = glob_pattern.replace("\\", "\\\\")
+                                           .replace(".", "\\.")
+                                           .replace("*", ".*")
+                                           .replace("?", ".");
+        final Pattern pattern = Pattern.compile(reg_exp, Pattern.CASE_INSENSITIVE);
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root, Files::isDirectory))
+        {
+            for (Path dir : dirs)
+            {
+                final String name = SegmentFormat.decodeName(dir.getFileName().toString());
+                if (pattern.matcher(name).matches())
+                    result.add(name);
+            }
+        }
+        result.sort(String.CASE_INSENSITIVE_ORDER);
+        return result;
+    }
+
+    /** @param name Channel name
+     *  @param start Start time
+     *  @param end End time
+     *  @return Cursor for the segments that might hold samples for the time range,
+     *          including the segment with the last sample before the start time
+     *  @throws Exception on error
+     */
+    private SegmentCursor getCursor(final String name, final Instant start, final Instant end) throws Exception
+    {
+        final Path dir = root.resolve(SegmentFormat.encodeName(name));
+        if (! Files.isDirectory(dir))
+            throw new UnknownChannelException(name);
+
+        final List<Long> starts = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SegmentFormat.EXTENSION))
+        {
+            for (Path file : files)
+            {
+                try
+                {
+                    starts.add(SegmentFormat.getStart(file.getFileName().toString()));
+                }
+                catch (NumberFormatException ex)
+                {
+                    // Ignore files that are not segments
+                }
+            }
+        }
+        starts.sort(null);
+
+        final List<Path> segments = new ArrayList<>();
+        for (int i=0; i<starts.size(); ++i)
+        {
+            final long seg_start = starts.get(i);
+            if (seg_start > end.getEpochSecond())
+                break;
+            // Skip segments that end before the start time
+            if (i+1 < starts.size()  &&  starts.get(i+1) <= start.getEpochSecond())
+                continue;
+            segments.add(dir.resolve(SegmentFormat.getFileName(seg_start)));
+        }
+        return new SegmentCursor(segments);
+    }
+
+    @Override
+    public ValueIterator getRawValues(final String name, final Instant start, final Instant end)
+            throws UnknownChannelException, Exception
+    {
+        return new SegmentRawValueIterator(getCursor(name, start, end), start, end);
+    }
+
+    @Override
+    public ValueIterator getOptimizedValues(final String name, final Instant start, final Instant end, final int count)
+            throws UnknownChannelException, Exception
+    {
+        final double seconds = Duration.between(start, end).toMillis() / 1000.0 / Math.max(1, count);
+        return new SegmentOptimizedValueIterator(getCursor(name, start, end), start, end, seconds);
+    }
+}
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.archive.reader.segment;
+
+import java.nio.file.Paths;
+
+import org.phoebus.archive.reader.ArchiveReader;
+import org.phoebus.archive.reader.spi.ArchiveReaderFactory;
+
+/** SPI for "segments:" archive URLs
+ *
+ *  <p>URL is "segments:" followed by the root directory
+ *  of the segment files written by the archive engine.
+ */
+@SuppressWarnings("nls")
+public class SegmentArchiveReaderFactory implements ArchiveReaderFactory
+{
+    public final static String PREFIX = "segments:";
+
+    @Override
+    public String getPrefix()
+    {
+        return PREFIX;
+    }
+
+    @Override
+    public ArchiveReader createReader(final String url) throws Exception
+    {
+        return new SegmentArchiveReader(Paths.get(url.substring(PREFIX.length())));
+    }
+}
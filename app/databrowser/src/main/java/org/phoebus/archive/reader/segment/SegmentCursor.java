@@ -0,0 +1,324 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.archive.reader.segment;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.stats.Range;
+import org.epics.util.text.NumberFormats;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.EnumDisplay;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VDoubleArray;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VInt;
+import org.epics.vtype.VLong;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+import org.phoebus.util.segment.SegmentFormat;
+
+/** Cursor over the sample records in segment files
+ *
+ *  <p>Maps one segment file at a time and decodes
+ *  the fields of the current sample record on demand.
+ *
+ *  <p>Files are written by the archive engine's SegmentArchiveWriter.
+ *  See {@link SegmentFormat} for the file format.
+ */
+@SuppressWarnings("nls")
+class SegmentCursor
+{
+    private static final AlarmSeverity[] SEVERITIES = AlarmSeverity.values();
+
+    private static final Display DEFAULT_DISPLAY = Display.of(Range.of(0, 10), Range.undefined(), Range.undefined(), Range.undefined(), "", NumberFormats.precisionFormat(0));
+
+    /** Segment files, ordered by time */
+    private final List<Path> files;
+
+    /** Index of current file in <code>files</code> */
+    private int file_index = -1;
+
+    /** Mapped data of current file, limited to the valid records */
+    private ByteBuffer buffer = null;
+
+    /** Position of the current sample record, its type, and start of its value */
+    private int record = -1;
+    private byte type;
+    private int value_position;
+
+    /** Meta data */
+    private Display display = DEFAULT_DISPLAY;
+    private EnumDisplay labels = null;
+
+    /** Marked file index and record position */
+    private int mark_file = -1, mark_record = -1;
+
+    /** Meta data at the marked record */
+    private Display mark_display = DEFAULT_DISPLAY;
+    private EnumDisplay mark_labels = null;
+
+    /** @param files Segment files, ordered by time */
+    SegmentCursor(final List<Path> files)
+    {
+        this.files = files;
+    }
+
+    /** Open next file
+     *  @return <code>true</code> if there was another file
+     *  @throws Exception on error
+     */
+    private boolean openFile(final int index) throws Exception
+    {
+        buffer = null;
+        file_index = index;
+        if (index >= files.size())
+            return false;
+        final Path file = files.get(index);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            final ByteBuffer mapped = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.capacity() < SegmentFormat.HEADER_SIZE  ||
+                mapped.getInt(0) != SegmentFormat.MAGIC  ||  mapped.getInt(4) != SegmentFormat.VERSION)
+                throw new Exception("Invalid segment file " + file);
+            final long end = mapped.getLong(SegmentFormat.END_OFFSET);
+            mapped.limit((int) Math.min(end, mapped.capacity()));
+            mapped.position(SegmentFormat.HEADER_SIZE);
+            buffer = mapped;
+        }
+        return true;
+    }
+
+    /** Advance to the next sample record
+     *  @return <code>true</code> if there is another sample
+     *  @throws Exception on error
+     */
+    boolean next() throws Exception
+    {
+        if (file_index < 0  &&  !openFile(0))
+            return false;
+        while (buffer != null)
+        {
+            while (buffer.remaining() >= SegmentFormat.RECORD_HEADER_SIZE)
+            {
+                final int start = buffer.position();
+                final int size = buffer.getInt(start);
+                if (size < SegmentFormat.RECORD_HEADER_SIZE  ||  size > buffer.limit() - start)
+                    break;
+                final byte rec_type = buffer.get(start + 4);
+                buffer.position(start + size);
+                if (rec_type == SegmentFormat.NUMERIC_META)
+                    readNumericMeta(start + SegmentFormat.RECORD_HEADER_SIZE);
+                else if (rec_type == SegmentFormat.ENUM_META)
+                    readEnumMeta(start + SegmentFormat.RECORD_HEADER_SIZE);
+                else
+                {
+                    record = start;
+                    type = rec_type;
+                    value_position = getValuePosition(start);
+                    return true;
+                }
+            }
+            if (! openFile(file_index + 1))
+                break;
+        }
+        record = -1;
+        return false;
+    }
+
+    /** Remember the current record */
+    void mark()
+    {
+        mark_file = file_index;
+        mark_record = record;
+        mark_display = display;
+        mark_labels = labels;
+    }
+
+    /** Return to the marked record
+     *  @throws Exception on error
+     */
+    void reset() throws Exception
+    {
+        if (mark_file != file_index)
+            openFile(mark_file);
+        record = mark_record;
+        type = buffer.get(record + 4);
+        value_position = getValuePosition(record);
+        buffer.position(record + buffer.getInt(record));
+        // Meta data records read since the mark apply to later samples
+        display = mark_display;
+        labels = mark_labels;
+    }
+
+    /** @param record Position of a sample record
+     *  @return Position of the sample's value
+     */
+    private int getValuePosition(final int record)
+    {
+        return record + SegmentFormat.SAMPLE_HEADER_SIZE + getMessageLength(record);
+    }
+
+    /** @param record Position of a sample record
+     *  @return Length of the sample's alarm message
+     */
+    private int getMessageLength(final int record)
+    {
+        return buffer.getShort(record + SegmentFormat.MESSAGE_LENGTH_OFFSET) & 0xFFFF;
+    }
+
+    private void readNumericMeta(final int pos)
+    {
+        final double disp_low = buffer.getDouble(pos),      disp_high = buffer.getDouble(pos + 8);
+        final double warn_low = buffer.getDouble(pos + 16), warn_high = buffer.getDouble(pos + 24);
+        final double alarm_low = buffer.getDouble(pos + 32), alarm_high = buffer.getDouble(pos + 40);
+        final double ctrl_low = buffer.getDouble(pos + 48), ctrl_high = buffer.getDouble(pos + 56);
+        final int precision = buffer.getInt(pos + 64);
+        final String units = getString(pos + 70, buffer.getShort(pos + 68) & 0xFFFF);
+        display = Display.of(Range.of(disp_low, disp_high),
+                             Range.of(alarm_low, alarm_high),
+                             Range.of(warn_low, warn_high),
+                             Range.of(ctrl_low, ctrl_high),
+                             units, NumberFormats.precisionFormat(precision));
+    }
+
+    private void readEnumMeta(int pos)
+    {
+        final int count = buffer.getInt(pos);
+        pos += 4;
+        final List<String> choices = new ArrayList<>(count);
+        for (int i=0; i<count; ++i)
+        {
+            final int len = buffer.getShort(pos) & 0xFFFF;
+            choices.add(getString(pos + 2, len));
+            pos += 2 + len;
+        }
+        labels = EnumDisplay.of(choices);
+    }
+
+    private String getString(final int pos, final int length)
+    {
+        if (length == 0)
+            return "";
+        final byte[] bytes = new byte[length];
+        for (int i=0; i<length; ++i)
+            bytes[i] = buffer.get(pos + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** @return Epoch seconds of current sample */
+    long getSeconds()
+    {
+        return buffer.getLong(record + SegmentFormat.SECONDS_OFFSET);
+    }
+
+    /** @return Nanoseconds of current sample */
+    int getNanos()
+    {
+        return buffer.getInt(record + SegmentFormat.NANOS_OFFSET);
+    }
+
+    /** @param time Time to compare
+     *  @return Comparison of current sample's time stamp with given time
+     */
+    int compareTime(final Instant time)
+    {
+        final int cmp = Long.compare(getSeconds(), time.getEpochSecond());
+        if (cmp != 0)
+            return cmp;
+        return Integer.compare(getNanos(), time.getNano());
+    }
+
+    /** @return Severity of current sample */
+    AlarmSeverity getSeverity()
+    {
+        return SEVERITIES[buffer.get(record + SegmentFormat.SEVERITY_OFFSET)];
+    }
+
+    /** @return Alarm message of current sample */
+    String getMessage()
+    {
+        return getString(record + SegmentFormat.SAMPLE_HEADER_SIZE, getMessageLength(record));
+    }
+
+    /** @return <code>true</code> if current sample is a scalar number,
+     *          see {@link #getDouble()}
+     */
+    boolean isNumber()
+    {
+        return type == SegmentFormat.DOUBLE  ||  type == SegmentFormat.LONG;
+    }
+
+    /** @return Value of current scalar numeric sample */
+    double getDouble()
+    {
+        if (type == SegmentFormat.LONG)
+            return buffer.getLong(value_position);
+        return buffer.getDouble(value_position);
+    }
+
+    /** @return Display meta data */
+    Display getDisplay()
+    {
+        return display;
+    }
+
+    /** @return Current sample as {@link VType} */
+    VType toVType()
+    {
+        final Instant stamp = Instant.ofEpochSecond(getSeconds(), getNanos());
+        final Time time = Time.of(stamp);
+        final AlarmSeverity severity = getSeverity();
+        final Alarm alarm = Alarm.of(severity,
+                                     severity == AlarmSeverity.NONE ? AlarmStatus.NONE : AlarmStatus.CLIENT,
+                                     getMessage());
+        switch (type)
+        {
+        case SegmentFormat.DOUBLE:
+            return VDouble.of(buffer.getDouble(value_position), alarm, time, display);
+        case SegmentFormat.LONG:
+        {
+            final long value = buffer.getLong(value_position);
+            if (value >= Integer.MIN_VALUE  &&  value <= Integer.MAX_VALUE)
+                return VInt.of((int) value, alarm, time, display);
+            return VLong.of(value, alarm, time, display);
+        }
+        case SegmentFormat.ENUM:
+        {
+            final int index = buffer.getInt(value_position);
+            if (labels != null  &&  index >= 0  &&  index < labels.getChoices().size())
+                return VEnum.of(index, labels, alarm, time);
+            return VInt.of(index, alarm, time, display);
+        }
+        case SegmentFormat.DOUBLE_ARRAY:
+        {
+            final int count = buffer.getInt(value_position);
+            final double[] data = new double[count];
+            for (int i=0; i<count; ++i)
+                data[i] = buffer.getDouble(value_position + 4 + 8*i);
+            return VDoubleArray.of(ArrayDouble.of(data), alarm, time, display);
+        }
+        case SegmentFormat.STRING:
+            return VString.of(getString(value_position + 4, buffer.getInt(value_position)), alarm, time);
+        default:
+            return VString.of("Unknown sample type " + type, alarm, time);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.archive.reader.segment;
+
+import java.time.Instant;
+import java.util.NoSuchElementException;
+
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Time;
+import org.epics.vtype.VStatistics;
+import org.epics.vtype.VType;
+import org.phoebus.archive.reader.ValueIterator;
+import org.phoebus.archive.vtype.StatisticsAccumulator;
+
+/** Iterator over optimized samples in segment files
+ *
+ *  <p>Splits the time range into bins.
+ *  Scalar numeric samples within a bin are combined into
+ *  min/max/average {@link VStatistics} directly from the
+ *  mapped data, without creating a {@link VType} for each sample.
+ *  Other samples, for example 'disconnected' strings, are returned as is.
+ */
+class SegmentOptimizedValueIterator implements ValueIterator
+{
+    private final SegmentCursor cursor;
+    private final Instant start, end;
+    private final long bin_nanos;
+    private boolean have;
+    private VType value;
+
+    /** @param cursor Cursor for the segment files
+     *  @param start Start time. Iteration includes the last sample before this time.
+     *  @param end End time
+     *  @param seconds Duration of a bin
+     *  @throws Exception on error
+     */
+    SegmentOptimizedValueIterator(final SegmentCursor cursor, final Instant start, final Instant end,
+                                  final double seconds) throws Exception
+    {
+        this.cursor = cursor;
+        this.start = start;
+        this.end = end;
+        bin_nanos = Math.max(1, (long) (seconds * 1e9));
+        have = SegmentRawValueIterator.seek(cursor, start);
+        value = determineNext();
+    }
+
+    /** @return Bin index of the current sample */
+    private long getBin()
+    {
+        final long nanos = (cursor.getSeconds() - start.getEpochSecond()) * 1000000000L
+                         + (cursor.getNanos() - start.getNano());
+        return Math.floorDiv(nanos, bin_nanos);
+    }
+
+    private VType determineNext()
+    {
+        if (! have  ||  cursor.compareTime(end) > 0)
+            return null;
+        // Pass samples before start, non-numeric or undefined samples through
+        if (cursor.compareTime(start) <= 0  ||
+            ! cursor.isNumber()  ||
+            cursor.getSeverity() == AlarmSeverity.UNDEFINED)
+        {
+            final VType result = cursor.toVType();
+            have = SegmentRawValueIterator.advance(cursor);
+            return result;
+        }
+
+        // Combine numeric samples in bin
+        final long bin = getBin();
+        final VType first = cursor.toVType();
+        final StatisticsAccumulator stats = new StatisticsAccumulator();
+        AlarmSeverity severity = AlarmSeverity.NONE;
+        String message = "";
+        do
+        {
+            stats.add(cursor.getDouble());
+            final AlarmSeverity sev = cursor.getSeverity();
+            if (sev.ordinal() > severity.ordinal())
+            {
+                severity = sev;
+                message = cursor.getMessage();
+            }
+            have = SegmentRawValueIterator.advance(cursor);
+        }
+        while (have  &&
+               cursor.compareTime(end) <= 0  &&
+               cursor.isNumber()  &&
+               cursor.getSeverity() != AlarmSeverity.UNDEFINED  &&
+               getBin() == bin);
+
+        // Only single value? Return as is
+        if (stats.getNSamples() <= 1)
+            return first;
+
+        // Time stamp in center of bin
+        final Instant time = start.plusNanos(bin * bin_nanos + bin_nanos / 2);
+        final Alarm alarm = Alarm.of(severity,
+                                     severity == AlarmSeverity.NONE ? AlarmStatus.NONE : AlarmStatus.CLIENT,
+                                     message);
+        return VStatistics.of(stats.getAverage(), stats.getStdDev(), stats.getMin(), stats.getMax(),
+                              stats.getNSamples(), alarm, Time.of(time), cursor.getDisplay());
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return value != null;
+    }
+
+    @Override
+    public VType next()
+    {
+        if (value == null)
+            throw new NoSuchElementException();
+        final VType result = value;
+        value = determineNext();
+        return result;
+    }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.archive.reader.segment;
+
+import static org.phoebus.archive.reader.ArchiveReaders.logger;
+
+import java.time.Instant;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+
+import org.epics.vtype.VType;
+import org.phoebus.archive.reader.ValueIterator;
+
+/** Iterator over the raw samples in segment files */
+@SuppressWarnings("nls")
+class SegmentRawValueIterator implements ValueIterator
+{
+    private final SegmentCursor cursor;
+    private final Instant end;
+    private boolean have;
+
+    /** @param cursor Cursor for the segment files
+     *  @param start Start time. Iteration includes the last sample before this time.
+     *  @param end End time
+     *  @throws Exception on error
+     */
+    SegmentRawValueIterator(final SegmentCursor cursor, final Instant start, final Instant end) throws Exception
+    {
+        this.cursor = cursor;
+        this.end = end;
+        have = seek(cursor, start);
+    }
+
+    /** Position cursor on the last sample at or before the start time,
+     *  or the first sample after it
+     *  @param cursor Cursor
+     *  @param start Start time
+     *  @return <code>true</code> if cursor is on a sample
+     *  @throws Exception on error
+     */
+    static boolean seek(final SegmentCursor cursor, final Instant start) throws Exception
+    {
+        boolean have = cursor.next();
+        boolean before = false;
+        while (have  &&  cursor.compareTime(start) <= 0)
+        {
+            cursor.mark();
+            before = true;
+            have = cursor.next();
+        }
+        if (before)
+        {
+            cursor.reset();
+            return true;
+        }
+        return have;
+    }
+
+    /** Advance the cursor, logging errors
+     *  @param cursor Cursor
+     *  @return <code>true</code> if cursor is on a sample
+     */
+    static boolean advance(final SegmentCursor cursor)
+    {
+        try
+        {
+            return cursor.next();
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot read segment file", ex);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return have  &&  cursor.compareTime(end) <= 0;
+    }
+
+    @Override
+    public VType next()
+    {
+        if (! hasNext())
+            throw new NoSuchElementException();
+        final VType value = cursor.toVType();
+        have = advance(cursor);
+        return value;
+    }
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.archive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.stats.Range;
+import org.epics.util.text.NumberFormats;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.EnumDisplay;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VDoubleArray;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VInt;
+import org.epics.vtype.VStatistics;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+import org.junit.Test;
+import org.phoebus.archive.vtype.VTypeHelper;
+
+/** JUnit test of {@link ArchiveTile} and {@link ArchiveTileCache}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ArchiveTileCacheTest
+{
+    private static final Instant START = Instant.ofEpochSecond(1600000000);
+
+    @Test
+    public void testCover()
+    {
+        // One hour in 4 tiles of 1024 seconds
+        List<ArchiveTile> tiles = ArchiveTile.cover("url", "pv", START, START.plusSeconds(3600), 1000, 4);
+        System.out.println(tiles);
+        assertEquals(4, tiles.size());
+        assertFalse(tiles.get(0).getStart().isAfter(START));
+        assertFalse(tiles.get(3).getEnd().isBefore(START.plusSeconds(3600)));
+        for (int i=1; i<tiles.size(); ++i)
+            assertEquals(tiles.get(i-1).getEnd(), tiles.get(i).getStart());
+        // 1000 bins for 3600 seconds, 1024 second tile needs ~285, rounded up
+        assertEquals(512, tiles.get(0).getBins());
+
+        // Panning by 10 minutes re-uses the overlapping tiles
+        final List<ArchiveTile> panned = ArchiveTile.cover("url", "pv", START.plusSeconds(600), START.plusSeconds(4200), 1000, 4);
+        int reused = 0;
+        for (ArchiveTile tile : panned)
+            if (tiles.contains(tile))
+                ++reused;
+        assertEquals(4, reused);
+        assertEquals(5, panned.size());
+
+        // Raw request
+        tiles = ArchiveTile.cover("url", "pv", START, START.plusSeconds(10), 0, 4);
+        assertEquals(0, tiles.get(0).getBins());
+        assertEquals(4, tiles.get(1).getEnd().getEpochSecond() - tiles.get(1).getStart().getEpochSecond());
+    }
+
+    private static Time time(final int offset)
+    {
+        return Time.of(START.plusMillis(offset));
+    }
+
+    private static List<VType> makeSamples()
+    {
+        final Display display = Display.of(Range.of(0, 10), Range.of(1, 9), Range.of(2, 8), Range.of(0, 10),
+                                           "V", NumberFormats.precisionFormat(3));
+        final Alarm minor = Alarm.of(AlarmSeverity.MINOR, AlarmStatus.RECORD, "HIGH");
+        final List<VType> samples = new ArrayList<>();
+        samples.add(VDouble.of(3.14, Alarm.none(), time(1), display));
+        samples.add(VInt.of(42, minor, time(2), display));
+        samples.add(VStatistics.of(3.0, 0.5, 1.0, 5.0, 10, Alarm.none(), time(3), display));
+        samples.add(VString.of("Text", Alarm.none(), time(4)));
+        samples.add(VEnum.of(1, EnumDisplay.of("Off", "On"), minor, time(5)));
+        samples.add(VDoubleArray.of(ArrayDouble.of(1, 2, 3), Alarm.none(), time(6), Display.none()));
+        samples.add(VDouble.of(Double.NaN, Alarm.disconnected(), time(7), display));
+        return samples;
+    }
+
+    @Test
+    public void testCache() throws Exception
+    {
+        final File dir = Files.createTempDirectory("tiles").toFile();
+        final ArchiveTileCache cache = new ArchiveTileCache(dir, 1024 * 1024);
+        final ArchiveTile tile = new ArchiveTile("url", "pv", 1024, START.getEpochSecond() / 1024, 100);
+        assertNull(cache.get(tile));
+
+        final List<VType> samples = makeSamples();
+        assertTrue(cache.put(tile, samples));
+        final List<VType> cached = cache.get(tile);
+        assertEquals(samples.size(), cached.size());
+        for (int i=0; i<samples.size(); ++i)
+        {
+            System.out.println(VTypeHelper.toString(cached.get(i)));
+            assertEquals(samples.get(i).getClass(), cached.get(i).getClass());
+            assertEquals(VTypeHelper.toString(samples.get(i)), VTypeHelper.toString(cached.get(i)));
+            assertEquals(Alarm.alarmOf(samples.get(i)), Alarm.alarmOf(cached.get(i)));
+            assertEquals(Display.displayOf(samples.get(i)), Display.displayOf(cached.get(i)));
+        }
+
+        // Other cache instance finds the tile on disk
+        assertEquals(samples.size(), new ArchiveTileCache(dir, 1024 * 1024).get(tile).size());
+    }
+
+    @Test
+    public void testOpenTile() throws Exception
+    {
+        final File dir = Files.createTempDirectory("tiles").toFile();
+        final ArchiveTileCache cache = new ArchiveTileCache(dir, 1024 * 1024);
+        final long now = Instant.now().getEpochSecond();
+        final ArchiveTile tile = new ArchiveTile("url", "pv", 64, now / 64, 100);
+        assertTrue(ArchiveTileCache.isOpen(tile));
+        assertFalse(cache.put(tile, makeSamples()));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testLRU() throws Exception
+    {
+        final File dir = Files.createTempDirectory("tiles").toFile();
+        final List<VType> samples = makeSamples();
+        // Determine size of one tile
+        long tile_size;
+        {
+            final ArchiveTileCache cache = new ArchiveTileCache(Files.createTempDirectory("tiles").toFile(), 1024 * 1024);
+            cache.put(new ArchiveTile("url", "pv", 1024, 0, 100), samples);
+            tile_size = cache.getSize();
+        }
+
+        // Room for 3 tiles
+        final ArchiveTileCache cache = new ArchiveTileCache(dir, 3 * tile_size + tile_size / 2);
+        final ArchiveTile[] tiles = new ArchiveTile[4];
+        for (int i=0; i<tiles.length; ++i)
+            tiles[i] = new ArchiveTile("url", "pv", 1024, i, 100);
+        cache.put(tiles[0], samples);
+        cache.put(tiles[1], samples);
+        cache.put(tiles[2], samples);
+        // Use tile 0, so tile 1 is the least recently used
+        assertTrue(cache.get(tiles[0]) != null);
+        cache.put(tiles[3], samples);
+        assertEquals(3 * tile_size, cache.getSize());
+        assertTrue(cache.get(tiles[0]) != null);
+        assertNull(cache.get(tiles[1]));
+        assertTrue(cache.get(tiles[2]) != null);
+        assertTrue(cache.get(tiles[3]) != null);
+        assertEquals(3, dir.listFiles().length);
+    }
+}
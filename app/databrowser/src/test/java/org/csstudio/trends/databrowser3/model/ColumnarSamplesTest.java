@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.epics.util.array.ArrayDouble;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDoubleArray;
+import org.epics.vtype.VInt;
+import org.epics.vtype.VStatistics;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of {@link ColumnarSamples}
+ *
+ *  <p>Columnar samples must provide the same data
+ *  as the original {@link PlotSample}s.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ColumnarSamplesTest
+{
+    private static final Alarm MINOR = Alarm.of(AlarmSeverity.MINOR, AlarmStatus.RECORD, "HIGH");
+
+    private static void assertSame(final PlotSample expected, final PlotSample actual)
+    {
+        assertEquals(expected.getSource(), actual.getSource());
+        assertEquals(expected.getPosition(), actual.getPosition());
+        assertEquals(expected.getValue(), actual.getValue(), 0.0);
+        assertEquals(expected.getStdDev(), actual.getStdDev(), 0.0);
+        assertEquals(expected.getMin(), actual.getMin(), 0.0);
+        assertEquals(expected.getMax(), actual.getMax(), 0.0);
+        assertEquals(expected.getInfo(), actual.getInfo());
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(expected.getVType().getClass(), actual.getVType().getClass());
+    }
+
+    private static Time time(final long seconds, final int nanos)
+    {
+        return Time.of(Instant.ofEpochSecond(seconds, nanos));
+    }
+
+    @Test
+    public void testSameData()
+    {
+        final AtomicInteger index = new AtomicInteger(0);
+        final List<PlotSample> originals = List.of(
+            new PlotSample(index, "Test", TestHelper.makeValue(1)),
+            new PlotSample(index, "Test", VInt.of(42, MINOR, time(1600000000, 123456789), Display.none())),
+            new PlotSample(index, "Archive", VStatistics.of(3.0, 0.5, 1.0, 5.0, 10, Alarm.none(), time(1600000001, 0), Display.none())),
+            new PlotSample("Live", "Disconnected"),
+            new PlotSample(index, "Test", TestHelper.makeError(5, "Error")));
+
+        final ColumnarSamples columns = new ColumnarSamples(new ColumnarSamples.MetaTable(), index, 100);
+        for (PlotSample sample : originals)
+            assertTrue(columns.add(sample));
+        assertEquals(originals.size(), columns.size());
+        for (int i=0; i<originals.size(); ++i)
+        {
+            System.out.println(columns.get(i) + " - " + columns.get(i).getInfo());
+            assertSame(originals.get(i), columns.get(i));
+        }
+
+        // No statistics for other waveform elements
+        index.set(1);
+        assertEquals(Double.NaN, columns.get(2).getMin(), 0.0);
+    }
+
+    @Test
+    public void testUnsupported()
+    {
+        final ColumnarSamples columns = new ColumnarSamples(new ColumnarSamples.MetaTable(), new AtomicInteger(0), 100);
+        assertFalse(columns.add(new PlotSample("Test", TestHelper.makeWaveform(1, new double[] { 1, 2 }))));
+        assertFalse(columns.add(new PlotSample("Test", VString.of("Text", Alarm.none(), Time.now()))));
+        assertEquals(0, columns.size());
+    }
+
+    @Test
+    public void testRing() throws Exception
+    {
+        final ColumnarSamples columns = new ColumnarSamples(new ColumnarSamples.MetaTable(), new AtomicInteger(0), 50);
+        for (int i=0; i<120; ++i)
+            assertTrue(columns.add(new PlotSample("Test", TestHelper.makeValue(i))));
+        // Keeps the newest 50
+        assertEquals(50, columns.size());
+        for (int i=0; i<50; ++i)
+            assertEquals(70 + i, columns.get(i).getValue(), 0.0);
+
+        // Keeps the newest 20 when shrinking
+        columns.setCapacity(20);
+        assertEquals(20, columns.size());
+        for (int i=0; i<20; ++i)
+            assertEquals(100 + i, columns.get(i).getValue(), 0.0);
+        columns.add(new PlotSample("Test", TestHelper.makeValue(120)));
+        assertEquals(20, columns.size());
+        assertEquals(101, columns.get(0).getValue(), 0.0);
+        assertEquals(120, columns.get(19).getValue(), 0.0);
+
+        // Views remain valid when the ring is overwritten
+        final PlotSample view = columns.get(0);
+        for (int i=121; i<200; ++i)
+            columns.add(new PlotSample("Test", TestHelper.makeValue(i)));
+        assertEquals(101, view.getValue(), 0.0);
+        assertEquals(180, columns.get(0).getValue(), 0.0);
+    }
+
+    /** @return Historic samples with values 'first' to 'last' */
+    private static List<VType> makeValues(final int first, final int last)
+    {
+        final List<VType> values = new ArrayList<>();
+        for (int i=first; i<=last; ++i)
+            values.add(TestHelper.makeValue(i));
+        return values;
+    }
+
+    /** Merge the same data as columns and as PlotSample objects */
+    @Test
+    public void testMerge()
+    {
+        final AtomicInteger index = new AtomicInteger(0);
+        final HistoricSamples history = new HistoricSamples(index);
+        PlotSample[] objects = new PlotSample[0];
+        final int[][] ranges = { { 50, 60 }, { 10, 20 }, { 15, 55 }, { 30, 40 }, { 70, 80 }, { 0, 100 }, { 20, 20 } };
+        for (int[] range : ranges)
+        {
+            final List<VType> values = makeValues(range[0], range[1]);
+            history.mergeArchivedData("Test", values);
+            final PlotSample[] add = values.stream().map(value -> new PlotSample(index, "Test", value)).toArray(PlotSample[]::new);
+            objects = PlotSampleMerger.merge(objects, add);
+
+            assertEquals(objects.length, history.getRawSize());
+            for (int i=0; i<objects.length; ++i)
+                assertSame(objects[i], history.getRawSample(i));
+        }
+
+        history.setBorderTime(Optional.of(Instant.ofEpochMilli(50)));
+        assertEquals(50, history.size());
+        assertEquals(49, history.get(49).getValue(), 0.0);
+    }
+
+    /** Switch to PlotSample objects when archive returns waveforms */
+    @Test
+    public void testFallback()
+    {
+        final AtomicInteger index = new AtomicInteger(0);
+        final HistoricSamples history = new HistoricSamples(index);
+        history.mergeArchivedData("Test", makeValues(10, 20));
+        history.mergeArchivedData("Test", List.of(TestHelper.makeValue(5),
+                                                  VDoubleArray.of(ArrayDouble.of(1, 2), Alarm.none(), Time.of(Instant.ofEpochMilli(6)), Display.none())));
+        assertEquals(13, history.getRawSize());
+        assertEquals(5, history.getRawSample(0).getValue(), 0.0);
+        assertEquals(10, history.getRawSample(2).getValue(), 0.0);
+
+        final LiveSamples live = new LiveSamples(index);
+        live.add(new PlotSample("Test", TestHelper.makeValue(1)));
+        live.add(new PlotSample("Test", VString.of("Text", Alarm.none(), Time.now())));
+        live.add(new PlotSample("Test", TestHelper.makeValue(3)));
+        assertEquals(3, live.size());
+        assertEquals(1, live.get(0).getValue(), 0.0);
+        assertEquals("Text", ((VString) live.get(1).getVType()).getValue());
+        assertEquals(3, live.get(2).getValue(), 0.0);
+    }
+}
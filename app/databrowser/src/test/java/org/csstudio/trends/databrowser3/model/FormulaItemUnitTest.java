@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.model;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.epics.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test for FormulaItem
+ *
+ *  <p>Compares samples that a formula adds for new input samples
+ *  with the samples computed from scratch.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class FormulaItemUnitTest
+{
+    private static final String EXPRESSION = "a + 2*b";
+
+    private static FormulaInput[] createInputs(final PVItem a, final PVItem b)
+    {
+        return new FormulaInput[] { new FormulaInput(a, "a"), new FormulaInput(b, "b") };
+    }
+
+    /** Check that formula has the same samples as a newly computed formula */
+    private static void checkSamples(final FormulaItem formula, final PVItem a, final PVItem b) throws Exception
+    {
+        final FormulaItem expected = new FormulaItem("expected", EXPRESSION, createInputs(a, b));
+        final PlotSamples samples = formula.getSamples();
+        final PlotSamples expected_samples = expected.getSamples();
+        samples.getLock().lock();
+        expected_samples.getLock().lock();
+        try
+        {
+            assertThat(samples.getActualSize(), equalTo(expected_samples.getActualSize()));
+            for (int i=0; i<samples.getActualSize(); ++i)
+            {
+                assertThat(samples.get(i).getPosition(), equalTo(expected_samples.get(i).getPosition()));
+                assertThat(samples.get(i).getValue(), equalTo(expected_samples.get(i).getValue()));
+            }
+        }
+        finally
+        {
+            expected_samples.getLock().unlock();
+            samples.getLock().unlock();
+        }
+    }
+
+    @Test
+    public void testIncrementalUpdate() throws Exception
+    {
+        final PVItem a = new PVItem("a", 0.0);
+        final PVItem b = new PVItem("b", 0.0);
+        final List<VType> history = new ArrayList<>();
+        for (int i=0; i<10; ++i)
+            history.add(TestHelper.makeValue(i));
+        a.getSamples().mergeArchivedData("Test", history);
+
+        final FormulaItem formula = new FormulaItem("f", EXPRESSION, createInputs(a, b));
+        checkSamples(formula, a, b);
+        final int history_changes = formula.getSamples().getHistoryChanges();
+
+        // Adding live samples to either input only adds formula samples
+        for (int i=20; i<40; ++i)
+        {
+            final PVItem input = (i % 3 == 0) ? b : a;
+            input.getSamples().addLiveSample(TestHelper.makeValue(i));
+            assertThat(formula.reevaluate(), equalTo(true));
+            checkSamples(formula, a, b);
+        }
+        assertThat(formula.getSamples().getHistoryChanges(), equalTo(history_changes));
+
+        // Input sample that's older than the last formula sample
+        a.getSamples().addLiveSample(TestHelper.makeValue(41));
+        formula.reevaluate();
+        b.getSamples().addLiveSample(TestHelper.makeValue(40));
+        formula.reevaluate();
+        checkSamples(formula, a, b);
+        assertThat(formula.getSamples().getHistoryChanges(), equalTo(history_changes + 1));
+
+        // Archived data requires computing all samples
+        history.clear();
+        for (int i=10; i<20; ++i)
+            history.add(TestHelper.makeValue(i));
+        b.getSamples().mergeArchivedData("Test", history);
+        formula.reevaluate();
+        checkSamples(formula, a, b);
+        assertThat(formula.getSamples().getHistoryChanges(), equalTo(history_changes + 2));
+
+        // Changing the formula requires computing all samples
+        formula.updateFormula("a - b", createInputs(a, b));
+        formula.reevaluate();
+        assertThat(formula.getSamples().getHistoryChanges(), equalTo(history_changes + 3));
+    }
+
+    @Test
+    public void testOutOfOrderSample() throws Exception
+    {
+        final PVItem a = new PVItem("a", 0.0);
+        final PVItem b = new PVItem("b", 0.0);
+        for (int i=0; i<10; ++i)
+            a.getSamples().addLiveSample(TestHelper.makeValue(i));
+        b.getSamples().addLiveSample(TestHelper.makeValue(0));
+
+        final FormulaItem formula = new FormulaItem("f", EXPRESSION, createInputs(a, b));
+        checkSamples(formula, a, b);
+        final int history_changes = formula.getSamples().getHistoryChanges();
+
+        // Input sample that's not newer than the last sample of that input
+        a.getSamples().addLiveSample(TestHelper.makeValue(5));
+        assertThat(formula.reevaluate(), equalTo(true));
+        checkSamples(formula, a, b);
+        assertThat(formula.getSamples().getHistoryChanges(), equalTo(history_changes + 1));
+    }
+
+    @Test
+    public void testWaveformIndex() throws Exception
+    {
+        final PVItem a = new PVItem("a", 0.0);
+        final PVItem b = new PVItem("b", 0.0);
+        for (int i=0; i<10; ++i)
+            a.getSamples().addLiveSample(TestHelper.makeWaveform(i, new double[] { i, 10*i }));
+        b.getSamples().addLiveSample(TestHelper.makeValue(0));
+
+        final FormulaItem formula = new FormulaItem("f", EXPRESSION, createInputs(a, b));
+        checkSamples(formula, a, b);
+        final int history_changes = formula.getSamples().getHistoryChanges();
+
+        // Changing the waveform index changes the value of all input samples
+        a.setWaveformIndex(1);
+        assertThat(formula.reevaluate(), equalTo(true));
+        checkSamples(formula, a, b);
+        assertThat(formula.getSamples().getHistoryChanges(), equalTo(history_changes + 1));
+    }
+
+    @Test
+    public void testLiveBuffer() throws Exception
+    {
+        final PVItem a = new PVItem("a", 0.0);
+        final PVItem b = new PVItem("b", 0.0);
+        a.getSamples().setLiveCapacity(10);
+        b.getSamples().setLiveCapacity(10);
+
+        final FormulaItem formula = new FormulaItem("f", EXPRESSION, createInputs(a, b));
+        final int history_changes = formula.getSamples().getHistoryChanges();
+        for (int i=0; i<100; ++i)
+        {
+            a.getSamples().addLiveSample(TestHelper.makeValue(2*i));
+            b.getSamples().addLiveSample(TestHelper.makeValue(2*i+1));
+            formula.reevaluate();
+        }
+        assertThat(formula.getSamples().getHistoryChanges(), equalTo(history_changes));
+
+        // Formula drops samples that are older than the inputs' live buffer
+        final PlotSamples samples = formula.getSamples();
+        samples.getLock().lock();
+        try
+        {
+            System.out.println(samples);
+            assertThat(samples.getActualSize(), equalTo(20));
+            assertThat(samples.get(0).getPosition(), equalTo(Instant.ofEpochMilli(180)));
+        }
+        finally
+        {
+            samples.getLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.archive.reader.segment;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.Display;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VStatistics;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.phoebus.archive.reader.UnknownChannelException;
+import org.phoebus.archive.reader.ValueIterator;
+import org.phoebus.util.segment.SegmentFormat;
+
+/** JUnit test of the {@link SegmentArchiveReader}
+ *
+ *  <p>Creates segment files in the format
+ *  written by the archive engine, then reads them.
+ */
+@SuppressWarnings("nls")
+public class SegmentArchiveReaderTest
+{
+    private Path root;
+
+    /** @param units Units of numeric meta data to add */
+    private static void putNumericMeta(final ByteBuffer buffer, final String units)
+    {
+        final byte[] bytes = units.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(SegmentFormat.NUMERIC_META_SIZE + bytes.length);
+        buffer.put(SegmentFormat.NUMERIC_META);
+        for (int i=0; i<8; ++i)
+            buffer.putDouble(i);
+        buffer.putInt(3);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    /** @param seconds Time and value of double sample to add */
+    private static void putDouble(final ByteBuffer buffer, final long seconds)
+    {
+        buffer.putInt(SegmentFormat.SAMPLE_HEADER_SIZE + 8);
+        buffer.put(SegmentFormat.DOUBLE);
+        buffer.putLong(seconds);
+        buffer.putInt(0);
+        buffer.put((byte) AlarmSeverity.NONE.ordinal());
+        buffer.putShort((short) 0);
+        buffer.putDouble(seconds);
+    }
+
+    private static ByteBuffer startSegment()
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(100000);
+        buffer.putInt(SegmentFormat.MAGIC);
+        buffer.putInt(SegmentFormat.VERSION);
+        buffer.putLong(0);
+        return buffer;
+    }
+
+    private static void endSegment(final ByteBuffer buffer, final Path dir, final long start) throws Exception
+    {
+        buffer.putLong(SegmentFormat.END_OFFSET, buffer.position());
+        // Add bytes beyond the 'end' that must be ignored
+        buffer.putInt(12345);
+        buffer.flip();
+
+        final byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        Files.write(dir.resolve(SegmentFormat.getFileName(start)), data);
+    }
+
+    /** Create segment file
+     *  @param dir Channel directory
+     *  @param start Start of the partition
+     *  @param first First sample time
+     *  @param count Number of samples, one per second, value = seconds
+     */
+    private static void writeSegment(final Path dir, final long start, final long first, final int count) throws Exception
+    {
+        final ByteBuffer buffer = startSegment();
+        putNumericMeta(buffer, "mm");
+
+        // 'Disconnected' string
+        final byte[] message = "Disconnected".getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(SegmentFormat.SAMPLE_HEADER_SIZE + message.length + 4 + message.length);
+        buffer.put(SegmentFormat.STRING);
+        buffer.putLong(first - 1);
+        buffer.putInt(0);
+        buffer.put((byte) AlarmSeverity.INVALID.ordinal());
+        buffer.putShort((short) message.length);
+        buffer.put(message);
+        buffer.putInt(message.length);
+        buffer.put(message);
+
+        for (int i=0; i<count; ++i)
+            putDouble(buffer, first + i);
+        endSegment(buffer, dir, start);
+    }
+
+    @Before
+    public void setup() throws Exception
+    {
+        root = Files.createTempDirectory("segments");
+        final Path dir = root.resolve(SegmentFormat.encodeName("test:pv"));
+        Files.createDirectories(dir);
+        writeSegment(dir, 1000, 1010, 90);
+        writeSegment(dir, 1100, 1100, 100);
+        writeSegment(dir, 1200, 1200, 100);
+        Files.createDirectories(root.resolve(SegmentFormat.encodeName("other")));
+    }
+
+    @After
+    public void cleanup() throws Exception
+    {
+        Files.walk(root)
+             .sorted(Comparator.reverseOrder())
+             .forEach(path -> path.toFile().delete());
+    }
+
+    private static List<VType> read(final ValueIterator values) throws Exception
+    {
+        final List<VType> result = new ArrayList<>();
+        while (values.hasNext())
+            result.add(values.next());
+        values.close();
+        return result;
+    }
+
+    @Test
+    public void testNames() throws Exception
+    {
+        assertThat(SegmentFormat.decodeName(SegmentFormat.encodeName("sim://sine(-10, 10) Ä")),
+                   equalTo("sim://sine(-10, 10) Ä"));
+        final SegmentArchiveReader reader = new SegmentArchiveReader(root);
+        assertThat(reader.getNamesByPattern("*").size(), equalTo(2));
+        assertThat(reader.getNamesByPattern("TEST*").iterator().next(), equalTo("test:pv"));
+    }
+
+    @Test(expected=UnknownChannelException.class)
+    public void testUnknown() throws Exception
+    {
+        new SegmentArchiveReader(root).getRawValues("nonexisting", Instant.ofEpochSecond(0), Instant.now());
+    }
+
+    @Test
+    public void testRaw() throws Exception
+    {
+        final SegmentArchiveReader reader = new SegmentArchiveReader(root);
+        final List<VType> values = read(reader.getRawValues("test:pv", Instant.ofEpochSecond(1150, 500), Instant.ofEpochSecond(1205)));
+        // Starts with last sample before start time
+        VDouble value = (VDouble) values.get(0);
+        assertThat(value.getValue(), equalTo(1150.0));
+        assertThat(value.getDisplay().getUnit(), equalTo("mm"));
+        // 1151..1199, then info string and 1200..1205
+        assertThat(values.size(), equalTo(1 + 49 + 1 + 6));
+        assertThat(values.get(50), instanceOf(VString.class));
+        value = (VDouble) values.get(values.size()-1);
+        assertThat(value.getValue(), equalTo(1205.0));
+
+        // Start before any sample
+        assertThat(read(reader.getRawValues("test:pv", Instant.ofEpochSecond(0), Instant.ofEpochSecond(1010))).size(),
+                   equalTo(2));
+    }
+
+    @Test
+    public void testMetaDataAfterStart() throws Exception
+    {
+        // Units change after the last sample before the start time
+        final Path dir = root.resolve(SegmentFormat.encodeName("units:pv"));
+        Files.createDirectories(dir);
+        final ByteBuffer buffer = startSegment();
+        putNumericMeta(buffer, "mm");
+        putDouble(buffer, 1001);
+        putNumericMeta(buffer, "cm");
+        putDouble(buffer, 1002);
+        endSegment(buffer, dir, 1000);
+
+        final SegmentArchiveReader reader = new SegmentArchiveReader(root);
+        final List<VType> values = read(reader.getRawValues("units:pv", Instant.ofEpochSecond(1001, 500), Instant.ofEpochSecond(1005)));
+        assertThat(values.size(), equalTo(2));
+        assertThat(Display.displayOf(values.get(0)).getUnit(), equalTo("mm"));
+        assertThat(Display.displayOf(values.get(1)).getUnit(), equalTo("cm"));
+    }
+
+    @Test
+    public void testOptimized() throws Exception
+    {
+        final SegmentArchiveReader reader = new SegmentArchiveReader(root);
+        final List<VType> values = read(reader.getOptimizedValues("test:pv", Instant.ofEpochSecond(1100), Instant.ofEpochSecond(1300), 10));
+        // Sample at start, 5 bins of 20 seconds, info string, 5 bins
+        assertThat(values.size(), equalTo(1 + 5 + 1 + 5));
+        assertThat(((VDouble) values.get(0)).getValue(), equalTo(1100.0));
+        final VStatistics stats = (VStatistics) values.get(1);
+        assertThat(stats.getNSamples(), equalTo(19));
+        assertThat(stats.getMin(), equalTo(1101.0));
+        assertThat(stats.getMax(), equalTo(1119.0));
+        assertThat(stats.getAverage(), equalTo(1110.0));
+        assertThat(values.get(6), instanceOf(VString.class));
+        assertThat(((VStatistics) values.get(11)).getMax(), equalTo(1299.0));
+        assertThat(Display.displayOf(values.get(11)).getUnit(), equalTo("mm"));
+    }
+}
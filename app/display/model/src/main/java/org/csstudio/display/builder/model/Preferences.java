@@ -24,9 +24,9 @@ import org.phoebus.framework.preferences.Preference;
 public class Preferences
 {
 	@Preference public static String[] class_files, color_files, font_files;
-	@Preference public static int read_timeout, cache_timeout, max_reparse_iterations;
+	@Preference public static int read_timeout, cache_timeout, model_cache_size, max_reparse_iterations;
 	@Preference public static double legacy_font_calibration;
-	@Preference public static boolean skip_defaults;
+	@Preference public static boolean skip_defaults, streaming_model_reader;
     @Preference(name="macros") private static String macro_spec;
     private static Macros macros;
 
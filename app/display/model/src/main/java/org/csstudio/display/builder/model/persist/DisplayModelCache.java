@@ -0,0 +1,377 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.persist;
+
+import static org.csstudio.display.builder.model.ModelPlugin.logger;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+import org.csstudio.display.builder.model.ArrayWidgetProperty;
+import org.csstudio.display.builder.model.ChildrenProperty;
+import org.csstudio.display.builder.model.DisplayModel;
+import org.csstudio.display.builder.model.MacroizedWidgetProperty;
+import org.csstudio.display.builder.model.Preferences;
+import org.csstudio.display.builder.model.StructuredWidgetProperty;
+import org.csstudio.display.builder.model.Widget;
+import org.csstudio.display.builder.model.WidgetDescriptor;
+import org.csstudio.display.builder.model.WidgetFactory;
+import org.csstudio.display.builder.model.WidgetProperty;
+import org.csstudio.display.builder.model.WidgetPropertyCategory;
+import org.csstudio.display.builder.model.properties.Points;
+import org.csstudio.display.builder.model.util.ModelResourceUtil;
+import org.csstudio.display.builder.model.widgets.PlaceholderWidget;
+import org.phoebus.framework.macros.Macros;
+
+/** Cache of parsed display models
+ *
+ *  <p>Displays that are embedded many times, for example
+ *  one instance per magnet or vacuum gauge, are parsed once.
+ *  The cache holds the parsed model as a template
+ *  which is never handed out.
+ *  Each request receives a copy of the template,
+ *  created by copying the widget properties without reading XML again.
+ *  Macro-based properties are copied as their specification,
+ *  so each copy resolves them with the macros of its embedding widget.
+ *
+ *  <p>Entries are keyed by resolved display path.
+ *  For files, the modification time and size are checked
+ *  on each request, and a changed file is re-loaded.
+ *  Entries for other resources like URLs expire after the
+ *  <code>cache_timeout</code>.
+ *
+ *  <p>Displays that cannot be copied, for example because they
+ *  contain widgets which failed to load, are loaded on each request.
+ */
+@SuppressWarnings("nls")
+public class DisplayModelCache
+{
+    private static final DisplayModelCache instance = new DisplayModelCache(Preferences.model_cache_size);
+
+    /** Cached template */
+    private static class Entry
+    {
+        /** File modification time and size, or expiration time for non-file resources */
+        final long stamp;
+
+        /** Template, <code>null</code> if display cannot be copied */
+        final CompletableFuture<DisplayModel> template = new CompletableFuture<>();
+
+        Entry(final long stamp)
+        {
+            this.stamp = stamp;
+        }
+    }
+
+    /** Maximum number of templates */
+    private final int size;
+
+    /** Templates by resolved display path, in access order
+     *
+     *  SYNC on access
+     */
+    private final Map<String, Entry> cache;
+
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+
+    /** @return Singleton instance */
+    public static DisplayModelCache getInstance()
+    {
+        return instance;
+    }
+
+    /** @param size Maximum number of cached display models, 0 to disable */
+    public DisplayModelCache(final int size)
+    {
+        this.size = size;
+        cache = new LinkedHashMap<>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, DisplayModelCache.Entry> eldest)
+            {
+                return size() > DisplayModelCache.this.size;
+            }
+        };
+    }
+
+    /** Load model, resolved relative to parent, with classes applied
+     *
+     *  <p>Like {@link ModelLoader#resolveAndLoadModel(String, String)},
+     *  but returns a copy of a cached model if possible.
+     *
+     *  @param parent_display Path to a 'parent' file, may be <code>null</code>
+     *  @param display_file Model file
+     *  @return {@link DisplayModel}
+     *  @throws Exception on error
+     */
+    public DisplayModel resolveAndLoadModel(final String parent_display, final String display_file) throws Exception
+    {
+        if (size <= 0)
+            return ModelLoader.resolveAndLoadModel(parent_display, display_file);
+
+        final String resolved_name;
+        try
+        {
+            resolved_name = ModelResourceUtil.resolveResource(parent_display, display_file);
+        }
+        catch (Exception ex)
+        {   // Let ModelLoader try auto-converters and report the error
+            return ModelLoader.resolveAndLoadModel(parent_display, display_file);
+        }
+
+        final File file = new File(resolved_name);
+        final boolean is_file = file.isFile();
+        final long stamp = is_file
+            ? file.lastModified() ^ (file.length() << 40)
+            : System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(Preferences.cache_timeout);
+
+        // Use existing entry unless file changed or entry expired,
+        // or add new entry which this thread then needs to load
+        final Entry entry;
+        boolean load = false;
+        synchronized (cache)
+        {
+            Entry existing = cache.get(resolved_name);
+            if (existing != null  &&
+                (is_file ? existing.stamp != stamp : existing.stamp < System.currentTimeMillis()))
+                existing = null;
+            if (existing == null)
+            {
+                existing = new Entry(stamp);
+                cache.put(resolved_name, existing);
+                load = true;
+            }
+            entry = existing;
+        }
+
+        if (load)
+        {
+            misses.increment();
+            try
+            {
+                final DisplayModel template = ModelLoader.resolveAndLoadModel(parent_display, display_file);
+                DisplayModel model = null;
+                if (isCopyable(template))
+                {
+                    try
+                    {
+                        model = copy(template);
+                    }
+                    catch (Exception ex)
+                    {
+                        logger.log(Level.FINE, "Cannot copy " + resolved_name, ex);
+                    }
+                }
+                if (model == null)
+                {   // Cache the fact that the model can't be copied
+                    entry.template.complete(null);
+                    return template;
+                }
+                entry.template.complete(template);
+                return model;
+            }
+            catch (Exception ex)
+            {   // Don't cache errors
+                synchronized (cache)
+                {
+                    cache.remove(resolved_name, entry);
+                }
+                entry.template.completeExceptionally(ex);
+                throw ex;
+            }
+        }
+
+        // Wait for template which might be loaded by another thread
+        final DisplayModel template;
+        try
+        {
+            template = entry.template.get();
+        }
+        catch (ExecutionException ex)
+        {   // Other thread failed to load, try again
+            return resolveAndLoadModel(parent_display, display_file);
+        }
+        if (template == null)
+        {
+            misses.increment();
+            return ModelLoader.resolveAndLoadModel(parent_display, display_file);
+        }
+        hits.increment();
+        return copy(template);
+    }
+
+    /** @return Number of requests that were served from the cache */
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    /** @return Number of requests that required loading a display */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /** @return Number of cached display models */
+    public int getSize()
+    {
+        synchronized (cache)
+        {
+            return cache.size();
+        }
+    }
+
+    /** Clear cache, for example to force re-loading all displays */
+    public void clear()
+    {
+        synchronized (cache)
+        {
+            cache.clear();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Display model cache: " + getSize() + " entries, " + getHits() + " hits, " + getMisses() + " misses";
+    }
+
+    /** @param model Model
+     *  @return <code>true</code> if model can be copied
+     */
+    private static boolean isCopyable(final DisplayModel model)
+    {
+        return model.isClean()  &&  isCopyable(model.runtimeChildren().getValue());
+    }
+
+    private static boolean isCopyable(final List<Widget> widgets)
+    {
+        for (Widget widget : widgets)
+        {
+            if (widget instanceof PlaceholderWidget  ||  ! widget.isClean())
+                return false;
+            final ChildrenProperty children = ChildrenProperty.getChildren(widget);
+            if (children != null  &&  ! isCopyable(children.getValue()))
+                return false;
+        }
+        return true;
+    }
+
+    /** Create copy of display model
+     *
+     *  <p>Copies all persisted properties and child widgets,
+     *  i.e. what would be written to and read from a display file,
+     *  as well as the input file and version information.
+     *
+     *  @param template Model to copy
+     *  @return Copy of the model
+     *  @throws Exception on error
+     */
+    public static DisplayModel copy(final DisplayModel template) throws Exception
+    {
+        final DisplayModel model = new DisplayModel();
+        model.setUserData(DisplayModel.USER_DATA_INPUT_VERSION, template.getUserData(DisplayModel.USER_DATA_INPUT_VERSION));
+        model.setUserData(DisplayModel.USER_DATA_INPUT_FILE, template.getUserData(DisplayModel.USER_DATA_INPUT_FILE));
+        copyProperties(template, model);
+        copyChildren(template.runtimeChildren(), model.runtimeChildren());
+        return model;
+    }
+
+    private static void copyChildren(final ChildrenProperty template, final ChildrenProperty children) throws Exception
+    {
+        for (Widget widget : template.getValue())
+            children.addChild(copyWidget(widget));
+    }
+
+    private static Widget copyWidget(final Widget template) throws Exception
+    {
+        final Widget widget = createWidget(template);
+        copyProperties(template, widget);
+        final ChildrenProperty children = ChildrenProperty.getChildren(template);
+        if (children != null)
+            copyChildren(children, ChildrenProperty.getChildren(widget));
+        return widget;
+    }
+
+    /** @param template Widget
+     *  @return New widget of the same type and class as the template
+     *  @throws Exception on error
+     */
+    private static Widget createWidget(final Widget template) throws Exception
+    {
+        for (WidgetDescriptor desc : WidgetFactory.getInstance().getAllWidgetDescriptors(template.getType()))
+        {
+            final Widget widget = desc.createWidget();
+            if (widget.getClass() == template.getClass())
+                return widget;
+        }
+        throw new Exception("Cannot create copy of " + template);
+    }
+
+    private static void copyProperties(final Widget template, final Widget widget) throws Exception
+    {
+        for (WidgetProperty<?> property : template.getProperties())
+        {
+            if (property.getCategory() == WidgetPropertyCategory.RUNTIME  ||
+                property.isReadonly())
+                continue;
+            final WidgetProperty<?> copy = widget.checkProperty(property.getName())
+                .orElseThrow(() -> new Exception("Cannot copy " + property + " to " + widget));
+            copyProperty(property, copy);
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static void copyProperty(final WidgetProperty<?> property, final WidgetProperty<?> copy) throws Exception
+    {
+        if (property instanceof ArrayWidgetProperty)
+        {
+            final ArrayWidgetProperty<?> array = (ArrayWidgetProperty<?>) property;
+            final ArrayWidgetProperty<?> array_copy = (ArrayWidgetProperty<?>) copy;
+            while (array_copy.size() > array.size())
+                array_copy.removeElement();
+            while (array_copy.size() < array.size())
+                array_copy.addElement();
+            for (int i=0; i<array.size(); ++i)
+                copyProperty(array.getElement(i), array_copy.getElement(i));
+        }
+        else if (property instanceof StructuredWidgetProperty)
+        {
+            final StructuredWidgetProperty struct = (StructuredWidgetProperty) property;
+            final StructuredWidgetProperty struct_copy = (StructuredWidgetProperty) copy;
+            for (int i=0; i<struct.size(); ++i)
+                copyProperty(struct.getElement(i), struct_copy.getElement(i));
+        }
+        else if (property instanceof MacroizedWidgetProperty)
+        {
+            ((MacroizedWidgetProperty<?>) copy).setSpecification(((MacroizedWidgetProperty<?>) property).getSpecification());
+            copy.useWidgetClass(property.isUsingWidgetClass());
+        }
+        else
+        {
+            Object value = property.getValue();
+            // Values are generally immutable and thus shared,
+            // except for these
+            if (value instanceof Macros)
+                value = new Macros((Macros) value);
+            else if (value instanceof Points)
+                value = ((Points) value).clone();
+            ((WidgetProperty) copy).setValue(value);
+            copy.useWidgetClass(property.isUsingWidgetClass());
+        }
+    }
+}
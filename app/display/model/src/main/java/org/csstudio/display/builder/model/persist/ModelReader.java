@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2015-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2015-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -77,8 +77,8 @@ public class ModelReader
 {
     private final Element root;
     private final Version version;
-    private final String xml_file;
-    private int widget_errors_during_parse;
+    final String xml_file;
+    int widget_errors_during_parse;
 
     /** Parse display from XML
      *  @param xml XML text
@@ -108,7 +108,16 @@ public class ModelReader
      */
     public ModelReader(final InputStream stream, final String xml_file) throws Exception
     {
-        root = XMLUtil.openXMLDocument(stream, XMLTags.DISPLAY);
+        this(XMLUtil.openXMLDocument(stream, XMLTags.DISPLAY), xml_file);
+    }
+
+    /** Create reader.
+     *  @param root XML root element
+     *  @param xml_file Name of input file. Can be null if not applicable
+     */
+    ModelReader(final Element root, final String xml_file)
+    {
+        this.root = root;
         version = readVersion(root);
         widget_errors_during_parse = 0;
         this.xml_file = xml_file;
@@ -171,6 +180,21 @@ public class ModelReader
      *  @param parent_xml XML of the parent widget from which child entries are read
      */
     public void readWidgets(final ChildrenProperty children, final Element parent_xml)
+    {
+        for (Widget child : readWidgetList(parent_xml))
+            children.addChild(child);
+    }
+
+    /** Read all '&lt;widget>..' child entries
+     *
+     *  <p>Continues to read the same parent_xml
+     *  if one of the widget configurators throws a ParseAgainException
+     *
+     *  @param parent_xml XML of the parent widget from which child entries are read
+     *  @return Widgets, in the order of the '&lt;widget>..' entries after configurators
+     *          possibly re-arranged them
+     */
+    List<Widget> readWidgetList(final Element parent_xml)
     {
         // Save the number of errors we had so far
         int saved_widget_errors_during_parse = widget_errors_during_parse;
@@ -180,12 +204,9 @@ public class ModelReader
             final List<Widget> widgets = readWidgetsAllowingRetry(parent_xml);
             if (widgets != null)
             {
-                for (Widget child : widgets)
-                    children.addChild(child);
-
                 // Update the number of errors
                 widget_errors_during_parse += saved_widget_errors_during_parse;
-                return;
+                return widgets;
             }
         }
 
@@ -255,7 +276,7 @@ public class ModelReader
      *  @return Widget type name
      *  @throws Exception on error
      */
-    private static String getWidgetType(final Element widget_xml) throws Exception
+    static String getWidgetType(final Element widget_xml) throws Exception
     {
         String type = widget_xml.getAttribute(XMLTags.TYPE);
         if (type.isEmpty())
@@ -317,7 +338,7 @@ public class ModelReader
         throw new WidgetTypeException(type, "No suitable widget for " + type);
     }
 
-    private Widget createPlaceholderWidget(final Element widget_xml)
+    Widget createPlaceholderWidget(final Element widget_xml)
     {
         try
         {
@@ -343,7 +364,7 @@ public class ModelReader
      *  @return {@link Version} from element attribute
      *  @throws IllegalArgumentException on parse error
      */
-    private static Version readVersion(final Element element)
+    static Version readVersion(final Element element)
     {
         final String text = element.getAttribute(XMLTags.VERSION);
         if (text.isEmpty())
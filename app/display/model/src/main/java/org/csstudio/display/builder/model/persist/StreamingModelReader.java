@@ -0,0 +1,324 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.persist;
+
+import static org.csstudio.display.builder.model.ModelPlugin.logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.csstudio.display.builder.model.ChildrenProperty;
+import org.csstudio.display.builder.model.DisplayModel;
+import org.csstudio.display.builder.model.Widget;
+import org.csstudio.display.builder.model.WidgetConfigurator;
+import org.csstudio.display.builder.model.WidgetFactory;
+import org.csstudio.display.builder.model.widgets.PlaceholderWidget;
+import org.phoebus.framework.persistence.XMLUtil;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/** Read model from XML stream
+ *
+ *  <p>The {@link ModelReader} parses the complete file into a DOM
+ *  and then creates widgets from it.
+ *  For large displays, that DOM can be much larger than the
+ *  resulting model.
+ *
+ *  <p>This reader uses an {@link XMLStreamReader}.
+ *  For each widget, it builds a small DOM fragment with just the
+ *  properties of that widget, configures the widget from that fragment
+ *  via the same {@link WidgetConfigurator}s as the {@link ModelReader},
+ *  and then drops the fragment.
+ *  Child widgets of containers are streamed in the same way,
+ *  so the memory needed while reading is bounded by the largest widget,
+ *  not the complete file.
+ *
+ *  <p>Legacy widgets as well as widgets of unknown type
+ *  are read with their complete XML, including child widgets,
+ *  because their configurators might inspect or re-arrange all of it.
+ *  Each such widget is read on its own 'level' to allow
+ *  re-parsing as described for the {@link ModelReader}.
+ *  Widgets that configurators add to a level
+ *  are placed at the end of that level, as in the {@link ModelReader}.
+ *
+ *  <p>Elements of the fragments carry line numbers for error messages.
+ *  {@link #getRoot()} only provides the display's own properties.
+ */
+@SuppressWarnings("nls")
+public class StreamingModelReader extends ModelReader
+{
+    private final InputStream stream;
+    private final XMLStreamReader reader;
+    private final DocumentBuilder builder;
+    private boolean read = false;
+
+    /** Create reader.
+     *  @param stream Input stream to read, will be closed
+     *  @param xml_file Name of input file. Can be null if not applicable
+     *  @throws Exception on error
+     */
+    public StreamingModelReader(final InputStream stream, final String xml_file) throws Exception
+    {
+        this(stream, createReader(stream), xml_file);
+    }
+
+    private StreamingModelReader(final InputStream stream, final XMLStreamReader reader, final String xml_file) throws Exception
+    {
+        super(readRoot(stream, reader), xml_file);
+        this.stream = stream;
+        this.reader = reader;
+        builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+    }
+
+    private static XMLStreamReader createReader(final InputStream stream) throws Exception
+    {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        // Like the SAX parser used for the DOM, read qualified names
+        // and merge adjacent text
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory.createXMLStreamReader(stream, XMLUtil.ENCODING);
+    }
+
+    /** @param stream Stream, closed on error
+     *  @param reader Reader positioned at start of document
+     *  @return Root element of a new document, without content
+     *  @throws Exception on error, including document with wrong root
+     */
+    private static Element readRoot(final InputStream stream, final XMLStreamReader reader) throws Exception
+    {
+        try
+        {
+            reader.nextTag();
+            if (! XMLTags.DISPLAY.equals(reader.getLocalName()))
+                throw new Exception("Wrong document type. Expected <" +
+                                    XMLTags.DISPLAY + "> but found <" +
+                                    reader.getLocalName() + ">");
+            final Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+            final Element root = createElement(reader, doc);
+            doc.appendChild(root);
+            return root;
+        }
+        catch (Exception ex)
+        {
+            reader.close();
+            stream.close();
+            throw ex;
+        }
+    }
+
+    /** Read model from XML stream.
+     *
+     *  <p>May only be called once.
+     *
+     *  @return Model
+     *  @throws Exception on error
+     */
+    @Override
+    public DisplayModel readModel() throws Exception
+    {
+        if (read)
+            throw new IllegalStateException("Model has already been read");
+        read = true;
+
+        final DisplayModel model = new DisplayModel();
+        model.setUserData(DisplayModel.USER_DATA_INPUT_VERSION, getVersion());
+
+        widget_errors_during_parse = 0;
+
+        // Read widgets of model, collecting the display's own properties
+        final List<Widget> widgets = new ArrayList<>();
+        try
+        {
+            readContent(getRoot(), widgets);
+        }
+        finally
+        {
+            reader.close();
+            stream.close();
+        }
+
+        // Configure display from its own properties
+        final WidgetConfigurator configurator = model.getConfigurator(getVersion());
+        configurator.configureFromXML(this, model, getRoot());
+        if (! configurator.isClean())
+            ++widget_errors_during_parse;
+
+        for (Widget widget : widgets)
+            model.runtimeChildren().addChild(widget);
+
+        if (widget_errors_during_parse > 0)
+            logger.log(Level.SEVERE, "There were " + widget_errors_during_parse + " error(s) during loading display from " + (xml_file != null ? xml_file : "stream"));
+        model.setReaderResult(this);
+        return model;
+    }
+
+    /** Create element for current START_ELEMENT
+     *  @param reader Reader
+     *  @param doc Document for the element
+     *  @return Element with attributes and line number, but no content, yet
+     */
+    private static Element createElement(final XMLStreamReader reader, final Document doc)
+    {
+        final Element element = doc.createElement(reader.getLocalName());
+        for (int i=0; i<reader.getAttributeCount(); ++i)
+            element.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+        XMLUtil.setLineNumber(element, reader.getLocation().getLineNumber());
+        return element;
+    }
+
+    /** Read content of an element up to its END_ELEMENT
+     *
+     *  @param element Element to which child elements and text are added
+     *  @param widgets List for widgets read from '&lt;widget>' child elements,
+     *                 or <code>null</code> to add those to the element as XML
+     *  @throws Exception on error
+     */
+    private void readContent(final Element element, final List<Widget> widgets) throws Exception
+    {
+        final Document doc = element.getOwnerDocument();
+        final StringBuilder text = new StringBuilder();
+        // Widgets which configurators added to this level
+        final List<Widget> added = new ArrayList<>();
+        while (reader.hasNext())
+        {
+            switch (reader.next())
+            {
+            case XMLStreamConstants.START_ELEMENT:
+                addText(element, text);
+                if (widgets != null  &&  XMLTags.WIDGET.equals(reader.getLocalName()))
+                    readWidget(widgets, added);
+                else
+                {
+                    final Element child = createElement(reader, doc);
+                    element.appendChild(child);
+                    readContent(child, null);
+                }
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                addText(element, text);
+                if (widgets != null)
+                    widgets.addAll(added);
+                return;
+            default:
+                // Ignore comments, processing instructions, ..
+            }
+        }
+        throw new Exception("Missing end of <" + element.getNodeName() + ">, line " + XMLUtil.getLineInfo(element));
+    }
+
+    private static void addText(final Element element, final StringBuilder text)
+    {
+        if (text.length() > 0)
+        {
+            element.appendChild(element.getOwnerDocument().createTextNode(text.toString()));
+            text.setLength(0);
+        }
+    }
+
+    /** Read widget for current '&lt;widget>' START_ELEMENT
+     *
+     *  @param widgets List where widget is added
+     *  @param added List for widgets that configurators added to this level
+     *  @throws Exception on error
+     */
+    private void readWidget(final List<Widget> widgets, final List<Widget> added) throws Exception
+    {
+        // Each widget uses a new document.
+        // The document holds the line number user data of all its nodes,
+        // which would otherwise accumulate for the complete file.
+        final Document doc = builder.newDocument();
+        final Element widget_xml = createElement(reader, doc);
+
+        // Place widget on its own level where configurators may add widgets
+        // or re-arrange the XML, see ParseAgainException
+        final Element level = doc.createElement(XMLTags.DISPLAY);
+        level.appendChild(widget_xml);
+
+        final List<Widget> children = isStreamable(widget_xml) ? new ArrayList<>() : null;
+        readContent(widget_xml, children);
+
+        final List<Widget> level_widgets = readWidgetList(level);
+        int i = 0;
+        for (Element xml : XMLUtil.getChildElements(level, XMLTags.WIDGET))
+        {
+            final Widget widget = level_widgets.get(i++);
+            if (xml == widget_xml)
+                widgets.add(addChildren(widget, widget_xml, children));
+            else
+                added.add(widget);
+        }
+    }
+
+    /** @param widget_xml Widget's XML element
+     *  @return <code>true</code> if child widgets can be streamed,
+     *          <code>false</code> for legacy or unknown widgets
+     */
+    private static boolean isStreamable(final Element widget_xml)
+    {
+        try
+        {
+            final String type = widget_xml.getAttribute(XMLTags.TYPE);
+            return ! type.isEmpty()  &&
+                   readVersion(widget_xml).getMajor() >= 2  &&
+                   ! WidgetFactory.getInstance().getAllWidgetDescriptors(type).isEmpty();
+        }
+        catch (Exception ex)
+        {
+            return false;
+        }
+    }
+
+    /** @param widget Widget that was read
+     *  @param widget_xml Widget's XML element, without child widgets
+     *  @param children Streamed child widgets, may be <code>null</code>
+     *  @return Widget with children
+     *  @throws Exception on error
+     */
+    private Widget addChildren(final Widget widget, final Element widget_xml, final List<Widget> children) throws Exception
+    {
+        if (children == null  ||  children.isEmpty())
+            return widget;
+
+        final ChildrenProperty property = ChildrenProperty.getChildren(widget);
+        if (property != null)
+        {
+            for (Widget child : children)
+                property.addChild(child);
+            return widget;
+        }
+
+        if (widget instanceof PlaceholderWidget)
+        {   // Placeholder keeps the XML to write it back, which needs to include the child widgets
+            final Element children_xml = XMLUtil.openXMLDocument(new ByteArrayInputStream(ModelWriter.getXML(children).getBytes(XMLUtil.ENCODING)),
+                                                                 XMLTags.DISPLAY);
+            for (Element child : XMLUtil.getChildElements(children_xml, XMLTags.WIDGET))
+                widget_xml.appendChild(widget_xml.getOwnerDocument().importNode(child, true));
+            final Widget placeholder = createPlaceholderWidget(widget_xml);
+            if (placeholder != null)
+                return placeholder;
+        }
+
+        // Like ModelReader, ignore child widgets of a widget that has no children
+        return widget;
+    }
+}
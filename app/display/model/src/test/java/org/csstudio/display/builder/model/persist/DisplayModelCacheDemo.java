@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.persist;
+
+import java.io.File;
+
+import org.csstudio.display.builder.model.DisplayModel;
+
+/** Benchmark of loading the same embedded display many times
+ *
+ *  <p>Compares parsing the file for each instance ("cold")
+ *  with copying the model from the {@link DisplayModelCache} ("warm").
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class DisplayModelCacheDemo
+{
+    private static final int INSTANCES = 400, RUNS = 5;
+
+    public static void main(String[] args) throws Exception
+    {
+        final File file = DisplayModelCacheTest.writeDisplay(DisplayModelCacheTest.createDisplay());
+        System.out.println("Loading " + INSTANCES + " instances of " + file + " (" + file.length() + " bytes)");
+
+        for (int run=0; run<RUNS; ++run)
+        {
+            long start = System.nanoTime();
+            int widgets = 0;
+            for (int i=0; i<INSTANCES; ++i)
+            {
+                final DisplayModel model = ModelLoader.resolveAndLoadModel(null, file.getPath());
+                widgets += model.getChildren().size();
+            }
+            final double cold = (System.nanoTime() - start) / 1e6;
+
+            final DisplayModelCache cache = new DisplayModelCache(10);
+            start = System.nanoTime();
+            for (int i=0; i<INSTANCES; ++i)
+            {
+                final DisplayModel model = cache.resolveAndLoadModel(null, file.getPath());
+                widgets -= model.getChildren().size();
+            }
+            final double warm = (System.nanoTime() - start) / 1e6;
+            if (widgets != 0)
+                throw new IllegalStateException("Copies differ");
+
+            System.out.format("Parse each: %7.1f ms, cached: %7.1f ms (%.1fx), %s\n",
+                              cold, warm, cold / warm, cache);
+        }
+    }
+}
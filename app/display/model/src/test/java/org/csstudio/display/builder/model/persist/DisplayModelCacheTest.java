@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.persist;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+
+import org.csstudio.display.builder.model.DisplayModel;
+import org.csstudio.display.builder.model.MacroizedWidgetProperty;
+import org.csstudio.display.builder.model.Widget;
+import org.csstudio.display.builder.model.WidgetDescriptor;
+import org.csstudio.display.builder.model.WidgetFactory;
+import org.csstudio.display.builder.model.properties.ActionInfos;
+import org.csstudio.display.builder.model.properties.OpenDisplayActionInfo;
+import org.csstudio.display.builder.model.properties.OpenDisplayActionInfo.Target;
+import org.csstudio.display.builder.model.widgets.GroupWidget;
+import org.csstudio.display.builder.model.widgets.LabelWidget;
+import org.junit.Test;
+import org.phoebus.framework.macros.Macros;
+
+/** JUnit test of the {@link DisplayModelCache}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class DisplayModelCacheTest
+{
+    /** @return Display with one instance of each widget type, a group, macros */
+    static DisplayModel createDisplay()
+    {
+        final DisplayModel model = new DisplayModel();
+        model.propName().setValue("Cached");
+        for (final WidgetDescriptor widget_type : WidgetFactory.getInstance().getWidgetDescriptions())
+        {
+            final Widget widget = widget_type.createWidget();
+            widget.propName().setValue(widget_type.getName() + " $(N)");
+            model.runtimeChildren().addChild(widget);
+        }
+
+        final GroupWidget group = new GroupWidget();
+        group.propName().setValue("Group");
+        final LabelWidget label = new LabelWidget();
+        label.propText().setValue("Device $(S)");
+        label.propX().setValue(42);
+        final Macros macros = new Macros();
+        macros.add("S", "Test");
+        label.propActions().setValue(new ActionInfos(Arrays.asList(
+            new OpenDisplayActionInfo("Display", "other.bob", macros, Target.REPLACE))));
+        group.runtimeChildren().addChild(label);
+        model.runtimeChildren().addChild(group);
+        return model;
+    }
+
+    static File writeDisplay(final DisplayModel model) throws Exception
+    {
+        final File file = File.createTempFile("cached", ".bob");
+        file.deleteOnExit();
+        try (ModelWriter writer = new ModelWriter(new FileOutputStream(file)))
+        {
+            writer.writeModel(model);
+        }
+        return file;
+    }
+
+    private static String toXML(final DisplayModel model) throws Exception
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ModelWriter writer = new ModelWriter(out))
+        {
+            writer.writeModel(model);
+        }
+        return out.toString();
+    }
+
+    @Test
+    public void testCopy() throws Exception
+    {
+        final File file = writeDisplay(createDisplay());
+        final DisplayModel loaded = ModelLoader.loadModel(file.getPath());
+        final DisplayModel copy = DisplayModelCache.copy(loaded);
+
+        // Copy is independent from the original, but has the same content
+        assertThat(copy, not(sameInstance(loaded)));
+        assertThat(copy.getChildren().get(0), not(sameInstance(loaded.getChildren().get(0))));
+        assertThat(toXML(copy), equalTo(toXML(loaded)));
+        assertThat(copy.getUserData(DisplayModel.USER_DATA_INPUT_FILE), equalTo(file.getPath()));
+
+        // Macros resolve per copy
+        final LabelWidget label = (LabelWidget) ((GroupWidget) copy.getChildren().get(copy.getChildren().size()-1)).runtimeChildren().getValue().get(0);
+        assertThat(((MacroizedWidgetProperty<String>) label.propText()).getSpecification(), equalTo("Device $(S)"));
+        copy.propMacros().getValue().add("S", "One");
+        assertThat(label.propText().getValue(), equalTo("Device One"));
+        // .. and don't affect the template
+        assertThat(loaded.propMacros().getValue().getValue("S"), equalTo(null));
+        assertThat(label.propX().getValue(), equalTo(42));
+    }
+
+    @Test
+    public void testCache() throws Exception
+    {
+        final File file = writeDisplay(createDisplay());
+        final DisplayModelCache cache = new DisplayModelCache(10);
+
+        final DisplayModel first = cache.resolveAndLoadModel(null, file.getPath());
+        final DisplayModel second = cache.resolveAndLoadModel(null, file.getPath());
+        assertThat(second, not(sameInstance(first)));
+        assertThat(toXML(second), equalTo(toXML(first)));
+        System.out.println(cache);
+        assertThat(cache.getMisses(), equalTo(1L));
+        assertThat(cache.getHits(), equalTo(1L));
+        assertThat(cache.getSize(), equalTo(1));
+
+        // Changed file is loaded again
+        final DisplayModel changed = createDisplay();
+        changed.propName().setValue("Changed");
+        try (ModelWriter writer = new ModelWriter(new FileOutputStream(file)))
+        {
+            writer.writeModel(changed);
+        }
+        file.setLastModified(file.lastModified() + 2000);
+        assertThat(cache.resolveAndLoadModel(null, file.getPath()).getName(), equalTo("Changed"));
+        assertThat(cache.getMisses(), equalTo(2L));
+
+        // Missing file is reported as error, not cached
+        try
+        {
+            cache.resolveAndLoadModel(null, "/no/such/display.bob");
+            fail("Expected exception for missing file");
+        }
+        catch (Exception ex)
+        {
+            System.out.println(ex.getMessage());
+        }
+        assertThat(cache.getSize(), equalTo(1));
+    }
+}
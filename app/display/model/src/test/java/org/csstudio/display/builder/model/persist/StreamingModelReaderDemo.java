@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.persist;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import org.csstudio.display.builder.model.DisplayModel;
+import org.csstudio.display.builder.model.Widget;
+import org.csstudio.display.builder.model.WidgetDescriptor;
+import org.csstudio.display.builder.model.WidgetFactory;
+import org.csstudio.display.builder.model.properties.CommonWidgetProperties;
+import org.csstudio.display.builder.model.widgets.GroupWidget;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/** Benchmark of loading large displays
+ *
+ *  <p>Compares the {@link ModelReader}, which parses the file into a DOM,
+ *  with the {@link StreamingModelReader}.
+ *  Reports load time, bytes allocated by the loading thread
+ *  and the peak of the heap that remained in use after garbage collections
+ *  while loading.
+ *  Run with a heap like <code>-Xmx1g</code> so that garbage
+ *  collections actually occur while loading.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class StreamingModelReaderDemo
+{
+    private static final int RUNS = 5;
+
+    /** @param groups Number of groups, each holding one widget of each type
+     *  @return Display
+     */
+    private static DisplayModel createDisplay(final int groups)
+    {
+        final DisplayModel model = new DisplayModel();
+        model.propName().setValue("Large");
+        for (int g=0; g<groups; ++g)
+        {
+            final GroupWidget group = new GroupWidget();
+            group.propName().setValue("Group " + g);
+            group.propY().setValue(g * 200);
+            int x = 0;
+            for (final WidgetDescriptor widget_type : WidgetFactory.getInstance().getWidgetDescriptions())
+            {
+                final Widget widget = widget_type.createWidget();
+                widget.propName().setValue(widget_type.getName() + " " + g);
+                widget.propX().setValue(x);
+                final String pv_name = "sim://sine(" + g + ")";
+                widget.checkProperty(CommonWidgetProperties.propPVName).ifPresent(pv -> pv.setValue(pv_name));
+                x += 10;
+                group.runtimeChildren().addChild(widget);
+            }
+            model.runtimeChildren().addChild(group);
+        }
+        return model;
+    }
+
+    private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /** Peak of heap used after GC */
+    private static final AtomicLong peak_heap = new AtomicLong();
+
+    /** Track heap used after each GC */
+    private static void monitorHeap()
+    {
+        final Set<String> heap_pools = new HashSet<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                heap_pools.add(pool.getName());
+
+        final NotificationListener listener = (notification, handback) ->
+        {
+            if (! GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType()))
+                return;
+            final GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            long used = 0;
+            for (Map.Entry<String, MemoryUsage> usage : info.getGcInfo().getMemoryUsageAfterGc().entrySet())
+                if (heap_pools.contains(usage.getKey()))
+                    used += usage.getValue().getUsed();
+            peak_heap.accumulateAndGet(used, Math::max);
+        };
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            ((NotificationEmitter) gc).addNotificationListener(listener, null, null);
+    }
+
+    private static void load(final File file, final boolean streaming) throws Exception
+    {
+        System.gc();
+        Thread.sleep(100);
+        peak_heap.set(0);
+        final long thread = Thread.currentThread().getId();
+        final long allocated = threads.getThreadAllocatedBytes(thread);
+        final long start = System.nanoTime();
+
+        final FileInputStream stream = new FileInputStream(file);
+        final ModelReader reader = streaming
+                                 ? new StreamingModelReader(stream, file.getPath())
+                                 : new ModelReader(stream, file.getPath());
+        final DisplayModel model = reader.readModel();
+
+        final double ms = (System.nanoTime() - start) / 1e6;
+        final double mb = (threads.getThreadAllocatedBytes(thread) - allocated) / 1024.0 / 1024.0;
+        // Notifications are sent asynchronously
+        Thread.sleep(100);
+        final double peak = peak_heap.get() / 1024.0 / 1024.0;
+        System.out.format("%-10s: %8.1f ms, %8.1f MB allocated, %8.1f MB peak heap after GC, %d groups\n",
+                          streaming ? "Streaming" : "DOM", ms, mb, peak, model.getChildren().size());
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        monitorHeap();
+        for (int groups : new int[] { 100, 1000 })
+        {
+            final File file = File.createTempFile("large", ".bob");
+            file.deleteOnExit();
+            try (ModelWriter writer = new ModelWriter(new FileOutputStream(file)))
+            {
+                writer.writeModel(createDisplay(groups));
+            }
+            System.out.println("Loading " + file + " (" + file.length() / 1024 + " kB)");
+            for (int run=0; run<RUNS; ++run)
+            {
+                load(file, false);
+                load(file, true);
+            }
+        }
+    }
+}
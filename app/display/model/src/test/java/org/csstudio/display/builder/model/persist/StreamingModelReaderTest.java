@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.persist;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.display.builder.model.DisplayModel;
+import org.csstudio.display.builder.model.widgets.GroupWidget;
+import org.csstudio.display.builder.model.widgets.PlaceholderWidget;
+import org.junit.Test;
+import org.phoebus.framework.persistence.XMLUtil;
+
+/** JUnit test of the {@link StreamingModelReader}
+ *
+ *  <p>Compares with the {@link ModelReader}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class StreamingModelReaderTest
+{
+    private static String toXML(final DisplayModel model) throws Exception
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ModelWriter writer = new ModelWriter(out))
+        {
+            writer.writeModel(model);
+        }
+        return out.toString();
+    }
+
+    /** Read display with both readers, check for same result
+     *  @param name Name for messages
+     *  @param xml Display file content
+     *  @return Model read via {@link StreamingModelReader}
+     */
+    private static DisplayModel compare(final String name, final byte[] xml) throws Exception
+    {
+        final ModelReader dom = new ModelReader(new ByteArrayInputStream(xml), name);
+        final DisplayModel expected = dom.readModel();
+        final ModelReader streaming = new StreamingModelReader(new ByteArrayInputStream(xml), name);
+        final DisplayModel model = streaming.readModel();
+
+        assertThat(name, streaming.getVersion(), equalTo(dom.getVersion()));
+        assertThat(name, toXML(model), equalTo(toXML(expected)));
+        assertThat(name, model.isClean(), equalTo(expected.isClean()));
+        assertThat(name, streaming.getNumberOfWidgetErrors(), equalTo(dom.getNumberOfWidgetErrors()));
+        return model;
+    }
+
+    private static void findDisplays(final File dir, final List<File> displays)
+    {
+        for (File file : dir.listFiles())
+            if (file.isDirectory())
+                findDisplays(file, displays);
+            else if (file.getName().endsWith(".bob")  ||  file.getName().endsWith(".opi"))
+                displays.add(file);
+    }
+
+    @Test
+    public void testExamples() throws Exception
+    {
+        final List<File> displays = new ArrayList<>();
+        findDisplays(new File("src/main/resources/examples"), displays);
+        System.out.println("Comparing " + displays.size() + " example displays");
+        assertThat(displays.size() > 50, equalTo(true));
+        for (File file : displays)
+        {
+            try (FileInputStream in = new FileInputStream(file))
+            {
+                compare(file.getPath(), in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    public void testGeneratedDisplay() throws Exception
+    {
+        final DisplayModel model = compare("generated", toXML(DisplayModelCacheTest.createDisplay()).getBytes(XMLUtil.ENCODING));
+        final GroupWidget group = (GroupWidget) model.getChildren().get(model.getChildren().size()-1);
+        assertThat(group.runtimeChildren().getValue().get(0).propX().getValue(), equalTo(42));
+    }
+
+    @Test
+    public void testErrors() throws Exception
+    {
+        final String xml =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<display version=\"2.0.0\">\n" +
+            "  <name>Errors</name>\n" +
+            "  <widget type=\"group\" version=\"2.0.0\">\n" +
+            "    <name>Group</name>\n" +
+            "    <widget type=\"no_such_type\" version=\"2.0.0\">\n" +
+            "      <name>Unknown</name>\n" +
+            "      <widget type=\"label\" version=\"2.0.0\">\n" +
+            "        <name>Inside Unknown</name>\n" +
+            "      </widget>\n" +
+            "    </widget>\n" +
+            "    <widget type=\"label\" version=\"2.0.0\">\n" +
+            "      <name>Macro</name>\n" +
+            "      <x>$(X)</x>\n" +
+            "    </widget>\n" +
+            "    <!-- Comment, <![CDATA[text]]> -->\n" +
+            "    <widget type=\"label\" version=\"2.0.0\">\n" +
+            "      <name>Text</name>\n" +
+            "      <text>Line 1\n" +
+            "Line 2 <![CDATA[<b>]]> &amp; more</text>\n" +
+            "    </widget>\n" +
+            "  </widget>\n" +
+            "  <width>400</width>\n" +
+            "</display>\n";
+        final DisplayModel model = compare("errors", xml.getBytes(XMLUtil.ENCODING));
+        assertThat(model.isClean(), equalTo(false));
+        assertThat(model.getName(), equalTo("Errors"));
+        assertThat(model.propWidth().getValue(), equalTo(400));
+
+        final GroupWidget group = (GroupWidget) model.getChildren().get(0);
+        assertThat(group.runtimeChildren().getValue().get(0), instanceOf(PlaceholderWidget.class));
+        assertThat(group.runtimeChildren().getValue().get(2).getPropertyValue("text"), equalTo("Line 1\nLine 2 <b> & more"));
+    }
+
+    @Test
+    public void testLineNumbers() throws Exception
+    {
+        final String xml =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<display version=\"2.0.0\">\n" +
+            "  <widget type=\"label\" version=\"2.0.0\">\n" +
+            "    <name>Label</name>\n" +
+            "  </widget>\n" +
+            "  <name>Lines</name>\n" +
+            "</display>\n";
+        final ModelReader reader = new StreamingModelReader(new ByteArrayInputStream(xml.getBytes(XMLUtil.ENCODING)), null);
+        assertThat(XMLUtil.getLineInfo(reader.getRoot()), equalTo("2"));
+        reader.readModel();
+        // Root has the display's own properties, no widgets
+        assertThat(XMLUtil.getLineInfo(XMLUtil.getChildElement(reader.getRoot(), XMLTags.NAME)), equalTo("6"));
+        assertThat(XMLUtil.getChildElement(reader.getRoot(), XMLTags.WIDGET), equalTo(null));
+    }
+}
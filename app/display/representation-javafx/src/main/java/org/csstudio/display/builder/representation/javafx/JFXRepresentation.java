@@ -15,6 +15,7 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
@@ -76,6 +77,7 @@ import javafx.scene.paint.ImagePattern;
 import javafx.scene.shape.Line;
 import javafx.scene.transform.Scale;
 import javafx.scene.transform.Transform;
+import javafx.stage.Stage;
 import javafx.stage.Window;
 import javafx.util.Duration;
 
@@ -151,6 +153,14 @@ public class JFXRepresentation extends ToolkitRepresentation<Parent, Node>
     /** Update background color, grid */
     private final UntypedWidgetPropertyListener background_listener = ( p, o, n ) -> execute(this::updateBackground);
 
+    /** Check deferred widget updates when the visibility of the display may have changed */
+    private final InvalidationListener visibility_listener = prop -> checkVisibility();
+
+    /** Scene, window and ancestors of model_root that are tracked by visibility_listener */
+    private Scene tracked_scene;
+    private Window tracked_window;
+    private final List<Node> tracked_ancestors = new ArrayList<>();
+
     private Line horiz_bound, vert_bound;
     private Pane widget_parent;
     private Group scroll_body;
@@ -213,6 +223,15 @@ public class JFXRepresentation extends ToolkitRepresentation<Parent, Node>
         model_root.widthProperty().addListener(resized);
         model_root.heightProperty().addListener(resized);
 
+        // Widgets may become visible when scrolling,
+        // or when the tab, window, .. that holds the display is shown
+        if (! isEditMode())
+        {
+            model_root.hvalueProperty().addListener(visibility_listener);
+            model_root.vvalueProperty().addListener(visibility_listener);
+            model_root.sceneProperty().addListener(prop -> trackVisibility());
+        }
+
         // Middle Button (Wheel press) drag panning started
         final EventHandler<MouseEvent> onMousePressedHandler = evt ->
         {
@@ -673,6 +692,123 @@ public class JFXRepresentation extends ToolkitRepresentation<Parent, Node>
             Platform.runLater(command);
     }
 
+    /** Track scene, window and ancestors of model_root
+     *  to check deferred updates when they change
+     */
+    private void trackVisibility()
+    {
+        for (Node ancestor : tracked_ancestors)
+            ancestor.visibleProperty().removeListener(visibility_listener);
+        tracked_ancestors.clear();
+        if (tracked_window != null)
+        {
+            tracked_window.showingProperty().removeListener(visibility_listener);
+            if (tracked_window instanceof Stage)
+                ((Stage) tracked_window).iconifiedProperty().removeListener(visibility_listener);
+            tracked_window = null;
+        }
+        if (tracked_scene != null)
+        {
+            tracked_scene.windowProperty().removeListener(visibility_listener);
+            tracked_scene = null;
+        }
+
+        tracked_scene = model_root.getScene();
+        if (tracked_scene != null)
+        {
+            // Window is tracked via the next call of trackVisibility() from checkVisibility()
+            tracked_scene.windowProperty().addListener(visibility_listener);
+            tracked_window = tracked_scene.getWindow();
+            if (tracked_window != null)
+            {
+                tracked_window.showingProperty().addListener(visibility_listener);
+                if (tracked_window instanceof Stage)
+                    ((Stage) tracked_window).iconifiedProperty().addListener(visibility_listener);
+            }
+            for (Node ancestor = model_root.getParent(); ancestor != null; ancestor = ancestor.getParent())
+            {
+                ancestor.visibleProperty().addListener(visibility_listener);
+                tracked_ancestors.add(ancestor);
+            }
+        }
+        checkVisibility();
+    }
+
+    @Override
+    public void checkVisibility()
+    {
+        // Window may have been set or replaced since last tracked
+        if (Platform.isFxApplicationThread()  &&
+            model_root != null  &&  tracked_scene != null  &&  tracked_window != tracked_scene.getWindow())
+            trackVisibility();
+        else
+            super.checkVisibility();
+    }
+
+    /** Check if a widget is showing on screen
+     *
+     *  <p>In edit mode, all widgets are considered showing.
+     *
+     *  @param widget Widget
+     *  @return <code>true</code> if widget's node is showing
+     */
+    @Override
+    public boolean isShowing(final Widget widget)
+    {
+        if (isEditMode())
+            return true;
+        final Node node;
+        try
+        {
+            node = JFXBaseRepresentation.getJFXNode(widget);
+        }
+        catch (RuntimeException ex)
+        {   // Widget without JFX representation, cannot tell
+            return true;
+        }
+        return node == null  ||  isShowing(node);
+    }
+
+    /** Check if a node is showing on screen
+     *
+     *  <p>The visibility of the node itself is not considered
+     *  since an update of the widget's representation
+     *  may be required to show a hidden node.
+     *
+     *  @param node Node
+     *  @return <code>true</code> if node is in a showing window,
+     *          all its ancestors are visible,
+     *          and it is not clipped, for example scrolled out of view
+     */
+    public static boolean isShowing(final Node node)
+    {
+        final Scene scene = node.getScene();
+        if (scene == null)
+            return false;
+        final Window window = scene.getWindow();
+        if (window == null  ||  ! window.isShowing())
+            return false;
+        if (window instanceof Stage  &&  ((Stage) window).isIconified())
+            return false;
+
+        final Bounds bounds = node.localToScene(node.getBoundsInLocal());
+        if (bounds.getMaxX() < 0  ||  bounds.getMaxY() < 0  ||
+            bounds.getMinX() > scene.getWidth()  ||  bounds.getMinY() > scene.getHeight())
+            return false;
+        for (Parent parent = node.getParent();  parent != null;  parent = parent.getParent())
+        {
+            if (! parent.isVisible())
+                return false;
+            // Clip is in the parent's coordinates.
+            // The ScrollPane viewport, for example, clips its content.
+            final Node clip = parent.getClip();
+            if (clip != null  &&
+                ! parent.localToScene(clip.getBoundsInParent()).intersects(bounds))
+                return false;
+        }
+        return true;
+    }
+
     @Override
     public void showMessageDialog(final Widget widget, final String message)
     {
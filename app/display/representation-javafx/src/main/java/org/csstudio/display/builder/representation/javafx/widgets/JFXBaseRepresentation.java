@@ -340,7 +340,16 @@ abstract public class JFXBaseRepresentation<JFX extends Node, MW extends Widget>
             jfx_node.relocate(model_widget.propX().getValue(),
                               model_widget.propY().getValue());
             if (visible != null)
-                jfx_node.setVisible(visible.getValue());
+            {
+                final boolean show = visible.getValue();
+                if (show  &&  ! jfx_node.isVisible()  &&  jfx_node instanceof Parent)
+                {   // Child widgets may have deferred updates
+                    jfx_node.setVisible(true);
+                    toolkit.checkVisibility();
+                }
+                else
+                    jfx_node.setVisible(show);
+            }
         }
     }
 
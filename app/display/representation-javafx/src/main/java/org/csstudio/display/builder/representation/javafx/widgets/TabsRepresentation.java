@@ -162,6 +162,8 @@ public class TabsRepresentation extends JFXBaseRepresentation<TabPane, TabsWidge
             model_widget.propActiveTab().setValue(selected.intValue());
             changing_active_tab.set(false);
         });
+        // Widgets on the selected tab may have deferred updates
+        jfx_node.getSelectionModel().selectedIndexProperty().addListener(p -> toolkit.checkVisibility());
 
         // Initial update of font, size
         layoutChanged(null, null, null);
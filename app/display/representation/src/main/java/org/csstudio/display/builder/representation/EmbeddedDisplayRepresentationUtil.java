@@ -19,7 +19,7 @@ import java.util.stream.Collectors;
 import org.csstudio.display.builder.model.DisplayModel;
 import org.csstudio.display.builder.model.Version;
 import org.csstudio.display.builder.model.Widget;
-import org.csstudio.display.builder.model.persist.ModelLoader;
+import org.csstudio.display.builder.model.persist.DisplayModelCache;
 import org.csstudio.display.builder.model.persist.NamedWidgetColors;
 import org.csstudio.display.builder.model.persist.WidgetColorService;
 import org.csstudio.display.builder.model.properties.CommonWidgetProperties;
@@ -89,7 +89,7 @@ public class EmbeddedDisplayRepresentationUtil
             {   // Load model for displayFile, allowing lookup relative to this widget's model
                 final DisplayModel display = model_widget.getDisplayModel();
                 final String parent_display = display.getUserData(DisplayModel.USER_DATA_INPUT_FILE);
-                embedded_model = ModelLoader.resolveAndLoadModel(parent_display, display_and_group.getDisplayFile());
+                embedded_model = DisplayModelCache.getInstance().resolveAndLoadModel(parent_display, display_and_group.getDisplayFile());
 
                 // Didn't honor the display size of legacy files,
                 // always shrunk those to wrap their widgets
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2015-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2015-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,7 +19,7 @@ public class Preferences
 {
     @Preference public static int performance_log_period_secs, performance_log_threshold_ms,
                       update_accumulation_time, update_delay, plot_update_delay, image_update_delay,
-                      tooltip_length, embedded_timeout;
+                      tooltip_length, embedded_timeout, hidden_update_check, update_frame_budget;
 
     static
     {
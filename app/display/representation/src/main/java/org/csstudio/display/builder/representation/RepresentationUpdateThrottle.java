@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2015-2016 Oak Ridge National Laboratory.
+ * Copyright (c) 2015-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,14 +10,23 @@ package org.csstudio.display.builder.representation;
 import static org.csstudio.display.builder.representation.ToolkitRepresentation.logger;
 
 import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 
+import org.csstudio.display.builder.model.DisplayModel;
+import org.csstudio.display.builder.model.Widget;
+
 /** Handle throttled updates on UI thread.
  *
  *  <p>First request to schedule an update results in
@@ -25,14 +34,30 @@ import java.util.logging.Level;
  *  updates to accumulate, since <code>Platform.runLater</code> suggests
  *  "Applications are encouraged to batch up multiple operations
  *   into fewer runLater calls", and the same likely applies to SWT.
+ *  The accumulation time adapts to the load of the UI thread:
+ *  When the UI thread is slow to handle the updates,
+ *  more updates are accumulated before submitting them.
+ *
+ *  <p>Updates are performed in chunks that fit a time budget.
+ *  When a burst of updates exceeds the budget, the remaining
+ *  updates are handled in the next chunk, ahead of newer requests,
+ *  after allowing the UI thread to render and handle user input.
  *
- *  <p>After performing updates, a delay prevents consuming 100% of the UI thread.
+ *  <p>After performing all updates, a delay prevents consuming 100% of the UI thread.
  *  After the delay, if more updates are found to be scheduled, they are
  *  handled, again followed by a delay.
  *
  *  <p>Once there are no more updates, the thread waits until
  *  woken up again by the next requested update.
  *
+ *  <p>Representations of widgets that are not showing,
+ *  for example because they are on a hidden tab or
+ *  scrolled out of view, are not updated.
+ *  They are deferred until they become visible,
+ *  which is checked periodically or when triggered via {@link #checkDeferred()}.
+ *  Since <code>updateChanges()</code> applies the current state of the widget,
+ *  a deferred representation then catches up with one update.
+ *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
@@ -47,15 +72,24 @@ public class RepresentationUpdateThrottle
     /** UI thread durations above this threshold are logged */
     private static final int performance_log_threshold_ms = Preferences.performance_log_threshold_ms;
 
-    /** Time waited after a trigger to allow for more updates to accumulate */
+    /** Minimum time waited after a trigger to allow for more updates to accumulate */
     private static final long update_accumulation_time = Preferences.update_accumulation_time;
 
     /** Pause between updates to prevent flooding the UI thread */
     private static final long update_delay = Preferences.update_delay;
 
+    /** Time budget for one chunk of updates on the UI thread, 0 for no limit */
+    private static final long update_frame_budget = Preferences.update_frame_budget;
+
+    /** Period for checking if deferred representations became visible */
+    private static final long hidden_update_check = Preferences.hidden_update_check;
+
     /** Executor for UI thread */
     private final Executor gui_executor;
 
+    /** Test if a widget is showing, called on UI thread */
+    private final Predicate<Widget> is_showing;
+
     /** Thread that performs the throttling */
     private final Thread throttle_thread;
 
@@ -65,20 +99,57 @@ public class RepresentationUpdateThrottle
     /** Flag that informs throttle_thread to run or exit */
     protected volatile boolean run = true;
 
-    /** Representations that requested an update.
+    /** Representations that requested an update,
+     *  with <code>System.nanoTime()</code> of the request.
      *
      *  <p>Ordered by time when representations requested an update
      *
-     *  SYNC on access
+     *  SYNC on <code>lock</code>
+     */
+    private Map<WidgetRepresentation<?, ?, ?>, Long> updateable = new LinkedHashMap<>();
+
+    /** Lock for <code>updateable</code>, <code>deferred</code>, <code>deferred_checks</code> */
+    private final Object lock = new Object();
+
+    /** Representations that requested an update while not showing.
+     *
+     *  SYNC on <code>lock</code>
+     */
+    private final Set<WidgetRepresentation<?, ?, ?>> deferred = new LinkedHashSet<>();
+
+    /** Incremented by each call to checkDeferred().
+     *
+     *  SYNC on <code>lock</code>
      */
-    private final Set<WidgetRepresentation<?, ?, ?>> updateable = new LinkedHashSet<>();
+    private long deferred_checks = 0;
+
+    /** Number of performed representation updates */
+    private final LongAdder performed_updates = new LongAdder();
+
+    /** Number of update requests that were skipped because representation was not showing */
+    private final LongAdder skipped_updates = new LongAdder();
+
+    /** Update latency by display name */
+    private final Map<String, UpdateLatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    /** Current time waited for updates to accumulate */
+    private volatile long accumulation_time = update_accumulation_time;
 
     /** @param gui_executor Executor for UI thread */
     public RepresentationUpdateThrottle(final Executor gui_executor)
+    {
+        this(gui_executor, widget -> true);
+    }
+
+    /** @param gui_executor Executor for UI thread
+     *  @param is_showing Test if a widget is showing, called on UI thread
+     */
+    public RepresentationUpdateThrottle(final Executor gui_executor, final Predicate<Widget> is_showing)
     {
         final String name = "RepresentationUpdateThrottle" + instance.incrementAndGet();
         logger.log(Level.FINE, "Create " + name);
         this.gui_executor = gui_executor;
+        this.is_showing = is_showing;
         throttle_thread = new Thread(this::doRun);
         throttle_thread.setName(name);
         throttle_thread.setDaemon(true);
@@ -93,20 +164,96 @@ public class RepresentationUpdateThrottle
      */
     public void scheduleUpdate(final WidgetRepresentation<?, ?, ?> representation)
     {
-        synchronized (updateable)
+        synchronized (lock)
+        {
+            // Deferred representation will catch up on this update once it's showing
+            if (deferred.contains(representation))
+                skipped_updates.increment();
+            else
+            {
+                // Keep time and position of a pending earlier request
+                updateable.putIfAbsent(representation, System.nanoTime());
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /** Check if deferred representations are now showing
+     *
+     *  <p>To be called when for example a tab is selected
+     *  to update the now visible representations
+     *  without waiting for the periodic check.
+     */
+    public void checkDeferred()
+    {
+        synchronized (lock)
         {
-            updateable.add(representation);
-            updateable.notifyAll();
+            ++deferred_checks;
+            if (deferred.isEmpty())
+                return;
+            undefer();
+            lock.notifyAll();
         }
     }
 
+    /** Move deferred representations to the updateable ones
+     *
+     *  <p>Caller must hold lock
+     */
+    private void undefer()
+    {
+        final Long now = System.nanoTime();
+        for (WidgetRepresentation<?, ?, ?> representation : deferred)
+            updateable.putIfAbsent(representation, now);
+        deferred.clear();
+    }
+
+    /** @return Number of representation updates that were performed */
+    public long getPerformedUpdates()
+    {
+        return performed_updates.sum();
+    }
+
+    /** @return Number of representation updates that were skipped because the widget was not showing */
+    public long getSkippedUpdates()
+    {
+        return skipped_updates.sum();
+    }
+
+    /** @return Number of representations with updates deferred until they are showing */
+    public int getDeferredCount()
+    {
+        synchronized (lock)
+        {
+            return deferred.size();
+        }
+    }
+
+    /** Latency from requesting an update until the update was performed
+     *
+     *  <p>Histograms are kept by display name.
+     *  Widgets in embedded displays are tracked under the name of the embedded display.
+     *
+     *  @return Update latency histograms by display name
+     */
+    public Map<String, UpdateLatencyHistogram> getLatencyHistograms()
+    {
+        return Collections.unmodifiableMap(latencies);
+    }
+
+    /** @return Current time in milliseconds that the throttle waits for updates to accumulate */
+    public long getAccumulationTime()
+    {
+        return accumulation_time;
+    }
+
     /** @param enable Enable updates, or pause? */
     public void enable(final boolean enable)
     {
         enabled = enable;
-        synchronized (updateable)
+        synchronized (lock)
         {
-            updateable.notifyAll();
+            lock.notifyAll();
         }
     }
 
@@ -115,64 +262,103 @@ public class RepresentationUpdateThrottle
         // Running average of update duration, i.e. time spend in UI thread
         long update_ms = -1;
 
+        // Running average of time between submitting updates and UI thread handling them
+        long queue_ms = 0;
+
         // Next time we log the update duration
         Instant next_update_log = Instant.now().plusSeconds(6);
+
+        // Next time we check if deferred representations became visible
+        long next_hidden_check = System.currentTimeMillis() + hidden_update_check;
+
+        // Did the last chunk of updates leave some for the next chunk?
+        boolean more = false;
         try
         {
             while (run)
             {
-                // Wait for requested updates
-                synchronized (updateable)
+                // Wait for requested updates,
+                // or time to check deferred representations
+                synchronized (lock)
                 {
                     while (run  &&  updateable.isEmpty())
-                        updateable.wait();
+                    {
+                        if (deferred.isEmpty())
+                            lock.wait();
+                        else
+                        {
+                            final long wait = next_hidden_check - System.currentTimeMillis();
+                            if (wait > 0)
+                                lock.wait(wait);
+                            else
+                                undefer();
+                        }
+                    }
+                    if (System.currentTimeMillis() >= next_hidden_check)
+                    {
+                        undefer();
+                        next_hidden_check = System.currentTimeMillis() + hidden_update_check;
+                    }
                 }
                 if (! run)
                     return;
-                // Wait a little longer to allow more updates to accumulate
-                Thread.sleep(update_accumulation_time);
+                // Wait a little longer to allow more updates to accumulate,
+                // unless continuing with remaining updates of last chunk
+                if (! more)
+                    Thread.sleep(accumulation_time);
                 if (! enabled)
                     continue;
                 // Obtain safe copy, clear what had been accumulated
-                final WidgetRepresentation<?, ?, ?>[] representations;
-                synchronized (updateable)
+                final Map<WidgetRepresentation<?, ?, ?>, Long> representations;
+                synchronized (lock)
                 {
-                    // Creating a direct copy, i.e. another new LinkedHashSet<>(updateable),
-                    // would be expensive, since we only need a _list_ of what's to update.
-                    // Could use type-safe
-                    //    new ArrayList<WidgetRepresentation<Pane, Node>>(updateable)
-                    // but that calls toArray() internally, so doing that directly
-                    representations = updateable.toArray(new WidgetRepresentation[updateable.size()]);
-                    updateable.clear();
+                    representations = updateable;
+                    updateable = new LinkedHashMap<>();
                 }
 
                 // Perform requested updates on UI thread
                 // Using CountDownLatch because that allows while (await, run).
                 // Future would require catching TimeoutException or cancel() on shutdown.
-                final CountDownLatch done = new CountDownLatch(1);
-                final long update_start = System.currentTimeMillis();
-                updateInUI(representations, done);
+                final Chunk chunk = new Chunk(representations);
+                updateInUI(chunk);
 
                 // Wait for those updates to finish
-                while (! done.await(100, TimeUnit.MILLISECONDS))
+                while (! chunk.done.await(100, TimeUnit.MILLISECONDS))
                     if (! run)
                         return; // Never mind, shutdown
 
+                // Keep what was not handled ahead of newer requests
+                more = chunk.requeue();
+
                 // Update performance info
-                final long ms = System.currentTimeMillis() - update_start;
+                final long ms = TimeUnit.NANOSECONDS.toMillis(chunk.end - chunk.start);
                 if (update_ms < 0)
                     update_ms = ms;
                 else
                     update_ms = (9*update_ms + ms)/10;
+                queue_ms = (9*queue_ms + TimeUnit.NANOSECONDS.toMillis(chunk.start - chunk.submitted))/10;
+
+                // When UI thread is slow to get to the updates,
+                // wait longer to accumulate more updates
+                accumulation_time = Math.max(update_accumulation_time, Math.min(update_delay, queue_ms));
 
-                // Wait a little to throttle updates
-                Thread.sleep(update_delay);
+                // Wait a little to throttle updates.
+                // With remaining updates, pause for the frame budget
+                // to allow UI thread to render and handle user input,
+                // then continue with the remaining updates.
+                if (more)
+                    Thread.sleep(update_frame_budget);
+                else
+                    Thread.sleep(update_delay);
 
                 final Instant now = Instant.now();
                 if (now.isAfter(next_update_log))
                 {
                     if (update_ms > performance_log_threshold_ms)
                         logger.log(Level.FINE, "Averange update duration: {0} ms", update_ms);
+                    if (logger.isLoggable(Level.FINER))
+                        for (Map.Entry<String, UpdateLatencyHistogram> entry : latencies.entrySet())
+                            logger.log(Level.FINER, "Update latency for " + entry.getKey() + ": " + entry.getValue());
                     next_update_log = now.plusSeconds(performance_log_period_secs);
                 }
             }
@@ -187,41 +373,149 @@ public class RepresentationUpdateThrottle
         }
     }
 
+    /** Chunk of representations to update on the UI thread */
+    private class Chunk
+    {
+        final WidgetRepresentation<?, ?, ?>[] representations;
+        final long[] requested;
+
+        /** Number of representations that have been handled */
+        int handled = 0;
+
+        /** System.nanoTime() when submitted to, started and ended on UI thread */
+        long submitted, start, end;
+
+        /** Signaled when chunk has been handled */
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Chunk(final Map<WidgetRepresentation<?, ?, ?>, Long> representations)
+        {
+            this.representations = new WidgetRepresentation[representations.size()];
+            requested = new long[this.representations.length];
+            int i = 0;
+            for (Map.Entry<WidgetRepresentation<?, ?, ?>, Long> entry : representations.entrySet())
+            {
+                this.representations[i] = entry.getKey();
+                requested[i++] = entry.getValue();
+            }
+        }
+
+        /** Place representations that were not handled in front of newer requests
+         *  @return <code>true</code> if there are remaining representations
+         */
+        boolean requeue()
+        {
+            if (handled >= representations.length)
+                return false;
+            synchronized (lock)
+            {
+                final Map<WidgetRepresentation<?, ?, ?>, Long> remaining = new LinkedHashMap<>();
+                for (int i=handled; i<representations.length; ++i)
+                    remaining.put(representations[i], requested[i]);
+                for (Map.Entry<WidgetRepresentation<?, ?, ?>, Long> entry : updateable.entrySet())
+                    remaining.putIfAbsent(entry.getKey(), entry.getValue());
+                updateable = remaining;
+            }
+            return true;
+        }
+    }
+
     /** Perform updates in UI thread.
-     *  @param representations Representations that need to be updated
-     *  @param done Must be signaled when representations have been updated
+     *  @param chunk Representations that need to be updated
      */
-    private void updateInUI(final WidgetRepresentation<?, ?, ?>[] representations,
-                            final CountDownLatch done)
+    private void updateInUI(final Chunk chunk)
     {
+        chunk.submitted = System.nanoTime();
         gui_executor.execute(() ->
         {
-            for (final WidgetRepresentation<?, ?, ?> representation : representations)
+            chunk.start = System.nanoTime();
+            final long deadline = update_frame_budget > 0
+                                ? chunk.start + TimeUnit.MILLISECONDS.toNanos(update_frame_budget)
+                                : Long.MAX_VALUE;
+            // Visibility may change while checking the representations
+            final long checks;
+            synchronized (lock)
+            {
+                checks = deferred_checks;
+            }
+            Set<WidgetRepresentation<?, ?, ?>> hidden = null;
+            final WidgetRepresentation<?, ?, ?>[] representations = chunk.representations;
+            long now = chunk.start;
+            // Handle at least one representation to assert progress
+            while (chunk.handled < representations.length  &&  (chunk.handled == 0  ||  now < deadline))
             {
                 if (! run)
                     break;
+                final WidgetRepresentation<?, ?, ?> representation = representations[chunk.handled];
                 try
                 {
                     // Skip updates when representation has been disposed
-                    if (representation.model_widget != null)
-                        representation.updateChanges();
+                    final Widget widget = representation.model_widget;
+                    if (widget != null)
+                    {
+                        if (is_showing.test(widget))
+                        {
+                            representation.updateChanges();
+                            performed_updates.increment();
+                            getLatencyHistogram(widget).record(System.nanoTime() - chunk.requested[chunk.handled]);
+                        }
+                        else
+                        {
+                            if (hidden == null)
+                                hidden = new LinkedHashSet<>();
+                            hidden.add(representation);
+                        }
+                    }
                 }
                 catch (final Throwable ex)
                 {
                     logger.log(Level.SEVERE, "Representation update failed", ex);
                 }
+                ++chunk.handled;
+                now = System.nanoTime();
+            }
+            if (hidden != null)
+            {
+                skipped_updates.add(hidden.size());
+                synchronized (lock)
+                {
+                    if (checks == deferred_checks)
+                    {   // Any new request for a hidden representation is covered by the deferred update
+                        updateable.keySet().removeAll(hidden);
+                        deferred.addAll(hidden);
+                    }
+                    else
+                    {   // Check was requested meanwhile, try hidden representations again
+                        final Long time = System.nanoTime();
+                        for (WidgetRepresentation<?, ?, ?> representation : hidden)
+                            updateable.putIfAbsent(representation, time);
+                        lock.notifyAll();
+                    }
+                }
             }
-            done.countDown();
+            chunk.end = System.nanoTime();
+            chunk.done.countDown();
         });
     }
 
+    /** @param widget Widget
+     *  @return Latency histogram for the widget's display
+     */
+    private UpdateLatencyHistogram getLatencyHistogram(final Widget widget)
+    {
+        final DisplayModel model = widget.checkDisplayModel();
+        final String display = model == null ? "?" : model.getDisplayName();
+        return latencies.computeIfAbsent(display, name -> new UpdateLatencyHistogram());
+    }
+
     /** Shutdown the throttle thread and wait for it to exit */
     public void shutdown()
     {
         run = false;
-        synchronized (updateable)
+        synchronized (lock)
         {
-            updateable.notifyAll();
+            deferred.clear();
+            lock.notifyAll();
         }
         try
         {
@@ -233,5 +527,6 @@ public class RepresentationUpdateThrottle
         }
         if (throttle_thread.isAlive())
             logger.log(Level.WARNING, "Representation update throttle fails to terminate within 2 seconds");
+        latencies.clear();
     }
 }
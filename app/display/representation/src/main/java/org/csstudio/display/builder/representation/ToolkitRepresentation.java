@@ -71,7 +71,7 @@ abstract public class ToolkitRepresentation<TWP extends Object, TW> implements E
 
     private final boolean edit_mode;
 
-    private final RepresentationUpdateThrottle throttle = new RepresentationUpdateThrottle(this);
+    private final RepresentationUpdateThrottle throttle = new RepresentationUpdateThrottle(this, this::isShowing);
 
     /** Listener list */
     private final List<ToolkitListener> listeners = new CopyOnWriteArrayList<>();
@@ -449,6 +449,56 @@ abstract public class ToolkitRepresentation<TWP extends Object, TW> implements E
         throttle.enable(enable);
     }
 
+    /** Check if a widget is showing on screen
+     *
+     *  <p>Updates of widgets that are not showing are deferred
+     *  until they become visible.
+     *  Called on the UI thread.
+     *
+     *  <p>Default implementation considers all widgets showing.
+     *
+     *  @param widget Widget
+     *  @return <code>true</code> if widget is showing
+     */
+    public boolean isShowing(final Widget widget)
+    {
+        return true;
+    }
+
+    /** Request a check for deferred widget updates
+     *
+     *  <p>To be called when the visibility of widgets changed,
+     *  for example because a tab was selected.
+     */
+    public void checkVisibility()
+    {
+        throttle.checkDeferred();
+    }
+
+    /** @return Number of widget updates that were performed */
+    public long getPerformedUpdates()
+    {
+        return throttle.getPerformedUpdates();
+    }
+
+    /** @return Number of widget updates that were skipped because widget was not showing */
+    public long getSkippedUpdates()
+    {
+        return throttle.getSkippedUpdates();
+    }
+
+    /** @return Number of widgets with updates deferred until they are showing */
+    public int getDeferredUpdates()
+    {
+        return throttle.getDeferredCount();
+    }
+
+    /** @return Update latency histograms by display name */
+    public Map<String, UpdateLatencyHistogram> getUpdateLatencies()
+    {
+        return throttle.getLatencyHistograms();
+    }
+
     /** Execute command in toolkit's UI thread.
      *
      *  <p>If already on the UI thread, command
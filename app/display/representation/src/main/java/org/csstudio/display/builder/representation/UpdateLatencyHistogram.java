@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.representation;
+
+import java.util.concurrent.TimeUnit;
+
+/** Histogram of widget update latencies
+ *
+ *  <p>Latency is the time from a widget requesting an update
+ *  until its representation has been updated on the UI thread.
+ *
+ *  <p>Bucket <code>0</code> holds latencies below 1 ms,
+ *  bucket <code>i</code> those in <code>2^(i-1) &lt;= ms &lt; 2^i</code>,
+ *  i.e. &lt;1, 1, 2-3, 4-7, ... ms.
+ *  The last bucket holds all latencies beyond.
+ *
+ *  <p>Thread-safe.
+ */
+@SuppressWarnings("nls")
+public class UpdateLatencyHistogram
+{
+    /** Number of buckets */
+    public static final int BUCKETS = 16;
+
+    private final long[] buckets = new long[BUCKETS];
+    private long count = 0, total_nanos = 0, max_nanos = 0;
+
+    /** @param nanos Latency to add to histogram */
+    public synchronized void record(final long nanos)
+    {
+        final long ms = TimeUnit.NANOSECONDS.toMillis(Math.max(0, nanos));
+        final int bucket = Math.min(BUCKETS-1, 64 - Long.numberOfLeadingZeros(ms));
+        ++buckets[bucket];
+        ++count;
+        total_nanos += nanos;
+        max_nanos = Math.max(max_nanos, nanos);
+    }
+
+    /** @return Number of recorded latencies */
+    public synchronized long getCount()
+    {
+        return count;
+    }
+
+    /** @return Copy of the bucket counts */
+    public synchronized long[] getBuckets()
+    {
+        return buckets.clone();
+    }
+
+    /** @return Average latency in milliseconds */
+    public synchronized double getAverageMillis()
+    {
+        return count > 0 ? total_nanos / 1e6 / count : 0.0;
+    }
+
+    /** @return Maximum latency in milliseconds */
+    public synchronized double getMaxMillis()
+    {
+        return max_nanos / 1e6;
+    }
+
+    /** Estimate percentile
+     *  @param percentile Percentile 0..100
+     *  @return Upper limit in milliseconds of the bucket that holds the percentile
+     */
+    public synchronized double getPercentileMillis(final double percentile)
+    {
+        final long limit = (long) Math.ceil(count * percentile / 100.0);
+        long sum = 0;
+        for (int i=0; i<BUCKETS-1; ++i)
+        {
+            sum += buckets[i];
+            if (sum >= limit)
+                return Math.min(1L << i, getMaxMillis());
+        }
+        return getMaxMillis();
+    }
+
+    /** Reset the histogram */
+    public synchronized void clear()
+    {
+        for (int i=0; i<BUCKETS; ++i)
+            buckets[i] = 0;
+        count = total_nanos = max_nanos = 0;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return String.format("%d updates, average %.1f ms, 50%% < %.1f ms, 90%% < %.1f ms, 99%% < %.1f ms, max %.1f ms",
+                             count, getAverageMillis(),
+                             getPercentileMillis(50), getPercentileMillis(90), getPercentileMillis(99),
+                             getMaxMillis());
+    }
+}
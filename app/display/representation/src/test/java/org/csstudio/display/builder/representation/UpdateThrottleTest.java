@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2015-2016 Oak Ridge National Laboratory.
+ * Copyright (c) 2015-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -9,8 +9,13 @@ package org.csstudio.display.builder.representation;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -125,4 +130,107 @@ public class UpdateThrottleTest
 
         throttle.shutdown();
     }
+
+    @Test
+    public void testHiddenWidgets() throws Throwable
+    {
+        final Set<Widget> hidden = ConcurrentHashMap.newKeySet();
+        final RepresentationUpdateThrottle hiding_throttle =
+            new RepresentationUpdateThrottle(Executors.newSingleThreadExecutor(), widget -> ! hidden.contains(widget));
+
+        final AtomicInteger updates_a = new AtomicInteger();
+        final AtomicInteger updates_b = new AtomicInteger();
+        final TestWidgetRepresentation widget_a = new TestWidgetRepresentation("A", updates_a);
+        final TestWidgetRepresentation widget_b = new TestWidgetRepresentation("B", updates_b);
+
+        // Widget B is not showing, so it's not updated
+        hidden.add(widget_b.model_widget);
+        hiding_throttle.scheduleUpdate(widget_a);
+        hiding_throttle.scheduleUpdate(widget_b);
+        TimeUnit.MILLISECONDS.sleep(500);
+        assertThat(updates_a.get(), equalTo(1));
+        assertThat(updates_b.get(), equalTo(0));
+        assertThat(hiding_throttle.getDeferredCount(), equalTo(1));
+
+        // More changes of the hidden widget are skipped
+        for (int i=0; i<10; ++i)
+            hiding_throttle.scheduleUpdate(widget_b);
+        TimeUnit.MILLISECONDS.sleep(500);
+        assertThat(updates_b.get(), equalTo(0));
+        // Periodic check might add to the skipped updates
+        assertTrue(hiding_throttle.getSkippedUpdates() >= 11);
+
+        // Once showing, widget B catches up with one update
+        hidden.clear();
+        hiding_throttle.checkDeferred();
+        TimeUnit.MILLISECONDS.sleep(500);
+        assertThat(updates_a.get(), equalTo(1));
+        assertThat(updates_b.get(), equalTo(1));
+        assertThat(hiding_throttle.getDeferredCount(), equalTo(0));
+        assertThat(hiding_throttle.getPerformedUpdates(), equalTo(2L));
+
+        // Without explicit check, periodic check finds widget that's showing again
+        hidden.add(widget_b.model_widget);
+        hiding_throttle.scheduleUpdate(widget_b);
+        TimeUnit.MILLISECONDS.sleep(500);
+        assertThat(updates_b.get(), equalTo(1));
+        hidden.clear();
+        TimeUnit.SECONDS.sleep(2);
+        assertThat(updates_b.get(), equalTo(2));
+
+        hiding_throttle.shutdown();
+    }
+
+    @Test
+    public void testFrameBudget() throws Throwable
+    {
+        // Count how often the UI thread is invoked
+        final AtomicInteger chunks = new AtomicInteger();
+        final ExecutorService ui_thread = Executors.newSingleThreadExecutor();
+        final Executor counting_executor = command ->
+        {
+            chunks.incrementAndGet();
+            ui_thread.execute(command);
+        };
+        final RepresentationUpdateThrottle budget_throttle = new RepresentationUpdateThrottle(counting_executor);
+
+        // Burst of slow updates that exceeds the frame budget
+        final int N = 100;
+        final AtomicInteger updates = new AtomicInteger();
+        for (int i=0; i<N; ++i)
+            budget_throttle.scheduleUpdate(new TestWidgetRepresentation("Slow" + i, updates)
+            {
+                @Override
+                public void updateChanges()
+                {
+                    updates.incrementAndGet();
+                    try
+                    {
+                        TimeUnit.MILLISECONDS.sleep(2);
+                    }
+                    catch (InterruptedException ex)
+                    {
+                        // Ignore
+                    }
+                }
+            });
+
+        // All widgets are eventually updated, but in several chunks
+        TimeUnit.SECONDS.sleep(2);
+        assertThat(updates.get(), equalTo(N));
+        System.out.println(N + " updates in " + chunks.get() + " chunks");
+        if (Preferences.update_frame_budget > 0)
+            assertTrue(chunks.get() > 1);
+
+        // Latency of all updates is in the histogram for the widgets without display
+        final UpdateLatencyHistogram latency = budget_throttle.getLatencyHistograms().get("?");
+        System.out.println("Latency: " + latency);
+        assertThat(latency.getCount(), equalTo((long) N));
+        // Last update waited for the first ones
+        assertTrue(latency.getMaxMillis() >= 2 * N);
+        assertTrue(latency.getPercentileMillis(50) <= latency.getPercentileMillis(99));
+
+        budget_throttle.shutdown();
+        ui_thread.shutdown();
+    }
 }
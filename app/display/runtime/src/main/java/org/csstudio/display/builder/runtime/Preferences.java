@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2015-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2015-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -28,6 +28,7 @@ public class Preferences
     @Preference public static String python_path;
     @Preference(name="update_throttle") public static int update_throttle_ms;
     @Preference public static String probe_display;
+    @Preference public static boolean native_rules;
     public static final List<TextPatch> pv_name_patches = new ArrayList<>();
 
     static
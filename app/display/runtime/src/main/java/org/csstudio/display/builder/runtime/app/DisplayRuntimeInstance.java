@@ -22,6 +22,7 @@ import java.util.logging.Level;
 import org.csstudio.display.builder.model.DisplayModel;
 import org.csstudio.display.builder.model.Widget;
 import org.csstudio.display.builder.model.macros.DisplayMacroExpander;
+import org.csstudio.display.builder.model.persist.DisplayModelCache;
 import org.csstudio.display.builder.model.persist.ModelLoader;
 import org.csstudio.display.builder.model.util.ModelResourceUtil;
 import org.csstudio.display.builder.representation.javafx.JFXRepresentation;
@@ -348,6 +349,7 @@ public class DisplayRuntimeInstance implements AppInstance
     public void reload()
     {
         ModelResourceUtil.clearURLCache();
+        DisplayModelCache.getInstance().clear();
         loadDisplayFile(getDisplayInfo());
     }
 
@@ -0,0 +1,338 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.runtime.script.internal;
+
+import static org.csstudio.display.builder.runtime.WidgetRuntime.logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+import org.csstudio.apputil.formula.CompiledFormula;
+import org.csstudio.apputil.formula.Formula;
+import org.csstudio.apputil.formula.VariableNode;
+import org.csstudio.display.builder.model.Widget;
+import org.csstudio.display.builder.model.WidgetProperty;
+import org.csstudio.display.builder.model.properties.Points;
+import org.csstudio.display.builder.model.properties.WidgetColor;
+import org.csstudio.display.builder.model.properties.WidgetFont;
+import org.csstudio.display.builder.model.rules.RuleInfo;
+import org.csstudio.display.builder.model.rules.RuleInfo.ExpressionInfo;
+import org.csstudio.display.builder.runtime.pv.RuntimePV;
+import org.csstudio.display.builder.runtime.script.PVUtil;
+import org.csstudio.display.builder.runtime.script.PVUtil.PVHasNoValueException;
+import org.csstudio.display.builder.runtime.script.ValueUtil;
+import org.epics.vtype.VType;
+import org.phoebus.core.vtypes.VTypeHelper;
+import org.phoebus.framework.macros.MacroHandler;
+
+/** Rule evaluated as formulas
+ *
+ *  <p>Rules are by default translated into a Jython script,
+ *  see {@link RuleInfo#getTextPy(Widget)},
+ *  which is then executed by the script support.
+ *  Most rules, however, use simple expressions like
+ *  <code>pv0 > 5</code> to select a property value.
+ *  Those are compiled into {@link CompiledFormula}s
+ *  which are evaluated right away on the thread
+ *  that calls {@link #submit(Widget, RuntimePV...)},
+ *  i.e. the PV update thread.
+ *
+ *  <p>The formulas use the same numeric variables as the script,
+ *  <code>pv0</code>, <code>pvInt0</code>, <code>pvSev0</code>, <code>pvLegacySev0</code>.
+ *  Expressions that are read differently by the formula parser and Python,
+ *  for example because of operator precedence,
+ *  as well as rules that use text or compute the property value
+ *  are left to the script.
+ */
+@SuppressWarnings("nls")
+public class FormulaRule implements Script
+{
+    private static final Future<Object> DONE = CompletableFuture.completedFuture(null);
+
+    private final Widget widget;
+    private final String name;
+    private final WidgetProperty<?> property;
+
+    /** Variables for each PV: pv*, pvInt*, pvSev*, pvLegacySev*, in this order */
+    private static final int VARIABLES_PER_PV = 4;
+
+    /** Which of the variables are used? */
+    private final boolean[] used;
+
+    /** Value for each variable */
+    private final double[] slots;
+
+    /** Boolean expressions */
+    private final CompiledFormula[] formulas;
+
+    /** Property value for each formula, and as fallback */
+    private final Object[] values;
+    private final Object default_value;
+
+    /** Compile rule into formulas
+     *
+     *  @param widget Widget on which the rule is invoked
+     *  @param rule Rule to compile
+     *  @return {@link FormulaRule} or <code>null</code> if the rule needs to be executed as a script
+     */
+    public static FormulaRule compile(final Widget widget, final RuleInfo rule)
+    {
+        try
+        {
+            return new FormulaRule(widget, rule);
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.FINE, () -> "Rule '" + rule.getName() + "' of " + widget + " uses script: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private FormulaRule(final Widget widget, final RuleInfo rule) throws Exception
+    {
+        this.widget = widget;
+        name = rule.getName();
+        property = widget.getProperty(rule.getPropID());
+        if (rule.getPropAsExprFlag())
+            throw new Exception("Property value is computed");
+
+        final int count = rule.getPVs().size();
+        final List<VariableNode> variables = new ArrayList<>();
+        for (int i=0; i<count; ++i)
+        {
+            variables.add(new VariableNode("pv" + i));
+            variables.add(new VariableNode("pvInt" + i));
+            variables.add(new VariableNode("pvSev" + i));
+            variables.add(new VariableNode("pvLegacySev" + i));
+        }
+        // Python 'True', 'False', as well as what the script translates into those
+        variables.add(new VariableNode("True", 1.0));
+        variables.add(new VariableNode("true", 1.0));
+        variables.add(new VariableNode("False", 0.0));
+        variables.add(new VariableNode("false", 0.0));
+        final VariableNode[] known = variables.toArray(new VariableNode[variables.size()]);
+
+        final List<ExpressionInfo<?>> expressions = rule.getExpressions();
+        formulas = new CompiledFormula[expressions.size()];
+        values = new Object[expressions.size()];
+        used = new boolean[known.length];
+        for (int i=0; i<formulas.length; ++i)
+        {
+            final ExpressionInfo<?> expr = expressions.get(i);
+            final String expression = MacroHandler.replace(widget.getEffectiveMacros(), expr.getBoolExp());
+            final String problem = checkExpression(expression);
+            if (problem != null)
+                throw new Exception(problem + " in '" + expression + "'");
+            final Formula formula = new Formula(expression, known);
+            formulas[i] = formula.compile();
+            if (formulas[i] == null)
+                throw new Exception("Cannot compile '" + expression + "'");
+            values[i] = getValue((WidgetProperty<?>) expr.getPropVal());
+            // Only update the variables that are actually used
+            for (int v=0; v<known.length; ++v)
+                used[v] |= formula.hasSubnode(known[v]);
+        }
+        default_value = getValue(property);
+
+        // Slots for the PV variables are updated, the rest are true/false
+        slots = new double[known.length];
+        for (int v=count*VARIABLES_PER_PV; v<known.length; ++v)
+            slots[v] = VTypeHelper.toDouble(known[v].eval());
+    }
+
+    /** @param prop Property
+     *  @return Value to set, converted like the literal in the generated script
+     */
+    private Object getValue(final WidgetProperty<?> prop)
+    {
+        final Object value = prop.getValue();
+        final Object default_value = property.getDefaultValue();
+        if (default_value instanceof Boolean)
+            return Boolean.parseBoolean(value.toString());
+        if (default_value instanceof Number  ||  default_value instanceof Enum<?>)
+            return value;
+        if (default_value instanceof WidgetColor)
+        {   // Script creates plain color, not named color
+            final WidgetColor color = (WidgetColor) value;
+            return new WidgetColor(color.getRed(), color.getGreen(), color.getBlue(), color.getAlpha());
+        }
+        if (default_value instanceof WidgetFont)
+        {
+            final WidgetFont font = (WidgetFont) value;
+            return new WidgetFont(font.getFamily(), font.getStyle(), font.getSize());
+        }
+        if (default_value instanceof String)
+            return value.toString();
+        return value;
+    }
+
+    /** Check if expression has the same meaning as a formula and in Python
+     *
+     *  <p>Rule expressions are written in a mix of Javascript and Python syntax,
+     *  which the script generator translates into Python.
+     *  The formula parser accepts almost the same syntax,
+     *  but for example evaluates <code>&amp;&amp;</code> and <code>||</code>
+     *  with equal precedence, where Python evaluates 'and' before 'or',
+     *  and treats single <code>&amp;</code>, <code>^</code> as logical operations
+     *  where Python uses bit operations.
+     *
+     *  @param expression Expression
+     *  @return Description of the problem, <code>null</code> if the expression can be a formula
+     */
+    static String checkExpression(final String expression)
+    {
+        final int len = expression.length();
+        // For each nesting level of '( ... )',
+        // the logical operator used in that level,
+        // and if the current operand already has a comparison
+        final char[] logic = new char[len+1];
+        final boolean[] compared = new boolean[len+1];
+        int level = 0;
+        char last = ' ';
+        for (int i=0; i<len; ++i)
+        {
+            final char c = expression.charAt(i);
+            final char next = i < len-1 ? expression.charAt(i+1) : 0;
+            switch (c)
+            {
+            case '(':
+                if (Character.isLetterOrDigit(last)  ||  last == '_')
+                    return "Function call";
+                ++level;
+                logic[level] = 0;
+                compared[level] = false;
+                break;
+            case ')':
+                if (level <= 0)
+                    return "Unbalanced parentheses";
+                --level;
+                break;
+            case '&':
+            case '|':
+                if (next != c)
+                    return "Bit operation";
+                if (logic[level] != 0  &&  logic[level] != c)
+                    return "Mixed '&&' and '||'";
+                logic[level] = c;
+                compared[level] = false;
+                ++i;
+                break;
+            case '!':
+                if (next != '=')
+                {
+                    if (next != '(')
+                        return "'!' without parentheses";
+                    break;
+                }
+                // Handle '!=' as comparison
+            case '<':
+            case '>':
+            case '=':
+                if (next == '=')
+                    ++i;
+                else if (c == '=')
+                    return "Assignment";
+                if (compared[level])
+                    return "Chained comparison";
+                compared[level] = true;
+                break;
+            case '"':
+            case '\'':
+            case '`':
+                return "Text";
+            case '/':
+            case '%':
+            case '^':
+            case '?':
+            case ':':
+                return "Operator '" + c + "'";
+            default:
+                // Formula handles the rest or reports an error
+            }
+            if (! Character.isWhitespace(c))
+                last = c;
+        }
+        if (level != 0)
+            return "Unbalanced parentheses";
+        return null;
+    }
+
+    /** Evaluate the rule and update the property
+     *  @param widget Widget, must be the one for which the rule was compiled
+     *  @param pvs PVs of the rule
+     *  @return Completed future
+     */
+    @Override
+    public synchronized Future<Object> submit(final Widget widget, final RuntimePV... pvs)
+    {
+        Object value;
+        try
+        {
+            for (int i=0; i<pvs.length; ++i)
+            {
+                // Like the script, use default value if any PV has no value
+                final VType vtype = PVUtil.getVType(pvs[i]);
+                final int slot = i * VARIABLES_PER_PV;
+                if (used[slot])
+                    slots[slot] = ValueUtil.getDouble(vtype);
+                if (used[slot+1])
+                    slots[slot+1] = ValueUtil.getLong(vtype);
+                if (used[slot+2])
+                    slots[slot+2] = PVUtil.getSeverity(pvs[i]);
+                if (used[slot+3])
+                    slots[slot+3] = getLegacySeverity(pvs[i]);
+            }
+            value = default_value;
+            for (int i=0; i<formulas.length; ++i)
+                if (formulas[i].eval(slots) != 0.0)
+                {
+                    value = values[i];
+                    break;
+                }
+        }
+        catch (PVHasNoValueException ex)
+        {
+            value = default_value;
+        }
+        catch (Throwable ex)
+        {
+            logger.log(Level.WARNING, "Error in " + this, ex);
+            value = default_value;
+        }
+
+        try
+        {
+            // Points are mutable, each update needs its own copy
+            property.setValueFromObject(value instanceof Points ? ((Points) value).clone() : value);
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot set " + this + " to " + value, ex);
+        }
+        return DONE;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static int getLegacySeverity(final RuntimePV pv)
+    {
+        return PVUtil.getLegacySeverity(pv);
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder buf = new StringBuilder();
+        buf.append("FormulaRule '").append(name).append("' for ").append(widget).append(" ").append(property.getName());
+        for (CompiledFormula formula : formulas)
+            buf.append(", ").append(formula.getFormula().getFormula());
+        return buf.toString();
+    }
+}
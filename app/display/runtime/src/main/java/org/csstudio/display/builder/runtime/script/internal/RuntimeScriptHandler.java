@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2015-2018 Oak Ridge National Laboratory.
+ * Copyright (c) 2015-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,6 +22,7 @@ import org.csstudio.display.builder.model.properties.ScriptPV;
 import org.csstudio.display.builder.model.rules.RuleInfo;
 import org.csstudio.display.builder.model.rules.RuleToScript;
 import org.csstudio.display.builder.model.util.ModelResourceUtil;
+import org.csstudio.display.builder.runtime.Preferences;
 import org.csstudio.display.builder.runtime.RuntimeUtil;
 import org.csstudio.display.builder.runtime.WidgetRuntime;
 import org.csstudio.display.builder.runtime.pv.PVFactory;
@@ -96,7 +97,8 @@ public class RuntimeScriptHandler implements RuntimePVListener
 
     /** Helper to compile rules script
      *
-     *  <p>Gets text of script from rules utility
+     *  <p>Uses a {@link FormulaRule} if the rule's expressions allow that,
+     *  otherwise gets text of script from rules utility
      *
      *  @param widget Widget on which the rule is invoked
      *  @param rule_info Rule to compile
@@ -106,6 +108,13 @@ public class RuntimeScriptHandler implements RuntimePVListener
     public static Script compileScript(final Widget widget,
             final RuleInfo rule_info) throws Exception
     {
+        if (Preferences.native_rules)
+        {
+            final FormulaRule rule = FormulaRule.compile(widget, rule_info);
+            if (rule != null)
+                return rule;
+        }
+
         // Compile script
         final ScriptSupport scripting = RuntimeUtil.getScriptSupport(widget);
 
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.runtime.test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.display.builder.model.DisplayModel;
+import org.csstudio.display.builder.model.Widget;
+import org.csstudio.display.builder.model.WidgetProperty;
+import org.csstudio.display.builder.model.properties.HorizontalAlignment;
+import org.csstudio.display.builder.model.properties.RulesWidgetProperty;
+import org.csstudio.display.builder.model.properties.ScriptPV;
+import org.csstudio.display.builder.model.properties.WidgetColor;
+import org.csstudio.display.builder.model.rules.RuleInfo;
+import org.csstudio.display.builder.model.rules.RuleInfo.ExprInfoString;
+import org.csstudio.display.builder.model.rules.RuleInfo.ExprInfoValue;
+import org.csstudio.display.builder.model.rules.RuleInfo.ExpressionInfo;
+import org.csstudio.display.builder.model.widgets.LabelWidget;
+import org.csstudio.display.builder.runtime.pv.PVFactory;
+import org.csstudio.display.builder.runtime.pv.RuntimePV;
+import org.csstudio.display.builder.runtime.script.internal.FormulaRule;
+import org.csstudio.display.builder.runtime.script.internal.Script;
+import org.csstudio.display.builder.runtime.script.internal.ScriptSupport;
+import org.junit.Test;
+
+/** JUnit test of the {@link FormulaRule}
+ *
+ *  <p>Compares with the script generated for the rule
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class FormulaRuleTest
+{
+    private static LabelWidget createWidget()
+    {
+        final DisplayModel display = new DisplayModel();
+        final LabelWidget widget = new LabelWidget();
+        widget.propName().setValue("Label");
+        display.runtimeChildren().addChild(widget);
+        return widget;
+    }
+
+    /** @param widget Widget
+     *  @param prop_id Property to set
+     *  @param value Value for the property if expression is true
+     *  @param expressions Expressions
+     *  @return Rule that uses PVs 'a' and 'b'
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static RuleInfo createRule(final Widget widget, final String prop_id, final Object value,
+                                       final String... expressions) throws Exception
+    {
+        final List<ExpressionInfo<?>> exprs = new ArrayList<>();
+        for (String expression : expressions)
+        {
+            final WidgetProperty prop = RulesWidgetProperty.propIDToNewProp(widget, prop_id, null);
+            prop.setValueFromObject(value);
+            exprs.add(new ExprInfoValue<>(expression, prop));
+        }
+        return new RuleInfo("Test", prop_id, false, exprs,
+                            List.of(new ScriptPV("loc://formula_rule_a(0)"),
+                                    new ScriptPV("loc://formula_rule_b(0)")));
+    }
+
+    @Test
+    public void testCompile() throws Exception
+    {
+        final Widget widget = createWidget();
+        for (String expression : new String[]
+                                 {
+                                     "pv0 > 5",
+                                     "(pv0 > 1 && pv1 > 2) || pv0 < 0",
+                                     "!(pv0 == 1) && pvSev1 != 0",
+                                     "pvInt0 + 2*pv1 >= -3.5e2",
+                                     "true",
+                                 })
+            assertThat(expression, FormulaRule.compile(widget, createRule(widget, "width", 10, expression)), not(nullValue()));
+
+        // Expressions that Python evaluates differently or that need text
+        for (String expression : new String[]
+                                 {
+                                     "pv0 > 1 && pv1 > 2 || pv0 < 0",
+                                     "pv0 & 1",
+                                     "pv0 = 1",
+                                     "1 < pv0 < 5",
+                                     "!pv0",
+                                     "pv0 / 2 > 1",
+                                     "pv0 ^ 2 > 1",
+                                     "Math.abs(pv0) > 1",
+                                     "pv0 > 5 and pv1 > 5",
+                                     "pvStr0 == 'Text'",
+                                     "pv2 > 1",
+                                     "(pv0 > 1",
+                                 })
+            assertThat(expression, FormulaRule.compile(widget, createRule(widget, "width", 10, expression)), nullValue());
+
+        // Property value computed as expression
+        final RuleInfo rule = new RuleInfo("Test", "width", true,
+                                           List.of(new ExprInfoString("pv0 > 5", "pv0 * 10")),
+                                           List.of(new ScriptPV("loc://formula_rule_a(0)")));
+        assertThat(FormulaRule.compile(widget, rule), nullValue());
+    }
+
+    @Test
+    public void testScriptParity() throws Exception
+    {
+        final Object[][] rules =
+        {
+            { "width", 42, new String[] { "pv0 > 5" } },
+            { "background_color", new WidgetColor(255, 0, 0), new String[] { "pv0 >= 1 && pv1 < 3" } },
+            { "transparent", false, new String[] { "(pv0 == 2) || (pv1 == 3)" } },
+            { "horizontal_alignment", HorizontalAlignment.RIGHT, new String[] { "!(pv0 > pv1)" } },
+            { "text", "High", new String[] { "pvInt0 == 7 && pvSev0 == 0", "pv0 + 2*pv1 > 10" } },
+        };
+        final double[][] values = { { 0, 0 }, { 2, 4 }, { 7, 1 }, { 7.5, -3 }, { 6, 3 } };
+
+        final RuntimePV a = PVFactory.getPV("loc://formula_rule_a(0)");
+        final RuntimePV b = PVFactory.getPV("loc://formula_rule_b(0)");
+        final ScriptSupport scripting = new ScriptSupport();
+        try
+        {
+            for (Object[] config : rules)
+            {
+                final Widget native_widget = createWidget();
+                final Widget script_widget = createWidget();
+                final RuleInfo rule = createRule(native_widget, (String) config[0], config[1], (String[]) config[2]);
+                final Script formula = FormulaRule.compile(native_widget, rule);
+                assertThat(formula, not(nullValue()));
+                final String script_text = rule.getTextPy(script_widget);
+                final Script script = scripting.compile(".", "rule.py", new ByteArrayInputStream(script_text.getBytes()));
+
+                for (double[] value : values)
+                {
+                    a.write(value[0]);
+                    b.write(value[1]);
+                    formula.submit(native_widget, a, b).get();
+                    script.submit(script_widget, a, b).get();
+                    final Object expected = script_widget.getPropertyValue((String) config[0]);
+                    System.out.println(formula + " for " + value[0] + ", " + value[1] + ": " + expected);
+                    assertThat(formula.toString(), native_widget.getPropertyValue((String) config[0]), equalTo(expected));
+                }
+            }
+        }
+        finally
+        {
+            scripting.close();
+            PVFactory.releasePV(b);
+            PVFactory.releasePV(a);
+        }
+    }
+}
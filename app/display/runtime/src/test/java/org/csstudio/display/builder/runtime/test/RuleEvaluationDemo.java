@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.runtime.test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+import org.csstudio.display.builder.model.DisplayModel;
+import org.csstudio.display.builder.model.WidgetProperty;
+import org.csstudio.display.builder.model.properties.RulesWidgetProperty;
+import org.csstudio.display.builder.model.properties.ScriptPV;
+import org.csstudio.display.builder.model.properties.WidgetColor;
+import org.csstudio.display.builder.model.rules.RuleInfo;
+import org.csstudio.display.builder.model.rules.RuleInfo.ExprInfoValue;
+import org.csstudio.display.builder.model.rules.RuleInfo.ExpressionInfo;
+import org.csstudio.display.builder.model.widgets.LabelWidget;
+import org.csstudio.display.builder.runtime.WidgetRuntime;
+import org.csstudio.display.builder.runtime.pv.PVFactory;
+import org.csstudio.display.builder.runtime.pv.RuntimePV;
+import org.csstudio.display.builder.runtime.script.internal.FormulaRule;
+import org.csstudio.display.builder.runtime.script.internal.Script;
+import org.csstudio.display.builder.runtime.script.internal.ScriptSupport;
+
+/** Benchmark of rule evaluation
+ *
+ *  <p>Evaluates the rule 'pv0 > 5 &amp;&amp; pvSev0 == 0' for many widgets,
+ *  once via the generated Jython scripts
+ *  and once via {@link FormulaRule}s.
+ *  Reports the number of rule updates per second.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class RuleEvaluationDemo
+{
+    private static final int RULES = 10000;
+    private static final int RUNS = 5;
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static RuleInfo createRule(final LabelWidget widget) throws Exception
+    {
+        final WidgetProperty color = RulesWidgetProperty.propIDToNewProp(widget, "background_color", null);
+        color.setValue(new WidgetColor(255, 0, 0));
+        final List<ExpressionInfo<?>> exprs = List.of(new ExprInfoValue<>("pv0 > 5 && pvSev0 == 0", color));
+        return new RuleInfo("Alarm", "background_color", false, exprs, List.of(new ScriptPV("loc://rule_demo(0)")));
+    }
+
+    private static void report(final String title, final long start, final int updates)
+    {
+        final double secs = (System.nanoTime() - start) / 1e9;
+        System.out.format("%-7s: %10.0f updates/sec\n", title, updates / secs);
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        // Don't log each script execution
+        WidgetRuntime.logger.setLevel(Level.WARNING);
+
+        final DisplayModel display = new DisplayModel();
+        final ScriptSupport scripting = new ScriptSupport();
+        final List<LabelWidget> widgets = new ArrayList<>(RULES);
+        final List<Script> scripts = new ArrayList<>(RULES);
+        final List<FormulaRule> formulas = new ArrayList<>(RULES);
+        for (int i=0; i<RULES; ++i)
+        {
+            final LabelWidget widget = new LabelWidget();
+            widget.propName().setValue("Label " + i);
+            display.runtimeChildren().addChild(widget);
+            widgets.add(widget);
+            final RuleInfo rule = createRule(widget);
+            // Like the runtime, compile one script per widget
+            scripts.add(scripting.compile(null, "rule" + i + ".py", new ByteArrayInputStream(rule.getTextPy(widget).getBytes())));
+            formulas.add(FormulaRule.compile(widget, rule));
+        }
+
+        final RuntimePV pv = PVFactory.getPV("loc://rule_demo(0)");
+        final List<Future<Object>> done = new ArrayList<>(RULES);
+        System.out.println(RULES + " rules");
+        for (int run=0; run<RUNS; ++run)
+        {
+            pv.write(run % 2 == 0 ? 10 : 0);
+
+            long start = System.nanoTime();
+            for (int i=0; i<RULES; ++i)
+                done.add(scripts.get(i).submit(widgets.get(i), pv));
+            for (Future<Object> result : done)
+                result.get();
+            done.clear();
+            report("Jython", start, RULES);
+
+            start = System.nanoTime();
+            for (int i=0; i<RULES; ++i)
+                formulas.get(i).submit(widgets.get(i), pv);
+            report("Formula", start, RULES);
+        }
+
+        scripting.close();
+        PVFactory.releasePV(pv);
+    }
+}
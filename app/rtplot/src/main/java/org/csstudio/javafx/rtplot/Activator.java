@@ -30,6 +30,12 @@ public class Activator
     @Preference(name="shady_future") private static int[] rgba;
     public static final Color shady_future;
 
+    /** Draw only the visible samples of sorted data, reduced per pixel column? */
+    @Preference public static boolean decimate_traces;
+
+    /** Render images at screen resolution instead of scaling the full image? */
+    @Preference public static boolean image_screen_resolution;
+
     /** Thread pool for scrolling, throttling updates
      * 
      *  <p>One per CPU core allows that many plots to run updateImageBuffer in parallel.
@@ -58,6 +58,15 @@ public interface PlotDataProvider<XTYPE extends Comparable<XTYPE>>
      */
     public PlotDataItem<XTYPE> get(int index);
 
+    /** @return <code>true</code> if samples are sorted by position.
+     *          Allows painting to locate the visible samples
+     *          via binary search instead of checking all samples.
+     */
+    public default boolean isSorted()
+    {
+        return false;
+    }
+
     //    public String toString()
     //    {
     //        // Derived class should include InstrumentedReadWriteLock#toString()
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2015-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2015-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,7 @@ import java.util.function.ToDoubleFunction;
 import java.util.function.ToIntFunction;
 import java.util.logging.Level;
 
+import org.csstudio.javafx.rtplot.Activator;
 import org.csstudio.javafx.rtplot.Axis;
 import org.csstudio.javafx.rtplot.AxisRange;
 import org.csstudio.javafx.rtplot.ColorMappingFunction;
@@ -516,8 +517,14 @@ public class ImagePlot extends PlotCanvasBase
         final VImageType type = this.vimage_type;
         final ColorMappingFunction color_mapping = this.color_mapping;
 
+        // Render monochrome images at screen resolution,
+        // or color-map all pixels and then scale (reference implementation)
+        final boolean isRGB = type == VImageType.TYPE_RGB1 || type == VImageType.TYPE_RGB2 || type == VImageType.TYPE_RGB3;
+        final ImageRenderer renderer = (numbers != null  &&  !isRGB  &&  Activator.image_screen_resolution)
+                                     ? new ImageRenderer(data_width, data_height, numbers, unsigned)
+                                     : null;
+
         ToDoubleFunction<IteratorNumber> next_sample_func = IteratorNumber::nextDouble;
-    	boolean isRGB = type == VImageType.TYPE_RGB1 || type == VImageType.TYPE_RGB2 || type == VImageType.TYPE_RGB3;
     	@SuppressWarnings("unchecked")
 		final ToIntFunction<IteratorNumber> next_rgb [] = new ToIntFunction [3];
         if (numbers != null)
@@ -586,7 +593,14 @@ public class ImagePlot extends PlotCanvasBase
 	                    logger.log(Level.WARNING, "Cannot handle unsigned data of type " + numbers.getClass().getName());
 	            }
 
-	            if (autoscale)
+	            if (autoscale  &&  renderer != null)
+	            {   // Compute min..max in parallel
+	                final ValueRange range = renderer.getValueRange();
+	                min = range.getLow();
+	                max = range.getHigh();
+	                logger.log(Level.FINE, "Autoscale range {0} .. {1}", new Object[] { min, max });
+	            }
+	            else if (autoscale)
 	            {   // Compute min..max before layout of color bar
 	                final IteratorNumber iter = numbers.iterator();
 	                min = Double.MAX_VALUE;
@@ -626,35 +640,49 @@ public class ImagePlot extends PlotCanvasBase
         {
             // Paint the image
             gc.setClip(image_area.x, image_area.y, image_area.width, image_area.height);
-            final Object image_or_error =  !isRGB ?
-            		drawData(data_width, data_height, numbers, next_sample_func, min, max, color_mapping) :
-        			drawDataRGB(data_width, data_height, numbers, next_rgb, type);
+
+            // Transform from full axis range into data range,
+            // using the current 'zoom' state of each axis
+            final LinearScreenTransform t = new LinearScreenTransform();
+            AxisRange<Double> zoomed = x_axis.getValueRange();
+            t.config(min_x, max_x, 0, data_width);
+            // Round down .. up to always cover the image_area
+            final int src_x1 = Math.max(0,          (int)t.transform(zoomed.getLow()));
+            final int src_x2 = Math.min(data_width, (int)(t.transform(zoomed.getHigh()) + 1));
+
+            // Pixels of the image need to be aligned to their axis location,
+            // especially when zoomed way in and the pixels are huge.
+            // Turn pixel back into axis value, and then determine its destination on screen.
+            final int dst_x1 = x_axis.getScreenCoord(t.inverse(src_x1));
+            final int dst_x2 = x_axis.getScreenCoord(t.inverse(src_x2));
+
+            // For Y axis, min_y == bottom == data_height
+            zoomed = y_axis.getValueRange();
+            t.config(min_y, max_y, data_height, 0);
+            final int src_y1 = Math.max(0,           (int) t.transform(zoomed.getHigh()));
+            final int src_y2 = Math.min(data_height, (int) (t.transform(zoomed.getLow() ) + 1));
+            final int dst_y1 = y_axis.getScreenCoord(t.inverse(src_y1));
+            final int dst_y2 = y_axis.getScreenCoord(t.inverse(src_y2));
+
+            final Object image_or_error;
+            if (renderer != null)
+            {
+                // If image is smaller than screen area, show the actual pixels,
+                // otherwise average to avoid artifacts from picking some specific nearest neighbor
+                final boolean smooth = interpolation == Interpolation.INTERPOLATE  ||
+                                       (interpolation == Interpolation.AUTOMATIC  &&
+                                        ! ((src_x2-src_x1) < image_area.width  &&   (src_y2-src_y1) < image_area.height));
+                image_or_error = drawScreenData(gc, renderer, data_width, data_height, numbers,
+                                                src_x1, src_x2, dst_x1, dst_x2, src_y1, src_y2, dst_y1, dst_y2,
+                                                smooth, min, max, color_mapping);
+            }
+            else
+                image_or_error =  !isRGB ?
+                		drawData(data_width, data_height, numbers, next_sample_func, min, max, color_mapping) :
+            			drawDataRGB(data_width, data_height, numbers, next_rgb, type);
             if (image_or_error instanceof BufferedImage)
             {
                 final BufferedImage unscaled = (BufferedImage) image_or_error;
-                // Transform from full axis range into data range,
-                // using the current 'zoom' state of each axis
-                final LinearScreenTransform t = new LinearScreenTransform();
-                AxisRange<Double> zoomed = x_axis.getValueRange();
-                t.config(min_x, max_x, 0, data_width);
-                // Round down .. up to always cover the image_area
-                final int src_x1 = Math.max(0,          (int)t.transform(zoomed.getLow()));
-                final int src_x2 = Math.min(data_width, (int)(t.transform(zoomed.getHigh()) + 1));
-
-                // Pixels of the image need to be aligned to their axis location,
-                // especially when zoomed way in and the pixels are huge.
-                // Turn pixel back into axis value, and then determine its destination on screen.
-                final int dst_x1 = x_axis.getScreenCoord(t.inverse(src_x1));
-                final int dst_x2 = x_axis.getScreenCoord(t.inverse(src_x2));
-
-                // For Y axis, min_y == bottom == data_height
-                zoomed = y_axis.getValueRange();
-                t.config(min_y, max_y, data_height, 0);
-                final int src_y1 = Math.max(0,           (int) t.transform(zoomed.getHigh()));
-                final int src_y2 = Math.min(data_height, (int) (t.transform(zoomed.getLow() ) + 1));
-                final int dst_y1 = y_axis.getScreenCoord(t.inverse(src_y1));
-                final int dst_y2 = y_axis.getScreenCoord(t.inverse(src_y2));
-
                 switch (interpolation)
                 {
                 case NONE:
@@ -677,7 +705,7 @@ public class ImagePlot extends PlotCanvasBase
                              src_x1,  src_y1,  src_x2,  src_y2,
                              /* ImageObserver */ null);
             }
-            else
+            else if (image_or_error != null)
             {
                 gc.setColor(Color.RED);
                 gc.setFont(x_axis.label_font);
@@ -912,6 +940,66 @@ public class ImagePlot extends PlotCanvasBase
         return image;
     }
 
+    /** Render the visible region of the image at screen resolution
+     *  @param gc GC for off-screen image
+     *  @param renderer Renderer for the image data
+     *  @param data_width
+     *  @param data_height
+     *  @param numbers
+     *  @param src_x1 Data region ..
+     *  @param src_x2
+     *  @param dst_x1 .. and its screen location
+     *  @param dst_x2
+     *  @param src_y1
+     *  @param src_y2
+     *  @param dst_y1
+     *  @param dst_y2
+     *  @param smooth Average or interpolate samples instead of using the nearest one?
+     *  @param min
+     *  @param max
+     *  @param color_mapping
+     *  @return <code>null</code> when drawn, or String with error message
+     */
+    private String drawScreenData(final Graphics2D gc, final ImageRenderer renderer,
+                                  final int data_width, final int data_height, final ListNumber numbers,
+                                  final int src_x1, final int src_x2, final int dst_x1, final int dst_x2,
+                                  final int src_y1, final int src_y2, final int dst_y1, final int dst_y2,
+                                  final boolean smooth, final double min, final double max,
+                                  final ColorMappingFunction color_mapping)
+    {
+        if (data_width <= 0  ||  data_height <= 0)
+            return "Cannot draw image sized " + data_width + " x " + data_height;
+        if (numbers.size() < data_width * data_height)
+            return "Image sized " + data_width + " x " + data_height +
+                   " received only " + numbers.size() + " data samples";
+        if (dst_x1 == dst_x2  ||  dst_y1 == dst_y2)
+            return null;
+
+        // Visible part of the data region
+        final Rectangle visible = image_area;
+        final int x1 = Math.max(visible.x, Math.min(dst_x1, dst_x2)),
+                  x2 = Math.min(visible.x + visible.width, Math.max(dst_x1, dst_x2)),
+                  y1 = Math.max(visible.y, Math.min(dst_y1, dst_y2)),
+                  y2 = Math.min(visible.y + visible.height, Math.max(dst_y1, dst_y2));
+        if (x2 <= x1  ||  y2 <= y1)
+            return null;
+
+        final BufferUtil buffer = data_buffers.getBufferedImage(x2 - x1, y2 - y1);
+        if (buffer == null)
+            return "Cannot get buffer";
+        final BufferedImage image = buffer.getImage();
+        final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+        final double x_scale = (src_x2 - src_x1) / (double) (dst_x2 - dst_x1),
+                     y_scale = (src_y2 - src_y1) / (double) (dst_y2 - dst_y1);
+        renderer.render(pixels, x2 - x1, y2 - y1,
+                        src_x1 + (x1 - dst_x1) * x_scale, x_scale,
+                        src_y1 + (y1 - dst_y1) * y_scale, y_scale,
+                        smooth, min, max, colorbar_axis.isLogarithmic(), color_mapping);
+        gc.drawImage(image, x1, y1, null);
+        return null;
+    }
+
     /** @param data_width
      *  @param data_height
      *  @param numbers
@@ -0,0 +1,573 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot.internal;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import org.csstudio.javafx.rtplot.ColorMappingFunction;
+import org.csstudio.javafx.rtplot.data.ValueRange;
+import org.csstudio.javafx.rtplot.internal.util.Log10;
+import org.epics.util.array.ArrayByte;
+import org.epics.util.array.ArrayInteger;
+import org.epics.util.array.ArrayLong;
+import org.epics.util.array.ArrayShort;
+import org.epics.util.array.ListNumber;
+
+/** Render image data at screen resolution
+ *
+ *  <p>Instead of color-mapping every sample of the image
+ *  and then scaling the result to the screen,
+ *  only the screen pixels of the visible, zoomed region are computed.
+ *  Each screen pixel uses the nearest sample,
+ *  or for smooth rendering the average of the samples
+ *  that it covers respectively the bilinear interpolation
+ *  when zoomed in beyond the image resolution.
+ *
+ *  <p>Integer samples are mapped to colors via a lookup table.
+ *  Large frames are rendered as strips of rows on the fork/join pool.
+ */
+public class ImageRenderer
+{
+    /** Largest color lookup table */
+    static final int MAX_LUT_SIZE = 65536;
+
+    /** Work, counted in samples, below which a strip is rendered
+     *  as a whole instead of splitting it for parallel rendering
+     */
+    static final int MIN_STRIP_WORK = 64 * 1024;
+
+    private static final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /** Access to a sample */
+    @FunctionalInterface
+    private interface Samples
+    {
+        double get(int index);
+    }
+
+    /** Access to an integer sample */
+    @FunctionalInterface
+    private interface IntegerSamples
+    {
+        long get(int index);
+    }
+
+    /** How screen pixels are computed from samples */
+    private enum Mode
+    {
+        /** Use the nearest sample */
+        NEAREST,
+        /** Average samples covered by the screen pixel */
+        AVERAGE,
+        /** Interpolate between the 4 surrounding samples */
+        BILINEAR
+    }
+
+    private final int data_width, data_height, size;
+
+    /** Access to samples as double */
+    private final Samples samples;
+
+    /** Access to samples of integer data, <code>null</code> for other data types */
+    private final IntegerSamples integers;
+
+    /** Range of the integer data type */
+    private final long type_min, type_max;
+
+    /** @param data_width Width of the image data
+     *  @param data_height Height of the image data
+     *  @param numbers Image data, row by row
+     *  @param unsigned Is the data meant to be treated as 'unsigned'
+     */
+    public ImageRenderer(final int data_width, final int data_height, final ListNumber numbers, final boolean unsigned)
+    {
+        this.data_width = data_width;
+        this.data_height = data_height;
+        size = numbers.size();
+
+        if (numbers instanceof ArrayByte)
+        {
+            final ArrayByte data = (ArrayByte) numbers;
+            if (unsigned)
+            {
+                integers = index -> Byte.toUnsignedInt(data.getByte(index));
+                type_min = 0;
+                type_max = 0xFF;
+            }
+            else
+            {
+                integers = data::getByte;
+                type_min = Byte.MIN_VALUE;
+                type_max = Byte.MAX_VALUE;
+            }
+        }
+        else if (numbers instanceof ArrayShort)
+        {
+            final ArrayShort data = (ArrayShort) numbers;
+            if (unsigned)
+            {
+                integers = index -> Short.toUnsignedInt(data.getShort(index));
+                type_min = 0;
+                type_max = 0xFFFF;
+            }
+            else
+            {
+                integers = data::getShort;
+                type_min = Short.MIN_VALUE;
+                type_max = Short.MAX_VALUE;
+            }
+        }
+        else if (numbers instanceof ArrayInteger)
+        {
+            final ArrayInteger data = (ArrayInteger) numbers;
+            if (unsigned)
+            {
+                integers = index -> Integer.toUnsignedLong(data.getInt(index));
+                type_min = 0;
+                type_max = 0xFFFFFFFFL;
+            }
+            else
+            {
+                integers = data::getInt;
+                type_min = Integer.MIN_VALUE;
+                type_max = Integer.MAX_VALUE;
+            }
+        }
+        else if (numbers instanceof ArrayLong)
+        {
+            final ArrayLong data = (ArrayLong) numbers;
+            integers = data::getLong;
+            type_min = Long.MIN_VALUE;
+            type_max = Long.MAX_VALUE;
+        }
+        else
+        {
+            integers = null;
+            type_min = type_max = 0;
+        }
+
+        if (integers != null)
+            samples = integers::get;
+        else
+            samples = numbers::getDouble;
+    }
+
+    /** Determine value range of a section of the data */
+    private class RangeTask extends RecursiveTask<double[]>
+    {
+        private static final long serialVersionUID = 1L;
+        private final int start, end;
+
+        RangeTask(final int start, final int end)
+        {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected double[] compute()
+        {
+            if (end - start > 4*MIN_STRIP_WORK)
+            {
+                final int mid = (start + end) / 2;
+                final RangeTask upper = new RangeTask(mid, end);
+                upper.fork();
+                final double[] range = new RangeTask(start, mid).compute();
+                final double[] other = upper.join();
+                range[0] = Math.min(range[0], other[0]);
+                range[1] = Math.max(range[1], other[1]);
+                return range;
+            }
+            if (integers != null)
+            {
+                if (end <= start)
+                    return new double[] { Double.MAX_VALUE, Double.NEGATIVE_INFINITY };
+                long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+                for (int i=start; i<end; ++i)
+                {
+                    final long sample = integers.get(i);
+                    if (sample > max)
+                        max = sample;
+                    if (sample < min)
+                        min = sample;
+                }
+                return new double[] { min, max };
+            }
+            double min = Double.MAX_VALUE, max = Double.NEGATIVE_INFINITY;
+            for (int i=start; i<end; ++i)
+            {
+                final double sample = samples.get(i);
+                if (sample > max)
+                    max = sample;
+                if (sample < min)
+                    min = sample;
+            }
+            return new double[] { min, max };
+        }
+    }
+
+    /** Determine value range of all samples, ignoring NaN
+     *  @return Value range, low = {@link Double#MAX_VALUE} when there are no samples
+     */
+    public ValueRange getValueRange()
+    {
+        final double[] range = pool.invoke(new RangeTask(0, size));
+        return new ValueRange(range[0], range[1]);
+    }
+
+    /** Render region of the image
+     *
+     *  <p>The region starts at data coordinate <code>src_x, src_y</code>,
+     *  where the integer coordinate is the top left corner of a sample,
+     *  and advances by <code>x_scale, y_scale</code> for each screen pixel.
+     *
+     *  @param pixels ARGB pixels, <code>width</code> per row
+     *  @param width Width of region in screen pixels
+     *  @param height Height of region in screen pixels
+     *  @param src_x Data x coordinate of the left edge of the region
+     *  @param x_scale Samples per screen pixel along x, negative when x axis is reversed
+     *  @param src_y Data y coordinate of the top edge of the region
+     *  @param y_scale Samples per screen pixel along y, negative when y axis is reversed
+     *  @param smooth Average or interpolate samples? Otherwise use nearest sample
+     *  @param min Value mapped to the start of the color map
+     *  @param max Value mapped to the end of the color map
+     *  @param log Use logarithmic value scale?
+     *  @param color_mapping Color mapping
+     */
+    public void render(final int[] pixels, final int width, final int height,
+                       final double src_x, final double x_scale,
+                       final double src_y, final double y_scale,
+                       final boolean smooth, final double min, final double max, final boolean log,
+                       final ColorMappingFunction color_mapping)
+    {
+        if (width <= 0  ||  height <= 0  ||  data_width <= 0  ||  data_height <= 0  ||
+            size < data_width * data_height)
+            return;
+        final Frame frame = new Frame(pixels, width, height, src_x, x_scale, src_y, y_scale,
+                                      smooth, min, max, log, color_mapping);
+        final Strip strip = new Strip(frame, 0, height);
+        if ((long) height * frame.row_work > MIN_STRIP_WORK)
+            pool.invoke(strip);
+        else
+            strip.compute();
+    }
+
+    /** Information for rendering one frame, shared by all strips */
+    private class Frame
+    {
+        final int[] pixels;
+        final int width;
+        final Mode mode;
+        final ColorMappingFunction color_mapping;
+        final boolean log;
+        final double low, span;
+
+        /** Approximate number of samples read per row of screen pixels */
+        final long row_work;
+
+        /** Column, row of nearest sample, or start of averaged samples, or first interpolated sample */
+        final int[] col, row;
+
+        /** End of averaged columns, rows (exclusive) */
+        final int[] col_end, row_end;
+
+        /** Weight of the second interpolated sample */
+        final double[] col_frac, row_frac;
+
+        /** Color lookup table for integer values lut_min .. lut_min + lut.length - 1, or <code>null</code> */
+        final int[] lut;
+        final long lut_min, lut_max;
+
+        Frame(final int[] pixels, final int width, final int height,
+              final double src_x, final double x_scale,
+              final double src_y, final double y_scale,
+              final boolean smooth, double min, double max, final boolean log,
+              final ColorMappingFunction color_mapping)
+        {
+            this.pixels = pixels;
+            this.width = width;
+            this.color_mapping = color_mapping;
+            this.log = log;
+
+            if (! (min < max))  // Implies min and max being finite, not-NaN
+            {
+                min = 0.0;
+                max = 1.0;
+            }
+            if (log)
+            {
+                low = Log10.log10(min);
+                span = Log10.log10(max) - low;
+            }
+            else
+            {
+                low = min;
+                span = max - min;
+            }
+
+            final double x_step = Math.abs(x_scale), y_step = Math.abs(y_scale);
+            if (! smooth)
+                mode = Mode.NEAREST;
+            else if (x_step > 1.0  ||  y_step > 1.0)
+                mode = Mode.AVERAGE;
+            else
+                mode = Mode.BILINEAR;
+
+            col = new int[width];
+            row = new int[height];
+            if (mode == Mode.AVERAGE)
+            {
+                col_end = new int[width];
+                row_end = new int[height];
+                computeAverageRange(src_x, x_scale, data_width, col, col_end);
+                computeAverageRange(src_y, y_scale, data_height, row, row_end);
+                row_work = width * (long) Math.ceil(Math.max(1.0, x_step)) * (long) Math.ceil(Math.max(1.0, y_step));
+            }
+            else
+            {
+                col_end = row_end = null;
+                row_work = width;
+            }
+            if (mode == Mode.BILINEAR)
+            {
+                col_frac = new double[width];
+                row_frac = new double[height];
+                computeInterpolation(src_x, x_scale, data_width, col, col_frac);
+                computeInterpolation(src_y, y_scale, data_height, row, row_frac);
+            }
+            else
+                col_frac = row_frac = null;
+            if (mode == Mode.NEAREST)
+            {
+                computeNearest(src_x, x_scale, data_width, col);
+                computeNearest(src_y, y_scale, data_height, row);
+            }
+
+            // Lookup table for integer values when using the nearest sample.
+            // Values beyond lut_min .. lut_max map to the same color
+            // as the respective end of the table
+            long lut_min = 0, lut_max = -1;
+            if (mode == Mode.NEAREST  &&  integers != null)
+            {
+                lut_min = Math.max(type_min, (long) Math.floor(min));
+                lut_max = Math.min(type_max, (long) Math.ceil(max));
+                if (lut_min > lut_max)
+                {   // All values are below or above the value range
+                    if (lut_min > type_max)
+                        lut_min = lut_max;
+                    else
+                        lut_max = lut_min;
+                }
+                // Only worth it if there are fewer table entries than pixels.
+                // Difference overflows into negative for the full 'long' range
+                final long entries = lut_max - lut_min;
+                if (entries < 0  ||  entries >= Math.min(MAX_LUT_SIZE, (long) width * height))
+                    lut_max = lut_min - 1;
+            }
+            this.lut_min = lut_min;
+            this.lut_max = lut_max;
+            if (lut_max >= lut_min)
+            {
+                lut = new int[(int) (lut_max - lut_min + 1)];
+                for (int i=0; i<lut.length; ++i)
+                    lut[i] = getRGB(lut_min + i);
+            }
+            else
+                lut = null;
+        }
+
+        /** @param sample Sample value
+         *  @return Color for the sample
+         */
+        int getRGB(double sample)
+        {
+            if (log)
+                sample = Log10.log10(sample);
+            double scaled = (sample - low) / span;
+            if (scaled < 0.0)
+                scaled = 0;
+            else if (scaled > 1.0)
+                scaled = 1.0;
+            return color_mapping.getRGB(scaled);
+        }
+
+        /** Render rows
+         *  @param start First row
+         *  @param end Last row (exclusive)
+         */
+        void render(final int start, final int end)
+        {
+            int out = start * width;
+            for (int y=start; y<end; ++y)
+            {
+                switch (mode)
+                {
+                case NEAREST:
+                {
+                    final int offset = row[y] * data_width;
+                    if (lut != null)
+                        for (int x=0; x<width; ++x)
+                        {
+                            long value = integers.get(offset + col[x]);
+                            if (value < lut_min)
+                                value = lut_min;
+                            else if (value > lut_max)
+                                value = lut_max;
+                            pixels[out++] = lut[(int) (value - lut_min)];
+                        }
+                    else
+                        for (int x=0; x<width; ++x)
+                            pixels[out++] = getRGB(samples.get(offset + col[x]));
+                    break;
+                }
+                case AVERAGE:
+                    for (int x=0; x<width; ++x)
+                    {
+                        double sum = 0;
+                        if (integers != null)
+                        {   // Sum integers exactly, only converting the result
+                            long total = 0;
+                            for (int r=row[y]; r<row_end[y]; ++r)
+                            {
+                                final int offset = r * data_width;
+                                for (int c=col[x]; c<col_end[x]; ++c)
+                                    total += integers.get(offset + c);
+                            }
+                            sum = total;
+                        }
+                        else
+                            for (int r=row[y]; r<row_end[y]; ++r)
+                            {
+                                final int offset = r * data_width;
+                                for (int c=col[x]; c<col_end[x]; ++c)
+                                    sum += samples.get(offset + c);
+                            }
+                        final int count = (row_end[y] - row[y]) * (col_end[x] - col[x]);
+                        pixels[out++] = getRGB(sum / count);
+                    }
+                    break;
+                case BILINEAR:
+                {
+                    final int offset = row[y] * data_width;
+                    final int next_row = row[y] < data_height-1 ? data_width : 0;
+                    final double fy = row_frac[y];
+                    for (int x=0; x<width; ++x)
+                    {
+                        final int i = offset + col[x];
+                        final int next_col = col[x] < data_width-1 ? 1 : 0;
+                        final double fx = col_frac[x];
+                        final double top = samples.get(i) * (1-fx) + samples.get(i + next_col) * fx;
+                        final double bottom = samples.get(i + next_row) * (1-fx) + samples.get(i + next_row + next_col) * fx;
+                        pixels[out++] = getRGB(top * (1-fy) + bottom * fy);
+                    }
+                    break;
+                }
+                }
+            }
+        }
+    }
+
+    /** @param start Data coordinate of first screen pixel edge
+     *  @param scale Samples per screen pixel
+     *  @param size Number of samples
+     *  @param index Sample nearest to center of each screen pixel
+     */
+    private static void computeNearest(final double start, final double scale, final int size,
+                                       final int[] index)
+    {
+        for (int i=0; i<index.length; ++i)
+            index[i] = clamp((int) Math.floor(start + (i + 0.5) * scale), 0, size-1);
+    }
+
+    /** @param start Data coordinate of first screen pixel edge
+     *  @param scale Samples per screen pixel
+     *  @param size Number of samples
+     *  @param index First sample covered by each screen pixel
+     *  @param end End of samples covered by each screen pixel (exclusive), at least index + 1
+     */
+    private static void computeAverageRange(final double start, final double scale, final int size,
+                                            final int[] index, final int[] end)
+    {
+        for (int i=0; i<index.length; ++i)
+        {
+            final double edge1 = start + i * scale, edge2 = edge1 + scale;
+            index[i] = clamp((int) Math.floor(Math.min(edge1, edge2)), 0, size-1);
+            end[i] = clamp((int) Math.ceil(Math.max(edge1, edge2)), index[i]+1, size);
+        }
+    }
+
+    /** @param start Data coordinate of first screen pixel edge
+     *  @param scale Samples per screen pixel
+     *  @param size Number of samples
+     *  @param index Sample at or before the center of each screen pixel
+     *  @param frac Weight of the following sample
+     */
+    private static void computeInterpolation(final double start, final double scale, final int size,
+                                             final int[] index, final double[] frac)
+    {
+        for (int i=0; i<index.length; ++i)
+        {
+            // Sample centers are at 0.5, 1.5, ...
+            final double pos = start + (i + 0.5) * scale - 0.5;
+            final double floor = Math.floor(pos);
+            if (floor < 0)
+            {
+                index[i] = 0;
+                frac[i] = 0.0;
+            }
+            else if (floor >= size-1)
+            {
+                index[i] = size-1;
+                frac[i] = 0.0;
+            }
+            else
+            {
+                index[i] = (int) floor;
+                frac[i] = pos - floor;
+            }
+        }
+    }
+
+    private static int clamp(final int value, final int min, final int max)
+    {
+        if (value < min)
+            return min;
+        if (value > max)
+            return max;
+        return value;
+    }
+
+    /** Strip of rows, split further for parallel rendering when large */
+    private static class Strip extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final Frame frame;
+        private final int start, end;
+
+        Strip(final Frame frame, final int start, final int end)
+        {
+            this.frame = frame;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (end - start > 1  &&  (end - start) * frame.row_work > MIN_STRIP_WORK)
+            {
+                final int mid = (start + end) / 2;
+                invokeAll(new Strip(frame, start, mid), new Strip(frame, mid, end));
+            }
+            else
+                frame.render(start, end);
+        }
+    }
+}
@@ -18,14 +18,17 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 
+import org.csstudio.javafx.rtplot.Activator;
 import org.csstudio.javafx.rtplot.LineStyle;
 import org.csstudio.javafx.rtplot.PointType;
 import org.csstudio.javafx.rtplot.Trace;
 import org.csstudio.javafx.rtplot.TraceType;
 import org.csstudio.javafx.rtplot.data.PlotDataItem;
 import org.csstudio.javafx.rtplot.data.PlotDataProvider;
+import org.csstudio.javafx.rtplot.data.PlotDataSearch;
 import org.csstudio.javafx.rtplot.internal.util.GraphicsUtils;
 import org.csstudio.javafx.rtplot.internal.util.IntList;
+import org.csstudio.javafx.rtplot.internal.util.PixelColumnPolyline;
 import org.csstudio.javafx.rtplot.internal.util.ScreenTransform;
 
 /** Helper for painting a {@link Trace}
@@ -40,6 +43,13 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
     // plus it works better when using dashed or wide lines,
     // but it requires an int[] array of varying size.
     // IntList turned out to be about 3x faster than ArrayList<Integer>.
+    //
+    // For sorted data, only samples in the visible range are drawn,
+    // using the last sample just left of it and the first sample
+    // just right of it to draw the lines into the visible region.
+    // Solid lines are reduced to at most a few points per pixel column
+    // (PixelColumnPolyline), which paints the same pixels
+    // as drawing every sample.
 
     /** Initial {@link IntList} size */
     private static final int INITIAL_ARRAY_SIZE = 2048;
@@ -56,6 +66,9 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
     final private static int OUTSIDE = 1000;
     private int x_min, x_max, y_min, y_max;
 
+    /** Index of first sample to draw and end of samples to draw (exclusive) */
+    private int start, end;
+
     final private int clipX(final double x)
     {
         if (x < x_min)
@@ -99,15 +112,7 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
         final Color tpcolor = new Color(color.getRed(), color.getGreen(), color.getBlue(), opacity);
         gc.setColor(color);
 
-        // TODO Optimize drawing
-        //
-        // Determine first sample to draw via PlotDataSearch.findSampleLessOrEqual(),
-        // then end drawing when reaching right end of area.
-        //
-        // Loop only once, performing drawMinMax, drawStdDev, drawValueStaircase in one loop
-        //
-        // For now, main point is that this happens in non-UI thread,
-        // so the slower the better to test UI responsiveness.
+        // TODO Loop only once, performing drawMinMax, drawStdDev, drawValueStaircase in one loop
         final PlotDataProvider<XTYPE> data = trace.getData();
         try
         {
@@ -123,6 +128,7 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
         {
             final TraceType type = trace.getType();
             logger.log(Level.ALL, "Painting trace type " + type.toString());
+            findVisibleRange(x_transform, data);
 
             switch (type)
             {
@@ -198,6 +204,51 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
         gc.setColor(old_color);
     }
 
+    /** Determine range of samples to draw
+     *
+     *  <p>For sorted data, locate the samples that are
+     *  clipped to the left resp. right edge of the drawing area.
+     *  All samples beyond those only draw into the
+     *  invisible region 'OUTSIDE' of the bounds.
+     *
+     *  @param x_transform Coordinate transform used by the x axis
+     *  @param data Data, must already be locked
+     */
+    private void findVisibleRange(final ScreenTransform<XTYPE> x_transform, final PlotDataProvider<XTYPE> data)
+    {
+        start = 0;
+        end = data.size();
+        if (! Activator.decimate_traces  ||  end <= 0  ||  ! data.isSorted())
+            return;
+        XTYPE left = x_transform.inverse(x_min - 1);
+        XTYPE right = x_transform.inverse(x_max + 1);
+        if (left.compareTo(right) > 0)
+        {   // Axis with inverted range
+            final XTYPE swap = left;
+            left = right;
+            right = swap;
+        }
+        final PlotDataSearch<XTYPE> search = new PlotDataSearch<>();
+        final int first = search.findSampleLessOrEqual(data, left);
+        if (first > 0)
+            start = first;
+        final int last = search.findSampleGreaterOrEqual(data, right);
+        if (last >= start)
+            end = last + 1;
+    }
+
+    /** @param gc GC
+     *  @return <code>true</code> if lines drawn with current stroke
+     *          may skip invisible samples and be reduced per pixel column
+     */
+    private static boolean canReduceLines(final Graphics2D gc)
+    {
+        // Dashes depend on the length of the complete line
+        return Activator.decimate_traces  &&
+               gc.getStroke() instanceof BasicStroke  &&
+               ((BasicStroke) gc.getStroke()).getDashArray() == null;
+    }
+
     // Basic dash patterns
     private static final float DASH[]       = { 10f,  5f };
     private static final float DOT[]        = {  2f, 10f };
@@ -244,25 +295,24 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
             final PlotDataProvider<XTYPE> data, final int line_width, final LineStyle line_style)
     {
-        final IntList poly_x = new IntList(INITIAL_ARRAY_SIZE);
-        final IntList poly_y = new IntList(INITIAL_ARRAY_SIZE);
-        final int N = data.size();
-        int last_x = -1, last_y = -1;
         gc.setStroke(createStroke(line_width, line_style));
-        for (int i=0; i<N; ++i)
+        final boolean reduce = canReduceLines(gc);
+        final PixelColumnPolyline poly = new PixelColumnPolyline(INITIAL_ARRAY_SIZE, reduce);
+        final int N = reduce ? end : data.size();
+        int last_x = -1, last_y = -1;
+        for (int i = reduce ? start : 0;  i<N;  ++i)
         {
             final PlotDataItem<XTYPE> item = data.get(i);
             final int x = clipX(Math.round(x_transform.transform(item.getPosition())));
             final double value = item.getValue();
-            if (poly_x.size() > 0  && x != last_x)
+            if (! poly.isEmpty()  && x != last_x)
             {   // Staircase from last 'y'..
-                poly_x.add(x);
-                poly_y.add(last_y);
+                poly.add(x, last_y);
                 last_x = x;
             }
             if (Double.isNaN(value))
             {
-                flushPolyLine(gc, poly_x, poly_y, line_width);
+                flushPolyLine(gc, poly, line_width);
                 last_x = last_y = -1;
             }
             else
@@ -270,12 +320,11 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
                 final int y = clipY(y_axis.getScreenCoord(value));
                 if (last_x == x  &&  last_y == y)
                     continue;
-                poly_x.add(x);
-                poly_y.add(y);
+                poly.add(x, y);
                 last_y = y;
             }
         }
-        flushPolyLine(gc, poly_x, poly_y, line_width);
+        flushPolyLine(gc, poly, line_width);
     }
 
     /** Draw values of data as direct line
@@ -290,31 +339,29 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
             final PlotDataProvider<XTYPE> data, final int line_width, final LineStyle line_style)
     {
-        final IntList value_poly_x = new IntList(INITIAL_ARRAY_SIZE);
-        final IntList value_poly_y = new IntList(INITIAL_ARRAY_SIZE);
-        final int N = data.size();
-
         gc.setStroke(createStroke(line_width, line_style));
+        final boolean reduce = canReduceLines(gc);
+        final PixelColumnPolyline value_poly = new PixelColumnPolyline(INITIAL_ARRAY_SIZE, reduce);
+        final int N = reduce ? end : data.size();
         int last_x = -1, last_y = -1;
-        for (int i=0; i<N; ++i)
+        for (int i = reduce ? start : 0;  i<N;  ++i)
         {
             final PlotDataItem<XTYPE> item = data.get(i);
             final int x = clipX(Math.round(x_transform.transform(item.getPosition())));
             final double value = item.getValue();
             if (Double.isNaN(value))
-                flushPolyLine(gc, value_poly_x, value_poly_y, line_width);
+                flushPolyLine(gc, value_poly, line_width);
             else
             {
                 final int y = clipY(y_axis.getScreenCoord(value));
                 if (x == last_x  &&  y == last_y)
                     continue;
-                value_poly_x.add(x);
-                value_poly_y.add(y);
+                value_poly.add(x, y);
                 last_x = x;
                 last_y = y;
             }
         }
-        flushPolyLine(gc, value_poly_x, value_poly_y, line_width);
+        flushPolyLine(gc, value_poly, line_width);
     }
 
     /** Draw min/max outline
@@ -327,14 +374,14 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
             final PlotDataProvider<XTYPE> data)
     {
-        final int N = data.size();
         // Assume N, might use less because end up with sections
         // separated by Double.NaN
+        final int N = end - start;
         final IntList pos = new IntList(N);
         final IntList min = new IntList(N);
         final IntList max = new IntList(N);
 
-        for (int i = 0;  i < N;  ++i)
+        for (int i = start;  i < end;  ++i)
         {
             final PlotDataItem<XTYPE> item = data.get(i);
             double ymin = item.getMin();
@@ -364,33 +411,32 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
             final PlotDataProvider<XTYPE> data, final int line_width)
     {
-        final IntList min_x = new IntList(INITIAL_ARRAY_SIZE);
-        final IntList max_x = new IntList(INITIAL_ARRAY_SIZE);
-        final IntList min_y = new IntList(INITIAL_ARRAY_SIZE);
-        final IntList max_y = new IntList(INITIAL_ARRAY_SIZE);
+        final boolean reduce = canReduceLines(gc);
+        final PixelColumnPolyline min_poly = new PixelColumnPolyline(INITIAL_ARRAY_SIZE, reduce);
+        final PixelColumnPolyline max_poly = new PixelColumnPolyline(INITIAL_ARRAY_SIZE, reduce);
 
-        final int N = data.size();
-        for (int i = 0;  i < N;  ++i)
+        final int N = reduce ? end : data.size();
+        for (int i = reduce ? start : 0;  i < N;  ++i)
         {
             final PlotDataItem<XTYPE> item = data.get(i);
             double ymin = item.getMin();
             double ymax = item.getMax();
             if (Double.isNaN(ymin)  ||  Double.isNaN(ymax))
             {
-                flushPolyLine(gc, min_x, min_y, line_width);
-                flushPolyLine(gc, max_x, max_y, line_width);
+                flushPolyLine(gc, min_poly, line_width);
+                flushPolyLine(gc, max_poly, line_width);
             }
             else
             {
                 final int x1 = clipX(x_transform.transform(item.getPosition()));
                 final int y1min = clipY(y_axis.getScreenCoord(ymin));
                 final int y1max = clipY(y_axis.getScreenCoord(ymax));
-                min_x.add(x1);   min_y.add(y1min);
-                max_x.add(x1);   max_y.add(y1max);
+                min_poly.add(x1, y1min);
+                max_poly.add(x1, y1max);
             }
         }
-        flushPolyLine(gc, min_x, min_y, line_width);
-        flushPolyLine(gc, max_x, max_y, line_width);
+        flushPolyLine(gc, min_poly, line_width);
+        flushPolyLine(gc, max_poly, line_width);
     }
 
     /** Draw std. deviation outline
@@ -403,33 +449,43 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
     final private void drawStdDevLines(final Graphics2D gc, final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
             final PlotDataProvider<XTYPE> data, final int line_width)
     {
-        final IntList lower_poly_y = new IntList(INITIAL_ARRAY_SIZE);
-        final IntList upper_poly_y = new IntList(INITIAL_ARRAY_SIZE);
-        final IntList lower_poly_x = new IntList(INITIAL_ARRAY_SIZE);
-        final IntList upper_poly_x = new IntList(INITIAL_ARRAY_SIZE);
+        final boolean reduce = canReduceLines(gc);
+        final PixelColumnPolyline lower_poly = new PixelColumnPolyline(INITIAL_ARRAY_SIZE, reduce);
+        final PixelColumnPolyline upper_poly = new PixelColumnPolyline(INITIAL_ARRAY_SIZE, reduce);
 
-        final int N = data.size();
-        for (int i = 0;  i < N;  ++i)
+        final int N = reduce ? end : data.size();
+        for (int i = reduce ? start : 0;  i < N;  ++i)
         {
             final PlotDataItem<XTYPE> item = data.get(i);
             double value = item.getValue();
             double dev = item.getStdDev();
             if (Double.isNaN(value) ||  ! (dev > 0))
             {
-                flushPolyLine(gc, lower_poly_x, lower_poly_y, line_width);
-                flushPolyLine(gc, upper_poly_x, upper_poly_y, line_width);
+                flushPolyLine(gc, lower_poly, line_width);
+                flushPolyLine(gc, upper_poly, line_width);
             }
             else
             {
                 final int x = clipX(x_transform.transform(item.getPosition()));
                 final int low_y = clipY(y_axis.getScreenCoord(value - dev));
                 final int upp_y = clipY(y_axis.getScreenCoord(value + dev));
-                lower_poly_x.add(x);  lower_poly_y.add(low_y);
-                upper_poly_x.add(x);  upper_poly_y.add(upp_y);
+                lower_poly.add(x, low_y);
+                upper_poly.add(x, upp_y);
             }
         }
-        flushPolyLine(gc, lower_poly_x, lower_poly_y, line_width);
-        flushPolyLine(gc, upper_poly_x, upper_poly_y, line_width);
+        flushPolyLine(gc, lower_poly, line_width);
+        flushPolyLine(gc, upper_poly, line_width);
+    }
+
+    /** @param gc GC
+     *  @param poly Points of poly line, will be cleared
+     *  @param line_width
+     */
+    final private void flushPolyLine(final Graphics2D gc, final PixelColumnPolyline poly, final int line_width)
+    {
+        poly.finish();
+        flushPolyLine(gc, poly.getX(), poly.getY(), line_width);
+        poly.clear();
     }
 
     /** @param gc GC
@@ -458,8 +514,7 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
             final PlotDataProvider<XTYPE> data, final int size)
     {
-        final int N = data.size();
-        for (int i=0; i<N; ++i)
+        for (int i=start; i<end; ++i)
         {
             final PlotDataItem<XTYPE> item = data.get(i);
             final double value = item.getValue();
@@ -497,9 +552,8 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
             final PlotDataProvider<XTYPE> data, PointType point_type, final int size)
     {
-        final int N = data.size();
         int last_x = -1, last_y = -1;
-        for (int i=0; i<N; ++i)
+        for (int i=start; i<end; ++i)
         {
             final PlotDataItem<XTYPE> item = data.get(i);
             final double value = item.getValue();
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot.internal.util;
+
+/** Points of a poly line in screen coordinates, reduced per pixel column
+ *
+ *  <p>Consecutive points that share the same 'x' pixel column
+ *  only draw vertical segments within that column.
+ *  Whatever the number of points, the result covers the range
+ *  from the minimum to the maximum 'y' of the column,
+ *  so they are reduced to the first point, the minimum and maximum,
+ *  and the last point (M4 aggregation).
+ *
+ *  <p>The reduced line keeps the direction in which the original line
+ *  leaves the first and arrives at the last point of each column,
+ *  so joins and end caps of the line are also unchanged.
+ *  For a solid line, the reduced line thus paints exactly the same pixels
+ *  while a column of a million samples only adds up to 5 points.
+ *  Dashed lines would change the phase of the dash pattern
+ *  and must not be reduced.
+ */
+public class PixelColumnPolyline
+{
+    private final boolean reduce;
+    private final IntList x_list, y_list;
+
+    // Current column: x, first and last y, min/max of y
+    private int col_x, first_y, last_y, min_y, max_y;
+    /** Direction of first and last move within column: -1 up, +1 down, 0 none */
+    private int first_dir, last_dir;
+    private boolean have_column = false;
+
+    /** @param capacity Initial capacity
+     *  @param reduce Reduce points per pixel column, or keep all points?
+     */
+    public PixelColumnPolyline(final int capacity, final boolean reduce)
+    {
+        this.reduce = reduce;
+        x_list = new IntList(capacity);
+        y_list = new IntList(capacity);
+    }
+
+    /** @return <code>true</code> if no point has been added since last 'clear' */
+    public boolean isEmpty()
+    {
+        return !have_column  &&  x_list.size() <= 0;
+    }
+
+    /** Add point
+     *
+     *  <p>Repeating the previous point is ignored.
+     *  With anti-aliasing, such zero-length segments
+     *  would otherwise add a small square to the line.
+     *
+     *  @param x Horizontal screen coordinate
+     *  @param y Vertical screen coordinate
+     */
+    public void add(final int x, final int y)
+    {
+        if (! reduce)
+        {
+            final int n = x_list.size();
+            if (n > 0  &&  x_list.get(n-1) == x  &&  y_list.get(n-1) == y)
+                return;
+            x_list.add(x);
+            y_list.add(y);
+            return;
+        }
+        if (have_column  &&  x == col_x)
+        {
+            if (y == last_y)
+                return;
+            last_dir = y > last_y ? 1 : -1;
+            if (first_dir == 0)
+                first_dir = last_dir;
+            if (y < min_y)
+                min_y = y;
+            if (y > max_y)
+                max_y = y;
+            last_y = y;
+            return;
+        }
+        flushColumn();
+        have_column = true;
+        col_x = x;
+        first_y = last_y = min_y = max_y = y;
+        first_dir = last_dir = 0;
+    }
+
+    /** Add the reduced points of the current column */
+    private void flushColumn()
+    {
+        if (! have_column)
+            return;
+        have_column = false;
+        addPoint(first_y);
+        if (first_dir == 0)
+            return;
+        // Move from first point in original direction to that extreme,
+        // then cover the other extreme
+        int y = first_dir > 0 ? max_y : min_y;
+        addPoint(y);
+        int dir = first_dir;
+        final int other = first_dir > 0 ? min_y : max_y;
+        if (other != first_y)
+        {
+            addPoint(other);
+            y = other;
+            dir = -dir;
+        }
+        if (y == last_y  &&  dir == last_dir)
+            return;
+        // Arrive at last point from the original direction,
+        // i.e. from the extreme on the opposite side of the last move
+        final int before_last = last_dir > 0 ? min_y : max_y;
+        if (y != before_last)
+            addPoint(before_last);
+        addPoint(last_y);
+    }
+
+    private void addPoint(final int y)
+    {
+        x_list.add(col_x);
+        y_list.add(y);
+    }
+
+    /** Complete the last pixel column
+     *
+     *  <p>Must be called before accessing the points.
+     */
+    public void finish()
+    {
+        flushColumn();
+    }
+
+    /** @return Number of points, valid after {@link #finish()} */
+    public int size()
+    {
+        return x_list.size();
+    }
+
+    /** @return Horizontal coordinates, valid after {@link #finish()} */
+    public IntList getX()
+    {
+        return x_list;
+    }
+
+    /** @return Vertical coordinates, valid after {@link #finish()} */
+    public IntList getY()
+    {
+        return y_list;
+    }
+
+    /** Remove all points */
+    public void clear()
+    {
+        have_column = false;
+        x_list.clear();
+        y_list.clear();
+    }
+}
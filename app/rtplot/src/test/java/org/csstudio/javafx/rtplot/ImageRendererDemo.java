@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import org.csstudio.javafx.rtplot.data.ValueRange;
+import org.csstudio.javafx.rtplot.internal.ImageRenderer;
+import org.epics.util.array.ArrayShort;
+import org.epics.util.array.IteratorNumber;
+import org.epics.util.array.ListNumber;
+
+/** Frame rate of rendering a detector image
+ *
+ *  <p>Renders a 4096x4096 unsigned short image into a 600x600 area,
+ *  including the autoscale of the value range.
+ *  The reference follows the full resolution path of the ImagePlot:
+ *  Color-map every sample, then scale to the screen.
+ *  The {@link ImageRenderer} only computes the screen pixels,
+ *  averaging or picking the nearest sample, as well as
+ *  one pixel per sample when zoomed into a 600x600 region.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ImageRendererDemo
+{
+    private static final int DATA_SIZE = 4096, SCREEN_SIZE = 600, FRAMES = 20, RUNS = 3;
+
+    private static final ColorMappingFunction color_mapping = ColorMappingFunction.GRAYSCALE;
+
+    @FunctionalInterface
+    private interface Renderer
+    {
+        void render(ListNumber data);
+    }
+
+    private static void benchmark(final String title, final ListNumber data, final Renderer renderer)
+    {
+        double best = Double.MAX_VALUE;
+        for (int run=0; run<RUNS; ++run)
+        {
+            final long start = System.nanoTime();
+            for (int i=0; i<FRAMES; ++i)
+                renderer.render(data);
+            best = Math.min(best, (System.nanoTime() - start) / 1e6 / FRAMES);
+        }
+        System.out.format("%-40s: %8.2f ms per frame, %7.1f frames per second\n", title, best, 1000.0 / best);
+    }
+
+    private static int getRGB(final double sample, final double min, final double span)
+    {
+        double scaled = (sample - min) / span;
+        if (scaled < 0.0)
+            scaled = 0;
+        else if (scaled > 1.0)
+            scaled = 1.0;
+        return color_mapping.getRGB(scaled);
+    }
+
+    public static void main(String[] args)
+    {
+        final short[] pixels = new short[DATA_SIZE * DATA_SIZE];
+        for (int y=0; y<DATA_SIZE; ++y)
+            for (int x=0; x<DATA_SIZE; ++x)
+            {
+                final double dx = x - DATA_SIZE/2, dy = y - DATA_SIZE/2;
+                pixels[x + y*DATA_SIZE] = (short) (30000 * (1.0 + Math.cos(Math.sqrt(dx*dx + dy*dy) / 50)) + (x*y % 97));
+            }
+        final ListNumber data = ArrayShort.of(pixels);
+
+        final BufferedImage full = new BufferedImage(DATA_SIZE, DATA_SIZE, BufferedImage.TYPE_INT_ARGB);
+        final int[] full_pixels = ((DataBufferInt) full.getRaster().getDataBuffer()).getData();
+        final BufferedImage screen = new BufferedImage(SCREEN_SIZE, SCREEN_SIZE, BufferedImage.TYPE_INT_ARGB);
+        final int[] screen_pixels = ((DataBufferInt) screen.getRaster().getDataBuffer()).getData();
+        final Graphics2D gc = screen.createGraphics();
+        gc.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+
+        for (int i=0; i<2; ++i)
+        {
+            benchmark("Reference, color-map all, then scale", data, numbers ->
+            {
+                double min = Double.MAX_VALUE, max = Double.NEGATIVE_INFINITY;
+                IteratorNumber iter = numbers.iterator();
+                while (iter.hasNext())
+                {
+                    final double sample = Short.toUnsignedInt(iter.nextShort());
+                    if (sample > max)
+                        max = sample;
+                    if (sample < min)
+                        min = sample;
+                }
+                iter = numbers.iterator();
+                final double span = max - min;
+                for (int p=0; p<full_pixels.length; ++p)
+                    full_pixels[p] = getRGB(Short.toUnsignedInt(iter.nextShort()), min, span);
+                gc.drawImage(full, 0, 0, SCREEN_SIZE, SCREEN_SIZE, 0, 0, DATA_SIZE, DATA_SIZE, null);
+            });
+
+            final double scale = DATA_SIZE / (double) SCREEN_SIZE;
+            benchmark("Screen resolution, average", data, numbers ->
+            {
+                final ImageRenderer renderer = new ImageRenderer(DATA_SIZE, DATA_SIZE, numbers, true);
+                final ValueRange range = renderer.getValueRange();
+                renderer.render(screen_pixels, SCREEN_SIZE, SCREEN_SIZE, 0, scale, 0, scale, true,
+                                range.getLow(), range.getHigh(), false, color_mapping);
+            });
+            benchmark("Screen resolution, nearest", data, numbers ->
+            {
+                final ImageRenderer renderer = new ImageRenderer(DATA_SIZE, DATA_SIZE, numbers, true);
+                final ValueRange range = renderer.getValueRange();
+                renderer.render(screen_pixels, SCREEN_SIZE, SCREEN_SIZE, 0, scale, 0, scale, false,
+                                range.getLow(), range.getHigh(), false, color_mapping);
+            });
+            benchmark("Screen resolution, zoomed 1:1", data, numbers ->
+            {
+                final ImageRenderer renderer = new ImageRenderer(DATA_SIZE, DATA_SIZE, numbers, true);
+                final ValueRange range = renderer.getValueRange();
+                renderer.render(screen_pixels, SCREEN_SIZE, SCREEN_SIZE, 1000, 1.0, 1000, 1.0, false,
+                                range.getLow(), range.getHigh(), false, color_mapping);
+            });
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.function.IntToDoubleFunction;
+
+import org.csstudio.javafx.rtplot.data.ValueRange;
+import org.csstudio.javafx.rtplot.internal.ImageRenderer;
+import org.csstudio.javafx.rtplot.internal.util.Log10;
+import org.epics.util.array.ArrayByte;
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.ArrayInteger;
+import org.epics.util.array.ArrayShort;
+import org.epics.util.array.ListNumber;
+import org.junit.Test;
+
+/** JUnit test of the {@link ImageRenderer}
+ *
+ *  <p>Compares the screen pixels with the color-mapped samples
+ *  as computed by the reference implementation in the ImagePlot.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ImageRendererTest
+{
+    private static final int WIDTH = 300, HEIGHT = 200;
+
+    /** Color map with distinct color for each value */
+    private static final ColorMappingFunction COLORS = value -> 0xFF000000 | (int) (value * 0xFFFFFF);
+
+    /** @return Color of a sample, computed like ImagePlot.drawData */
+    private static int getRGB(double sample, double min, double max, final boolean log)
+    {
+        if (! (min < max))
+        {
+            min = 0.0;
+            max = 1.0;
+        }
+        double low = min, span = max - min;
+        if (log)
+        {
+            sample = Log10.log10(sample);
+            low = Log10.log10(min);
+            span = Log10.log10(max) - low;
+        }
+        double scaled = (sample - low) / span;
+        if (scaled < 0.0)
+            scaled = 0;
+        else if (scaled > 1.0)
+            scaled = 1.0;
+        return COLORS.getRGB(scaled);
+    }
+
+    /** @return Test pattern */
+    private static double[] createPattern()
+    {
+        final double[] data = new double[WIDTH * HEIGHT];
+        for (int y=0; y<HEIGHT; ++y)
+            for (int x=0; x<WIDTH; ++x)
+                data[x + y*WIDTH] = (x * 7 + y * 13) % 251 - 100;
+        return data;
+    }
+
+    /** Render the image 1:1 and compare each pixel with the color-mapped sample */
+    private static void checkFullImage(final ListNumber numbers, final boolean unsigned, final IntToDoubleFunction sample,
+                                       final double min, final double max, final boolean log)
+    {
+        final ImageRenderer renderer = new ImageRenderer(WIDTH, HEIGHT, numbers, unsigned);
+        final int[] pixels = new int[WIDTH * HEIGHT];
+        renderer.render(pixels, WIDTH, HEIGHT, 0, 1.0, 0, 1.0, false, min, max, log, COLORS);
+        for (int i=0; i<pixels.length; ++i)
+            assertThat("Pixel " + i, pixels[i], equalTo(getRGB(sample.applyAsDouble(i), min, max, log)));
+    }
+
+    @Test
+    public void testNearest()
+    {
+        final double[] pattern = createPattern();
+
+        final double[] doubles = pattern.clone();
+        final short[] shorts = new short[pattern.length];
+        final byte[] bytes = new byte[pattern.length];
+        final int[] ints = new int[pattern.length];
+        for (int i=0; i<pattern.length; ++i)
+        {
+            shorts[i] = (short) (pattern[i] * 200);
+            bytes[i] = (byte) pattern[i];
+            ints[i] = (int) (pattern[i] * 100000);
+        }
+
+        // Various value ranges, including those beyond the data type
+        for (double[] range : new double[][] { { -100, 150 }, { 0, 50 }, { 1000, 2000 }, { -2000, -1000 }, { 5, 5 } })
+        {
+            final double min = range[0], max = range[1];
+            checkFullImage(ArrayDouble.of(doubles), false, i -> doubles[i], min, max, false);
+            checkFullImage(ArrayByte.of(bytes), false, i -> bytes[i], min, max, false);
+            checkFullImage(ArrayByte.of(bytes), true, i -> Byte.toUnsignedInt(bytes[i]), min, max, false);
+            checkFullImage(ArrayShort.of(shorts), false, i -> shorts[i], min*200, max*200, false);
+            checkFullImage(ArrayShort.of(shorts), true, i -> Short.toUnsignedInt(shorts[i]), min*200, max*200, false);
+            checkFullImage(ArrayInteger.of(ints), false, i -> ints[i], min*100000, max*100000, false);
+            checkFullImage(ArrayInteger.of(ints), true, i -> Integer.toUnsignedLong(ints[i]), min*100000, max*100000, false);
+        }
+
+        // Log scale, including samples <= 0
+        checkFullImage(ArrayDouble.of(doubles), false, i -> doubles[i], 1, 150, true);
+        checkFullImage(ArrayShort.of(shorts), false, i -> shorts[i], 1, 30000, true);
+    }
+
+    @Test
+    public void testScaled()
+    {
+        // Large image, rendered in parallel strips
+        final int width = 2000, height = 1500;
+        final short[] data = new short[width * height];
+        for (int i=0; i<data.length; ++i)
+            data[i] = (short) (i % width + i / width);
+        final ImageRenderer renderer = new ImageRenderer(width, height, ArrayShort.of(data), true);
+
+        // Show every other sample
+        final int[] pixels = new int[width/2 * height/2];
+        renderer.render(pixels, width/2, height/2, 0, 2.0, 0, 2.0, false, 0, 3500, false, COLORS);
+        for (int y=0; y<height/2; ++y)
+            for (int x=0; x<width/2; ++x)
+                assertThat(pixels[x + y*width/2], equalTo(getRGB(data[2*x+1 + (2*y+1)*width], 0, 3500, false)));
+
+        // Average of 2x2 samples
+        renderer.render(pixels, width/2, height/2, 0, 2.0, 0, 2.0, true, 0, 3500, false, COLORS);
+        for (int y=0; y<height/2; ++y)
+            for (int x=0; x<width/2; ++x)
+                assertThat(pixels[x + y*width/2], equalTo(getRGB(2*x + 2*y + 1, 0, 3500, false)));
+
+        // Reversed X axis, showing a zoomed region
+        renderer.render(pixels, 100, 50, 1100, -2.0, 400, 2.0, false, 0, 3500, false, COLORS);
+        for (int y=0; y<50; ++y)
+            for (int x=0; x<100; ++x)
+                assertThat(pixels[x + y*100], equalTo(getRGB(data[1100 - 2*x - 1 + (400 + 2*y + 1)*width], 0, 3500, false)));
+    }
+
+    @Test
+    public void testInterpolation()
+    {
+        // Zoom in 4x, where the linear ramp is interpolated
+        final int[] data = new int[WIDTH * HEIGHT];
+        for (int i=0; i<data.length; ++i)
+            data[i] = 8 * (i % WIDTH);
+        final ImageRenderer renderer = new ImageRenderer(WIDTH, HEIGHT, ArrayInteger.of(data), false);
+        final int[] pixels = new int[40 * 20];
+        renderer.render(pixels, 40, 20, 50, 0.25, 10, 0.25, true, 0, 8 * WIDTH, false, COLORS);
+        for (int y=0; y<20; ++y)
+            for (int x=0; x<40; ++x)
+            {
+                // Pixel center is at 50 + (x + 0.5)/4, sample centers at i + 0.5
+                final double value = 8 * (50 + (x + 0.5)/4 - 0.5);
+                final int expected = getRGB(value, 0, 8 * WIDTH, false) & 0xFFFFFF;
+                // Allow for rounding
+                assertThat(Math.abs((pixels[x + y*40] & 0xFFFFFF) - expected) <= 1, equalTo(true));
+            }
+    }
+
+    @Test
+    public void testValueRange()
+    {
+        final short[] data = new short[2000 * 1000];
+        for (int i=0; i<data.length; ++i)
+            data[i] = (short) (i % 30000 - 20000);
+        ValueRange range = new ImageRenderer(2000, 1000, ArrayShort.of(data), false).getValueRange();
+        assertThat(range.getLow(), equalTo(-20000.0));
+        assertThat(range.getHigh(), equalTo(9999.0));
+
+        range = new ImageRenderer(2000, 1000, ArrayShort.of(data), true).getValueRange();
+        assertThat(range.getLow(), equalTo(0.0));
+        assertThat(range.getHigh(), equalTo(65535.0));
+
+        final double[] values = new double[] { 3, Double.NaN, -1, 2 };
+        range = new ImageRenderer(2, 2, ArrayDouble.of(values), false).getValueRange();
+        assertThat(range.getLow(), equalTo(-1.0));
+        assertThat(range.getHigh(), equalTo(3.0));
+    }
+}
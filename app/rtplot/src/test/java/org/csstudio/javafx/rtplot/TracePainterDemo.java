@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.csstudio.javafx.rtplot.data.PlotDataItem;
+import org.csstudio.javafx.rtplot.data.PlotDataProvider;
+import org.csstudio.javafx.rtplot.data.SimpleDataItem;
+import org.csstudio.javafx.rtplot.internal.PlotPart;
+import org.csstudio.javafx.rtplot.internal.PlotPartListener;
+import org.csstudio.javafx.rtplot.internal.TraceImpl;
+import org.csstudio.javafx.rtplot.internal.TracePainter;
+import org.csstudio.javafx.rtplot.internal.YAxisImpl;
+import org.csstudio.javafx.rtplot.internal.util.LinearScreenTransform;
+
+import javafx.scene.paint.Color;
+
+/** Paint performance of the {@link TracePainter}
+ *
+ *  <p>Paints traces of 1M, 10M and 100M samples
+ *  for the full range and zoomed in to 1% of the samples,
+ *  with and without decimation.
+ *  Samples are computed on access, so even 100M samples
+ *  don't need to fit into memory.
+ *  Drawing all 100M samples without decimation is skipped
+ *  because the poly line for all points would exceed the default heap.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class TracePainterDemo
+{
+    private static final int WIDTH = 1600, HEIGHT = 800, RUNS = 3;
+
+    /** Sorted noisy sine wave, computed for each index */
+    private static class VirtualData implements PlotDataProvider<Double>
+    {
+        private final Lock lock = new ReentrantLock();
+        private final int size;
+
+        VirtualData(final int size)
+        {
+            this.size = size;
+        }
+
+        @Override
+        public Lock getLock()
+        {
+            return lock;
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        @Override
+        public PlotDataItem<Double> get(final int index)
+        {
+            // Cheap deterministic noise
+            final int hash = index * 0x9E3779B9;
+            final double noise = (hash >>> 16) / 65536.0 - 0.5;
+            return new SimpleDataItem<>((double) index, 5.0*Math.sin(index * 20.0 / size) + noise);
+        }
+
+        @Override
+        public boolean isSorted()
+        {
+            return true;
+        }
+    }
+
+    private static final PlotPartListener listener = new PlotPartListener()
+    {
+        @Override
+        public void layoutPlotPart(final PlotPart plotPart)
+        {
+        }
+
+        @Override
+        public void refreshPlotPart(final PlotPart plotPart)
+        {
+        }
+    };
+
+    private static void benchmark(final VirtualData data, final double x_low, final double x_high, final boolean decimate)
+    {
+        final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D gc = image.createGraphics();
+        gc.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        final Rectangle bounds = new Rectangle(0, 0, WIDTH, HEIGHT);
+        gc.setClip(bounds);
+
+        final LinearScreenTransform x_transform = new LinearScreenTransform();
+        x_transform.config(x_low, x_high, 0, WIDTH - 1);
+        final YAxisImpl<Double> y_axis = new YAxisImpl<>("Y", listener);
+        y_axis.setBounds(0, 0, 10, HEIGHT);
+        y_axis.setValueRange(-6.0, 6.0);
+        final TraceImpl<Double> trace = new TraceImpl<>("Demo", "", data, Color.BLUE, TraceType.SINGLE_LINE_DIRECT,
+                                                        1, LineStyle.SOLID, PointType.NONE, 5, 0);
+        final TracePainter<Double> painter = new TracePainter<>();
+
+        Activator.decimate_traces = decimate;
+        double best = Double.MAX_VALUE;
+        for (int run=0; run<RUNS; ++run)
+        {
+            final long start = System.nanoTime();
+            painter.paint(gc, bounds, 50, x_transform, y_axis, trace);
+            best = Math.min(best, (System.nanoTime() - start) / 1e6);
+        }
+        gc.dispose();
+        System.out.format("%,12d samples, %-9s %-15s: %10.1f ms\n",
+                          data.size(), x_high - x_low >= data.size() ? "full," : "zoom 1%,",
+                          decimate ? "decimated" : "all samples", best);
+    }
+
+    public static void main(String[] args)
+    {
+        for (int size : new int[] { 1_000_000, 10_000_000, 100_000_000 })
+        {
+            final VirtualData data = new VirtualData(size);
+            final double mid = size / 2.0;
+            for (boolean decimate : new boolean[] { false, true })
+            {
+                if (size > 10_000_000  &&  ! decimate)
+                    continue;
+                benchmark(data, 0, size, decimate);
+                benchmark(data, mid - size/200.0, mid + size/200.0, decimate);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.csstudio.javafx.rtplot.data.ArrayPlotDataProvider;
+import org.csstudio.javafx.rtplot.data.SimpleDataItem;
+import org.csstudio.javafx.rtplot.internal.PlotPart;
+import org.csstudio.javafx.rtplot.internal.PlotPartListener;
+import org.csstudio.javafx.rtplot.internal.TraceImpl;
+import org.csstudio.javafx.rtplot.internal.TracePainter;
+import org.csstudio.javafx.rtplot.internal.YAxisImpl;
+import org.csstudio.javafx.rtplot.internal.util.LinearScreenTransform;
+import org.csstudio.javafx.rtplot.internal.util.PixelColumnPolyline;
+import org.junit.Test;
+
+import javafx.scene.paint.Color;
+
+/** JUnit test of the {@link TracePainter}
+ *
+ *  <p>Drawing only the visible samples, reduced per pixel column,
+ *  must result in the same picture as drawing every sample.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class TracePainterTest
+{
+    private static final int WIDTH = 400, HEIGHT = 300;
+
+    private static final PlotPartListener listener = new PlotPartListener()
+    {
+        @Override
+        public void layoutPlotPart(final PlotPart plotPart)
+        {
+        }
+
+        @Override
+        public void refreshPlotPart(final PlotPart plotPart)
+        {
+        }
+    };
+
+    /** Random walk with some gaps, sorted by position */
+    private static ArrayPlotDataProvider<Double> createData(final int count)
+    {
+        final ArrayPlotDataProvider<Double> data = new ArrayPlotDataProvider<>()
+        {
+            @Override
+            public boolean isSorted()
+            {
+                return true;
+            }
+        };
+        final Random rand = new Random(42);
+        double value = 5.0;
+        try
+        {
+            for (int i=0; i<count; ++i)
+            {
+                value += rand.nextGaussian() * 0.2;
+                final double dev = Math.abs(rand.nextGaussian()) * 0.3;
+                if (i % 9973 == 5000)
+                    data.add(new SimpleDataItem<>((double) i, Double.NaN));
+                else
+                    data.add(new SimpleDataItem<>((double) i, value, dev, value - 2*dev, value + 2*dev, ""));
+            }
+        }
+        catch (Exception ex)
+        {
+            throw new RuntimeException(ex);
+        }
+        return data;
+    }
+
+    private static int[] paint(final ArrayPlotDataProvider<Double> data, final double x_low, final double x_high,
+                               final TraceType type, final int width, final LineStyle style,
+                               final boolean decimate)
+    {
+        final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D gc = image.createGraphics();
+        gc.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        final Rectangle bounds = new Rectangle(10, 10, WIDTH-20, HEIGHT-20);
+        gc.setClip(bounds);
+
+        final LinearScreenTransform x_transform = new LinearScreenTransform();
+        x_transform.config(x_low, x_high, bounds.x, bounds.x + bounds.width - 1);
+        final YAxisImpl<Double> y_axis = new YAxisImpl<>("Y", listener);
+        y_axis.setBounds(0, bounds.y, 10, bounds.height);
+        y_axis.setValueRange(-20.0, 20.0);
+        final TraceImpl<Double> trace = new TraceImpl<>("Test", "", data, Color.BLUE, type, width, style, PointType.NONE, 5, 0);
+
+        final boolean orig = Activator.decimate_traces;
+        Activator.decimate_traces = decimate;
+        try
+        {
+            new TracePainter<Double>().paint(gc, bounds, 50, x_transform, y_axis, trace);
+        }
+        finally
+        {
+            Activator.decimate_traces = orig;
+        }
+        gc.dispose();
+        return image.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+    }
+
+    private static void checkSamePicture(final ArrayPlotDataProvider<Double> data, final double x_low, final double x_high)
+    {
+        for (TraceType type : new TraceType[] { TraceType.SINGLE_LINE_DIRECT, TraceType.SINGLE_LINE,
+                                                TraceType.LINES, TraceType.AREA_DIRECT, TraceType.ERROR_BARS })
+            for (int width : new int[] { 1, 3 })
+                for (LineStyle style : new LineStyle[] { LineStyle.SOLID, LineStyle.DASH })
+                {
+                    final int[] all = paint(data, x_low, x_high, type, width, style, false);
+                    final int[] reduced = paint(data, x_low, x_high, type, width, style, true);
+                    int differences = 0;
+                    for (int i=0; i<all.length; ++i)
+                        if (all[i] != reduced[i])
+                            ++differences;
+                    System.out.println(type + ", width " + width + ", " + style + ": " + differences + " different pixels");
+                    assertThat(differences, equalTo(0));
+                }
+    }
+
+    @Test
+    public void testReducedColumns()
+    {
+        final PixelColumnPolyline poly = new PixelColumnPolyline(10, true);
+        // Column 1: Up and down within 3..8, ending at 6 coming from above
+        for (int y : new int[] { 5, 4, 3, 7, 8, 4, 6 })
+            poly.add(1, y);
+        // Column 2: Single point
+        poly.add(2, 5);
+        // Column 3: Just moving down
+        for (int y : new int[] { 5, 6, 7, 8 })
+            poly.add(3, y);
+        poly.finish();
+        assertThat(poly.getX().toArray(), equalTo(new int[] { 1, 1, 1, 1, 1, 2, 3, 3 }));
+        assertThat(poly.getY().toArray(), equalTo(new int[] { 5, 3, 8, 3, 6, 5, 5, 8 }));
+
+        poly.clear();
+        assertThat(poly.isEmpty(), equalTo(true));
+        poly.add(1, 5);
+        assertThat(poly.isEmpty(), equalTo(false));
+    }
+
+    @Test
+    public void testSamePicture()
+    {
+        // Many samples per pixel column
+        final ArrayPlotDataProvider<Double> data = createData(200000);
+        checkSamePicture(data, 0, data.size());
+        // Zoomed in, samples beyond the visible range
+        checkSamePicture(data, 50000, 60000);
+        // Zoomed in far enough for less than one sample per pixel
+        checkSamePicture(data, 1000, 1200);
+    }
+}
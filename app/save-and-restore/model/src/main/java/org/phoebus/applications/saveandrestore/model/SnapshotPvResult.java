@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2022 European Spallation Source ERIC.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.phoebus.applications.saveandrestore.model;
+
+import org.epics.vtype.VType;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.phoebus.applications.saveandrestore.model.json.VTypeDeserializer;
+import org.phoebus.applications.saveandrestore.model.json.VTypeSerializer;
+
+
+/**
+ * Result of reading or writing the PVs of a {@link ConfigPv} when the service
+ * takes or restores a snapshot.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnapshotPvResult {
+
+	/**
+	 * The {@link ConfigPv} that was read or written.
+	 */
+	private ConfigPv configPv;
+
+	/**
+	 * The value that was read or written, <code>null</code> if that failed.
+	 */
+	@JsonSerialize(using = VTypeSerializer.class)
+	@JsonDeserialize(using = VTypeDeserializer.class)
+	private VType value;
+
+	/**
+	 * The read-back value, <code>null</code> if there is no read-back PV or it could not be read.
+	 */
+	@JsonSerialize(using = VTypeSerializer.class)
+	@JsonDeserialize(using = VTypeDeserializer.class)
+	private VType readbackValue;
+
+	/**
+	 * Description of the error, <code>null</code> if successful.
+	 */
+	private String error;
+
+	/**
+	 * @return <code>true</code> if the PV was read or written successfully
+	 */
+	@JsonIgnore
+	public boolean isSuccessful() {
+		return error == null;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuffer()
+				.append("config pv=").append(configPv)
+				.append(error == null ? ", value=" + value : ", error=" + error)
+				.toString();
+	}
+}
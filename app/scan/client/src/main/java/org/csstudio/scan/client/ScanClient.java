@@ -25,6 +25,7 @@ import java.net.URL;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -333,6 +334,49 @@ public class ScanClient
         }
     }
 
+    /** Obtain data logged by a scan after a serial
+     *
+     *  <p>Fetches only recently logged samples.
+     *  While the scan is running, the server can wait for new samples,
+     *  so calling this in a loop, passing the serial of the previous update,
+     *  receives new samples as soon as they are logged.
+     *
+     *  <p>Samples of an update may overlap with the previous update.
+     *  {@link ScanData#append(ScanData)} combines them.
+     *
+     *  @param id ID that uniquely identifies a scan (within JVM of the scan engine)
+     *  @param since_serial Serial of previous update, {@link #NO_DATA_SERIAL} to get all samples
+     *  @param wait_seconds Seconds to wait for new samples, 0 to return right away
+     *  @return {@link ScanDataUpdate}, with serial {@link #UNKNOWN_SCAN_SERIAL} if scan ID not known
+     *  @throws Exception on error
+     */
+    public ScanDataUpdate getScanDataUpdate(final long id, final long since_serial, final int wait_seconds) throws Exception
+    {
+        final HttpURLConnection connection = connect("/scan/" + id + "/data",
+                                                     "since=" + since_serial + "&wait=" + wait_seconds,
+                                                     default_timeout + wait_seconds);
+        try
+        {
+            checkResponse(connection);
+            final InputStream stream = connection.getInputStream();
+            final ScanDataSAXHandler handler = new ScanDataSAXHandler();
+            final SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
+            parser.parse(stream, handler);
+            return new ScanDataUpdate(handler.getScanData(), handler.getSerial());
+        }
+        catch (Exception ex)
+        {
+            final String error = ex.getMessage();
+            if (error != null  &&  error.contains("Unknown scan ID"))
+                return new ScanDataUpdate(new ScanData(Collections.emptyMap()), UNKNOWN_SCAN_SERIAL);
+            else throw ex;
+        }
+        finally
+        {
+            connection.disconnect();
+        }
+    }
+
     /** Get serial of last logged sample.
      *
      *  <p>Can be used to determine if there are new samples
@@ -28,7 +28,7 @@ import org.xml.sax.helpers.DefaultHandler;
 public class ScanDataSAXHandler extends DefaultHandler
 {
     /* Expected data format:
-     * <data>
+     * <data serial="42">   (serial only for "/scan/{id}/data?since=..")
      *   <device>
      *     <name>readback</name>
      *     <samples>
@@ -70,6 +70,9 @@ public class ScanDataSAXHandler extends DefaultHandler
 
     private Map<String, List<ScanSample>> data = new HashMap<>();
 
+    /** Serial up to which data is complete */
+    private long data_serial = ScanClient.NO_DATA_SERIAL;
+
     /** {@inheritDoc} */
     @Override
     public void startElement(final String uri, final String localName, final String qName,
@@ -81,6 +84,12 @@ public class ScanDataSAXHandler extends DefaultHandler
         case NeedDevice:
             if ("device".equalsIgnoreCase(qName))
                 state = State.NeedName;
+            else if ("data".equalsIgnoreCase(qName))
+            {
+                final String text = attributes.getValue("serial");
+                if (text != null)
+                    data_serial = Long.parseLong(text);
+            }
             break;
         case NeedSample:
             if ("sample".equalsIgnoreCase(qName))
@@ -169,4 +178,12 @@ public class ScanDataSAXHandler extends DefaultHandler
     {
         return new ScanData(data);
     }
+
+    /** @return Serial up to which the parsed data is complete,
+     *          {@link ScanClient#NO_DATA_SERIAL} if not provided by server
+     */
+    public long getSerial()
+    {
+        return data_serial;
+    }
 }
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.scan.client;
+
+import org.csstudio.scan.data.ScanData;
+
+/** Samples that a scan logged after a serial
+ *  @see ScanClient#getScanDataUpdate(long, long, int)
+ */
+@SuppressWarnings("nls")
+public class ScanDataUpdate
+{
+    private final ScanData data;
+    private final long serial;
+
+    /** @param data Recently logged samples
+     *  @param serial Serial up to which samples are complete
+     */
+    public ScanDataUpdate(final ScanData data, final long serial)
+    {
+        this.data = data;
+        this.serial = serial;
+    }
+
+    /** @return Recently logged samples, may overlap with those of the previous update */
+    public ScanData getData()
+    {
+        return data;
+    }
+
+    /** @return Serial up to which samples are complete,
+     *          to be used as 'since' serial of the next update
+     */
+    public long getSerial()
+    {
+        return serial;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Scan data update up to serial " + serial;
+    }
+}
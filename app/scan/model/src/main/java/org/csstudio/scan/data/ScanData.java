@@ -17,6 +17,7 @@ package org.csstudio.scan.data;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -56,4 +57,53 @@ public class ScanData
     {
         return device_logs.get(device_name);
     }
+
+    /** @return Serial of the last sample, -1 if there are no samples */
+    public long getLastSerial()
+    {
+        long last = -1;
+        for (List<ScanSample> samples : device_logs.values())
+            if (! samples.isEmpty())
+                last = Math.max(last, samples.get(samples.size()-1).getSerial());
+        return last;
+    }
+
+    /** Append samples that were logged after this data was obtained
+     *
+     *  <p>For each device, samples in the update that are not newer than
+     *  the last known sample of that device are skipped,
+     *  so an update may overlap with this data.
+     *
+     *  @param update {@link ScanData} with recently logged samples
+     *  @return {@link ScanData} with samples of this data and the update,
+     *          or this data if the update did not contain new samples
+     */
+    public ScanData append(final ScanData update)
+    {
+        Map<String, List<ScanSample>> combined = null;
+        for (Map.Entry<String, List<ScanSample>> entry : update.device_logs.entrySet())
+        {
+            final List<ScanSample> known = device_logs.get(entry.getKey());
+            final long last = (known == null  ||  known.isEmpty())
+                            ? Long.MIN_VALUE
+                            : known.get(known.size()-1).getSerial();
+            // Skip samples that are already known
+            final List<ScanSample> samples = entry.getValue();
+            int start = 0;
+            while (start < samples.size()  &&  samples.get(start).getSerial() <= last)
+                ++start;
+            if (start >= samples.size()  &&  known != null)
+                continue;
+
+            // Copy on first change, keeping this data unmodified
+            if (combined == null)
+                combined = new HashMap<>(device_logs);
+            final List<ScanSample> appended = new ArrayList<>(samples.size() - start + (known == null ? 0 : known.size()));
+            if (known != null)
+                appended.addAll(known);
+            appended.addAll(samples.subList(start, samples.size()));
+            combined.put(entry.getKey(), appended);
+        }
+        return combined == null ? this : new ScanData(combined);
+    }
 }
@@ -9,31 +9,42 @@ package org.csstudio.scan.ui;
 
 import static org.csstudio.scan.ScanSystem.logger;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 
 import org.csstudio.scan.client.ScanClient;
+import org.csstudio.scan.client.ScanDataUpdate;
 import org.csstudio.scan.data.ScanData;
 import org.phoebus.framework.jobs.NamedThreadFactory;
 
-/** Periodically read data of a scan until the scan completes
+/** Read data of a scan until the scan completes
+ *
+ *  <p>Asks the scan server for samples logged since the previous update,
+ *  waiting on the server for new samples,
+ *  and appends them to the data received so far.
+ *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
 public class ScanDataReader
 {
-    private static final ScheduledExecutorService timer;
+    /** Seconds that the server may wait for new samples */
+    private static final int WAIT_SECONDS = 10;
 
-    static
-    {
-        timer = Executors.newScheduledThreadPool(0, new NamedThreadFactory("ScanDataReader"));
-        ((ScheduledThreadPoolExecutor)timer).setKeepAliveTime(5, TimeUnit.SECONDS);
-    }
+    /** Delay after an update with new samples, allowing more samples to accumulate */
+    private static final long UPDATE_DELAY_MS = 100;
+
+    /** Delay after an update without new samples,
+     *  for example while the scan is still queued
+     *  or with a server that does not wait
+     */
+    private static final long IDLE_DELAY_MS = 1000;
+
+    /** Threads that wait for server responses */
+    private static final ExecutorService readers = Executors.newCachedThreadPool(new NamedThreadFactory("ScanDataReader"));
 
     public static interface Listener
     {
@@ -49,14 +60,11 @@ public class ScanDataReader
     private final ScanClient scan_client;
     private volatile long scan_id = -1;
     private final Consumer<ScanData> data_listener;
-    /** Are updates scheduled?
+    /** Are updates being read?
      *  Will be cancelled once the scan has finished.
      *  SYNC on this for access
      */
-    private ScheduledFuture<?> updates = null;
-
-    /** Last known scan serial */
-    private long last_serial = ScanClient.UNKNOWN_SCAN_SERIAL;
+    private Future<?> updates = null;
 
     /** Create reader for scan's log data
      *  @param scan_client {@link ScanClient}
@@ -72,8 +80,9 @@ public class ScanDataReader
     /** @param scan_id ID of scan for which to read data. Less than 0 to stop reading data */
     public void setScanId(final long scan_id)
     {
-        last_serial = ScanClient.UNKNOWN_SCAN_SERIAL;
         this.scan_id = scan_id;
+        // Restart reading for the new scan
+        shutdown();
         trigger();
     }
 
@@ -83,49 +92,75 @@ public class ScanDataReader
         return scan_id;
     }
 
-    /** Trigger a read right now, not waiting for the next period */
+    /** Start reading updates, unless they are already being read */
     public synchronized void trigger()
     {
         // If there are no updates, because scan had stopped or this is the very first call, start them.
-        if (updates == null)
-            updates = timer.scheduleWithFixedDelay(this::poll, 100, 1000, TimeUnit.MILLISECONDS);
-        else
-            // Updates are running, but we want another update ASAP
-            timer.submit(this::poll);
+        // Otherwise the running updates will receive new data as soon as it's logged
+        if (updates == null  ||  updates.isDone())
+            updates = readers.submit(this::read);
     }
 
-    private Void poll()
+    /** Read updates for the current scan until it's done, cancelled, or the scan ID changes */
+    private void read()
     {
         final long id = scan_id;
-        if (id >= 0)
-            try
+        if (id < 0)
+            return;
+
+        // Data received so far, null while scan is not known
+        ScanData data = null;
+        long serial = ScanClient.NO_DATA_SERIAL;
+        try
+        {
+            boolean done = false;
+            while (! done  &&  id == scan_id)
             {
-                final long serial = scan_client.getLastScanDataSerial(id);
-                // Last_serial starts 'unknown'.
-                if (serial > last_serial)
+                boolean changed = false;
+                try
                 {
-                    // As soon as the scan is known, even with 'no data' (serial -1),
-                    // fetch the data
-                    logger.log(Level.FINE, "Received data for scan {0}", id);
-                    final ScanData data = scan_client.getScanData(id);
-                    // Inform listener
-                    data_listener.accept(data);
-                    last_serial = serial;
+                    final ScanDataUpdate update = scan_client.getScanDataUpdate(id, serial, WAIT_SECONDS);
+                    if (update.getSerial() != ScanClient.UNKNOWN_SCAN_SERIAL)
+                    {
+                        // As soon as the scan is known, even with 'no data',
+                        // inform listener
+                        final ScanData appended = data == null ? update.getData() : data.append(update.getData());
+                        changed = appended != data;
+                        data = appended;
+                        serial = update.getSerial();
+                        // Is the scan done?
+                        // Fetch what might have been logged since the last update, then stop
+                        if (! changed  &&  scan_client.getScanInfo(id).getState().isDone())
+                        {
+                            data = data.append(scan_client.getScanDataUpdate(id, serial, 0).getData());
+                            changed = appended != data;
+                            done = true;
+                        }
+                        if (changed  &&  id == scan_id)
+                        {
+                            logger.log(Level.FINE, "Received data for scan {0} up to serial {1}", new Object[] { id, serial });
+                            data_listener.accept(data);
+                        }
+                    }
                 }
-                // Is this a known scan, and it's done?
-                if (serial >= 0  &&
-                    scan_client.getScanInfo(id).getState().isDone())
+                catch (InterruptedException ex)
                 {
-                    shutdown();
-                    logger.log(Level.FINE, "Completed reading data for scan {0}", id);
+                    throw ex;
                 }
-                // else keep polling until the scan is 'done'.
-            }
-            catch (Exception ex)
-            {
-                logger.log(Level.WARNING, "Scan data poll error for scan " + id, ex);
+                catch (Exception ex)
+                {
+                    logger.log(Level.WARNING, "Scan data poll error for scan " + id, ex);
+                }
+                if (! done)
+                    Thread.sleep(changed ? UPDATE_DELAY_MS : IDLE_DELAY_MS);
             }
-        return null;
+            if (done)
+                logger.log(Level.FINE, "Completed reading data for scan {0}", id);
+        }
+        catch (InterruptedException ex)
+        {
+            // Cancelled
+        }
     }
 
     /** Reader will shut down when the scan completes.
@@ -136,7 +171,7 @@ public class ScanDataReader
     {
         if (updates != null)
         {
-            updates.cancel(false);
+            updates.cancel(true);
             updates = null;
         }
     }
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.apputil.formula;
+
+import java.util.Arrays;
+
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VType;
+
+/** {@link Formula} compiled for numeric scalar evaluation.
+ *
+ *  <p>Each {@link Formula#eval()} creates a new {@link VType}
+ *  for every node of the formula.
+ *  A compiled formula evaluates the same expression on <code>double</code>
+ *  values, with constant sub-expressions folded at compile time.
+ *  It reads the variables from a slot array, where the slot
+ *  of a variable is its index in {@link #getVariables()},
+ *  and returns a plain <code>double</code>.
+ *
+ *  <p>Only formulas that use numbers, operators and math functions
+ *  can be compiled, see {@link Formula#compile()}.
+ *  Formulas with text, array, enum or alarm functions
+ *  need to be evaluated via {@link Formula#eval()}.
+ *
+ *  <p>The result of {@link #eval(double[])} is the same as
+ *  {@link Formula#eval()} for numeric scalar variables.
+ *  Alarm and time are not tracked by the compiled nodes.
+ *  {@link #eval(VType[], double[])} handles the common case
+ *  of inputs without alarms.
+ *  Since for example <code>a ? b : c</code> only uses
+ *  the alarm of either <code>b</code> or <code>c</code>,
+ *  inputs with alarms need {@link Formula#eval()}.
+ */
+@SuppressWarnings("nls")
+public class CompiledFormula
+{
+    private final Formula formula;
+    private final VariableNode[] variables;
+    private final CompiledNode root;
+
+    CompiledFormula(final Formula formula, final VariableNode[] variables, final CompiledNode root)
+    {
+        this.formula = formula;
+        this.variables = variables;
+        this.root = root;
+    }
+
+    /** @return Formula that was compiled */
+    public Formula getFormula()
+    {
+        return formula;
+    }
+
+    /** @return Variables. Index is the slot used in {@link #eval(double[])} */
+    public VariableNode[] getVariables()
+    {
+        return variables.clone();
+    }
+
+    /** @return <code>true</code> if the formula does not depend on any variable */
+    public boolean isConstant()
+    {
+        return root.isConstant();
+    }
+
+    /** Evaluate formula
+     *  @param slots Value for each variable
+     *  @return Value of the formula
+     */
+    public double eval(final double[] slots)
+    {
+        return root.eval(slots);
+    }
+
+    /** Evaluate formula for a batch of values
+     *
+     *  <p>Values are arranged in columns,
+     *  <code>columns[slot][row]</code> is the value
+     *  of the variable for the given slot in a row.
+     *
+     *  @param columns Values for each variable
+     *  @param rows Number of rows to evaluate
+     *  @param results Array for the value of the formula in each row
+     */
+    public void eval(final double[][] columns, final int rows, final double[] results)
+    {
+        if (root.isConstant())
+        {
+            Arrays.fill(results, 0, rows, root.eval(null));
+            return;
+        }
+        final double[] slots = new double[columns.length];
+        for (int row=0; row<rows; ++row)
+        {
+            for (int slot=0; slot<slots.length; ++slot)
+                slots[slot] = columns[slot][row];
+            results[row] = root.eval(slots);
+        }
+    }
+
+    /** Evaluate formula for {@link VType} values
+     *
+     *  <p>Result has the latest time of the values
+     *  and the same display information as {@link Formula#eval()},
+     *  for example the display of <code>x</code> for <code>x*2</code>
+     *  but no display information for <code>2*x</code>.
+     *
+     *  @param values Value for each variable
+     *  @param slots Array, same size as values, for the numeric values
+     *  @return {@link VDouble} with value of the formula, or <code>null</code>
+     *          if any of the values is not a numeric scalar or has an alarm
+     */
+    public VType eval(final VType[] values, final double[] slots)
+    {
+        Time time = null;
+        for (int i=0; i<values.length; ++i)
+        {
+            if (! (values[i] instanceof VNumber))
+                return null;
+            final VNumber number = (VNumber) values[i];
+            if (number.getAlarm().getSeverity() != AlarmSeverity.NONE)
+                return null;
+            slots[i] = number.getValue().doubleValue();
+            if (time == null  ||  number.getTime().getTimestamp().isAfter(time.getTimestamp()))
+                time = number.getTime();
+        }
+        final int display = root.getDisplaySlot(slots);
+        return VDouble.of(root.eval(slots),
+                          Alarm.none(),
+                          time == null ? Time.now() : time,
+                          display >= 0 ? ((VNumber) values[display]).getDisplay() : Display.none());
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Compiled " + formula.getFormula();
+    }
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.apputil.formula;
+
+import java.util.function.ToIntFunction;
+
+/** A {@link Node} compiled for numeric scalar evaluation.
+ *
+ *  <p>Reads variables from a slot array
+ *  and computes a plain <code>double</code>
+ *  without creating any objects.
+ *
+ *  @see Node#compile(java.util.List)
+ */
+@FunctionalInterface
+public interface CompiledNode
+{
+    /** Evaluate the node
+     *  @param slots Values of the variables
+     *  @return Value of the node
+     */
+    public double eval(double[] slots);
+
+    /** Determine the display information of the value
+     *
+     *  <p>Matches {@link Node#eval()}, which for example
+     *  passes the display of an operand on to the result.
+     *
+     *  @param slots Values of the variables
+     *  @return Slot of the variable whose display the value has,
+     *          or -1 for no display information
+     */
+    public default int getDisplaySlot(final double[] slots)
+    {
+        return -1;
+    }
+
+    /** @return <code>true</code> if the node always has the same value */
+    public default boolean isConstant()
+    {
+        return false;
+    }
+
+    /** @param node Node that computes the value
+     *  @param display Determines the display slot for given variable slots
+     *  @return Node with value of <code>node</code> and display slot from <code>display</code>
+     */
+    public static CompiledNode withDisplay(final CompiledNode node, final ToIntFunction<double[]> display)
+    {
+        return new CompiledNode()
+        {
+            @Override
+            public double eval(final double[] slots)
+            {
+                return node.eval(slots);
+            }
+
+            @Override
+            public int getDisplaySlot(final double[] slots)
+            {
+                return display.applyAsInt(slots);
+            }
+        };
+    }
+
+    /** @param value Value
+     *  @return Constant node
+     */
+    public static CompiledNode constant(final double value)
+    {
+        return new CompiledNode()
+        {
+            @Override
+            public double eval(final double[] slots)
+            {
+                return value;
+            }
+
+            @Override
+            public boolean isConstant()
+            {
+                return true;
+            }
+
+            @Override
+            public String toString()
+            {
+                return Double.toString(value);
+            }
+        };
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2010-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -9,7 +9,9 @@ package org.csstudio.apputil.formula;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.Vector;
@@ -75,6 +77,9 @@ import org.epics.vtype.VType;
  *  <p>The formula string is parsed into a tree, so that subsequent
  *  evaluations, possibly with modified values for input variables,
  *  are reasonably fast.
+ *  Formulas that only use numbers can be compiled
+ *  into a {@link CompiledFormula} for evaluation without
+ *  creating any objects.
  *
  *  <p>Functions can be provided via the {@link FormulaFunction} SPI.
  *
@@ -174,6 +179,28 @@ public class Formula implements Node
         return variables.toArray(result);
     }
 
+    /** Compile formula for numeric scalar evaluation
+     *  @return {@link CompiledFormula} or <code>null</code> if formula uses
+     *          text, array or other functions that need {@link VType} evaluation
+     */
+    public CompiledFormula compile()
+    {
+        final List<VariableNode> vars = variables == null
+                                      ? Collections.emptyList()
+                                      : Collections.unmodifiableList(new ArrayList<>(variables));
+        final CompiledNode root = tree.compile(vars);
+        if (root == null)
+            return null;
+        return new CompiledFormula(this, vars.toArray(new VariableNode[vars.size()]), root);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CompiledNode compile(final List<VariableNode> variables)
+    {
+        return tree.compile(variables);
+    }
+
     /** {@inheritDoc} */
     @Override
     public VType eval()
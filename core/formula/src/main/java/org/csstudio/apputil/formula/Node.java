@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * Copyright (c) 2010-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,6 +7,8 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula;
 
+import java.util.List;
+
 import org.epics.vtype.VType;
 
 /** A node used to build a formula.
@@ -29,4 +31,14 @@ public interface Node
      *  @return <code>true</code> if given node name was found under this one.
      */
     public boolean hasSubnode(String name);
+
+    /** Compile node for numeric scalar evaluation
+     *
+     *  @param variables Variables of the formula. Index is the slot used by the {@link CompiledNode}
+     *  @return {@link CompiledNode} or <code>null</code> if the node needs {@link VType} evaluation
+     */
+    public default CompiledNode compile(final List<VariableNode> variables)
+    {
+        return null;
+    }
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2010-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,10 +7,13 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula;
 
+import java.util.List;
+
 import org.epics.vtype.Alarm;
 import org.epics.vtype.Display;
 import org.epics.vtype.Time;
 import org.epics.vtype.VDouble;
+import org.epics.vtype.VNumber;
 import org.epics.vtype.VType;
 
 /** Named Variable.
@@ -67,6 +70,19 @@ public class VariableNode implements Node
         return value;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public CompiledNode compile(final List<VariableNode> variables)
+    {
+        final int slot = variables.indexOf(this);
+        if (slot >= 0)
+            return CompiledNode.withDisplay(slots -> slots[slot], slots -> slot);
+        // Not one of the formula's variables but a constant like 'PI'
+        if (value instanceof VNumber)
+            return CompiledNode.constant(((VNumber) value).getValue().doubleValue());
+        return null;
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean hasSubnode(final Node node)
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2019-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2019-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -9,6 +9,7 @@ package org.csstudio.apputil.formula.math;
 
 import java.util.List;
 
+import org.csstudio.apputil.formula.CompiledNode;
 import org.csstudio.apputil.formula.spi.FormulaFunction;
 import org.epics.vtype.Alarm;
 import org.epics.vtype.Display;
@@ -71,4 +72,13 @@ class TwoArgMathFunction implements FormulaFunction
         final double value = function.calc(a, b);
         return VDouble.of(value, Alarm.none(), Time.now(), Display.none());
     }
+
+    @Override
+    public CompiledNode compile(final CompiledNode... args)
+    {
+        final CompiledNode a = args[0], b = args[1];
+        if (a.isConstant()  &&  b.isConstant())
+            return CompiledNode.constant(function.calc(a.eval(null), b.eval(null)));
+        return slots -> function.calc(a.eval(slots), b.eval(slots));
+    }
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010-2019 Oak Ridge National Laboratory.
+ * Copyright (c) 2010-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,7 +7,11 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula.node;
 
+import java.util.List;
+
+import org.csstudio.apputil.formula.CompiledNode;
 import org.csstudio.apputil.formula.Node;
+import org.csstudio.apputil.formula.VariableNode;
 import org.epics.util.array.ArrayDouble;
 import org.epics.vtype.Alarm;
 import org.epics.vtype.Display;
@@ -72,6 +76,20 @@ abstract class AbstractBinaryNode implements Node
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public CompiledNode compile(final List<VariableNode> variables)
+    {
+        final CompiledNode a = left.compile(variables);
+        final CompiledNode b = right.compile(variables);
+        if (a == null  ||  b == null)
+            return null;
+        if (a.isConstant()  &&  b.isConstant())
+            return CompiledNode.constant(calc(a.eval(null), b.eval(null)));
+        // Result has the display of the left operand
+        return CompiledNode.withDisplay(slots -> calc(a.eval(slots), b.eval(slots)), a::getDisplaySlot);
+    }
+
     /** Scalar (or element-wise) operation to implement by derived class
      *
      *  @param a First value
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010-2019 Oak Ridge National Laboratory.
+ * Copyright (c) 2010-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,7 +7,11 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula.node;
 
+import java.util.List;
+
+import org.csstudio.apputil.formula.CompiledNode;
 import org.csstudio.apputil.formula.Node;
+import org.csstudio.apputil.formula.VariableNode;
 import org.epics.util.array.ArrayDouble;
 import org.epics.vtype.Alarm;
 import org.epics.vtype.Display;
@@ -44,6 +48,18 @@ abstract class AbstractUnaryNode implements Node
             return VDouble.of(calc(VTypeHelper.toDouble(a)), Alarm.alarmOf(a), Time.timeOf(a), Display.displayOf(a));
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public CompiledNode compile(final List<VariableNode> variables)
+    {
+        final CompiledNode a = n.compile(variables);
+        if (a == null)
+            return null;
+        if (a.isConstant())
+            return CompiledNode.constant(calc(a.eval(null)));
+        return CompiledNode.withDisplay(slots -> calc(a.eval(slots)), a::getDisplaySlot);
+    }
+
     abstract protected double calc(double a);
 
     /** {@inheritDoc} */
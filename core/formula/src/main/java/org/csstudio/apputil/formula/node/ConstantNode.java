@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010-2019 Oak Ridge National Laboratory.
+ * Copyright (c) 2010-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,7 +7,11 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula.node;
 
+import java.util.List;
+
+import org.csstudio.apputil.formula.CompiledNode;
 import org.csstudio.apputil.formula.Node;
+import org.csstudio.apputil.formula.VariableNode;
 import org.epics.vtype.Alarm;
 import org.epics.vtype.Display;
 import org.epics.vtype.Time;
@@ -40,6 +44,15 @@ public class ConstantNode implements Node
         return value;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public CompiledNode compile(final List<VariableNode> variables)
+    {
+        if (value instanceof VString)
+            return null;
+        return CompiledNode.constant(VTypeHelper.toDouble(value));
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean hasSubnode(final Node node)
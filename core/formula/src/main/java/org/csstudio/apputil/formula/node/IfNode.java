@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2010-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,7 +7,11 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula.node;
 
+import java.util.List;
+
+import org.csstudio.apputil.formula.CompiledNode;
 import org.csstudio.apputil.formula.Node;
+import org.csstudio.apputil.formula.VariableNode;
 import org.epics.vtype.VType;
 import org.phoebus.core.vtypes.VTypeHelper;
 
@@ -48,6 +52,38 @@ public class IfNode implements Node
             return cond_val;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public CompiledNode compile(final List<VariableNode> variables)
+    {
+        final CompiledNode c = cond.compile(variables);
+        final CompiledNode y = yes.compile(variables);
+        final CompiledNode n = no.compile(variables);
+        if (c == null  ||  y == null  ||  n == null)
+            return null;
+        if (c.isConstant())
+        {
+            final double value = c.eval(null);
+            if (Double.isFinite(value))
+                return value != 0.0 ? y : n;
+            return c;
+        }
+        return CompiledNode.withDisplay(slots ->
+        {
+            final double value = c.eval(slots);
+            if (Double.isFinite(value))
+                return value != 0.0 ? y.eval(slots) : n.eval(slots);
+            return value;
+        },
+        slots ->
+        {   // Display of the branch that provides the value
+            final double value = c.eval(slots);
+            if (Double.isFinite(value))
+                return value != 0.0 ? y.getDisplaySlot(slots) : n.getDisplaySlot(slots);
+            return c.getDisplaySlot(slots);
+        });
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean hasSubnode(final Node node)
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010-2019 Oak Ridge National Laboratory.
+ * Copyright (c) 2010-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,7 +7,11 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula.node;
 
+import java.util.List;
+
+import org.csstudio.apputil.formula.CompiledNode;
 import org.csstudio.apputil.formula.Node;
+import org.csstudio.apputil.formula.VariableNode;
 import org.epics.vtype.Alarm;
 import org.epics.vtype.Display;
 import org.epics.vtype.Time;
@@ -43,6 +47,33 @@ public class MaxNode implements Node
     }
 
 
+    /** {@inheritDoc} */
+    @Override
+    public CompiledNode compile(final List<VariableNode> variables)
+    {
+        final CompiledNode[] compiled = new CompiledNode[args.length];
+        boolean constant = true;
+        for (int i = 0; i < args.length; i++)
+        {
+            compiled[i] = args[i].compile(variables);
+            if (compiled[i] == null)
+                return null;
+            constant &= compiled[i].isConstant();
+        }
+        final CompiledNode node = slots ->
+        {
+            double result = Double.NaN;
+            for (int i = 0; i < compiled.length; i++)
+            {
+                final double value = compiled[i].eval(slots);
+                if (i==0  ||  value > result)
+                    result = value;
+            }
+            return result;
+        };
+        return constant ? CompiledNode.constant(node.eval(null)) : node;
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean hasSubnode(Node node)
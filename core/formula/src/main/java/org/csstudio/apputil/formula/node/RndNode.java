@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010-2019 Oak Ridge National Laboratory.
+ * Copyright (c) 2010-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,7 +7,11 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula.node;
 
+import java.util.List;
+
+import org.csstudio.apputil.formula.CompiledNode;
 import org.csstudio.apputil.formula.Node;
+import org.csstudio.apputil.formula.VariableNode;
 
 /** One computational node.
  *  @author Kay Kasemir
@@ -19,6 +23,17 @@ public class RndNode extends AbstractUnaryNode
         super(n);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public CompiledNode compile(final List<VariableNode> variables)
+    {
+        // Random value is never constant
+        final CompiledNode a = n.compile(variables);
+        if (a == null)
+            return null;
+        return slots -> calc(a.eval(slots));
+    }
+
     @Override
     protected double calc(final double a)
     {
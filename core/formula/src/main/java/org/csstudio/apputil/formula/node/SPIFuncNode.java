@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2019-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2019-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -9,9 +9,12 @@ package org.csstudio.apputil.formula.node;
 
 import static org.csstudio.apputil.formula.Formula.logger;
 
+import java.util.List;
 import java.util.logging.Level;
 
+import org.csstudio.apputil.formula.CompiledNode;
 import org.csstudio.apputil.formula.Node;
+import org.csstudio.apputil.formula.VariableNode;
 import org.csstudio.apputil.formula.spi.FormulaFunction;
 import org.epics.vtype.Alarm;
 import org.epics.vtype.Display;
@@ -61,6 +64,20 @@ public class SPIFuncNode implements Node
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public CompiledNode compile(final List<VariableNode> variables)
+    {
+        final CompiledNode[] compiled = new CompiledNode[args.length];
+        for (int i = 0; i < args.length; i++)
+        {
+            compiled[i] = args[i].compile(variables);
+            if (compiled[i] == null)
+                return null;
+        }
+        return function.compile(compiled);
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean hasSubnode(final Node node)
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2019-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2019-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,7 @@ package org.csstudio.apputil.formula.spi;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.csstudio.apputil.formula.CompiledNode;
 import org.epics.vtype.VType;
 
 /** SPI for contributing a function to the formula
@@ -55,6 +56,21 @@ public interface FormulaFunction
      */
     public VType compute(VType... args) throws Exception;
 
+    /** Compile the function for numeric scalar evaluation
+     *
+     *  <p>Functions that compute a <code>double</code>
+     *  from <code>double</code> arguments can
+     *  implement this to support a {@link org.csstudio.apputil.formula.CompiledFormula}.
+     *
+     *  @param args Compiled arguments
+     *  @return {@link CompiledNode} for the function,
+     *          or <code>null</code> if the function needs to {@link #compute(VType...)}
+     */
+    public default CompiledNode compile(final CompiledNode... args)
+    {
+        return null;
+    }
+
     /** @return "function(arg1, arg2)"
      */
     public default String getSignature()
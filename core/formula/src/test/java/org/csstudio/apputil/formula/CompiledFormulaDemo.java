@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.apputil.formula;
+
+import java.lang.management.ManagementFactory;
+
+import org.phoebus.core.vtypes.VTypeHelper;
+
+/** Microbenchmark of {@link Formula#eval()} vs. {@link CompiledFormula}
+ *
+ *  <p>Evaluates a 10-term expression with changing variables,
+ *  reports time and bytes allocated per evaluation.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class CompiledFormulaDemo
+{
+    private static final String EXPRESSION = "a*b + c*d - e/f + sqrt(g) + 2*h + i - j + 3*4 + min(a, j) + (b > c ? 1 : 0)";
+    private static final String[] NAMES = { "a", "b", "c", "d", "e", "f", "g", "h", "i", "j" };
+    private static final int EVALS = 1000000;
+    private static final int RUNS = 5;
+
+    private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static void report(final String title, final long start, final long allocated, final double result)
+    {
+        final double ns = (System.nanoTime() - start) / (double) EVALS;
+        final double bytes = (threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated) / (double) EVALS;
+        System.out.format("%-8s: %8.1f ns, %8.1f bytes per evaluation (%g)\n", title, ns, bytes, result);
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        final VariableNode[] vars = new VariableNode[NAMES.length];
+        for (int i=0; i<vars.length; ++i)
+            vars[i] = new VariableNode(NAMES[i]);
+        final Formula formula = new Formula(EXPRESSION, vars);
+        final CompiledFormula compiled = formula.compile();
+        final double[] slots = new double[vars.length];
+        final long thread = Thread.currentThread().getId();
+
+        System.out.println(EXPRESSION);
+        for (int run=0; run<RUNS; ++run)
+        {
+            double sum = 0;
+            long allocated = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            for (int n=0; n<EVALS; ++n)
+            {
+                for (int i=0; i<vars.length; ++i)
+                    vars[i].setValue(n + i);
+                sum += VTypeHelper.toDouble(formula.eval());
+            }
+            report("VType", start, allocated, sum);
+
+            sum = 0;
+            allocated = threads.getThreadAllocatedBytes(thread);
+            start = System.nanoTime();
+            for (int n=0; n<EVALS; ++n)
+            {
+                for (int i=0; i<slots.length; ++i)
+                    slots[i] = n + i;
+                sum += compiled.eval(slots);
+            }
+            report("Compiled", start, allocated, sum);
+        }
+    }
+}
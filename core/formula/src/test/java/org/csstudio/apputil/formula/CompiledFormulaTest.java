@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.apputil.formula;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VDoubleArray;
+import org.epics.vtype.VType;
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.stats.Range;
+import org.junit.Test;
+import org.phoebus.core.vtypes.VTypeHelper;
+
+/** {@link CompiledFormula} tests
+ *
+ *  <p>Compares with {@link Formula#eval()}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class CompiledFormulaTest
+{
+    private static final double[][] inputs =
+    {
+        { 0, 0, 0 },
+        { 1, 2, 3 },
+        { -1.5, 0.25, 7 },
+        { 10, -10, 0.5 },
+        { Double.NaN, 1, 2 },
+    };
+
+    @Test
+    public void testCompareWithVType() throws Exception
+    {
+        for (String expression : new String[]
+                                 {
+                                     "a + b * c - 4 / a",
+                                     "-a + 2^b",
+                                     "a > b & b <= c | !(c == 0)",
+                                     "a != b ? (a) : (c)",
+                                     "min(a, b, c) + max(a, b, 2*c)",
+                                     "sqrt(abs(a)) + sin(b) * cos(c) + pow(c, 2) + atan2(a, b)",
+                                     "a * PI + E",
+                                     "(a + 1) * (b + 2) * (c + 3) + 4 * 5",
+                                 })
+        {
+            final VariableNode[] vars = { new VariableNode("a"), new VariableNode("b"), new VariableNode("c") };
+            final Formula formula = new Formula(expression, vars);
+            final CompiledFormula compiled = formula.compile();
+            assertThat(expression, compiled, not(nullValue()));
+            assertThat(compiled.isConstant(), equalTo(false));
+
+            for (double[] values : inputs)
+            {
+                for (int i=0; i<vars.length; ++i)
+                    vars[i].setValue(values[i]);
+                final double expected = VTypeHelper.toDouble(formula.eval());
+                final double result = compiled.eval(values);
+                System.out.println(expression + " for " + values[0] + ", " + values[1] + ", " + values[2] + " = " + result);
+                assertThat(expression, Double.compare(result, expected), equalTo(0));
+            }
+        }
+    }
+
+    @Test
+    public void testBatch() throws Exception
+    {
+        final VariableNode[] vars = { new VariableNode("a"), new VariableNode("b"), new VariableNode("c") };
+        final CompiledFormula compiled = new Formula("a * b - c", vars).compile();
+        final double[][] columns = new double[vars.length][inputs.length];
+        for (int row=0; row<inputs.length; ++row)
+            for (int slot=0; slot<vars.length; ++slot)
+                columns[slot][row] = inputs[row][slot];
+        final double[] results = new double[inputs.length + 1];
+        results[inputs.length] = 42.0;
+        compiled.eval(columns, inputs.length, results);
+        for (int row=0; row<inputs.length; ++row)
+            assertThat(Double.compare(results[row], compiled.eval(inputs[row])), equalTo(0));
+        // Results beyond the rows are left as is
+        assertThat(results[inputs.length], equalTo(42.0));
+
+        new Formula("2 * 3").compile().eval(new double[0][], 2, results);
+        assertThat(results[0], equalTo(6.0));
+        assertThat(results[1], equalTo(6.0));
+    }
+
+    @Test
+    public void testConstants() throws Exception
+    {
+        CompiledFormula compiled = new Formula("2 * 3 + sqrt(16) - max(1, 2)").compile();
+        assertThat(compiled.isConstant(), equalTo(true));
+        assertThat(compiled.eval(null), equalTo(8.0));
+
+        compiled = new Formula("1 ? 10 : 20").compile();
+        assertThat(compiled.isConstant(), equalTo(true));
+        assertThat(compiled.eval(null), equalTo(10.0));
+
+        // Random numbers are not constant
+        compiled = new Formula("rnd(10)").compile();
+        assertThat(compiled.isConstant(), equalTo(false));
+    }
+
+    @Test
+    public void testDeterminedVariables() throws Exception
+    {
+        final Formula formula = new Formula("`x` * 2 + y", true);
+        final CompiledFormula compiled = formula.compile();
+        assertThat(compiled.getVariables().length, equalTo(2));
+        assertThat(compiled.getVariables()[0].getName(), equalTo("x"));
+        assertThat(compiled.getVariables()[1].getName(), equalTo("y"));
+        assertThat(compiled.eval(new double[] { 3, 1 }), equalTo(7.0));
+    }
+
+    @Test
+    public void testFallback() throws Exception
+    {
+        // Text, array and alarm functions need VType evaluation
+        assertThat(new Formula("\"Text\" + 1").compile(), nullValue());
+        assertThat(new Formula("arrayMax(arrayOf(1, 2))").compile(), nullValue());
+        final VariableNode a = new VariableNode("a");
+        assertThat(new Formula("highestSeverity(a)", new VariableNode[] { a }).compile(), nullValue());
+    }
+
+    @Test
+    public void testAlarmAndTime() throws Exception
+    {
+        final VariableNode[] vars = { new VariableNode("a"), new VariableNode("b") };
+        final CompiledFormula compiled = new Formula("a + b", vars).compile();
+        final Time early = Time.of(java.time.Instant.ofEpochSecond(1000));
+        final Time late = Time.of(java.time.Instant.ofEpochSecond(2000));
+        final VType[] values =
+        {
+            VDouble.of(1.0, Alarm.none(), late, Display.none()),
+            VDouble.of(2.0, Alarm.none(), early, Display.none()),
+        };
+        final double[] slots = new double[values.length];
+        final VDouble result = (VDouble) compiled.eval(values, slots);
+        assertThat(result.getValue(), equalTo(3.0));
+        assertThat(result.getAlarm(), equalTo(Alarm.none()));
+        assertThat(result.getTime(), equalTo(late));
+
+        // Alarms need VType evaluation
+        values[1] = VDouble.of(2.0, Alarm.of(AlarmSeverity.MINOR, AlarmStatus.DEVICE, "Low"), early, Display.none());
+        assertThat(compiled.eval(values, slots), nullValue());
+        values[1] = VDouble.of(2.0, Alarm.disconnected(), early, Display.none());
+        assertThat(compiled.eval(values, slots), nullValue());
+
+        // Arrays need VType evaluation
+        values[1] = VDoubleArray.of(ArrayDouble.of(1, 2), Alarm.none(), early, Display.none());
+        assertThat(compiled.eval(values, slots), nullValue());
+    }
+
+    /** Compiled formula has the same display information as {@link Formula#eval()} */
+    @Test
+    public void testDisplay() throws Exception
+    {
+        final Display a_display = Display.of(Range.of(0, 10), Range.undefined(), Range.undefined(), Range.undefined(),
+                                             "mm", Display.defaultNumberFormat());
+        final Display b_display = Display.of(Range.of(0, 5), Range.undefined(), Range.undefined(), Range.undefined(),
+                                             "V", Display.defaultNumberFormat());
+        final Time time = Time.now();
+        for (String expression : new String[]
+                                 {
+                                     "a * 2",
+                                     "2 * a",
+                                     "b - a",
+                                     "-b",
+                                     "sqrt(a)",
+                                     "a > 1 ? (b) : (a)",
+                                     "a > 5 ? (b) : (a)",
+                                     "(2 + 3) * b",
+                                 })
+        {
+            final VariableNode[] vars = { new VariableNode("a"), new VariableNode("b") };
+            final Formula formula = new Formula(expression, vars);
+            final CompiledFormula compiled = formula.compile();
+            assertThat(expression, compiled, not(nullValue()));
+
+            final VType[] values =
+            {
+                VDouble.of(3.0, Alarm.none(), time, a_display),
+                VDouble.of(4.0, Alarm.none(), time, b_display),
+            };
+            vars[0].setValue(values[0]);
+            vars[1].setValue(values[1]);
+            final Display expected = Display.displayOf(formula.eval());
+            final Display display = ((VDouble) compiled.eval(values, new double[values.length])).getDisplay();
+            assertThat(expression, display, equalTo(expected));
+        }
+    }
+}
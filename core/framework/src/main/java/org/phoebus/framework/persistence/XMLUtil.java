@@ -67,6 +67,19 @@ public class XMLUtil
         return Optional.empty();
     }
 
+    /** Set line number for a node.
+     *
+     *  <p>For nodes that are not read via {@link #openXMLDocument(InputStream, String)},
+     *  for example when reading XML via a stream reader.
+     *
+     *  @param node Node in document
+     *  @param line_number Original line number in XML file
+     */
+    public static void setLineNumber(final Node node, final int line_number)
+    {
+        node.setUserData(PositionalXMLReader.LINE_NUMBER, Integer.valueOf(line_number), null);
+    }
+
     /** Get line number info for XML-related error messages.
      *
      *  @param node Node in document
@@ -9,10 +9,12 @@ package org.phoebus.pv;
 
 import static org.phoebus.pv.PV.logger;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.TreeMap;
 import java.util.logging.Level;
 
 import org.phoebus.framework.preferences.AnnotatedPreferences;
@@ -88,8 +90,7 @@ public class PVPool
     }
 
     /** PV Pool
-     *  SYNC on 'pool':
-     *  Otherwise, two threads concurrently looking for a new PV would both add it.
+     *  Thread-safe, concurrent lookups of the same new PV share one creation.
      */
     final private static RefCountMap<String, PV> pool = new RefCountMap<>();
 
@@ -188,9 +189,29 @@ public class PVPool
     /** @return PVs currently in the pool with reference count information */
     public static Collection<ReferencedEntry<PV>> getPVReferences()
     {
-        synchronized (pool)
+        return pool.getEntries();
+    }
+
+    /** @return Statistics of the PV pool */
+    public static PVPoolStatistics getStatistics()
+    {
+        final Map<String, Integer> pvs_per_type = new TreeMap<>();
+        final int[] histogram = new int[Integer.SIZE];
+        int used = 0;
+        for (ReferencedEntry<PV> ref : pool.getEntries())
         {
-            return pool.getEntries();
+            pvs_per_type.merge(analyzeName(ref.getEntry().getName())[0], 1, Integer::sum);
+            final int refs = ref.getReferences();
+            if (refs > 0)
+            {
+                final int bucket = 31 - Integer.numberOfLeadingZeros(refs);
+                ++histogram[bucket];
+                used = Math.max(used, bucket+1);
+            }
         }
+        return new PVPoolStatistics(pvs_per_type,
+                                    pool.getCreations(), pool.getFailures(),
+                                    pool.getWaits(), pool.getWaitNanos(),
+                                    Arrays.copyOf(histogram, used));
     }
 }
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pv;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/** Snapshot of {@link PVPool} statistics
+ *
+ *  <p>Counters accumulate since the pool was created.
+ *  Rates are computed by comparing two snapshots.
+ *
+ *  @see PVPool#getStatistics()
+ */
+@SuppressWarnings("nls")
+public class PVPoolStatistics
+{
+    private final long nanos;
+    private final Map<String, Integer> pvs_per_type;
+    private final long creations, failures, waits, wait_nanos;
+    private final int[] reference_histogram;
+
+    PVPoolStatistics(final Map<String, Integer> pvs_per_type,
+                     final long creations, final long failures,
+                     final long waits, final long wait_nanos,
+                     final int[] reference_histogram)
+    {
+        this.nanos = System.nanoTime();
+        this.pvs_per_type = Collections.unmodifiableMap(pvs_per_type);
+        this.creations = creations;
+        this.failures = failures;
+        this.waits = waits;
+        this.wait_nanos = wait_nanos;
+        this.reference_histogram = reference_histogram;
+    }
+
+    /** @return Number of PVs in the pool for each PV type prefix */
+    public Map<String, Integer> getPVsPerType()
+    {
+        return pvs_per_type;
+    }
+
+    /** @return Total number of PVs in the pool */
+    public int getPVCount()
+    {
+        int count = 0;
+        for (int pvs : pvs_per_type.values())
+            count += pvs;
+        return count;
+    }
+
+    /** @return Number of PVs that have been created */
+    public long getCreations()
+    {
+        return creations;
+    }
+
+    /** @return Number of failed attempts to create a PV */
+    public long getFailures()
+    {
+        return failures;
+    }
+
+    /** @return Number of times that a thread waited for another thread to create the same PV */
+    public long getWaits()
+    {
+        return waits;
+    }
+
+    /** @return Total milliseconds that threads waited for another thread to create the same PV */
+    public double getWaitMillis()
+    {
+        return wait_nanos / 1e6;
+    }
+
+    /** Histogram of PV reference counts
+     *
+     *  <p>Element <code>i</code> holds the number of PVs
+     *  with <code>2^i &lt;= references &lt; 2^(i+1)</code>,
+     *  i.e. 1, 2-3, 4-7, 8-15, ...
+     *
+     *  @return Reference count histogram
+     */
+    public int[] getReferenceHistogram()
+    {
+        return reference_histogram.clone();
+    }
+
+    /** @param earlier Earlier statistics
+     *  @return PV creations per second since the earlier statistics
+     */
+    public double getCreationsPerSecond(final PVPoolStatistics earlier)
+    {
+        final double seconds = (nanos - earlier.nanos) / 1e9;
+        if (seconds <= 0)
+            return 0.0;
+        return (creations - earlier.creations) / seconds;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PV Pool: " + getPVCount() + " PVs " + pvs_per_type +
+               ", " + creations + " created, " + failures + " failed, " +
+               waits + " waits for " + String.format("%.1f ms", getWaitMillis()) +
+               ", references " + Arrays.toString(reference_histogram);
+    }
+}
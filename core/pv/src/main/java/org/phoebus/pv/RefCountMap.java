@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2017-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -9,12 +9,14 @@ package org.phoebus.pv;
 
 import static org.phoebus.pv.PV.logger;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 
@@ -22,6 +24,11 @@ import java.util.logging.Level;
  *
  *  <p>Thread-safe.
  *
+ *  <p>Items are created without holding a lock on the map,
+ *  so a slow creation does not block access to other items.
+ *  Threads that request an item which is being created
+ *  wait for that one creation to complete.
+ *
  *  @param <K> Key data type
  *  @param <E> Entry data type
  *  @author Kay Kasemir
@@ -32,12 +39,23 @@ public class RefCountMap<K, E>
     /** Wrapper for an entry with reference count */
     public static class ReferencedEntry<E>
     {
-        private final E entry;
-        private final AtomicInteger references = new AtomicInteger(0);
+        /** Thread that creates the item, <code>null</code> when done */
+        private volatile Thread creator = Thread.currentThread();
+
+        /** Counted down when item has been created, or creation failed */
+        private final CountDownLatch created = new CountDownLatch(1);
+
+        private volatile E entry;
+
+        private volatile Throwable error;
 
-        private ReferencedEntry(final E entry)
+        /** Reference count, starting with the creator's reference.
+         *  Once it drops to 0, the entry is removed and must not be revived.
+         */
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private ReferencedEntry()
         {
-            this.entry = Objects.requireNonNull(entry);
         }
 
         /** @return Item */
@@ -52,9 +70,19 @@ public class RefCountMap<K, E>
             return references.get();
         }
 
-        private int addRef()
+        /** @return <code>true</code> if reference was added,
+         *          <code>false</code> if entry is being removed
+         */
+        private boolean addRef()
         {
-            return references.incrementAndGet();
+            int refs = references.get();
+            while (refs > 0)
+            {
+                if (references.compareAndSet(refs, refs+1))
+                    return true;
+                refs = references.get();
+            }
+            return false;
         }
 
         private int decRef()
@@ -73,38 +101,52 @@ public class RefCountMap<K, E>
     // But the computeIfAbsent() mapping function must not itself update the map,
     // which can happen with a formula PV which references and thus creates
     // other PVs.
-    // With plain synchronization, adding a formula takes the synchronization lock,
-    // and while it is held, recursive additions from the same thread are possible.
-    //
-    // SYNC on access.
-    final private Map<K, ReferencedEntry<E>> map = new HashMap<>();
+    // Then used plain synchronization, but that serialized all access
+    // and a slow creation blocked access to unrelated entries.
+    // Now a placeholder entry is added to the map, and the item is created
+    // without holding any lock.
+    // Recursive creation of other entries from the creator is thus possible.
+    final private ConcurrentHashMap<K, ReferencedEntry<E>> map = new ConcurrentHashMap<>();
+
+    /** Number of created items */
+    private final LongAdder creations = new LongAdder();
+
+    /** Number of failed creations */
+    private final LongAdder failures = new LongAdder();
+
+    /** Number of times and total nanoseconds that a thread waited for another thread to create an item */
+    private final LongAdder waits = new LongAdder(), wait_nanos = new LongAdder();
 
     /** Get or create item
      *
      *  <p>If item already exists, add reference.
      *  Otherwise create new item with initial reference count of 1.
+     *  When another thread is currently creating the item,
+     *  wait for that creation and then add a reference.
      *
      *  @param key Item key
-     *  @param entry The item to add
-     *  @param creator Function that will be called atomically for new items
+     *  @param creator Function that will be called once for new items
      *  @return reference count
      */
     public ReferencedEntry<E> createOrGet(final K key, final Supplier<E> creator)
     {
         try
         {
-            ReferencedEntry<E> ref_entry;
-            synchronized (map)
+            while (true)
             {
-                ref_entry = map.get(key);
+                final ReferencedEntry<E> placeholder = new ReferencedEntry<>();
+                final ReferencedEntry<E> ref_entry = map.putIfAbsent(key, placeholder);
                 if (ref_entry == null)
-                {
-                    ref_entry = new ReferencedEntry<>(creator.get());
-                    map.put(key, ref_entry);
+                    return create(key, placeholder, creator);
+
+                if (! ref_entry.addRef())
+                {   // Entry is being removed, help and try again
+                    map.remove(key, ref_entry);
+                    continue;
                 }
+                awaitCreation(key, ref_entry);
+                return ref_entry;
             }
-            ref_entry.addRef();
-            return ref_entry;
         }
         catch (Throwable ex)
         {
@@ -113,6 +155,59 @@ public class RefCountMap<K, E>
         }
     }
 
+    /** Create item for placeholder that's already in the map
+     *  @param key Item key
+     *  @param ref_entry Placeholder
+     *  @param creator Function that creates the item
+     *  @return Entry with created item
+     */
+    private ReferencedEntry<E> create(final K key, final ReferencedEntry<E> ref_entry, final Supplier<E> creator)
+    {
+        try
+        {
+            ref_entry.entry = Objects.requireNonNull(creator.get());
+            creations.increment();
+            return ref_entry;
+        }
+        catch (Throwable ex)
+        {
+            failures.increment();
+            ref_entry.error = ex;
+            // Mark as removed, and remove, so next attempt tries to create again
+            ref_entry.references.set(0);
+            map.remove(key, ref_entry);
+            throw ex;
+        }
+        finally
+        {
+            ref_entry.created.countDown();
+            ref_entry.creator = null;
+        }
+    }
+
+    /** Wait until item of entry has been created
+     *  @param key Item key
+     *  @param ref_entry Entry to which the caller already added a reference
+     *  @throws Exception if creation failed
+     */
+    private void awaitCreation(final K key, final ReferencedEntry<E> ref_entry) throws Exception
+    {
+        if (ref_entry.created.getCount() > 0)
+        {
+            if (ref_entry.creator == Thread.currentThread())
+            {
+                ref_entry.decRef();
+                throw new Exception("Recursive creation of " + key);
+            }
+            final long start = System.nanoTime();
+            ref_entry.created.await();
+            waits.increment();
+            wait_nanos.add(System.nanoTime() - start);
+        }
+        if (ref_entry.error != null)
+            throw new Exception("Creation failed", ref_entry.error);
+    }
+
     /** Release an item from the map
      *  @param key Key for item to release
      *  @return Remaining reference counts. 0 if item has been removed from map.
@@ -120,31 +215,53 @@ public class RefCountMap<K, E>
     public int release(final K key)
     {
         // System.out.println("Release " + key + " in " + map);
-        synchronized (map)
+        final ReferencedEntry<E> entry = map.get(key);
+        if (entry == null  ||  entry.getEntry() == null)
         {
-            final ReferencedEntry<E> entry = map.get(key);
-            if (entry == null)
-            {
-                logger.log(Level.WARNING, "No reference found for " + key, new Exception("Call stack"));
-                return 0;
-            }
+            logger.log(Level.WARNING, "No reference found for " + key, new Exception("Call stack"));
+            return 0;
+        }
 
-            final int refs = entry.decRef();
-            if (refs <= 0)
-            {   // No more references
-                map.remove(key);
-                return 0;
-            }
-            return refs;
+        final int refs = entry.decRef();
+        if (refs <= 0)
+        {   // No more references
+            map.remove(key, entry);
+            return 0;
         }
+        return refs;
     }
 
-    /** @return Entries in map */
+    /** @return Entries in map, not including items that are being created */
     public Collection<ReferencedEntry<E>> getEntries()
     {
-        synchronized (map)
-        {
-            return Collections.unmodifiableCollection(map.values());
-        }
+        final List<ReferencedEntry<E>> entries = new ArrayList<>(map.size());
+        for (ReferencedEntry<E> entry : map.values())
+            if (entry.getEntry() != null  &&  entry.getReferences() > 0)
+                entries.add(entry);
+        return entries;
+    }
+
+    /** @return Number of items that have been created */
+    public long getCreations()
+    {
+        return creations.sum();
+    }
+
+    /** @return Number of failed attempts to create an item */
+    public long getFailures()
+    {
+        return failures.sum();
+    }
+
+    /** @return Number of times that a thread waited for another thread to create an item */
+    public long getWaits()
+    {
+        return waits.sum();
+    }
+
+    /** @return Total nanoseconds that threads waited for another thread to create an item */
+    public long getWaitNanos()
+    {
+        return wait_nanos.sum();
     }
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2019-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2019-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,6 +15,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 
+import org.csstudio.apputil.formula.CompiledFormula;
 import org.csstudio.apputil.formula.Formula;
 import org.csstudio.apputil.formula.VariableNode;
 import org.epics.vtype.Alarm;
@@ -47,6 +48,12 @@ public class FormulaPV extends PV
     private Formula formula;
     private volatile FormulaInput[] inputs;
 
+    /** Compiled formula, <code>null</code> if formula needs VType evaluation */
+    private CompiledFormula compiled;
+    private VariableNode[] variables;
+    private VType[] values;
+    private double[] slots;
+
     protected FormulaPV(final String name, final String expression)
     {
         super(name);
@@ -67,6 +74,14 @@ public class FormulaPV extends PV
                 inputs[i] = new FormulaInput(this, vars[i]);
             }
 
+            compiled = formula.compile();
+            if (compiled != null)
+            {
+                variables = compiled.getVariables();
+                values = new VType[variables.length];
+                slots = new double[variables.length];
+            }
+
             // Set initial value
             doUpdate();
         }
@@ -111,8 +126,21 @@ public class FormulaPV extends PV
         // Simulate slow evaluation
         // try { Thread.sleep(100); } catch (InterruptedException e) {}
 
-        final VType value = formula.eval();
-        notifyListenersOfValue(value);
+        notifyListenersOfValue(evaluate());
+    }
+
+    /** @return Value of formula */
+    private VType evaluate()
+    {
+        if (compiled != null)
+        {   // Use compiled formula while all inputs are numeric scalars without alarm
+            for (int i=0; i<variables.length; ++i)
+                values[i] = variables[i].eval();
+            final VType value = compiled.eval(values, slots);
+            if (value != null)
+                return value;
+        }
+        return formula.eval();
     }
 
     @Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2019-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2019-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -76,6 +76,12 @@ import org.epics.vtype.VUShort;
 import org.epics.vtype.VUShortArray;
 
 /** Decodes {@link Time}, {@link Alarm}, {@link Display}, ...
+ *
+ *  <p>Array values are wrapped without copying the data.
+ *  The <code>get()</code> of a PVA array like {@link PVADoubleArray}
+ *  hands the decoded array to the {@link VType},
+ *  and the PVA library will not re-use that array for the next value.
+ *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
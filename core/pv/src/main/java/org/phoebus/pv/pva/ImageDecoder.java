@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2019 Oak Ridge National Laboratory.
+ * Copyright (c) 2019-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,6 +7,17 @@
  ******************************************************************************/
 package org.phoebus.pv.pva;
 
+import static org.phoebus.pv.PV.logger;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+
 import org.epics.pva.data.PVAByteArray;
 import org.epics.pva.data.PVAData;
 import org.epics.pva.data.PVADoubleArray;
@@ -14,6 +25,7 @@ import org.epics.pva.data.PVAFloatArray;
 import org.epics.pva.data.PVAInt;
 import org.epics.pva.data.PVAIntArray;
 import org.epics.pva.data.PVALongArray;
+import org.epics.pva.data.PVANumber;
 import org.epics.pva.data.PVAShortArray;
 import org.epics.pva.data.PVAString;
 import org.epics.pva.data.PVAStructure;
@@ -34,8 +46,18 @@ import org.epics.vtype.VImage;
 import org.epics.vtype.VImageDataType;
 import org.epics.vtype.VImageType;
 import org.epics.vtype.VType;
+import org.phoebus.pv.pva.codec.BitshuffleLZ4Decompressor;
+import org.phoebus.pv.pva.codec.ImageDecompressor;
+import org.phoebus.pv.pva.codec.LZ4Decompressor;
+import org.phoebus.pv.pva.codec.ZlibDecompressor;
 
 /** VImage from NT ND Array data
+ *
+ *  <p>Compressed data, indicated by a 'codec.name',
+ *  is handled by the {@link ImageDecompressor} for that codec.
+ *  The 'codec.parameters' must then provide the pvData scalar type
+ *  of the uncompressed data, and 'uncompressedSize' its size in bytes.
+ *
  *  @author Kay Kasemir
  *  @author Amanda Carpenter - Original code to handle unsigned VImageDataType, detect VImageType
  */
@@ -49,7 +71,229 @@ public class ImageDecoder
             VImageType.TYPE_RGB1, VImageType.TYPE_RGB2, VImageType.TYPE_RGB3, VImageType.TYPE_YUV444,
             VImageType.TYPE_YUV422, VImageType.TYPE_YUV411 };
 
+    /** Compressed images of at least this many bytes are decompressed in the background
+     *  @see #prepareBackgroundDecode(PVAStructure)
+     */
+    public static final int BACKGROUND_DECOMPRESSION_SIZE = 1024 * 1024;
+
+    /** Byte order of uncompressed data.
+     *  Area detector compresses data in the byte order of the IOC host,
+     *  which is typically little endian.
+     */
+    private static final ByteOrder UNCOMPRESSED_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /** Decompressors by codec name */
+    private static final Map<String, ImageDecompressor> decompressors = new HashMap<>();
+
+    /** Buffer for uncompressed data that's then converted into the image data type */
+    private static final ThreadLocal<byte[]> uncompressed_buffer = ThreadLocal.withInitial(() -> new byte[0]);
+
+    static
+    {
+        for (ImageDecompressor decompressor : List.of(new LZ4Decompressor(),
+                                                      new BitshuffleLZ4Decompressor(),
+                                                      new ZlibDecompressor()))
+            decompressors.put(decompressor.getName(), decompressor);
+        for (ImageDecompressor decompressor : ServiceLoader.load(ImageDecompressor.class))
+        {
+            logger.log(Level.CONFIG, "NTNDArray codec '" + decompressor.getName() + "': " + decompressor.getClass().getName());
+            decompressors.put(decompressor.getName(), decompressor);
+        }
+    }
+
+    /** Decompression of NTNDArray data */
+    private static class CompressedImage implements Callable<VType>
+    {
+        private final ImageDecompressor decompressor;
+        private final byte[] compressed;
+        private final int scalar_type, uncompressed_size, width, height;
+        private final VImageType image_type;
+        private final Alarm alarm;
+        private final Time time;
+
+        CompressedImage(final ImageDecompressor decompressor, final byte[] compressed,
+                        final int scalar_type, final int uncompressed_size,
+                        final int width, final int height, final VImageType image_type,
+                        final Alarm alarm, final Time time)
+        {
+            this.decompressor = decompressor;
+            this.compressed = compressed;
+            this.scalar_type = scalar_type;
+            this.uncompressed_size = uncompressed_size;
+            this.width = width;
+            this.height = height;
+            this.image_type = image_type;
+            this.alarm = alarm;
+            this.time = time;
+        }
+
+        @Override
+        public VType call() throws Exception
+        {
+            // pvData ScalarType of the uncompressed data
+            final int element_size;
+            switch (scalar_type)
+            {
+            case 1: // pvByte
+            case 5: // pvUByte
+                element_size = 1;
+                break;
+            case 2: // pvShort
+            case 6: // pvUShort
+                element_size = 2;
+                break;
+            case 3: // pvInt
+            case 7: // pvUInt
+            case 9: // pvFloat
+                element_size = 4;
+                break;
+            case 4: // pvLong
+            case 8: // pvULong
+            case 10: // pvDouble
+                element_size = 8;
+                break;
+            default:
+                throw new Exception("Cannot decompress NTNDArray data of scalar type " + scalar_type);
+            }
+            if (uncompressed_size < 0  ||  uncompressed_size % element_size != 0)
+                throw new Exception("Invalid uncompressed size " + uncompressed_size + " for elements of " + element_size + " bytes");
+
+            // Byte data is passed to the image,
+            // other data types are converted from a re-used buffer
+            byte[] bytes;
+            if (element_size == 1)
+                bytes = new byte[uncompressed_size];
+            else
+            {
+                bytes = uncompressed_buffer.get();
+                if (bytes.length < uncompressed_size)
+                {
+                    bytes = new byte[uncompressed_size];
+                    uncompressed_buffer.set(bytes);
+                }
+            }
+            decompressor.decompress(compressed, compressed.length, element_size, bytes, uncompressed_size);
+
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, uncompressed_size).order(UNCOMPRESSED_ORDER);
+            final int count = uncompressed_size / element_size;
+            final ListNumber data;
+            final VImageDataType data_type;
+            switch (scalar_type)
+            {
+            case 1:
+            case 5:
+                data = ArrayByte.of(bytes);
+                data_type = scalar_type == 1 ? VImageDataType.pvByte : VImageDataType.pvUByte;
+                break;
+            case 2:
+            case 6:
+            {
+                final short[] values = new short[count];
+                buffer.asShortBuffer().get(values);
+                data = ArrayShort.of(values);
+                data_type = scalar_type == 2 ? VImageDataType.pvShort : VImageDataType.pvUShort;
+                break;
+            }
+            case 3:
+            case 7:
+            {
+                final int[] values = new int[count];
+                buffer.asIntBuffer().get(values);
+                data = ArrayInteger.of(values);
+                data_type = scalar_type == 3 ? VImageDataType.pvInt : VImageDataType.pvUInt;
+                break;
+            }
+            case 4:
+            case 8:
+            {
+                final long[] values = new long[count];
+                buffer.asLongBuffer().get(values);
+                data = ArrayLong.of(values);
+                data_type = scalar_type == 4 ? VImageDataType.pvLong : VImageDataType.pvULong;
+                break;
+            }
+            case 9:
+            {
+                final float[] values = new float[count];
+                buffer.asFloatBuffer().get(values);
+                data = ArrayFloat.of(values);
+                data_type = VImageDataType.pvFloat;
+                break;
+            }
+            default:
+            {
+                final double[] values = new double[count];
+                buffer.asDoubleBuffer().get(values);
+                data = ArrayDouble.of(values);
+                data_type = VImageDataType.pvDouble;
+            }
+            }
+            return VImage.of(height, width, data, data_type, image_type, alarm, time);
+        }
+    }
+
+    /** @param struct NTNDArray
+     *  @return VImage
+     *  @throws Exception on error
+     */
     public static VType decode(final PVAStructure struct) throws Exception
+    {
+        return prepare(struct, false).call();
+    }
+
+    /** Prepare decoding a large compressed image in the background
+     *
+     *  <p>Fetches all information from the structure,
+     *  so the returned decoder can be called on another
+     *  thread while the structure receives the next update.
+     *
+     *  @param struct NTNDArray
+     *  @return Decoder to call in background, or <code>null</code>
+     *          if the data is not compressed or not large enough
+     *          to warrant background decompression
+     *  @throws Exception on error
+     *  @see #BACKGROUND_DECOMPRESSION_SIZE
+     */
+    static Callable<VType> prepareBackgroundDecode(final PVAStructure struct) throws Exception
+    {
+        if (getCodec(struct).isEmpty()  ||
+            getNumber(struct, "uncompressedSize") < BACKGROUND_DECOMPRESSION_SIZE)
+            return null;
+        return prepare(struct, true);
+    }
+
+    /** @param struct NTNDArray
+     *  @return Codec name, empty for uncompressed data
+     */
+    private static String getCodec(final PVAStructure struct)
+    {
+        final PVAStructure codec = struct.get("codec");
+        if (codec == null)
+            return "";
+        final PVAString name = codec.get("name");
+        if (name == null  ||  name.get() == null)
+            return "";
+        return name.get();
+    }
+
+    /** @param struct Structure
+     *  @param name Name of numeric field
+     *  @return Value of field, -1 if not found
+     */
+    private static long getNumber(final PVAStructure struct, final String name)
+    {
+        final PVAData field = struct.get(name);
+        if (field instanceof PVANumber)
+            return ((PVANumber) field).getNumber().longValue();
+        return -1;
+    }
+
+    /** @param struct NTNDArray
+     *  @param background Prepare for decoding in background, i.e. need to own the data?
+     *  @return Decoder
+     *  @throws Exception on error
+     */
+    private static Callable<VType> prepare(final PVAStructure struct, final boolean background) throws Exception
     {
         // Get dimensions
         final PVAStructureArray dim = struct.get("dimension");
@@ -141,7 +385,34 @@ public class ImageDecoder
                 height = dimensions[1];
         }
 
-        // Get data and data type
+        final Alarm alarm = Decoders.decodeAlarm(struct);
+        final Time time = Decoders.decodeTime(struct);
+
+        final String codec = getCodec(struct);
+        if (! codec.isEmpty())
+        {
+            final ImageDecompressor decompressor = decompressors.get(codec);
+            if (decompressor == null)
+                throw new Exception("Cannot decode NTNDArray with unknown codec '" + codec + "'");
+            if (! (value instanceof PVAByteArray))
+                throw new Exception("Expected compressed NTNDArray data as bytes, got " + value);
+            // Background decoder needs to own the data, while
+            // immediate decompression allows re-use of the array
+            final PVAByteArray values = (PVAByteArray) value;
+            final byte[] compressed = background ? values.get() : values.peek();
+            final PVAStructure codec_struct = struct.get("codec");
+            final PVAny parameters = codec_struct.get("parameters");
+            final PVAData scalar_type = parameters == null ? null : parameters.get();
+            if (! (scalar_type instanceof PVANumber))
+                throw new Exception("Missing data type in 'codec.parameters' of NTNDArray compressed with '" + codec + "'");
+            return new CompressedImage(decompressor, compressed,
+                                       ((PVANumber) scalar_type).getNumber().intValue(),
+                                       (int) getNumber(struct, "uncompressedSize"),
+                                       width, height, image_type, alarm, time);
+        }
+
+        // Get data and data type.
+        // get() hands the decoded array to the image without copying
         final ListNumber data;
         final VImageDataType data_type;
         if (value instanceof PVAByteArray)
@@ -200,8 +471,7 @@ public class ImageDecoder
         else
             throw new Exception("Cannot decode NTNDArray type of value " + value + ", sized " + width + " x " + height);
 
-        final Alarm alarm = Decoders.decodeAlarm(struct);
-        final Time time = Decoders.decodeTime(struct);
-        return VImage.of(height, width, data, data_type, image_type, alarm, time);
+        final VImage image = VImage.of(height, width, data, data_type, image_type, alarm, time);
+        return () -> image;
     }
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2019-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2019-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -8,10 +8,15 @@
 package org.phoebus.pv.pva;
 
 import java.util.BitSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 import org.epics.pva.client.ClientChannelState;
@@ -29,9 +34,25 @@ import org.phoebus.pv.PV;
 @SuppressWarnings("nls")
 public class PVA_PV extends PV
 {
+    /** Threads for decompressing large images */
+    private static final ExecutorService image_decoders = Executors.newFixedThreadPool(
+        Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+        target ->
+        {
+            final Thread thread = new Thread(target, "PVA Image Decoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+
     private final PVAChannel channel;
     final PVNameHelper name_helper;
 
+    /** Chain of background image decoding, keeps images in order */
+    private CompletableFuture<Void> image_decoding = CompletableFuture.completedFuture(null);
+
+    /** Sequence number of the most recent received image */
+    private final AtomicLong latest_image = new AtomicLong();
+
     public PVA_PV(final String name, final String base_name) throws Exception
     {
         super(name);
@@ -81,8 +102,40 @@ public class PVA_PV extends PV
         else
             try
             {
-                final VType value = PVAStructureHelper.getVType(data, name_helper);
-                notifyListenersOfValue(value);
+                // Large compressed images are decoded off the receive thread
+                final Callable<VType> image = prepareImageDecode(data);
+                if (image != null)
+                {
+                    final long sequence = latest_image.incrementAndGet();
+                    final String type = data.formatType();
+                    image_decoding = image_decoding.thenRunAsync(() ->
+                    {
+                        // Skip image if a newer one has already been received
+                        if (sequence != latest_image.get())
+                            return;
+                        try
+                        {
+                            notifyListenersOfValue(image.call());
+                        }
+                        catch (Throwable ex)
+                        {   // Also handle errors like running out of memory for a large image
+                            logger.log(Level.WARNING, "Cannot decode image for " + channel, ex);
+                            notifyListenersOfValue(VString.of("Cannot decode " + type, Alarm.noValue(), Time.now()));
+                        }
+                    }, image_decoders)
+                    // Failure of one image must not skip decoding of later images
+                    .exceptionally(ex ->
+                    {
+                        logger.log(Level.WARNING, "Cannot handle image for " + channel, ex);
+                        return null;
+                    });
+                }
+                else
+                {
+                    latest_image.incrementAndGet();
+                    final VType value = PVAStructureHelper.getVType(data, name_helper);
+                    notifyListenersOfValue(value);
+                }
             }
             catch (Exception ex)
             {
@@ -91,6 +144,24 @@ public class PVA_PV extends PV
             }
         }
 
+    /** @param data Received data
+     *  @return Background decoder for a large compressed image, or <code>null</code>
+     *  @throws Exception on error
+     */
+    private Callable<VType> prepareImageDecode(final PVAStructure data) throws Exception
+    {
+        // Only handle complete NTNDArray, not a sub-field or element of it
+        if (! "value".equals(name_helper.getField())  ||
+            name_helper.getElementIndex().isPresent())
+            return null;
+        String type = data.getStructureName();
+        if (type.startsWith("epics:nt/"))
+            type = type.substring(9);
+        if (! type.equals("NTNDArray:1.0"))
+            return null;
+        return ImageDecoder.prepareBackgroundDecode(data);
+    }
+
     @Override
     public Future<VType> asyncRead() throws Exception
     {
@@ -38,6 +38,7 @@ public class PVA_Preferences
     private static final String EPICS_PVA_CONN_TMO = "epics_pva_conn_tmo";
     private static final String EPICS_PVA_MAX_ARRAY_FORMATTING = "epics_pva_max_array_formatting";
     private static final String EPICS_PVA_SEND_BUFFER_SIZE = "epics_pva_send_buffer_size";
+    private static final String EPICS_PVA_TCP_IO_THREADS = "epics_pva_tcp_io_threads";
 
     private static final PVA_Preferences instance = new PVA_Preferences();
 
@@ -93,6 +94,10 @@ public class PVA_Preferences
         setSystemProperty("EPICS_PVA_SEND_BUFFER_SIZE", send_buffer_size);
         logger.log(Level.INFO, "PVA " + EPICS_PVA_SEND_BUFFER_SIZE + ": " + send_buffer_size);
 
+        final String tcp_io_threads = prefs.get(EPICS_PVA_TCP_IO_THREADS);
+        setSystemProperty("EPICS_PVA_TCP_IO_THREADS", tcp_io_threads);
+        logger.log(Level.INFO, "PVA " + EPICS_PVA_TCP_IO_THREADS + ": " + tcp_io_threads);
+
     }
 
     /** Sets property from preferences to System properties only if property
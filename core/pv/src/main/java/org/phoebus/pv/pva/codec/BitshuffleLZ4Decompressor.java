@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pv.pva.codec;
+
+import java.util.Arrays;
+
+/** Decompressor for "bslz4", bitshuffle with LZ4
+ *
+ *  <p>Data is created by the area detector codec plugin via
+ *  <code>bshuf_compress_lz4</code> with default block size, without header.
+ *  Elements are grouped into blocks.
+ *  Each block is bit-shuffled, i.e. the bits of all elements
+ *  are transposed into bit planes, and then LZ4-compressed.
+ *  Each compressed block is preceded by its big-endian 32 bit size.
+ *  A final group of less than 8 elements is appended as is.
+ */
+@SuppressWarnings("nls")
+public class BitshuffleLZ4Decompressor implements ImageDecompressor
+{
+    /** Target size of a block in bytes */
+    private static final int TARGET_BLOCK_BYTES = 8192;
+
+    /** Minimum number of elements in a block */
+    private static final int MIN_BLOCK_ELEMENTS = 128;
+
+    /** Element count of a block must be a multiple of this */
+    private static final int BLOCK_MULTIPLE = 8;
+
+    /** Buffer for the bit-shuffled data of one block */
+    private static final ThreadLocal<byte[]> block_buffer = ThreadLocal.withInitial(() -> new byte[0]);
+
+    @Override
+    public String getName()
+    {
+        return "bslz4";
+    }
+
+    /** @param element_size Size of one data element in bytes
+     *  @return Default number of elements per block
+     */
+    static int getBlockSize(final int element_size)
+    {
+        final int size = TARGET_BLOCK_BYTES / element_size;
+        return Math.max(MIN_BLOCK_ELEMENTS, size / BLOCK_MULTIPLE * BLOCK_MULTIPLE);
+    }
+
+    @Override
+    public void decompress(final byte[] input, final int input_length, final int element_size,
+                           final byte[] output, final int output_length) throws Exception
+    {
+        if (output_length % element_size != 0)
+            throw new Exception("Uncompressed size " + output_length + " is not a multiple of element size " + element_size);
+        final int elements = output_length / element_size;
+        final int block_size = getBlockSize(element_size);
+
+        byte[] shuffled = block_buffer.get();
+        if (shuffled.length < block_size * element_size)
+        {
+            shuffled = new byte[block_size * element_size];
+            block_buffer.set(shuffled);
+        }
+
+        int in = 0, out = 0;
+        int remaining = elements;
+        while (remaining >= BLOCK_MULTIPLE)
+        {
+            final int count = Math.min(block_size, remaining - remaining % BLOCK_MULTIPLE);
+            final int bytes = count * element_size;
+            if (input_length - in < 4)
+                throw new Exception("Bitshuffle data ends before block at element " + (elements - remaining));
+            final int compressed = ((input[in] & 0xFF) << 24) | ((input[in+1] & 0xFF) << 16) |
+                                   ((input[in+2] & 0xFF) <<  8) |  (input[in+3] & 0xFF);
+            in += 4;
+            if (compressed < 0  ||  compressed > input_length - in)
+                throw new Exception("Bitshuffle block size " + compressed + " exceeds data");
+            final int length = LZ4Decompressor.decompressBlock(input, in, in + compressed, shuffled, 0, bytes);
+            if (length != bytes)
+                throw new Exception("Bitshuffle block decompressed into " + length + " instead of " + bytes + " bytes");
+            in += compressed;
+            unshuffle(shuffled, count, element_size, output, out);
+            out += bytes;
+            remaining -= count;
+        }
+
+        // Left-over elements are not compressed
+        final int left = remaining * element_size;
+        if (input_length - in != left)
+            throw new Exception("Bitshuffle data has " + (input_length - in) + " instead of " + left + " bytes for the last elements");
+        System.arraycopy(input, in, output, out, left);
+    }
+
+    /** Transpose bit planes back into elements
+     *
+     *  <p>Bit plane <code>8*j + b</code> holds bit <code>b</code>
+     *  of byte <code>j</code> for all elements,
+     *  with the bit for element <code>i</code> in bit <code>i % 8</code>
+     *  of byte <code>i / 8</code> of the plane.
+     *
+     *  @param shuffled Bit planes
+     *  @param count Number of elements, multiple of 8
+     *  @param element_size Bytes per element
+     *  @param output Buffer for elements
+     *  @param out Start of elements in output
+     */
+    static void unshuffle(final byte[] shuffled, final int count, final int element_size,
+                          final byte[] output, final int out)
+    {
+        final int plane = count / 8;
+        Arrays.fill(output, out, out + count * element_size, (byte) 0);
+        for (int j=0; j<element_size; ++j)
+        {
+            final int planes = 8 * j * plane;
+            for (int k=0; k<plane; ++k)
+            {
+                // Byte b of x holds bit b of byte j for 8 elements
+                long x = 0;
+                for (int b=0; b<8; ++b)
+                    x |= (shuffled[planes + b*plane + k] & 0xFFL) << (8*b);
+                if (x == 0)
+                    continue;
+                // Transpose 8x8 bits so that byte m of x holds byte j of element m
+                long t = (x ^ (x >>> 7)) & 0x00AA00AA00AA00AAL;
+                x = x ^ t ^ (t << 7);
+                t = (x ^ (x >>> 14)) & 0x0000CCCC0000CCCCL;
+                x = x ^ t ^ (t << 14);
+                t = (x ^ (x >>> 28)) & 0x00000000F0F0F0F0L;
+                x = x ^ t ^ (t << 28);
+                final int element = out + 8 * k * element_size + j;
+                for (int m=0; m<8; ++m)
+                    output[element + m * element_size] = (byte) (x >>> (8*m));
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pv.pva.codec;
+
+/** Decompressor for the data of an NTNDArray
+ *
+ *  <p>When the 'codec.name' of an NTNDArray is not empty,
+ *  the 'value' holds compressed bytes that
+ *  a decompressor with that name turns back into the image data.
+ *
+ *  <p>Built-in decompressors handle "lz4", "bslz4" and "zlib".
+ *  Additional decompressors can be provided as a
+ *  {@link java.util.ServiceLoader} service.
+ *
+ *  <p>Decompressors are called concurrently
+ *  from several threads.
+ */
+public interface ImageDecompressor
+{
+    /** @return Codec name, matched against the 'codec.name' of the NTNDArray */
+    public String getName();
+
+    /** Decompress data
+     *
+     *  @param input Compressed data
+     *  @param input_length Number of compressed bytes in input
+     *  @param element_size Size of one data element in bytes
+     *  @param output Buffer for uncompressed data, may be larger than output_length
+     *  @param output_length Expected number of uncompressed bytes
+     *  @throws Exception on error, including data that does not decompress into output_length bytes
+     */
+    public void decompress(byte[] input, int input_length, int element_size,
+                           byte[] output, int output_length) throws Exception;
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pv.pva.codec;
+
+/** Decompressor for "lz4"
+ *
+ *  <p>Data is one LZ4 block without frame header,
+ *  as created by the area detector codec plugin via
+ *  <code>LZ4_compress_default</code>.
+ */
+@SuppressWarnings("nls")
+public class LZ4Decompressor implements ImageDecompressor
+{
+    @Override
+    public String getName()
+    {
+        return "lz4";
+    }
+
+    @Override
+    public void decompress(final byte[] input, final int input_length, final int element_size,
+                           final byte[] output, final int output_length) throws Exception
+    {
+        final int length = decompressBlock(input, 0, input_length, output, 0, output_length);
+        if (length != output_length)
+            throw new Exception("LZ4 data decompressed into " + length + " instead of " + output_length + " bytes");
+    }
+
+    /** Decompress one LZ4 block
+     *
+     *  @param input Compressed data
+     *  @param in Start of the block in input
+     *  @param in_end End of the block in input
+     *  @param output Buffer for uncompressed data
+     *  @param out Start of uncompressed data in output
+     *  @param out_end Maximum end of uncompressed data in output
+     *  @return Number of uncompressed bytes
+     *  @throws Exception on corrupt data
+     */
+    static int decompressBlock(final byte[] input, int in, final int in_end,
+                               final byte[] output, int out, final int out_end) throws Exception
+    {
+        final int out_start = out;
+        while (in < in_end)
+        {
+            // Token: 4 bits literal length, 4 bits match length
+            final int token = input[in++] & 0xFF;
+            int length = token >>> 4;
+            if (length == 15)
+            {
+                int add;
+                do
+                {
+                    if (in >= in_end)
+                        throw new Exception("Corrupt LZ4 data, missing literal length");
+                    add = input[in++] & 0xFF;
+                    length += add;
+                }
+                while (add == 255);
+            }
+            if (length > in_end - in  ||  length > out_end - out)
+                throw new Exception("Corrupt LZ4 data, " + length + " literals exceed buffer");
+            System.arraycopy(input, in, output, out, length);
+            in += length;
+            out += length;
+
+            // Last sequence only has literals
+            if (in >= in_end)
+                break;
+
+            if (in_end - in < 2)
+                throw new Exception("Corrupt LZ4 data, missing match offset");
+            final int offset = (input[in++] & 0xFF) | ((input[in++] & 0xFF) << 8);
+            if (offset <= 0  ||  offset > out - out_start)
+                throw new Exception("Corrupt LZ4 data, invalid match offset " + offset);
+            length = token & 0x0F;
+            if (length == 15)
+            {
+                int add;
+                do
+                {
+                    if (in >= in_end)
+                        throw new Exception("Corrupt LZ4 data, missing match length");
+                    add = input[in++] & 0xFF;
+                    length += add;
+                }
+                while (add == 255);
+            }
+            length += 4;
+            if (length > out_end - out)
+                throw new Exception("Corrupt LZ4 data, match of " + length + " bytes exceeds buffer");
+
+            int match = out - offset;
+            if (offset >= length)
+            {
+                System.arraycopy(output, match, output, out, length);
+                out += length;
+            }
+            else // Overlapping match repeats the most recent bytes
+                for (int i=0; i<length; ++i)
+                    output[out++] = output[match++];
+        }
+        return out - out_start;
+    }
+}
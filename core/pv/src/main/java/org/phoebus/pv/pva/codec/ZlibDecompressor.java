@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pv.pva.codec;
+
+import java.util.zip.Inflater;
+
+/** Decompressor for "zlib"
+ *
+ *  <p>Data is a zlib stream as created by <code>compress()</code>.
+ */
+@SuppressWarnings("nls")
+public class ZlibDecompressor implements ImageDecompressor
+{
+    @Override
+    public String getName()
+    {
+        return "zlib";
+    }
+
+    @Override
+    public void decompress(final byte[] input, final int input_length, final int element_size,
+                           final byte[] output, final int output_length) throws Exception
+    {
+        final Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput(input, 0, input_length);
+            int length = 0;
+            while (length < output_length  &&  ! inflater.finished())
+            {
+                final int chunk = inflater.inflate(output, length, output_length - length);
+                if (chunk == 0  &&  (inflater.needsInput()  ||  inflater.needsDictionary()))
+                    break;
+                length += chunk;
+            }
+            if (length != output_length  ||  ! inflater.finished())
+                throw new Exception("zlib data decompressed into " + length + " instead of " + output_length + " bytes");
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.phoebus.pv.RefCountMap.ReferencedEntry;
+
+/** JUnit test of the {@link RefCountMap} and {@link PVPool} statistics
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class RefCountMapTest
+{
+    @Test
+    public void testReferences()
+    {
+        final RefCountMap<String, String> map = new RefCountMap<>();
+        final ReferencedEntry<String> a = map.createOrGet("a", () -> "A");
+        assertEquals("A", a.getEntry());
+        assertSame(a, map.createOrGet("a", () -> "Other A"));
+        assertEquals(2, a.getReferences());
+        assertEquals(1, map.release("a"));
+        assertEquals(0, map.release("a"));
+        assertEquals(0, map.getEntries().size());
+
+        // Created again
+        assertEquals("New A", map.createOrGet("a", () -> "New A").getEntry());
+        assertEquals(2, map.getCreations());
+    }
+
+    @Test
+    public void testSharedCreation() throws Exception
+    {
+        final RefCountMap<String, String> map = new RefCountMap<>();
+        final CountDownLatch slow_started = new CountDownLatch(1), finish_slow = new CountDownLatch(1);
+        final AtomicInteger slow_creations = new AtomicInteger();
+        final ExecutorService pool = Executors.newCachedThreadPool();
+        final List<Future<ReferencedEntry<String>>> slow = new ArrayList<>();
+        for (int i=0; i<10; ++i)
+            slow.add(pool.submit(() -> map.createOrGet("slow", () ->
+            {
+                slow_creations.incrementAndGet();
+                slow_started.countDown();
+                try
+                {
+                    finish_slow.await();
+                }
+                catch (InterruptedException ex)
+                {
+                    throw new RuntimeException(ex);
+                }
+                return "Slow";
+            })));
+        assertTrue(slow_started.await(10, TimeUnit.SECONDS));
+
+        // While the slow entry is created, other entries are accessible
+        assertEquals("Fast", map.createOrGet("fast", () -> "Fast").getEntry());
+        assertEquals(1, map.getEntries().size());
+
+        // All waiting threads share the one slow creation
+        finish_slow.countDown();
+        for (Future<ReferencedEntry<String>> result : slow)
+            assertEquals("Slow", result.get(10, TimeUnit.SECONDS).getEntry());
+        assertEquals(1, slow_creations.get());
+        assertEquals(10, slow.get(0).get().getReferences());
+        assertEquals(2, map.getCreations());
+        System.out.println(map.getWaits() + " waits, " + map.getWaitNanos()/1e6 + " ms");
+        pool.shutdown();
+    }
+
+    @Test
+    public void testFailure()
+    {
+        final RefCountMap<String, String> map = new RefCountMap<>();
+        try
+        {
+            map.createOrGet("bad", () -> { throw new IllegalStateException("Cannot create"); });
+            fail("Didn't fail");
+        }
+        catch (RuntimeException ex)
+        {
+            assertTrue(ex.getMessage().contains("bad"));
+        }
+        assertEquals(1, map.getFailures());
+        assertEquals(0, map.getEntries().size());
+        // Next attempt may succeed
+        assertEquals("Good", map.createOrGet("bad", () -> "Good").getEntry());
+
+        // Recursive creation of other entries is OK, of the same entry an error
+        assertEquals("Outer", map.createOrGet("outer", () -> map.createOrGet("inner", () -> "Inner").getEntry().replace("Inner", "Outer")).getEntry());
+        try
+        {
+            map.createOrGet("loop", () -> map.createOrGet("loop", () -> "Loop").getEntry());
+            fail("Didn't detect recursion");
+        }
+        catch (RuntimeException ex)
+        {
+            System.out.println(ex.getCause().getMessage());
+        }
+        assertEquals(3, map.getEntries().size());
+    }
+
+    @Test
+    public void testStatistics() throws Exception
+    {
+        final PVPoolStatistics start = PVPool.getStatistics();
+        final List<PV> pvs = new ArrayList<>();
+        for (int i=0; i<5; ++i)
+            pvs.add(PVPool.getPV("loc://stat_test" + i + "(1)"));
+        for (int i=0; i<3; ++i)
+            pvs.add(PVPool.getPV("loc://stat_test0(1)"));
+        final PVPoolStatistics stats = PVPool.getStatistics();
+        System.out.println(stats);
+        assertEquals(5, stats.getCreations() - start.getCreations());
+        assertTrue(stats.getPVsPerType().get("loc") >= 5);
+        // Four PVs with 1 reference, one with 4
+        assertTrue(stats.getReferenceHistogram()[0] >= 4);
+        assertTrue(stats.getReferenceHistogram()[2] >= 1);
+        assertTrue(stats.getCreationsPerSecond(start) > 0);
+        for (PV pv : pvs)
+            PVPool.releasePV(pv);
+    }
+}
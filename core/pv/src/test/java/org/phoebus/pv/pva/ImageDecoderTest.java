@@ -0,0 +1,327 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pv.pva;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.zip.Deflater;
+
+import org.epics.pva.data.PVABool;
+import org.epics.pva.data.PVAByteArray;
+import org.epics.pva.data.PVAData;
+import org.epics.pva.data.PVADoubleArray;
+import org.epics.pva.data.PVAInt;
+import org.epics.pva.data.PVAIntArray;
+import org.epics.pva.data.PVALong;
+import org.epics.pva.data.PVAShortArray;
+import org.epics.pva.data.PVAString;
+import org.epics.pva.data.PVAStructure;
+import org.epics.pva.data.PVAStructureArray;
+import org.epics.pva.data.PVAUnion;
+import org.epics.pva.data.PVAny;
+import org.epics.pva.data.nt.PVATimeStamp;
+import org.epics.vtype.VImage;
+import org.epics.vtype.VType;
+import org.junit.Test;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+
+/** JUnit test of decoding compressed NTNDArray data
+ *
+ *  <p>Compresses test images locally, then checks that
+ *  they decode into the same VImage as the uncompressed data.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ImageDecoderTest
+{
+    // pvData scalar types, which are also the index of the image union elements
+    private static final int BYTE = 1, SHORT = 2, INT = 3, USHORT = 6, DOUBLE = 10;
+
+    private static final LZ4Compressor lz4 = LZ4Factory.fastestInstance().fastCompressor();
+
+    private static final PVATimeStamp time = new PVATimeStamp();
+
+    /** Test image */
+    private static class TestImage
+    {
+        final int width, height, type;
+        /** Uncompressed PVA array */
+        final PVAData array;
+        /** Uncompressed data as little endian bytes */
+        final byte[] bytes;
+
+        TestImage(final int width, final int height, final int type)
+        {
+            this.width = width;
+            this.height = height;
+            this.type = type;
+            final int n = width * height;
+            final ByteBuffer buffer;
+            if (type == BYTE)
+            {
+                final byte[] data = new byte[n];
+                for (int i=0; i<n; ++i)
+                    data[i] = (byte) (i % 13 + i / width);
+                array = new PVAByteArray("byteValue", false, data);
+                bytes = data.clone();
+                return;
+            }
+            else if (type == SHORT  ||  type == USHORT)
+            {
+                final short[] data = new short[n];
+                for (int i=0; i<n; ++i)
+                    data[i] = (short) (1000 + (i % width) * (i / width));
+                array = new PVAShortArray(type == SHORT ? "shortValue" : "ushortValue", type == USHORT, data);
+                buffer = ByteBuffer.allocate(n * Short.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.asShortBuffer().put(data);
+            }
+            else if (type == INT)
+            {
+                final int[] data = new int[n];
+                for (int i=0; i<n; ++i)
+                    data[i] = (i % width) * 100000 - (i / width);
+                array = new PVAIntArray("intValue", false, data);
+                buffer = ByteBuffer.allocate(n * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.asIntBuffer().put(data);
+            }
+            else
+            {
+                final double[] data = new double[n];
+                for (int i=0; i<n; ++i)
+                    data[i] = Math.sin(0.1 * (i % width)) * Math.cos(0.05 * (i / width));
+                array = new PVADoubleArray("doubleValue", data);
+                buffer = ByteBuffer.allocate(n * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.asDoubleBuffer().put(data);
+            }
+            bytes = buffer.array();
+        }
+
+        int getElementSize()
+        {
+            return bytes.length / (width * height);
+        }
+    }
+
+    /** @param image Image
+     *  @param value Union element for the 'value'
+     *  @param codec Codec name
+     *  @param compressed Compressed size
+     *  @return NTNDArray
+     */
+    private static PVAStructure createNTNDArray(final TestImage image, final PVAData value,
+                                                final String codec, final int compressed)
+    {
+        final PVAStructure dim1 = new PVAStructure("", "dimension_t",
+                                                   new PVAInt("size", image.width),
+                                                   new PVAInt("offset", 0),
+                                                   new PVAInt("fullSize", image.width),
+                                                   new PVAInt("binning", 1),
+                                                   new PVABool("reverse", false));
+        final PVAStructure dim2 = new PVAStructure("", "dimension_t",
+                                                   new PVAInt("size", image.height),
+                                                   new PVAInt("offset", 0),
+                                                   new PVAInt("fullSize", image.height),
+                                                   new PVAInt("binning", 1),
+                                                   new PVABool("reverse", false));
+        final PVAStructure attr = new PVAStructure("", "epics:nt/NTAttribute:1.0",
+                                                   new PVAString("name"),
+                                                   new PVAny("value"),
+                                                   new PVAString("descriptor"),
+                                                   new PVAInt("sourceType"),
+                                                   new PVAString("source"));
+        return new PVAStructure("", "epics:nt/NTNDArray:1.0",
+                                new PVAUnion("value", "", 0, value),
+                                new PVAStructure("codec", "codec_t",
+                                                 new PVAString("name", codec),
+                                                 new PVAny("parameters", new PVAInt("", false, image.type))),
+                                new PVALong("compressedSize", false, compressed),
+                                new PVALong("uncompressedSize", false, image.bytes.length),
+                                new PVAStructureArray("dimension", dim1, dim2),
+                                new PVAInt("uniqueId", false, 1),
+                                new PVAStructureArray("attribute", attr),
+                                time);
+    }
+
+    /** @param image Image
+     *  @param codec Codec name
+     *  @param compressed Compressed data
+     *  @return NTNDArray with compressed data
+     */
+    private static PVAStructure createCompressed(final TestImage image, final String codec, final byte[] compressed)
+    {
+        return createNTNDArray(image, new PVAByteArray("ubyteValue", true, compressed), codec, compressed.length);
+    }
+
+    /** @param image Image
+     *  @return Image data compressed as bitshuffle/LZ4 blocks
+     */
+    private static byte[] bitshuffleLZ4(final TestImage image)
+    {
+        final int size = image.getElementSize();
+        final int elements = image.width * image.height;
+        final int block_size = Math.max(128, 8192 / size / 8 * 8);
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        int start = 0;
+        while (elements - start >= 8)
+        {
+            final int remaining = elements - start;
+            final int count = Math.min(block_size, remaining - remaining % 8);
+            // Plane 8*j + b has bit b of byte j for all elements
+            final byte[] shuffled = new byte[count * size];
+            for (int i=0; i<count; ++i)
+                for (int j=0; j<size; ++j)
+                    for (int b=0; b<8; ++b)
+                        if ((image.bytes[(start + i) * size + j] & (1 << b)) != 0)
+                            shuffled[(8*j + b) * count/8 + i/8] |= 1 << (i % 8);
+            final byte[] block = lz4.compress(shuffled);
+            result.write(block.length >>> 24);
+            result.write(block.length >>> 16);
+            result.write(block.length >>> 8);
+            result.write(block.length);
+            result.write(block, 0, block.length);
+            start += count;
+        }
+        result.write(image.bytes, start * size, (elements - start) * size);
+        return result.toByteArray();
+    }
+
+    /** @param image Image
+     *  @return Image data compressed with zlib
+     */
+    private static byte[] zlib(final TestImage image)
+    {
+        final Deflater deflater = new Deflater();
+        deflater.setInput(image.bytes);
+        deflater.finish();
+        final byte[] buffer = new byte[image.bytes.length + 100];
+        final int length = deflater.deflate(buffer);
+        deflater.end();
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /** Check that compressed data decodes like uncompressed data
+     *  @param image Image
+     *  @param compressed NTNDArray with compressed data
+     *  @throws Exception on error
+     */
+    private static void checkDecoding(final TestImage image, final PVAStructure compressed) throws Exception
+    {
+        final VImage expected = (VImage) ImageDecoder.decode(createNTNDArray(image, image.array, "", 0));
+        final VType decoded = ImageDecoder.decode(compressed);
+        assertThat(decoded, instanceOf(VImage.class));
+        final VImage actual = (VImage) decoded;
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertEquals(expected.getDataType(), actual.getDataType());
+        assertEquals(expected.getVImageType(), actual.getVImageType());
+        assertEquals(expected.getData(), actual.getData());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testLZ4() throws Exception
+    {
+        for (int type : new int[] { BYTE, SHORT, USHORT, INT, DOUBLE })
+        {
+            final TestImage image = new TestImage(100, 80, type);
+            final byte[] compressed = lz4.compress(image.bytes);
+            System.out.println("lz4, type " + type + ": " + image.bytes.length + " -> " + compressed.length + " bytes");
+            checkDecoding(image, createCompressed(image, "lz4", compressed));
+        }
+    }
+
+    @Test
+    public void testBitshuffleLZ4() throws Exception
+    {
+        // Several blocks, and odd sizes with left-over elements that are not compressed
+        for (int type : new int[] { BYTE, SHORT, USHORT, INT, DOUBLE })
+            for (int[] size : new int[][] { { 100, 80 }, { 37, 29 }, { 3, 2 } })
+            {
+                final TestImage image = new TestImage(size[0], size[1], type);
+                final byte[] compressed = bitshuffleLZ4(image);
+                System.out.println("bslz4, type " + type + ": " + image.bytes.length + " -> " + compressed.length + " bytes");
+                checkDecoding(image, createCompressed(image, "bslz4", compressed));
+            }
+    }
+
+    @Test
+    public void testZlib() throws Exception
+    {
+        for (int type : new int[] { BYTE, SHORT, INT, DOUBLE })
+        {
+            final TestImage image = new TestImage(100, 80, type);
+            final byte[] compressed = zlib(image);
+            System.out.println("zlib, type " + type + ": " + image.bytes.length + " -> " + compressed.length + " bytes");
+            checkDecoding(image, createCompressed(image, "zlib", compressed));
+        }
+    }
+
+    @Test
+    public void testErrors() throws Exception
+    {
+        final TestImage image = new TestImage(100, 80, SHORT);
+        try
+        {
+            ImageDecoder.decode(createCompressed(image, "jpeg", image.bytes));
+            fail("Decoded unknown codec");
+        }
+        catch (Exception ex)
+        {
+            assertThat(ex.getMessage(), containsString("jpeg"));
+        }
+
+        // Truncated data
+        final byte[] compressed = lz4.compress(image.bytes);
+        try
+        {
+            ImageDecoder.decode(createCompressed(image, "lz4", Arrays.copyOf(compressed, compressed.length / 2)));
+            fail("Decoded truncated data");
+        }
+        catch (Exception ex)
+        {
+            System.out.println("Truncated data: " + ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testBackgroundDecoding() throws Exception
+    {
+        // Small or uncompressed images are decoded right away
+        TestImage image = new TestImage(100, 80, USHORT);
+        assertThat(ImageDecoder.prepareBackgroundDecode(createCompressed(image, "lz4", lz4.compress(image.bytes))), nullValue());
+        image = new TestImage(1024, 1024, USHORT);
+        assertThat(ImageDecoder.prepareBackgroundDecode(createNTNDArray(image, image.array, "", 0)), nullValue());
+
+        // Large compressed image is prepared for background decoding
+        final byte[] compressed = bitshuffleLZ4(image);
+        final PVAStructure data = createCompressed(image, "bslz4", compressed);
+        final Callable<VType> decoder = ImageDecoder.prepareBackgroundDecode(data);
+        assertThat(decoder, notNullValue());
+
+        // Decoder owns the compressed data, so structure may receive the next update
+        final PVAByteArray value = ((PVAUnion) data.get("value")).get();
+        value.set(new byte[] { 1, 2, 3 });
+
+        final VImage expected = (VImage) ImageDecoder.decode(createNTNDArray(image, image.array, "", 0));
+        assertEquals(expected, decoder.call());
+    }
+}
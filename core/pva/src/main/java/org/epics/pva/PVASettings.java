@@ -171,6 +171,35 @@ public class PVASettings
     /** Maximum number of array elements shown when printing data */
     public static int EPICS_PVA_MAX_ARRAY_FORMATTING = 256;
 
+    /** Number of TCP I/O threads
+     *
+     *  <p>When 0, each TCP connection uses one thread to receive
+     *  and one thread to send messages.
+     *
+     *  <p>When larger than 0, all TCP connections of the client
+     *  and server are handled by this number of threads,
+     *  each using a {@link java.nio.channels.Selector}
+     *  to read and write the sockets that it has been assigned.
+     *  Note that message handlers, including client listeners,
+     *  are then invoked on these shared threads and must not block.
+     *
+     *  <p>The setting is checked whenever a new TCP connection is created.
+     */
+    public static int EPICS_PVA_TCP_IO_THREADS = 0;
+
+    /** Re-use arrays when decoding numeric array data?
+     *
+     *  <p>When enabled, a numeric array like a {@link org.epics.pva.data.PVADoubleArray}
+     *  decodes a received value into its current array
+     *  if the size is unchanged and the current array has not been
+     *  handed out via <code>get()</code>, which is the case when
+     *  clients only <code>peek()</code> at the data.
+     *  This reduces garbage for large, frequently updated arrays,
+     *  but the data must then only be accessed
+     *  from within the client listener.
+     */
+    public static boolean EPICS_PVA_RECYCLE_ARRAYS = false;
+
     static
     {
         EPICS_PVA_ADDR_LIST = get("EPICS_PVA_ADDR_LIST", EPICS_PVA_ADDR_LIST);
@@ -183,6 +212,8 @@ public class PVASettings
         EPICS_PVA_CONN_TMO = get("EPICS_PVA_CONN_TMO", EPICS_PVA_CONN_TMO);
         EPICS_PVA_MAX_ARRAY_FORMATTING = get("EPICS_PVA_MAX_ARRAY_FORMATTING", EPICS_PVA_MAX_ARRAY_FORMATTING);
         EPICS_PVA_SEND_BUFFER_SIZE = get("EPICS_PVA_SEND_BUFFER_SIZE", EPICS_PVA_SEND_BUFFER_SIZE);
+        EPICS_PVA_TCP_IO_THREADS = get("EPICS_PVA_TCP_IO_THREADS", EPICS_PVA_TCP_IO_THREADS);
+        EPICS_PVA_RECYCLE_ARRAYS = get("EPICS_PVA_RECYCLE_ARRAYS", EPICS_PVA_RECYCLE_ARRAYS);
     }
 
     /** Get setting from property, environment or default
@@ -114,6 +114,10 @@ class ClientTCPHandler extends TCPHandler
         last_life_sign = last_message_sent = System.currentTimeMillis();
         final long period = Math.max(1, PVASettings.EPICS_PVA_CONN_TMO * 1000L / 30 * 3);
         alive_check = timer.scheduleWithFixedDelay(this::checkResponsiveness, period, period, TimeUnit.MILLISECONDS);
+
+        // Fields are initialized, ready to handle received messages
+        startReceiver();
+
         // Don't start the send thread, yet.
         // To prevent sending messages before the server is ready,
         // it's started when server confirms the connection.
@@ -208,11 +212,10 @@ class ClientTCPHandler extends TCPHandler
     }
 
     @Override
-    protected void send(ByteBuffer buffer) throws Exception
+    protected void onSend()
     {
         // Remember when we last sent a message to the server
         last_message_sent = System.currentTimeMillis();
-        super.send(buffer);
     }
 
     ResponseHandler getResponseHandler(final int request_id)
@@ -11,14 +11,18 @@ import static org.epics.pva.PVASettings.logger;
 
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 
 import org.epics.pva.PVASettings;
@@ -33,6 +37,13 @@ import org.epics.pva.data.PVAString;
  *  and dispatches to derived class.
  *
  *  <p>Maintains send queue.
+ *  Items that are already queued when the sender
+ *  is ready for the next message are combined into
+ *  one buffer to reduce the number of socket writes.
+ *
+ *  <p>By default, each handler uses a receive and a send thread.
+ *  When {@link PVASettings#EPICS_PVA_TCP_IO_THREADS} is set,
+ *  the socket is non-blocking and served by a shared {@link TCPSelector}.
  *
  *  @author Kay Kasemir
  */
@@ -96,13 +107,44 @@ abstract public class TCPHandler
         return thread;
     });
 
-    /** Thread that runs {@link TCPHandler#receiver()} */
-    private final Future<Void> receive_thread;
+    /** Thread that runs {@link TCPHandler#receiver()},
+     *  or {@link #read_done} in selector mode
+     */
+    private volatile Future<Void> receive_thread;
 
-    /** Thread that runs {@link TCPHandler#sender()} */
+    /** Thread that runs {@link TCPHandler#sender()},
+     *  or {@link #write_done} in selector mode
+     */
     private volatile Future<Void> send_thread;
 
-    /** Start receiving messages
+    /** Selector thread that reads and writes the socket,
+     *  <code>null</code> when using receive and send threads
+     */
+    private final TCPSelector selector;
+
+    /** Selector mode: Key of socket, only accessed on selector thread */
+    private SelectionKey key = null;
+
+    /** Selector mode: Completed when socket is no longer read */
+    private final CompletableFuture<Void> read_done;
+
+    /** Selector mode: Completed when sending ends,
+     *  <code>null</code> until sender is started
+     */
+    private volatile CompletableFuture<Void> write_done = null;
+
+    /** Selector mode: Has writing been scheduled on the selector thread? */
+    private final AtomicBoolean write_scheduled = new AtomicBoolean();
+
+    /** Selector mode: Does the flipped send buffer hold data yet to be written?
+     *  Only accessed on selector thread
+     */
+    private boolean write_pending = false;
+
+    /** Selector mode: Was END_REQUEST reached? Only accessed on selector thread */
+    private boolean write_ending = false;
+
+    /** Create TCP handler
      *
      *  <p>Will accept messages to be sent,
      *  but will only start sending them when the
@@ -110,15 +152,44 @@ abstract public class TCPHandler
      *
      *  @param socket Socket to read/write
      *  @param client_mode Is this the client, expecting to receive messages from server?
+     *  @throws Exception on error
+     *  @see #startReceiver()
      *  @see #startSender()
      */
-    public TCPHandler(final SocketChannel socket, final boolean client_mode)
+    public TCPHandler(final SocketChannel socket, final boolean client_mode) throws Exception
     {
         this.socket = socket;
         this.client_mode = client_mode;
 
-        // Start receiving data
-        receive_thread = thread_pool.submit(this::receiver);
+        if (PVASettings.EPICS_PVA_TCP_IO_THREADS > 0)
+        {
+            selector = TCPSelector.assign();
+            socket.configureBlocking(false);
+            read_done = new CompletableFuture<>();
+        }
+        else
+        {
+            selector = null;
+            read_done = null;
+        }
+    }
+
+    /** Start receiving messages
+     *
+     *  <p>Derived class must call this once it is fully
+     *  initialized and ready to handle received messages.
+     */
+    protected void startReceiver()
+    {
+        TCPStatistics.connections.incrementAndGet();
+        if (selector == null)
+            receive_thread = thread_pool.submit(this::receiver);
+        else
+        {
+            // Selector thread will read data once socket is registered
+            receive_thread = read_done;
+            selector.execute(this::register);
+        }
     }
 
     /** Start send thread
@@ -130,10 +201,17 @@ abstract public class TCPHandler
      */
     protected void startSender() throws Exception
     {
-        if (send_thread == null)
+        if (send_thread != null)
+            throw new Exception("Send thread already running");
+        if (selector == null)
             send_thread = thread_pool.submit(this::sender);
         else
-            throw new Exception("Send thread already running");
+        {
+            write_done = new CompletableFuture<>();
+            send_thread = write_done;
+            // Write what's already queued
+            scheduleWrite();
+        }
     }
 
     /** @return Remote address of this end of the TCP socket */
@@ -156,7 +234,11 @@ abstract public class TCPHandler
     public boolean submit(final RequestEncoder item)
     {
         if (send_items.offer(item))
+        {
+            if (selector != null  &&  write_done != null)
+                scheduleWrite();
             return true;
+        }
         logger.log(Level.WARNING, this + " send queue full");
         return false;
     }
@@ -164,37 +246,102 @@ abstract public class TCPHandler
     /** Send {@link RequestEncoder} entries off queue */
     private Void sender()
     {
+        TCPStatistics.threads.incrementAndGet();
         try
         {
             Thread.currentThread().setName("TCP sender from " + socket.getLocalAddress() + " to " + socket.getRemoteAddress());
             logger.log(Level.FINER, Thread.currentThread().getName() + " started");
-            while (true)
+            boolean end = false;
+            while (! end)
             {
                 send_buffer.clear();
-                final RequestEncoder to_send = send_items.take();
-                if (to_send == END_REQUEST)
-                    break;
-                try
-                {
-                    to_send.encodeRequest(server_version, send_buffer);
-                }
-                catch (Exception ex)
-                {
-                    logger.log(Level.WARNING, Thread.currentThread().getName() + " request encoding error", ex);
-                    continue;
-                }
+                end = encodeRequests(send_items.take());
                 send_buffer.flip();
-                send(send_buffer);
+                if (send_buffer.hasRemaining())
+                    send(send_buffer);
             }
         }
         catch (Exception ex)
         {
             logger.log(Level.WARNING, Thread.currentThread().getName() + " exits because of error", ex);
         }
+        finally
+        {
+            TCPStatistics.threads.decrementAndGet();
+        }
         logger.log(Level.FINER, Thread.currentThread().getName() + " done.");
         return null;
     }
 
+    /** Encode items from the send queue
+     *
+     *  <p>Encodes the first item, then adds items that are
+     *  already queued until the send buffer holds about
+     *  as much as the peer can receive at once.
+     *  Items are then sent with one write instead of
+     *  one write per item.
+     *
+     *  @param first First item, already taken off the queue
+     *  @return <code>true</code> when END_REQUEST was reached
+     */
+    private boolean encodeRequests(final RequestEncoder first)
+    {
+        if (first == END_REQUEST)
+            return true;
+        try
+        {
+            encodeRequest(first);
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, this + " request encoding error", ex);
+        }
+
+        RequestEncoder item;
+        while (send_buffer.position() < server_buffer_size  &&
+               (item = send_items.peek()) != null)
+        {
+            if (item == END_REQUEST)
+            {
+                send_items.poll();
+                return true;
+            }
+            try
+            {
+                encodeRequest(item);
+            }
+            catch (BufferOverflowException ex)
+            {
+                // Leave item on queue to be encoded into the next, empty buffer
+                break;
+            }
+            catch (Exception ex)
+            {
+                logger.log(Level.WARNING, this + " request encoding error", ex);
+            }
+            send_items.poll();
+        }
+        return false;
+    }
+
+    /** Encode item into send buffer, after data already in the buffer
+     *
+     *  <p>Encoders write the message header at the start of the buffer
+     *  they are given, so they are handed a slice of the remaining space.
+     *  On error, the send buffer position remains unchanged.
+     *
+     *  @param item Item to encode
+     *  @throws Exception on error
+     */
+    private void encodeRequest(final RequestEncoder item) throws Exception
+    {
+        final ByteBuffer slice = send_buffer.slice();
+        slice.order(send_buffer.order());
+        item.encodeRequest(server_version, slice);
+        send_buffer.position(send_buffer.position() + slice.position());
+        TCPStatistics.messages_sent.increment();
+    }
+
     /** Send message
      *
      *  <p>Must only be called by outside code before
@@ -205,6 +352,7 @@ abstract public class TCPHandler
      */
     protected void send(final ByteBuffer buffer) throws Exception
     {
+        onSend();
         logger.log(Level.FINER, () -> Thread.currentThread().getName() + " sends:\n" + Hexdump.toHexdump(buffer));
 
         // Original AbstractCodec.send() mentions
@@ -233,6 +381,8 @@ abstract public class TCPHandler
             else
             {
                 // Wrote _something_
+                TCPStatistics.writes.increment();
+                TCPStatistics.bytes_sent.add(sent);
                 tries = 0;
                 // Determine next batch
                 batch = total - buffer.position();
@@ -244,9 +394,19 @@ abstract public class TCPHandler
         }
     }
 
+    /** Invoked before data is written to the socket
+     *
+     *  <p>Derived class may override to track activity
+     */
+    protected void onSend()
+    {
+        // NOP
+    }
+
     /** Receiver */
     private Void receiver()
     {
+        TCPStatistics.threads.incrementAndGet();
         try
         {
             Thread.currentThread().setName("TCP receiver " + socket.getRemoteAddress());
@@ -268,41 +428,17 @@ abstract public class TCPHandler
                         return null;
                     }
                     if (read > 0)
+                    {
                         logger.log(Level.FINER, () -> Thread.currentThread().getName() + ": " + read + " bytes");
+                        TCPStatistics.reads.increment();
+                        TCPStatistics.bytes_received.add(read);
+                    }
                     // and once we get the header, it will tell
                     // us how large the message actually is
                     message_size = PVAHeader.checkMessageAndGetSize(receive_buffer, client_mode);
                 }
                 // .. then decode
-                receive_buffer.flip();
-                logger.log(Level.FINER, () -> Thread.currentThread().getName() + " received:\n" + Hexdump.toHexdump(receive_buffer));
-
-                // While buffer may contain more data,
-                // limit it to the end of this message to prevent
-                // message handler from reading beyond message boundary.
-                final int actual_limit = receive_buffer.limit();
-                receive_buffer.limit(message_size);
-                try
-                {
-                    handleMessage(receive_buffer);
-                }
-                catch (Exception ex)
-                {
-                    // Once we fail to decode and handle a message,
-                    // it is likely that the server/client protocol gets
-                    // out of step and never recovers.
-                    // Still, log error and keep reading in case
-                    // the issue is limited to just this one message.
-                    logger.log(Level.WARNING, Thread.currentThread().getName() + " message error. Protocol might be broken from here on.", ex);
-                }
-
-                receive_buffer.limit(actual_limit);
-                // No matter if message handler read the complete message,
-                // position at end of handled message
-                receive_buffer.position(message_size);
-
-                // Shift rest to start of buffer and handle next message
-                receive_buffer.compact();
+                handleReceivedMessage(message_size);
             }
         }
         catch (Exception ex)
@@ -312,12 +448,192 @@ abstract public class TCPHandler
         }
         finally
         {
+            TCPStatistics.threads.decrementAndGet();
+            TCPStatistics.connections.decrementAndGet();
             onReceiverExited(running);
             logger.log(Level.FINER, Thread.currentThread().getName() + " done.");
         }
         return null;
     }
 
+    /** Handle a received message, then shift remaining data to start of buffer
+     *  @param message_size Size of complete message at start of receive buffer
+     */
+    private void handleReceivedMessage(final int message_size)
+    {
+        receive_buffer.flip();
+        logger.log(Level.FINER, () -> this + " received:\n" + Hexdump.toHexdump(receive_buffer));
+        TCPStatistics.messages_received.increment();
+
+        // While buffer may contain more data,
+        // limit it to the end of this message to prevent
+        // message handler from reading beyond message boundary.
+        final int actual_limit = receive_buffer.limit();
+        receive_buffer.limit(message_size);
+        try
+        {
+            handleMessage(receive_buffer);
+        }
+        catch (Exception ex)
+        {
+            // Once we fail to decode and handle a message,
+            // it is likely that the server/client protocol gets
+            // out of step and never recovers.
+            // Still, log error and keep reading in case
+            // the issue is limited to just this one message.
+            logger.log(Level.WARNING, this + " message error. Protocol might be broken from here on.", ex);
+        }
+
+        receive_buffer.limit(actual_limit);
+        // No matter if message handler read the complete message,
+        // position at end of handled message
+        receive_buffer.position(message_size);
+
+        // Shift rest to start of buffer and handle next message
+        receive_buffer.compact();
+    }
+
+    /** Selector mode: Register socket with selector, on selector thread */
+    private void register()
+    {
+        try
+        {
+            key = socket.register(selector.getSelector(), SelectionKey.OP_READ, this);
+            logger.log(Level.FINER, () -> this + " registered with " + Thread.currentThread().getName());
+        }
+        catch (Exception ex)
+        {
+            if (running)
+                logger.log(Level.WARNING, this + " cannot register with " + Thread.currentThread().getName(), ex);
+            deregister();
+        }
+    }
+
+    /** Selector mode: Stop reading and writing, on selector thread */
+    private void deregister()
+    {
+        if (receive_thread == null  ||  read_done.isDone())
+            return;
+        if (key != null)
+            key.cancel();
+        if (write_done != null)
+            write_done.complete(null);
+        TCPStatistics.connections.decrementAndGet();
+        read_done.complete(null);
+        onReceiverExited(running);
+        logger.log(Level.FINER, () -> this + " deregistered from " + Thread.currentThread().getName());
+    }
+
+    /** Selector mode: Read available data, handle all complete messages
+     *
+     *  <p>Called on selector thread when socket is readable
+     */
+    void handleReadable()
+    {
+        try
+        {
+            final int read = socket.read(receive_buffer);
+            if (read < 0)
+            {
+                logger.log(Level.FINER, () -> this + ": socket closed");
+                deregister();
+                return;
+            }
+            TCPStatistics.reads.increment();
+            TCPStatistics.bytes_received.add(read);
+
+            int message_size = PVAHeader.checkMessageAndGetSize(receive_buffer, client_mode);
+            while (receive_buffer.position() >= message_size)
+            {
+                handleReceivedMessage(message_size);
+                message_size = PVAHeader.checkMessageAndGetSize(receive_buffer, client_mode);
+            }
+            // Prepare to receive the rest of the next message
+            receive_buffer = assertBufferSize(receive_buffer, message_size);
+        }
+        catch (Exception ex)
+        {
+            if (running)
+                logger.log(Level.WARNING, this + " read error", ex);
+            deregister();
+        }
+    }
+
+    /** Selector mode: Have selector thread write queued items */
+    private void scheduleWrite()
+    {
+        // Only schedule once. Items submitted until the write
+        // starts are handled by that same write.
+        if (write_scheduled.compareAndSet(false, true))
+            selector.execute(() ->
+            {
+                write_scheduled.set(false);
+                handleWritable();
+            });
+    }
+
+    /** Selector mode: Write pending data, then encode and write queued items
+     *
+     *  <p>Called on selector thread when socket is writable
+     *  or more items have been queued.
+     *  Writes until queue is empty or socket cannot accept more data,
+     *  in which case the selector will call again once
+     *  the socket is writable.
+     */
+    void handleWritable()
+    {
+        final CompletableFuture<Void> done = write_done;
+        if (key == null  ||  ! key.isValid()  ||  done == null  ||  done.isDone())
+            return;
+        try
+        {
+            while (true)
+            {
+                if (write_pending)
+                {
+                    onSend();
+                    final int sent = socket.write(send_buffer);
+                    if (sent > 0)
+                    {
+                        TCPStatistics.writes.increment();
+                        TCPStatistics.bytes_sent.add(sent);
+                    }
+                    if (send_buffer.hasRemaining())
+                    {
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    write_pending = false;
+                }
+
+                if (write_ending)
+                {
+                    done.complete(null);
+                    key.interestOps(SelectionKey.OP_READ);
+                    return;
+                }
+
+                final RequestEncoder item = send_items.poll();
+                if (item == null)
+                {
+                    key.interestOps(SelectionKey.OP_READ);
+                    return;
+                }
+                send_buffer.clear();
+                write_ending = encodeRequests(item);
+                send_buffer.flip();
+                logger.log(Level.FINER, () -> this + " sends:\n" + Hexdump.toHexdump(send_buffer));
+                write_pending = send_buffer.hasRemaining();
+            }
+        }
+        catch (Exception ex)
+        {
+            if (running)
+                logger.log(Level.WARNING, this + " write error", ex);
+            deregister();
+        }
+    }
+
     /** Invoked when the receiver thread exits because socket has been closed.
      *
      *  <p>Derived class may override to perform cleanup
@@ -527,10 +843,14 @@ abstract public class TCPHandler
     /** Close network socket and threads
      *  @param wait Wait for threads to end?
      */
-    public void close(final boolean wait)
+    public void close(boolean wait)
     {
         logger.log(Level.FINE, "Closing " + this);
 
+        // Selector thread cannot wait for itself
+        if (selector != null  &&  selector.isSelectorThread())
+            wait = false;
+
         // Wait until all requests are sent out
         submit(END_REQUEST);
         try
@@ -547,7 +867,9 @@ abstract public class TCPHandler
         {
             running = false;
             socket.close();
-            if (wait)
+            if (selector != null)
+                selector.execute(this::deregister);
+            if (receive_thread != null  &&  wait)
                 receive_thread.get(5, TimeUnit.SECONDS);
         }
         catch (Exception ex)
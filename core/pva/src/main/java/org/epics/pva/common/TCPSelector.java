@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.epics.pva.common;
+
+import static org.epics.pva.PVASettings.logger;
+
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+
+import org.epics.pva.PVASettings;
+
+/** Selector thread for {@link TCPHandler}s
+ *
+ *  <p>In selector mode, each {@link TCPHandler} is assigned
+ *  to one of a fixed number of these threads,
+ *  which then reads and writes the handler's socket
+ *  whenever it is ready.
+ *
+ *  <p>The selector threads are shared by all clients and servers
+ *  in the JVM. They are daemon threads that are created
+ *  when the first connection needs them.
+ */
+@SuppressWarnings("nls")
+class TCPSelector
+{
+    /** All selector threads */
+    private static final List<TCPSelector> selectors = new ArrayList<>();
+
+    /** Counter used to assign handlers to selectors in round-robin fashion */
+    private static int next = 0;
+
+    /** NIO selector */
+    private final Selector selector;
+
+    /** Thread that runs {@link #run()} */
+    private final Thread thread;
+
+    /** Tasks to execute on the selector thread */
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /** @return Selector thread to which a new {@link TCPHandler} should be assigned
+     *  @throws Exception on error
+     */
+    static TCPSelector assign() throws Exception
+    {
+        synchronized (selectors)
+        {
+            if (selectors.isEmpty())
+            {
+                final int count = Math.max(1, PVASettings.EPICS_PVA_TCP_IO_THREADS);
+                logger.log(Level.CONFIG, "Starting " + count + " TCP selector threads");
+                for (int i=0; i<count; ++i)
+                    selectors.add(new TCPSelector(i));
+            }
+            final TCPSelector selector = selectors.get(next);
+            next = (next + 1) % selectors.size();
+            return selector;
+        }
+    }
+
+    /** @return Number of selector threads */
+    static int getThreadCount()
+    {
+        synchronized (selectors)
+        {
+            return selectors.size();
+        }
+    }
+
+    private TCPSelector(final int index) throws Exception
+    {
+        selector = Selector.open();
+        thread = new Thread(this::run, "TCP selector " + index);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** @return Is the caller running on this selector's thread? */
+    boolean isSelectorThread()
+    {
+        return Thread.currentThread() == thread;
+    }
+
+    /** @return NIO selector, only to be used on the selector thread */
+    Selector getSelector()
+    {
+        return selector;
+    }
+
+    /** Execute task on the selector thread
+     *
+     *  <p>Tasks are executed in the order in which they were submitted
+     *  @param task Task to execute
+     */
+    void execute(final Runnable task)
+    {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    private void run()
+    {
+        logger.log(Level.FINER, Thread.currentThread().getName() + " started");
+        while (true)
+        {
+            try
+            {
+                selector.select();
+
+                Runnable task;
+                while ((task = tasks.poll()) != null)
+                {
+                    try
+                    {
+                        task.run();
+                    }
+                    catch (Throwable ex)
+                    {
+                        logger.log(Level.WARNING, Thread.currentThread().getName() + " task error", ex);
+                    }
+                }
+
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext())
+                {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    final TCPHandler handler = (TCPHandler) key.attachment();
+                    if (key.isValid()  &&  key.isReadable())
+                        handler.handleReadable();
+                    if (key.isValid()  &&  key.isWritable())
+                        handler.handleWritable();
+                }
+            }
+            catch (Throwable ex)
+            {
+                // Handlers catch their errors, so this is unexpected.
+                // Log, but keep the thread alive for the remaining connections
+                logger.log(Level.SEVERE, Thread.currentThread().getName() + " error", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.epics.pva.common;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Statistics for all {@link TCPHandler}s in this JVM
+ *
+ *  <p>Allows comparing the thread-per-connection transport
+ *  with the selector-based transport,
+ *  see {@link org.epics.pva.PVASettings#EPICS_PVA_TCP_IO_THREADS}.
+ */
+@SuppressWarnings("nls")
+public class TCPStatistics
+{
+    static final AtomicInteger connections = new AtomicInteger();
+    static final AtomicInteger threads = new AtomicInteger();
+    static final LongAdder messages_sent = new LongAdder();
+    static final LongAdder writes = new LongAdder();
+    static final LongAdder bytes_sent = new LongAdder();
+    static final LongAdder messages_received = new LongAdder();
+    static final LongAdder reads = new LongAdder();
+    static final LongAdder bytes_received = new LongAdder();
+
+    private TCPStatistics()
+    {
+        // Static access only
+    }
+
+    /** @return Number of currently open TCP connections */
+    public static int getConnections()
+    {
+        return connections.get();
+    }
+
+    /** @return Number of threads currently used for TCP connections,
+     *          including shared selector threads
+     */
+    public static int getThreads()
+    {
+        return threads.get() + TCPSelector.getThreadCount();
+    }
+
+    /** @return Number of messages sent */
+    public static long getMessagesSent()
+    {
+        return messages_sent.sum();
+    }
+
+    /** @return Number of socket write calls */
+    public static long getWrites()
+    {
+        return writes.sum();
+    }
+
+    /** @return Number of bytes sent */
+    public static long getBytesSent()
+    {
+        return bytes_sent.sum();
+    }
+
+    /** @return Number of messages received */
+    public static long getMessagesReceived()
+    {
+        return messages_received.sum();
+    }
+
+    /** @return Number of socket read calls */
+    public static long getReads()
+    {
+        return reads.sum();
+    }
+
+    /** @return Number of bytes received */
+    public static long getBytesReceived()
+    {
+        return bytes_received.sum();
+    }
+
+    /** Reset the message and byte counters */
+    public static void reset()
+    {
+        messages_sent.reset();
+        writes.reset();
+        bytes_sent.reset();
+        messages_received.reset();
+        reads.reset();
+        bytes_received.reset();
+    }
+
+    /** @return Summary of all counters */
+    public static String getSummary()
+    {
+        return String.format("%d connections, %d threads, sent %d messages in %d writes (%d bytes), received %d messages in %d reads (%d bytes)",
+                             getConnections(), getThreads(),
+                             getMessagesSent(), getWrites(), getBytesSent(),
+                             getMessagesReceived(), getReads(), getBytesReceived());
+    }
+}
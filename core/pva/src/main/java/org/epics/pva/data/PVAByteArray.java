@@ -23,6 +23,9 @@ public class PVAByteArray extends PVAData implements PVAArray
     private final boolean unsigned;
     private volatile byte[] value;
 
+    /** May the current value be referenced outside of this instance? */
+    private volatile boolean shared = true;
+
     /** Construct variable-size array
      *  @param name Data item name
      *  @param unsigned Unsigned data?
@@ -41,8 +44,29 @@ public class PVAByteArray extends PVAData implements PVAArray
         return unsigned;
     }
 
-    /** @return Current value */
+    /** Get current value
+     *
+     *  <p>The caller may keep the array,
+     *  it will not be re-used when decoding the next value.
+     *  The caller must not modify the array.
+     *
+     *  @return Current value
+     */
     public byte[] get()
+    {
+        shared = true;
+        return value;
+    }
+
+    /** Get current value for immediate use
+     *
+     *  <p>When {@link PVASettings#EPICS_PVA_RECYCLE_ARRAYS} is enabled,
+     *  decoding the next value may re-use the array,
+     *  so the caller must not keep the array beyond handling the current value.
+     *
+     *  @return Current value
+     */
+    public byte[] peek()
     {
         return value;
     }
@@ -51,6 +75,7 @@ public class PVAByteArray extends PVAData implements PVAArray
     public void set(final byte[] value)
     {
         this.value = value;
+        shared = true;
     }
 
     @Override
@@ -107,13 +132,26 @@ public class PVAByteArray extends PVAData implements PVAArray
             buffer.put((byte) 0b00101000);
     }
 
+    /** @param size Size of the next value
+     *  @return Can the current value be re-used for the next value?
+     */
+    private boolean recycle(final int size)
+    {
+        final byte[] current = value;
+        return PVASettings.EPICS_PVA_RECYCLE_ARRAYS  &&
+               ! shared  &&
+               current != null  &&
+               current.length == size;
+    }
+
     @Override
     public void decode(final PVATypeRegistry types, final ByteBuffer buffer) throws Exception
     {
         final int size = PVASize.decodeSize(buffer);
-        final byte[] new_value = new byte[size];
+        final byte[] new_value = recycle(size) ? value : new byte[size];
         buffer.get(new_value);
         value = new_value;
+        shared = false;
     }
 
     @Override
@@ -121,8 +159,7 @@ public class PVAByteArray extends PVAData implements PVAArray
     {
         final byte[] copy = value;
         PVASize.encodeSize(copy.length, buffer);
-        for (int i=0; i<copy.length; ++i)
-            buffer.put(copy[i]);
+        buffer.put(copy);
     }
 
     @Override
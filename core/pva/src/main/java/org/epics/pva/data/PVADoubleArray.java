@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2019-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2019-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,6 +22,9 @@ public class PVADoubleArray extends PVAData implements PVAArray
 {
     private volatile double[] value;
 
+    /** May the current value be referenced outside of this instance? */
+    private volatile boolean shared = true;
+
     /** Construct variable-size array
      *  @param name Data item name
      *  @param value Initial value
@@ -32,8 +35,29 @@ public class PVADoubleArray extends PVAData implements PVAArray
         this.value = value;
     }
 
-    /** @return Current value */
+    /** Get current value
+     *
+     *  <p>The caller may keep the array,
+     *  it will not be re-used when decoding the next value.
+     *  The caller must not modify the array.
+     *
+     *  @return Current value
+     */
     public double[] get()
+    {
+        shared = true;
+        return value;
+    }
+
+    /** Get current value for immediate use
+     *
+     *  <p>When {@link PVASettings#EPICS_PVA_RECYCLE_ARRAYS} is enabled,
+     *  decoding the next value may re-use the array,
+     *  so the caller must not keep the array beyond handling the current value.
+     *
+     *  @return Current value
+     */
+    public double[] peek()
     {
         return value;
     }
@@ -42,6 +66,7 @@ public class PVADoubleArray extends PVAData implements PVAArray
     public void set(final double[] value)
     {
         this.value = value;
+        shared = true;
     }
 
     @Override
@@ -94,14 +119,28 @@ public class PVADoubleArray extends PVAData implements PVAArray
         buffer.put((byte) 0b01001011);
     }
 
+    /** @param size Size of the next value
+     *  @return Can the current value be re-used for the next value?
+     */
+    private boolean recycle(final int size)
+    {
+        final double[] current = value;
+        return PVASettings.EPICS_PVA_RECYCLE_ARRAYS  &&
+               ! shared  &&
+               current != null  &&
+               current.length == size;
+    }
+
     @Override
     public void decode(final PVATypeRegistry types, final ByteBuffer buffer) throws Exception
     {
         final int size = PVASize.decodeSize(buffer);
-        final double[] new_value = new double[size];
-        for (int i=0; i<size; ++i)
-            new_value[i] = buffer.getDouble();
+        final double[] new_value = recycle(size) ? value : new double[size];
+        // Bulk 'get' of view buffer copies memory, faster than element-by-element
+        buffer.asDoubleBuffer().get(new_value);
+        buffer.position(buffer.position() + size * Double.BYTES);
         value = new_value;
+        shared = false;
     }
 
     @Override
@@ -109,8 +148,8 @@ public class PVADoubleArray extends PVAData implements PVAArray
     {
         final double[] copy = value;
         PVASize.encodeSize(copy.length, buffer);
-        for (int i=0; i<copy.length; ++i)
-            buffer.putDouble(copy[i]);
+        buffer.asDoubleBuffer().put(copy);
+        buffer.position(buffer.position() + copy.length * Double.BYTES);
     }
 
     @Override
@@ -22,6 +22,9 @@ public class PVAFloatArray extends PVAData implements PVAArray
 {
     private volatile float[] value;
 
+    /** May the current value be referenced outside of this instance? */
+    private volatile boolean shared = true;
+
     /** Construct variable-size array
      *  @param name Data item name
      *  @param value Initial value
@@ -32,8 +35,29 @@ public class PVAFloatArray extends PVAData implements PVAArray
         this.value = value;
     }
 
-    /** @return Current value */
+    /** Get current value
+     *
+     *  <p>The caller may keep the array,
+     *  it will not be re-used when decoding the next value.
+     *  The caller must not modify the array.
+     *
+     *  @return Current value
+     */
     public float[] get()
+    {
+        shared = true;
+        return value;
+    }
+
+    /** Get current value for immediate use
+     *
+     *  <p>When {@link PVASettings#EPICS_PVA_RECYCLE_ARRAYS} is enabled,
+     *  decoding the next value may re-use the array,
+     *  so the caller must not keep the array beyond handling the current value.
+     *
+     *  @return Current value
+     */
+    public float[] peek()
     {
         return value;
     }
@@ -42,6 +66,7 @@ public class PVAFloatArray extends PVAData implements PVAArray
     public void set(final float[] value)
     {
         this.value = value;
+        shared = true;
     }
 
     @Override
@@ -95,14 +120,28 @@ public class PVAFloatArray extends PVAData implements PVAArray
         buffer.put((byte) 0b01001010);
     }
 
+    /** @param size Size of the next value
+     *  @return Can the current value be re-used for the next value?
+     */
+    private boolean recycle(final int size)
+    {
+        final float[] current = value;
+        return PVASettings.EPICS_PVA_RECYCLE_ARRAYS  &&
+               ! shared  &&
+               current != null  &&
+               current.length == size;
+    }
+
     @Override
     public void decode(final PVATypeRegistry types, final ByteBuffer buffer) throws Exception
     {
         final int size = PVASize.decodeSize(buffer);
-        final float[] new_value = new float[size];
-        for (int i=0; i<size; ++i)
-            new_value[i] = buffer.getFloat();
+        final float[] new_value = recycle(size) ? value : new float[size];
+        // Bulk 'get' of view buffer copies memory, faster than element-by-element
+        buffer.asFloatBuffer().get(new_value);
+        buffer.position(buffer.position() + size * Float.BYTES);
         value = new_value;
+        shared = false;
     }
 
     @Override
@@ -110,8 +149,8 @@ public class PVAFloatArray extends PVAData implements PVAArray
     {
         final float[] copy = value;
         PVASize.encodeSize(copy.length, buffer);
-        for (int i=0; i<copy.length; ++i)
-            buffer.putFloat(copy[i]);
+        buffer.asFloatBuffer().put(copy);
+        buffer.position(buffer.position() + copy.length * Float.BYTES);
     }
 
     @Override
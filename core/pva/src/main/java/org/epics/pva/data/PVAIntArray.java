@@ -23,6 +23,9 @@ public class PVAIntArray extends PVAData implements PVAArray
     private final boolean unsigned;
     private volatile int[] value;
 
+    /** May the current value be referenced outside of this instance? */
+    private volatile boolean shared = true;
+
     /** Construct variable-size array
      *  @param name Data item name
      *  @param unsigned Unsigned data?
@@ -41,8 +44,29 @@ public class PVAIntArray extends PVAData implements PVAArray
         return unsigned;
     }
 
-    /** @return Current value */
+    /** Get current value
+     *
+     *  <p>The caller may keep the array,
+     *  it will not be re-used when decoding the next value.
+     *  The caller must not modify the array.
+     *
+     *  @return Current value
+     */
     public int[] get()
+    {
+        shared = true;
+        return value;
+    }
+
+    /** Get current value for immediate use
+     *
+     *  <p>When {@link PVASettings#EPICS_PVA_RECYCLE_ARRAYS} is enabled,
+     *  decoding the next value may re-use the array,
+     *  so the caller must not keep the array beyond handling the current value.
+     *
+     *  @return Current value
+     */
+    public int[] peek()
     {
         return value;
     }
@@ -51,6 +75,7 @@ public class PVAIntArray extends PVAData implements PVAArray
     public void set(final int[] value)
     {
         this.value = value;
+        shared = true;
     }
 
     @Override
@@ -107,14 +132,28 @@ public class PVAIntArray extends PVAData implements PVAArray
             buffer.put((byte) 0b00101010);
     }
 
+    /** @param size Size of the next value
+     *  @return Can the current value be re-used for the next value?
+     */
+    private boolean recycle(final int size)
+    {
+        final int[] current = value;
+        return PVASettings.EPICS_PVA_RECYCLE_ARRAYS  &&
+               ! shared  &&
+               current != null  &&
+               current.length == size;
+    }
+
     @Override
     public void decode(final PVATypeRegistry types, final ByteBuffer buffer) throws Exception
     {
         final int size = PVASize.decodeSize(buffer);
-        final int[] new_value = new int[size];
-        for (int i=0; i<size; ++i)
-            new_value[i] = buffer.getInt();
+        final int[] new_value = recycle(size) ? value : new int[size];
+        // Bulk 'get' of view buffer copies memory, faster than element-by-element
+        buffer.asIntBuffer().get(new_value);
+        buffer.position(buffer.position() + size * Integer.BYTES);
         value = new_value;
+        shared = false;
     }
 
     @Override
@@ -122,8 +161,8 @@ public class PVAIntArray extends PVAData implements PVAArray
     {
         final int[] copy = value;
         PVASize.encodeSize(copy.length, buffer);
-        for (int i=0; i<copy.length; ++i)
-            buffer.putInt(copy[i]);
+        buffer.asIntBuffer().put(copy);
+        buffer.position(buffer.position() + copy.length * Integer.BYTES);
     }
 
     @Override
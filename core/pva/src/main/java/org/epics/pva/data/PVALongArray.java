@@ -23,6 +23,9 @@ public class PVALongArray extends PVAData implements PVAArray
     private final boolean unsigned;
     private volatile long[] value;
 
+    /** May the current value be referenced outside of this instance? */
+    private volatile boolean shared = true;
+
     /** Construct variable-size array
      *  @param name Data item name
      *  @param unsigned Unsigned data?
@@ -41,8 +44,29 @@ public class PVALongArray extends PVAData implements PVAArray
         return unsigned;
     }
 
-    /** @return Current value */
+    /** Get current value
+     *
+     *  <p>The caller may keep the array,
+     *  it will not be re-used when decoding the next value.
+     *  The caller must not modify the array.
+     *
+     *  @return Current value
+     */
     public long[] get()
+    {
+        shared = true;
+        return value;
+    }
+
+    /** Get current value for immediate use
+     *
+     *  <p>When {@link PVASettings#EPICS_PVA_RECYCLE_ARRAYS} is enabled,
+     *  decoding the next value may re-use the array,
+     *  so the caller must not keep the array beyond handling the current value.
+     *
+     *  @return Current value
+     */
+    public long[] peek()
     {
         return value;
     }
@@ -51,6 +75,7 @@ public class PVALongArray extends PVAData implements PVAArray
     public void set(final long[] value)
     {
         this.value = value;
+        shared = true;
     }
 
     @Override
@@ -107,14 +132,28 @@ public class PVALongArray extends PVAData implements PVAArray
             buffer.put((byte) 0b00101011);
     }
 
+    /** @param size Size of the next value
+     *  @return Can the current value be re-used for the next value?
+     */
+    private boolean recycle(final int size)
+    {
+        final long[] current = value;
+        return PVASettings.EPICS_PVA_RECYCLE_ARRAYS  &&
+               ! shared  &&
+               current != null  &&
+               current.length == size;
+    }
+
     @Override
     public void decode(final PVATypeRegistry types, final ByteBuffer buffer) throws Exception
     {
         final int size = PVASize.decodeSize(buffer);
-        final long[] new_value = new long[size];
-        for (int i=0; i<size; ++i)
-            new_value[i] = buffer.getLong();
+        final long[] new_value = recycle(size) ? value : new long[size];
+        // Bulk 'get' of view buffer copies memory, faster than element-by-element
+        buffer.asLongBuffer().get(new_value);
+        buffer.position(buffer.position() + size * Long.BYTES);
         value = new_value;
+        shared = false;
     }
 
     @Override
@@ -122,8 +161,8 @@ public class PVALongArray extends PVAData implements PVAArray
     {
         final long[] copy = value;
         PVASize.encodeSize(copy.length, buffer);
-        for (int i=0; i<copy.length; ++i)
-            buffer.putLong(copy[i]);
+        buffer.asLongBuffer().put(copy);
+        buffer.position(buffer.position() + copy.length * Long.BYTES);
     }
 
     @Override
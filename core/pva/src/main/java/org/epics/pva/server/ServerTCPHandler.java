@@ -58,6 +58,7 @@ class ServerTCPHandler extends TCPHandler
         super(client, false);
         this.server = server;
         server.register(this);
+        startReceiver();
         startSender();
 
         // Initialize TCP connection by setting byte order..
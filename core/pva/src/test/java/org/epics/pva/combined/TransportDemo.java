@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.epics.pva.combined;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+import org.epics.pva.PVASettings;
+import org.epics.pva.client.MonitorListener;
+import org.epics.pva.client.PVAChannel;
+import org.epics.pva.client.PVAClient;
+import org.epics.pva.common.TCPStatistics;
+import org.epics.pva.data.PVADouble;
+import org.epics.pva.data.PVAStructure;
+import org.epics.pva.data.nt.PVATimeStamp;
+import org.epics.pva.server.PVAServer;
+import org.epics.pva.server.ServerPV;
+
+/** Compare thread-per-connection and selector-based TCP transport
+ *
+ *  <p>Starts a server with several PVs that update at a high rate,
+ *  then many clients, each with its own TCP connection, that monitor all PVs.
+ *  Prints monitor throughput and {@link TCPStatistics}
+ *  for each setting of {@link PVASettings#EPICS_PVA_TCP_IO_THREADS}.
+ */
+@SuppressWarnings("nls")
+public class TransportDemo
+{
+    private static final int CLIENTS = 50, PVS = 20, SECONDS = 10;
+
+    public static void main(String[] args) throws Exception
+    {
+        // Configure logging
+        LogManager.getLogManager().readConfiguration(PVASettings.class.getResourceAsStream("/pva_logging.properties"));
+        final Logger root = Logger.getLogger("");
+        root.setLevel(Level.WARNING);
+        for (Handler handler : root.getHandlers())
+            handler.setLevel(root.getLevel());
+
+        PVASettings.EPICS_PVA_ADDR_LIST = "127.0.0.1";
+        PVASettings.EPICS_PVA_AUTO_ADDR_LIST = false;
+        // Demo only sends small messages, reduce memory used by the many connections
+        PVASettings.EPICS_PVA_SEND_BUFFER_SIZE = 100000;
+
+        // Selector threads are created on first use,
+        // so run thread-per-connection mode first
+        run(0);
+        run(4);
+    }
+
+    private static void run(final int io_threads) throws Exception
+    {
+        PVASettings.EPICS_PVA_TCP_IO_THREADS = io_threads;
+        System.out.println("EPICS_PVA_TCP_IO_THREADS = " + io_threads);
+
+        final PVAServer server = new PVAServer();
+        final PVATimeStamp time = new PVATimeStamp();
+        final PVADouble value = new PVADouble("value", 3.13);
+        final PVAStructure data = new PVAStructure("demo", "demo_t", value, time);
+        final List<ServerPV> pvs = new ArrayList<>();
+        for (int i=0; i<PVS; ++i)
+            pvs.add(server.createPV("transport" + i, data));
+
+        final LongAdder updates = new LongAdder();
+        final MonitorListener listener = (ch, changes, overruns, received) -> updates.increment();
+        final List<PVAClient> clients = new ArrayList<>();
+        final List<PVAChannel> channels = new ArrayList<>();
+        for (int c=0; c<CLIENTS; ++c)
+        {
+            final PVAClient client = new PVAClient();
+            clients.add(client);
+            for (int i=0; i<PVS; ++i)
+                channels.add(client.getChannel("transport" + i));
+        }
+        for (PVAChannel channel : channels)
+        {
+            channel.connect().get(30, TimeUnit.SECONDS);
+            channel.subscribe("", listener);
+        }
+
+        TCPStatistics.reset();
+        updates.reset();
+        final long end = System.currentTimeMillis() + SECONDS * 1000;
+        while (System.currentTimeMillis() < end)
+        {
+            value.set(value.get() + 1);
+            time.set(Instant.now());
+            for (ServerPV pv : pvs)
+                pv.update(data);
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+
+        System.out.format("%.1f updates/sec\n", updates.sum() / (double)SECONDS);
+        System.out.println(TCPStatistics.getSummary());
+        System.out.format("%.1f messages per write\n", TCPStatistics.getMessagesSent() / (double) Math.max(1, TCPStatistics.getWrites()));
+
+        for (PVAChannel channel : channels)
+            channel.close();
+        for (PVAClient client : clients)
+            client.close();
+        server.close();
+    }
+}
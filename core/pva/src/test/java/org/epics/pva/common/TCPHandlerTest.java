@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.epics.pva.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.epics.pva.PVASettings;
+import org.junit.After;
+import org.junit.Test;
+
+/** Unit test of {@link TCPHandler} with threads and with selector
+ *
+ *  <p>'Client' sends numbered echo messages to a 'server'
+ *  over a local TCP connection.
+ */
+@SuppressWarnings("nls")
+public class TCPHandlerTest
+{
+    private static final int MESSAGES = 10000;
+
+    /** Handler that counts received echo messages and checks their order */
+    private static class TestHandler extends TCPHandler
+    {
+        final AtomicInteger received = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile boolean in_order = true;
+
+        TestHandler(final SocketChannel socket, final boolean client_mode) throws Exception
+        {
+            super(socket, client_mode);
+            startReceiver();
+            startSender();
+        }
+
+        @Override
+        protected void handleApplicationMessage(final byte command, final ByteBuffer buffer) throws Exception
+        {
+            if (command != PVAHeader.CMD_ECHO)
+            {
+                super.handleApplicationMessage(command, buffer);
+                return;
+            }
+            final int expected = received.getAndIncrement();
+            if (buffer.getInt() != expected)
+                in_order = false;
+            if (expected == MESSAGES - 1)
+                done.countDown();
+        }
+    }
+
+    private final int original_threads = PVASettings.EPICS_PVA_TCP_IO_THREADS;
+
+    @After
+    public void restoreSettings()
+    {
+        PVASettings.EPICS_PVA_TCP_IO_THREADS = original_threads;
+    }
+
+    private void sendMessages() throws Exception
+    {
+        try (ServerSocketChannel listener = ServerSocketChannel.open())
+        {
+            listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            final SocketChannel client_socket = SocketChannel.open(listener.getLocalAddress());
+            final SocketChannel server_socket = listener.accept();
+
+            final TestHandler server = new TestHandler(server_socket, false);
+            final TestHandler client = new TestHandler(client_socket, true);
+
+            final long messages = TCPStatistics.getMessagesSent();
+            final long writes = TCPStatistics.getWrites();
+            for (int i=0; i<MESSAGES; ++i)
+            {
+                final int number = i;
+                client.submit((version, buffer) ->
+                {
+                    PVAHeader.encodeMessageHeader(buffer, PVAHeader.FLAG_NONE, PVAHeader.CMD_ECHO, 4);
+                    buffer.putInt(number);
+                });
+            }
+
+            assertTrue(server.done.await(10, TimeUnit.SECONDS));
+            assertEquals(MESSAGES, server.received.get());
+            assertTrue(server.in_order);
+
+            final long sent = TCPStatistics.getMessagesSent() - messages;
+            final long written = TCPStatistics.getWrites() - writes;
+            System.out.println(TCPStatistics.getSummary());
+            assertTrue(sent >= MESSAGES);
+            // Queued messages are combined, so there should be fewer writes than messages
+            assertTrue("Sent " + sent + " messages in " + written + " writes", written < sent);
+
+            client.close(true);
+            server.close(true);
+        }
+    }
+
+    @Test
+    public void testThreads() throws Exception
+    {
+        PVASettings.EPICS_PVA_TCP_IO_THREADS = 0;
+        sendMessages();
+    }
+
+    @Test
+    public void testSelector() throws Exception
+    {
+        PVASettings.EPICS_PVA_TCP_IO_THREADS = 2;
+        sendMessages();
+    }
+}
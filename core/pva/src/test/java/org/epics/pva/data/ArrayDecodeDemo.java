@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.epics.pva.data;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.epics.pva.PVASettings;
+
+/** Benchmark of decoding large arrays
+ *
+ *  <p>Decodes a 2048x2048 'image' of shorts
+ *  and a 100k element waveform of doubles,
+ *  comparing a per-element loop with the bulk decoding
+ *  of the PVA array types, with and without recycling the array.
+ *  Reports time and bytes allocated per decode.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ArrayDecodeDemo
+{
+    private static final int DECODES = 100;
+    private static final int RUNS = 5;
+
+    private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @FunctionalInterface
+    private interface Decoder
+    {
+        void decode(ByteBuffer buffer) throws Exception;
+    }
+
+    private static void benchmark(final String title, final ByteBuffer buffer, final Decoder decoder) throws Exception
+    {
+        final long thread = Thread.currentThread().getId();
+        final long allocated = threads.getThreadAllocatedBytes(thread);
+        final long start = System.nanoTime();
+        for (int i=0; i<DECODES; ++i)
+        {
+            buffer.rewind();
+            decoder.decode(buffer);
+        }
+        final double ms = (System.nanoTime() - start) / 1e6 / DECODES;
+        final double bytes = (threads.getThreadAllocatedBytes(thread) - allocated) / (double) DECODES;
+        System.out.format("%-30s: %8.3f ms, %8.1f MB/s, %12.0f bytes allocated per decode\n",
+                          title, ms, buffer.limit() / ms / 1e3, bytes);
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        final short[] pixels = new short[2048 * 2048];
+        for (int i=0; i<pixels.length; ++i)
+            pixels[i] = (short) i;
+        final double[] waveform = new double[100000];
+        for (int i=0; i<waveform.length; ++i)
+            waveform[i] = Math.sin(i * 0.01);
+
+        for (ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN })
+        {
+            final ByteBuffer image = ByteBuffer.allocate(pixels.length * Short.BYTES + 10).order(order);
+            new PVAShortArray("image", true, pixels).encode(image);
+            image.flip();
+
+            final ByteBuffer wave = ByteBuffer.allocate(waveform.length * Double.BYTES + 10).order(order);
+            new PVADoubleArray("wave", waveform).encode(wave);
+            wave.flip();
+
+            final PVAShortArray image_data = new PVAShortArray("image", true);
+            final PVADoubleArray wave_data = new PVADoubleArray("wave");
+            System.out.println(order);
+            for (int run=0; run<RUNS; ++run)
+            {
+                PVASettings.EPICS_PVA_RECYCLE_ARRAYS = false;
+                benchmark("Image, per-element loop", image, buffer ->
+                {
+                    final short[] data = new short[PVASize.decodeSize(buffer)];
+                    for (int i=0; i<data.length; ++i)
+                        data[i] = buffer.getShort();
+                });
+                benchmark("Image, bulk", image, buffer -> image_data.decode(null, buffer));
+                PVASettings.EPICS_PVA_RECYCLE_ARRAYS = true;
+                benchmark("Image, bulk and recycled", image, buffer ->
+                {
+                    image_data.decode(null, buffer);
+                    image_data.peek();
+                });
+
+                PVASettings.EPICS_PVA_RECYCLE_ARRAYS = false;
+                benchmark("Waveform, per-element loop", wave, buffer ->
+                {
+                    final double[] data = new double[PVASize.decodeSize(buffer)];
+                    for (int i=0; i<data.length; ++i)
+                        data[i] = buffer.getDouble();
+                });
+                benchmark("Waveform, bulk", wave, buffer -> wave_data.decode(null, buffer));
+                PVASettings.EPICS_PVA_RECYCLE_ARRAYS = true;
+                benchmark("Waveform, bulk and recycled", wave, buffer ->
+                {
+                    wave_data.decode(null, buffer);
+                    wave_data.peek();
+                });
+            }
+        }
+    }
+}
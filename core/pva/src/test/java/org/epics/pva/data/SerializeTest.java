@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2019 Oak Ridge National Laboratory.
+ * Copyright (c) 2019-2022 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -8,10 +8,14 @@
 package org.epics.pva.data;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
+import org.epics.pva.PVASettings;
 import org.junit.Test;
 
 public class SerializeTest
@@ -44,4 +48,84 @@ public class SerializeTest
             assertThat(readback, equalTo(size));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testArrays() throws Exception
+    {
+        final PVAData[] arrays =
+        {
+            new PVADoubleArray("d", 1.5, -2.25, Double.NaN, Double.MAX_VALUE),
+            new PVAFloatArray("f", 1.5f, -2.25f, Float.NaN),
+            new PVALongArray("l", false, Long.MIN_VALUE, -1, 0, Long.MAX_VALUE),
+            new PVAIntArray("i", false, Integer.MIN_VALUE, -1, 0, Integer.MAX_VALUE),
+            new PVAShortArray("s", true, Short.MIN_VALUE, (short) -1, (short) 0, Short.MAX_VALUE),
+            new PVAByteArray("b", true, Byte.MIN_VALUE, (byte) -1, (byte) 0, Byte.MAX_VALUE),
+            new PVADoubleArray("empty"),
+        };
+        final ByteBuffer buffer = ByteBuffer.allocate(1000);
+        for (ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN })
+        {
+            buffer.clear();
+            buffer.order(order);
+            for (PVAData array : arrays)
+                array.encode(buffer);
+            // Array data must be followed by the next item in the buffer
+            buffer.putInt(42);
+            buffer.flip();
+
+            for (PVAData array : arrays)
+            {
+                final PVAData copy = array.cloneType(array.getName());
+                copy.decode(null, buffer);
+                System.out.println(order + ": " + copy);
+                assertThat(copy, equalTo(array));
+            }
+            assertThat(buffer.getInt(), equalTo(42));
+            assertThat(buffer.remaining(), equalTo(0));
+        }
+    }
+
+    @Test
+    public void testRecycling() throws Exception
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(100);
+        new PVAIntArray("data", false, 1, 2, 3).encode(buffer);
+        new PVAIntArray("data", false, 4, 5, 6).encode(buffer);
+        new PVAIntArray("data", false, 7, 8, 9).encode(buffer);
+        new PVAIntArray("data", false, 10, 11).encode(buffer);
+
+        final boolean original = PVASettings.EPICS_PVA_RECYCLE_ARRAYS;
+        PVASettings.EPICS_PVA_RECYCLE_ARRAYS = true;
+        try
+        {
+            buffer.flip();
+            final PVAIntArray data = new PVAIntArray("data", false);
+
+            data.decode(null, buffer);
+            final int[] first = data.peek();
+            assertThat(first, equalTo(new int[] { 1, 2, 3 }));
+
+            // Array that was only peeked at is re-used
+            data.decode(null, buffer);
+            assertThat(data.peek(), sameInstance(first));
+            assertThat(data.peek(), equalTo(new int[] { 4, 5, 6 }));
+
+            // Array that was handed out via get() is not re-used
+            final int[] kept = data.get();
+            data.decode(null, buffer);
+            assertThat(data.peek(), not(sameInstance(kept)));
+            assertThat(kept, equalTo(new int[] { 4, 5, 6 }));
+            assertThat(data.peek(), equalTo(new int[] { 7, 8, 9 }));
+
+            // Different size requires new array
+            final int[] third = data.peek();
+            data.decode(null, buffer);
+            assertThat(data.peek(), not(sameInstance(third)));
+            assertThat(data.get(), equalTo(new int[] { 10, 11 }));
+        }
+        finally
+        {
+            PVASettings.EPICS_PVA_RECYCLE_ARRAYS = original;
+        }
+    }
+}
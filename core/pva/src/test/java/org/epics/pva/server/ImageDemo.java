@@ -106,8 +106,9 @@ public class ImageDemo
 
             final PVAStructure image = new PVAStructure("", "epics:nt/NTNDArray:1.0",
                                                         value,
+                                                        // Data is not compressed, so empty codec name
                                                         new PVAStructure("codec", "codec_t",
-                                                                         new PVAString("name", "test"),
+                                                                         new PVAString("name", ""),
                                                                          new PVAny("parameters", new PVAInt("", false, 42))),
                                                         new PVALong("compressedSize", false, width * height),
                                                         new PVALong("uncompressedSize", false, width * height),
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.util.segment;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/** On-disk format of the segment file archive
+ *
+ *  <p>Written by the archive engine's SegmentArchiveWriter,
+ *  read by the data browser's SegmentArchiveReader.
+ *
+ *  <p>Each channel has a directory below the archive root,
+ *  named after the channel with characters other than
+ *  letters, digits, '.', '-', '_' encoded as "%XX" UTF-8 bytes.
+ *  Within that directory, each time partition of the channel's
+ *  samples is a segment file "{start}.seg", where start
+ *  is the start of the partition in epoch seconds.
+ *
+ *  <p>File layout, all numbers in big-endian byte order:
+ *  <pre>
+ *  Header:
+ *    int  MAGIC
+ *    int  VERSION
+ *    long End: Byte offset after the last complete record
+ *  Records:
+ *    int  Size of the record in bytes, including this int
+ *    byte Record type
+ *    ... type-specific data
+ *
+ *  Sample records (DOUBLE, LONG, ENUM, STRING, DOUBLE_ARRAY):
+ *    long Epoch seconds
+ *    int  Nanoseconds
+ *    byte Severity, ordinal of AlarmSeverity
+ *    short, bytes Alarm message, UTF-8
+ *    Value:
+ *      DOUBLE: double
+ *      LONG: long
+ *      ENUM: int index
+ *      STRING: int, bytes UTF-8 text
+ *      DOUBLE_ARRAY: int count, double elements
+ *
+ *  Meta data records, preceding the samples to which they apply:
+ *    NUMERIC_META:
+ *      double display low, high, warning low, high, alarm low, high, control low, high
+ *      int precision
+ *      short, bytes units, UTF-8
+ *    ENUM_META:
+ *      int count, then for each label short, bytes UTF-8
+ *  </pre>
+ *
+ *  <p>Readers must ignore data beyond the 'End' offset,
+ *  which is only updated when the writer flushes.
+ */
+@SuppressWarnings("nls")
+public class SegmentFormat
+{
+    /** Magic number at the start of each segment file, 'PSSG' */
+    public static final int MAGIC = 0x50535347;
+
+    /** Version of the file format */
+    public static final int VERSION = 1;
+
+    /** Size of the file header */
+    public static final int HEADER_SIZE = 16;
+
+    /** Offset of the 'End' in the file header */
+    public static final int END_OFFSET = 8;
+
+    /** Record types */
+    public static final byte DOUBLE = 1, LONG = 2, ENUM = 3, STRING = 4, DOUBLE_ARRAY = 5,
+                             NUMERIC_META = 10, ENUM_META = 11;
+
+    /** Size of the record size and type that start each record */
+    public static final int RECORD_HEADER_SIZE = 4 + 1;
+
+    /** Offsets of the time stamp, severity and alarm message length within a sample record */
+    public static final int SECONDS_OFFSET = RECORD_HEADER_SIZE,
+                            NANOS_OFFSET = SECONDS_OFFSET + 8,
+                            SEVERITY_OFFSET = NANOS_OFFSET + 4,
+                            MESSAGE_LENGTH_OFFSET = SEVERITY_OFFSET + 1;
+
+    /** Size of the common part of each sample record, excluding the message bytes,
+     *  which start at this offset
+     */
+    public static final int SAMPLE_HEADER_SIZE = MESSAGE_LENGTH_OFFSET + 2;
+
+    /** Size of a NUMERIC_META record, excluding the units bytes */
+    public static final int NUMERIC_META_SIZE = RECORD_HEADER_SIZE + 8*8 + 4 + 2;
+
+    /** File name extension of segment files */
+    public static final String EXTENSION = ".seg";
+
+    /** @param name Channel name
+     *  @return Name of the directory for that channel
+     */
+    public static String encodeName(final String name)
+    {
+        final StringBuilder buf = new StringBuilder();
+        for (byte b : name.getBytes(StandardCharsets.UTF_8))
+        {
+            final char c = (char) (b & 0xFF);
+            if ((c >= 'a' && c <= 'z')  ||  (c >= 'A' && c <= 'Z')  ||  (c >= '0' && c <= '9')  ||
+                c == '.'  ||  c == '-'  ||  c == '_')
+                buf.append(c);
+            else
+                buf.append(String.format("%%%02X", (int) c));
+        }
+        // Avoid "." and ".." directories
+        if (buf.length() > 0  &&  buf.charAt(0) == '.')
+            buf.replace(0, 1, "%2E");
+        return buf.toString();
+    }
+
+    /** @param encoded Name of a channel directory
+     *  @return Channel name
+     */
+    public static String decodeName(final String encoded)
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(encoded.length());
+        for (int i=0; i<encoded.length(); ++i)
+        {
+            final char c = encoded.charAt(i);
+            if (c == '%'  &&  i+2 < encoded.length())
+            {
+                bytes.write(Integer.parseInt(encoded.substring(i+1, i+3), 16));
+                i += 2;
+            }
+            else
+                bytes.write(c);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /** @param start Start of the time partition, epoch seconds
+     *  @return Name of the segment file for that partition
+     */
+    public static String getFileName(final long start)
+    {
+        return start + EXTENSION;
+    }
+
+    /** @param file_name Name of a segment file
+     *  @return Start of the time partition, epoch seconds
+     *  @throws NumberFormatException if the name is not that of a segment file
+     */
+    public static long getStart(final String file_name) throws NumberFormatException
+    {
+        if (! file_name.endsWith(EXTENSION))
+            throw new NumberFormatException("Not a segment file: " + file_name);
+        return Long.parseLong(file_name.substring(0, file_name.length() - EXTENSION.length()));
+    }
+}
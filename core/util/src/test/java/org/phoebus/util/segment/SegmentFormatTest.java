@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.util.segment;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/** JUnit Test of {@link SegmentFormat} */
+@SuppressWarnings("nls")
+public class SegmentFormatTest
+{
+    @Test
+    public void testNames()
+    {
+        assertThat(SegmentFormat.encodeName("sim://sine(-10, 10)"), equalTo("sim%3A%2F%2Fsine%28-10%2C%2010%29"));
+        assertThat(SegmentFormat.encodeName("..Fred"), equalTo("%2E.Fred"));
+        assertThat(SegmentFormat.encodeName("Temp:Ä"), equalTo("Temp%3A%C3%84"));
+        for (String name : new String[] { "sim://sine(-10, 10) Ä", "..Fred", "Temp:Ä", "a%20b" })
+            assertThat(SegmentFormat.decodeName(SegmentFormat.encodeName(name)), equalTo(name));
+    }
+
+    @Test
+    public void testFileNames()
+    {
+        assertThat(SegmentFormat.getFileName(1000), equalTo("1000.seg"));
+        assertThat(SegmentFormat.getStart("1000.seg"), equalTo(1000L));
+    }
+
+    @Test(expected=NumberFormatException.class)
+    public void testOtherFile()
+    {
+        SegmentFormat.getStart("notes.txt");
+    }
+
+    @Test
+    public void testSampleHeader()
+    {
+        // Size, type, seconds, nanos, severity, message length
+        assertThat(SegmentFormat.SAMPLE_HEADER_SIZE, equalTo(4 + 1 + 8 + 4 + 1 + 2));
+        assertThat(SegmentFormat.MESSAGE_LENGTH_OFFSET + 2, equalTo(SegmentFormat.SAMPLE_HEADER_SIZE));
+    }
+}
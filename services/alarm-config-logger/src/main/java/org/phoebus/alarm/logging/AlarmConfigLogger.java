@@ -13,6 +13,7 @@ import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
@@ -25,6 +26,7 @@ import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.streams.KafkaStreams;
 import org.apache.kafka.streams.StreamsBuilder;
@@ -44,6 +46,7 @@ import org.eclipse.jgit.transport.URIish;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 import org.eclipse.jgit.util.FS;
 import org.phoebus.applications.alarm.client.AlarmClient;
+import org.phoebus.applications.alarm.model.json.JsonModelReader;
 import org.phoebus.applications.alarm.model.xml.XmlModelWriter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -122,7 +125,7 @@ public class AlarmConfigLogger implements Runnable {
 
         writeAlarmModel();
         try (Consumer<String, String> consumer = new KafkaConsumer<String, String>(props,
-                Serdes.String().deserializer(), Serdes.String().deserializer());) {
+                Serdes.String().deserializer(), json_text);) {
 
             // Rewind whenever assigned to partition
             final ConsumerRebalanceListener crl = new ConsumerRebalanceListener() {
@@ -153,13 +156,35 @@ public class AlarmConfigLogger implements Runnable {
 
     KafkaStreams streams = null;
 
+    /** Read messages as JSON text, converting binary messages */
+    private final Deserializer<String> json_text = new Deserializer<>()
+    {
+        @Override
+        public void configure(final Map<String, ?> configs, final boolean isKey)
+        {
+            // Nothing to configure
+        }
+
+        @Override
+        public String deserialize(final String topic, final byte[] data)
+        {
+            return JsonModelReader.toJsonText(data);
+        }
+
+        @Override
+        public void close()
+        {
+            // Nothing to close
+        }
+    };
+
     @Override
     public void run() {
 
         try {
             StreamsBuilder builder = new StreamsBuilder();
 
-            KStream<String, String> alarms = builder.stream(topic, Consumed.with(Serdes.String(), Serdes.String()));
+            KStream<String, String> alarms = builder.stream(topic, Consumed.with(Serdes.String(), Serdes.serdeFrom(Serdes.String().serializer(), json_text)));
             alarms.process(new ProcessorSupplier<String, String>() {
                 @Override
                 public Processor<String, String> get() {
@@ -0,0 +1,537 @@
+package org.phoebus.alarm.logging;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.RestStatus;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import static org.phoebus.alarm.logging.AlarmLoggingService.logger;
+
+/**
+ * Indexes documents into elastic with bulk requests.
+ * <p>
+ * Documents are queued and sent once a bulk request reaches a maximum number of
+ * documents or bytes, or after a flush interval.
+ * Up to a maximum number of bulk requests are sent at the same time.
+ * When the queue is full, {@link #index(String, String, String)} blocks until documents
+ * have been sent, which slows down the kafka streams instead of losing messages.
+ * <p>
+ * While elastic is unreachable, documents are appended to a spool file.
+ * Once elastic can be reached again, the spooled documents are replayed.
+ * Documents that were spooled while the service shuts down are replayed on the next start.
+ * <p>
+ * Responses to bulk requests are handled on the I/O threads of the elastic client,
+ * which must not block. Documents to retry are therefore handed to the indexer thread,
+ * which appends them to the spool file.
+ */
+public class BulkIndexer implements AutoCloseable {
+
+    /** Initialization to perform before the first bulk request, for example creating index templates */
+    @FunctionalInterface
+    public interface Initializer {
+        void initialize(RestHighLevelClient client) throws IOException;
+    }
+
+    /** A document to index */
+    static class Document {
+        final String index;
+        final String type;
+        final String source;
+
+        Document(String index, String type, String source) {
+            this.index = index;
+            this.type = type;
+            this.source = source;
+        }
+
+        /** @return Document as one line of the spool file */
+        String toLine() {
+            return index + '\t' + type + '\t' + source;
+        }
+
+        static Document fromLine(String line) {
+            final String[] parts = line.split("\t", 3);
+            if (parts.length != 3) {
+                return null;
+            }
+            return new Document(parts[0], parts[1], parts[2]);
+        }
+    }
+
+    private static final Document END = new Document("", "", "");
+
+    private final RestHighLevelClient client;
+    private final Initializer initializer;
+    private final int maxActions;
+    private final long maxBytes;
+    private final long flushIntervalMillis;
+    private final long retryIntervalMillis;
+
+    private final BlockingQueue<Document> queue;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /** Is elastic reachable? Until it is, all documents are spooled */
+    private volatile boolean available = false;
+    private long lastAttempt = 0;
+
+    /** Documents are appended to the spool file, which is renamed to the replay file to replay it */
+    private final Path spoolFile;
+    private final Path replayFile;
+    /** Synchronizes access to the spool and replay files, never held while waiting for elastic */
+    private final Object spoolLock = new Object();
+    private BufferedReader replayReader;
+    /** Documents read from the replay file that have not been indexed */
+    private List<Document> replayBatch = new ArrayList<>();
+    /** Documents from bulk responses that the indexer thread needs to spool */
+    private final ConcurrentLinkedQueue<Document> toSpool = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong spooled = new AtomicLong();
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bulks = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private volatile long lastLatency = 0;
+    private volatile long maxLatency = 0;
+
+    /**
+     * @param client              Elastic client
+     * @param initializer         Initialization before the first bulk request, retried until it succeeds
+     * @param queueSize           Maximum number of queued documents
+     * @param maxActions          Maximum number of documents in a bulk request
+     * @param maxBytes            Maximum size in bytes of the documents in a bulk request
+     * @param flushIntervalMillis Maximum time that documents wait to be sent
+     * @param maxInFlight         Maximum number of bulk requests sent at the same time
+     * @param spoolFile           File for documents while elastic is unreachable
+     * @param retryIntervalMillis Time between attempts to reach elastic
+     * @throws IOException on error reading a spool file from a previous run
+     */
+    public BulkIndexer(RestHighLevelClient client, Initializer initializer,
+                       int queueSize, int maxActions, long maxBytes, long flushIntervalMillis,
+                       int maxInFlight, Path spoolFile, long retryIntervalMillis) throws IOException {
+        this.client = client;
+        this.initializer = initializer;
+        this.maxActions = maxActions;
+        this.maxBytes = maxBytes;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.retryIntervalMillis = retryIntervalMillis;
+        this.queue = new LinkedBlockingQueue<>(queueSize);
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.spoolFile = spoolFile;
+        this.replayFile = spoolFile.resolveSibling(spoolFile.getFileName() + ".replay");
+
+        // Documents left over from a previous run
+        if (Files.exists(replayFile)) {
+            spooled.addAndGet(countLines(replayFile));
+        }
+        if (Files.exists(spoolFile)) {
+            spooled.addAndGet(countLines(spoolFile));
+        }
+        if (spooled.get() > 0) {
+            logger.log(Level.INFO, "Replaying " + spooled.get() + " spooled messages from " + spoolFile);
+        }
+
+        thread = new Thread(this::run, "BulkIndexer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static long countLines(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return reader.lines().count();
+        }
+    }
+
+    /**
+     * Queues a document, waiting while the queue is full
+     *
+     * @param index  Index name
+     * @param type   Document type
+     * @param source Document source as JSON
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public void index(String index, String type, String source) throws InterruptedException {
+        final Document document = new Document(index, type, source);
+        if (running) {
+            queue.put(document);
+        } else {
+            spool(List.of(document));
+        }
+    }
+
+    /** @return Number of queued documents */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /** @return Number of bulk requests being sent */
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    /** @return Number of spooled documents that wait to be replayed */
+    public long getSpoolSize() {
+        return spooled.get();
+    }
+
+    /** @return Number of indexed documents */
+    public long getIndexedCount() {
+        return indexed.get();
+    }
+
+    /** @return Number of documents that elastic rejected */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /** @return Number of completed bulk requests */
+    public long getBulkCount() {
+        return bulks.get();
+    }
+
+    /** @return Duration of the last bulk request in ms */
+    public long getLastBulkLatency() {
+        return lastLatency;
+    }
+
+    /** @return Average duration of bulk requests in ms */
+    public double getAverageBulkLatency() {
+        final long count = bulks.get();
+        return count > 0 ? totalLatency.get() / (double) count : 0.0;
+    }
+
+    /** @return Longest duration of a bulk request in ms */
+    public long getMaxBulkLatency() {
+        return maxLatency;
+    }
+
+    /** @return Can elastic be reached? */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    private void run() {
+        try {
+            // Connect, or start to spool
+            replay();
+            while (true) {
+                final List<Document> batch = new ArrayList<>();
+                final boolean end = collect(batch);
+                try {
+                    if (!batch.isEmpty()) {
+                        if (available) {
+                            inFlight.acquire();
+                            send(batch);
+                        } else {
+                            spool(batch);
+                        }
+                    }
+                    spoolResponses();
+                } catch (RuntimeException ex) {
+                    // Keep indexing, since producers wait for the queue to drain
+                    logger.log(Level.SEVERE, "Unexpected error in bulk indexer", ex);
+                }
+                if (end) {
+                    break;
+                }
+                replay();
+            }
+        } catch (InterruptedException ex) {
+            // Closed
+        }
+    }
+
+    /**
+     * Collects the next batch of queued documents
+     *
+     * @param batch Batch to fill
+     * @return <code>true</code> if the indexer has been closed
+     * @throws InterruptedException when interrupted
+     */
+    private boolean collect(List<Document> batch) throws InterruptedException {
+        final long end = System.currentTimeMillis() + flushIntervalMillis;
+        long bytes = 0;
+        while (batch.size() < maxActions && bytes < maxBytes) {
+            final long wait = end - System.currentTimeMillis();
+            final Document document = wait > 0 ? queue.poll(wait, TimeUnit.MILLISECONDS) : queue.poll();
+            if (document == null) {
+                break;
+            }
+            if (document == END) {
+                return true;
+            }
+            batch.add(document);
+            bytes += document.source.length();
+        }
+        return false;
+    }
+
+    private BulkRequest createRequest(List<Document> batch) {
+        final BulkRequest request = new BulkRequest();
+        for (Document document : batch) {
+            request.add(new IndexRequest(document.index, document.type).source(document.source, XContentType.JSON));
+        }
+        return request;
+    }
+
+    /**
+     * Send a batch asynchronously, spooling it if elastic cannot be reached.
+     * The listener runs on an I/O thread of the client, so it only hands
+     * documents to retry to the indexer thread.
+     */
+    private void send(List<Document> batch) {
+        logger.log(Level.FINE, () -> "Bulk indexing " + batch.size() + " messages");
+        final long start = System.currentTimeMillis();
+        final ActionListener<BulkResponse> listener = new ActionListener<>() {
+            @Override
+            public void onResponse(BulkResponse response) {
+                try {
+                    recordLatency(start);
+                    toSpool.addAll(handleResponse(batch, response));
+                } finally {
+                    inFlight.release();
+                }
+            }
+
+            @Override
+            public void onFailure(Exception ex) {
+                try {
+                    if (available) {
+                        logger.log(Level.WARNING, "Cannot reach elastic, spooling messages to " + spoolFile, ex);
+                    }
+                    available = false;
+                    toSpool.addAll(batch);
+                } finally {
+                    inFlight.release();
+                }
+            }
+        };
+        try {
+            client.bulkAsync(createRequest(batch), RequestOptions.DEFAULT, listener);
+        } catch (RuntimeException ex) {
+            listener.onFailure(ex);
+        }
+    }
+
+    private void recordLatency(long start) {
+        final long latency = System.currentTimeMillis() - start;
+        lastLatency = latency;
+        maxLatency = Math.max(maxLatency, latency);
+        totalLatency.addAndGet(latency);
+        bulks.incrementAndGet();
+    }
+
+    /**
+     * @param batch    Batch that was sent
+     * @param response Response
+     * @return Documents that elastic could not accept at this time and should be retried
+     */
+    private List<Document> handleResponse(List<Document> batch, BulkResponse response) {
+        final List<Document> retry = new ArrayList<>();
+        final BulkItemResponse[] items = response.getItems();
+        for (int i = 0; i < items.length; ++i) {
+            final BulkItemResponse item = items[i];
+            if (!item.isFailed()) {
+                indexed.incrementAndGet();
+            } else if (item.status() == RestStatus.TOO_MANY_REQUESTS || item.status() == RestStatus.SERVICE_UNAVAILABLE) {
+                retry.add(batch.get(item.getItemId() < batch.size() ? item.getItemId() : i));
+            } else {
+                failed.incrementAndGet();
+                logger.log(Level.SEVERE, "Failed while indexing to " + item.getIndex() + " type "
+                        + item.getType() + " [" + item.getFailureMessage() + "]");
+            }
+        }
+        return retry;
+    }
+
+    /** Append documents from bulk responses to the spool file */
+    private void spoolResponses() {
+        final List<Document> documents = new ArrayList<>();
+        Document document;
+        while ((document = toSpool.poll()) != null) {
+            documents.add(document);
+        }
+        spool(documents);
+    }
+
+    /** Append documents to the spool file */
+    private void spool(List<Document> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        synchronized (spoolLock) {
+            try (BufferedWriter writer = Files.newBufferedWriter(spoolFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (Document document : documents) {
+                    writer.write(document.toLine());
+                    writer.newLine();
+                }
+                spooled.addAndGet(documents.size());
+            } catch (IOException ex) {
+                failed.addAndGet(documents.size());
+                logger.log(Level.SEVERE, "Failed to spool " + documents.size() + " messages to " + spoolFile, ex);
+            }
+        }
+    }
+
+    /**
+     * Once per retry interval while elastic is not available, try to reach it.
+     * While elastic is available, send one batch of spooled documents.
+     */
+    private void replay() {
+        if (!available) {
+            final long now = System.currentTimeMillis();
+            if (now - lastAttempt < retryIntervalMillis) {
+                return;
+            }
+            lastAttempt = now;
+            try {
+                if (!client.ping(RequestOptions.DEFAULT)) {
+                    return;
+                }
+                initializer.initialize(client);
+                available = true;
+                logger.log(Level.INFO, "Connected to elastic" + (spooled.get() > 0 ? ", replaying " + spooled.get() + " spooled messages" : ""));
+            } catch (Exception ex) {
+                logger.log(Level.FINE, "Cannot reach elastic", ex);
+                return;
+            }
+        }
+        if (spooled.get() <= 0) {
+            return;
+        }
+        try {
+            synchronized (spoolLock) {
+                if (replayBatch.isEmpty()) {
+                    readReplayBatch();
+                }
+            }
+            if (replayBatch.isEmpty()) {
+                return;
+            }
+            // Send without holding the lock, since the response is handled
+            // by the same I/O threads as the responses to asynchronous requests
+            final long start = System.currentTimeMillis();
+            final BulkResponse response = client.bulk(createRequest(replayBatch), RequestOptions.DEFAULT);
+            recordLatency(start);
+            final int count = replayBatch.size();
+            final List<Document> retry = handleResponse(replayBatch, response);
+            replayBatch = new ArrayList<>();
+            spooled.addAndGet(-count);
+            spool(retry);
+        } catch (Exception ex) {
+            // Includes elastic rejecting the complete request, for example with 429 or 503.
+            // Keep the replay batch for the next attempt
+            available = false;
+            lastAttempt = System.currentTimeMillis();
+            logger.log(Level.WARNING, "Failed to replay spooled messages", ex);
+        }
+    }
+
+    /** Read the next batch from the replay file, starting to replay the spool file when the replay file is done */
+    private void readReplayBatch() throws IOException {
+        if (replayReader == null) {
+            if (!Files.exists(replayFile)) {
+                if (!Files.exists(spoolFile)) {
+                    return;
+                }
+                Files.move(spoolFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+            }
+            replayReader = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8);
+        }
+        long bytes = 0;
+        String line;
+        while (replayBatch.size() < maxActions && bytes < maxBytes && (line = replayReader.readLine()) != null) {
+            final Document document = Document.fromLine(line);
+            if (document == null) {
+                spooled.decrementAndGet();
+                logger.log(Level.WARNING, "Skipping invalid spooled message " + line);
+            } else {
+                replayBatch.add(document);
+                bytes += document.source.length();
+            }
+        }
+        if (replayBatch.size() < maxActions && bytes < maxBytes) {
+            // Replay file has been read completely
+            replayReader.close();
+            replayReader = null;
+            Files.delete(replayFile);
+            // Continue with the spool file in the next batch
+            if (replayBatch.isEmpty()) {
+                readReplayBatch();
+            }
+        }
+    }
+
+    /**
+     * Sends the queued documents and waits for bulk requests to complete.
+     * Documents that cannot be sent and documents that are not replayed yet
+     * remain in the spool file for the next start.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        queue.put(END);
+        thread.join();
+        inFlight.acquire(maxInFlight);
+        inFlight.release(maxInFlight);
+        spoolResponses();
+        // Documents that were queued while closing
+        final List<Document> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.remove(END);
+        spool(remaining);
+        synchronized (spoolLock) {
+            if (replayReader == null) {
+                return;
+            }
+            // Keep what has not been replayed
+            try {
+                final Path remainder = replayFile.resolveSibling(replayFile.getFileName() + ".tmp");
+                try (BufferedWriter writer = Files.newBufferedWriter(remainder, StandardCharsets.UTF_8)) {
+                    for (Document document : replayBatch) {
+                        writer.write(document.toLine());
+                        writer.newLine();
+                    }
+                    String line;
+                    while ((line = replayReader.readLine()) != null) {
+                        writer.write(line);
+                        writer.newLine();
+                    }
+                }
+                replayReader.close();
+                replayReader = null;
+                replayBatch = new ArrayList<>();
+                Files.move(remainder, replayFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, "Failed to update " + replayFile, ex);
+            }
+        }
+    }
+}
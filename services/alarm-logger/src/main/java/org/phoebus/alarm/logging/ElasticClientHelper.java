@@ -5,14 +5,8 @@ package org.phoebus.alarm.logging;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.http.HttpHost;
-import org.elasticsearch.action.DocWriteResponse.Result;
 import org.elasticsearch.action.admin.indices.get.GetIndexRequest;
 import org.elasticsearch.action.admin.indices.template.put.PutIndexTemplateRequest;
-import org.elasticsearch.action.bulk.BulkRequest;
-import org.elasticsearch.action.bulk.BulkResponse;
-import org.elasticsearch.action.index.IndexRequest;
-import org.elasticsearch.action.index.IndexResponse;
-import org.elasticsearch.action.support.WriteRequest;
 import org.elasticsearch.action.support.master.AcknowledgedResponse;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestClient;
@@ -26,14 +20,8 @@ import org.phoebus.applications.alarm.messages.AlarmStateMessage;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingDeque;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 
 import static org.phoebus.alarm.logging.AlarmLoggingService.logger;
@@ -47,23 +35,27 @@ public class ElasticClientHelper {
     private static RestHighLevelClient client;
     private static ElasticClientHelper instance;
     private static Sniffer sniffer;
+    // All messages are indexed in bulk requests
+    private static BulkIndexer bulkIndexer;
 
-    private static AtomicBoolean esInitialized = new AtomicBoolean();
-
-    private static ScheduledExecutorService scheduledExecutorService = Executors.newScheduledThreadPool(4);
-    ScheduledFuture<?> job;
-    // State messages to be indexed
-    BlockingQueue<IndexRequest> stateMessagedQueue = new LinkedBlockingDeque<>();
-    // State messages to be indexed
-    BlockingQueue<IndexRequest> configMessagedQueue = new LinkedBlockingDeque<>();
+    private static final ObjectMapper mapper = new ObjectMapper();
 
     private ElasticClientHelper() {
         try {
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 logger.info("Shutting down the ElasticClientHelper.");
+                if (bulkIndexer != null) {
+                    try {
+                        bulkIndexer.close();
+                    } catch (InterruptedException e) {
+                        logger.log(Level.WARNING, "Interrupted while indexing the remaining messages", e);
+                    }
+                }
                 if (client != null) {
                     try {
-                        sniffer.close();
+                        if (sniffer != null) {
+                            sniffer.close();
+                        }
                         client.close();
                     } catch (IOException e) {
                         logger.log(Level.WARNING, "Failed to close the elastic rest client", e);
@@ -76,17 +68,28 @@ public class ElasticClientHelper {
                 sniffer = Sniffer.builder(client.getLowLevelClient()).build();
                 logger.log(Level.INFO, "ES Sniff feature is enabled");
             }
-            // Initialize the elastic templates
-            esInitialized.set(!Boolean.parseBoolean(props.getProperty("es_create_templates")));
-
-            // Start the executor for periodically logging into es
-            job = scheduledExecutorService.scheduleAtFixedRate(new flush2Elastic(stateMessagedQueue, configMessagedQueue),
-                    0, 250, TimeUnit.MILLISECONDS);
+            // Initialize the elastic templates before indexing
+            final boolean createTemplates = Boolean.parseBoolean(props.getProperty("es_create_templates"));
+
+            // Start indexing messages into es
+            bulkIndexer = new BulkIndexer(client,
+                    createTemplates ? ElasticClientHelper::initializeIndices : es -> { },
+                    Integer.parseInt(props.getProperty("bulk_queue_size", "10000")),
+                    Integer.parseInt(props.getProperty("bulk_max_actions", "1000")),
+                    Long.parseLong(props.getProperty("bulk_max_bytes", "5000000")),
+                    Long.parseLong(props.getProperty("bulk_flush_interval", "250")),
+                    Integer.parseInt(props.getProperty("bulk_concurrent_requests", "2")),
+                    Paths.get(props.getProperty("spool_file", "alarm_logger_spool.txt")),
+                    Long.parseLong(props.getProperty("spool_retry_interval", "5000")));
         } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to create the elastic rest client", e);
             try {
-                job.cancel(false);
-                sniffer.close();
-                client.close();
+                if (sniffer != null) {
+                    sniffer.close();
+                }
+                if (client != null) {
+                    client.close();
+                }
             } catch (IOException ex) {
                 logger.log(Level.WARNING, "Failed to close the elastic rest client", ex);
             }
@@ -123,176 +126,121 @@ public class ElasticClientHelper {
         }
     }
 
+    /**
+     * @return The pipeline that indexes all alarm messages
+     */
+    public BulkIndexer getBulkIndexer() {
+        return bulkIndexer;
+    }
+
     public void indexAlarmStateDocument(String indexName, AlarmStateMessage alarmStateMessage) {
-        IndexRequest indexRequest = new IndexRequest(indexName.toLowerCase(), "alarm");
-        try {
-            indexRequest.source(alarmStateMessage.sourceMap());
-            IndexResponse indexResponse = client.index(indexRequest, RequestOptions.DEFAULT);
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "failed to log message " + alarmStateMessage + " to index " + indexName, e);
-        }
+        index(indexName, "alarm", alarmStateMessage, alarmStateMessage.sourceMap());
     }
 
 
     public void indexAlarmStateDocuments(String indexName, AlarmStateMessage alarmStateMessage) {
-        try {
-            IndexRequest indexRequest = new IndexRequest(indexName.toLowerCase(), "alarm");
-            indexRequest.source(alarmStateMessage.sourceMap());
-            stateMessagedQueue.put(indexRequest);
-        } catch (InterruptedException e) {
-            logger.log(Level.SEVERE, "failed to log message " + alarmStateMessage + " to index " + indexName, e);
-        }
+        index(indexName, "alarm", alarmStateMessage, alarmStateMessage.sourceMap());
     }
 
+    /**
+     * Queues the command message to be indexed
+     * @return true if queued
+     */
     public boolean indexAlarmCmdDocument(String indexName, AlarmCommandMessage alarmCommandMessage) {
-        IndexRequest indexRequest = new IndexRequest(indexName.toLowerCase(), "alarm_cmd");
-        try {
-            indexRequest.source(alarmCommandMessage.sourceMap());
-            IndexResponse indexResponse = client.index(indexRequest, RequestOptions.DEFAULT);
-            return indexResponse.getResult().equals(Result.CREATED);
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "failed to log message " + alarmCommandMessage + " to index " + indexName, e);
-            return false;
-        }
+        return index(indexName, "alarm_cmd", alarmCommandMessage, alarmCommandMessage.sourceMap());
     }
 
+    /**
+     * Queues the config message to be indexed
+     * @return true if queued
+     */
     public boolean indexAlarmConfigDocument(String indexName, AlarmConfigMessage alarmConfigMessage) {
-        IndexRequest indexRequest = new IndexRequest(indexName.toLowerCase(), "alarm_config");
-        try {
-            indexRequest.source(alarmConfigMessage.sourceMap());
-            IndexResponse indexResponse = client.index(indexRequest, RequestOptions.DEFAULT);
-            return indexResponse.getResult().equals(Result.CREATED);
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "failed to log message " + alarmConfigMessage + " to index " + indexName, e);
-            return false;
-        }
+        return index(indexName, "alarm_config", alarmConfigMessage, alarmConfigMessage.sourceMap());
     }
 
     public void indexAlarmConfigDocuments(String indexName, AlarmConfigMessage alarmConfigMessage) {
-        try {
-            IndexRequest indexRequest = new IndexRequest(indexName.toLowerCase(), "alarm_config");
-            indexRequest.source(alarmConfigMessage.sourceMap());
-            configMessagedQueue.put(indexRequest);
-        } catch (InterruptedException e) {
-            logger.log(Level.SEVERE, "failed to log message " + alarmConfigMessage + " to index " + indexName, e);
-        }
+        index(indexName, "alarm_config", alarmConfigMessage, alarmConfigMessage.sourceMap());
     }
 
-    private static class flush2Elastic implements Runnable {
-
-        private BlockingQueue<IndexRequest> stateMessagedQueue;
-        private BlockingQueue<IndexRequest> configMessagedQueue;
-
-        public flush2Elastic(BlockingQueue<IndexRequest> stateMessagedQueue, BlockingQueue<IndexRequest> configMessagedQueue) {
-            this.stateMessagedQueue = stateMessagedQueue;
-            this.configMessagedQueue = configMessagedQueue;
-        }
-
-        @Override
-        public void run() {
-            if (esInitialized.compareAndSet(false, true)) {
-                try {
-                    initializeIndices();
-                } catch (IOException e) {
-                    logger.log(Level.SEVERE, "failed to create the alarm log indices ", e);
-                }
-            }
-            if(stateMessagedQueue.size() + configMessagedQueue.size() > 0){
-                logger.log(Level.INFO, "batch execution of : " + stateMessagedQueue.size() + " state messages and " + configMessagedQueue.size() + " config messages");
-                BulkRequest bulkRequest = new BulkRequest();
-                Collection<IndexRequest> stateIndexRequests = new ArrayList<>();
-                stateMessagedQueue.drainTo(stateIndexRequests);
-                stateIndexRequests.stream().forEach(bulkRequest::add);
-                Collection<IndexRequest> configIndexRequests = new ArrayList<>();
-                configMessagedQueue.drainTo(configIndexRequests);
-                configIndexRequests.stream().forEach(bulkRequest::add);
-                bulkRequest.setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
-                try {
-                    BulkResponse bulkResponse = client.bulk(bulkRequest, RequestOptions.DEFAULT);
-                    if(bulkResponse.hasFailures()) {
-                        logger.log(Level.SEVERE, "logging to index has failure: " + bulkResponse.buildFailureMessage());
-                        Arrays.stream(bulkResponse.getItems()).forEach(item -> {
-                                    if (item.isFailed()) {
-                                        logger.log(Level.SEVERE, "Failed while indexing to " + item.getIndex() + " type "
-                                                + item.getType() + item.getFailureMessage() + "]");
-                                    }
-                                }
-                        );
-                    }
-
-                } catch (IOException e) {
-                    logger.log(Level.SEVERE, "failed to log messages to index ", e);
-                }
-            }
+    /**
+     * Queue a message to be indexed, waiting while the queue is full
+     */
+    private boolean index(String indexName, String type, Object message, Map<String, String> source) {
+        try {
+            bulkIndexer.index(indexName.toLowerCase(), type, mapper.writeValueAsString(source));
+            return true;
+        } catch (IOException | InterruptedException e) {
+            logger.log(Level.SEVERE, "failed to log message " + message + " to index " + indexName, e);
+            return false;
         }
+    }
 
-        private static final String ALARM_STATE_TEMPLATE =  "alarms_state_template";
-        private static final String ALARM_STATE_TEMPLATE_PATTERN =  "*_alarms_state*";
+    private static final String ALARM_STATE_TEMPLATE =  "alarms_state_template";
+    private static final String ALARM_STATE_TEMPLATE_PATTERN =  "*_alarms_state*";
 
-        private static final String ALARM_CMD_TEMPLATE =  "alarms_cmd_template";
-        private static final String ALARM_CMD_TEMPLATE_PATTERN =  "*_alarms_cmd*";
+    private static final String ALARM_CMD_TEMPLATE =  "alarms_cmd_template";
+    private static final String ALARM_CMD_TEMPLATE_PATTERN =  "*_alarms_cmd*";
 
-        private static final String ALARM_CONFIG_TEMPLATE =  "alarms_config_template";
-        private static final String ALARM_CONFIG_TEMPLATE_PATTERN =  "*_alarms_config*";
+    private static final String ALARM_CONFIG_TEMPLATE =  "alarms_config_template";
+    private static final String ALARM_CONFIG_TEMPLATE_PATTERN =  "*_alarms_config*";
 
-        public void initializeIndices() throws IOException {
-            // Create the alarm state messages index template
-            IndexTemplatesExistRequest request = new IndexTemplatesExistRequest(ALARM_STATE_TEMPLATE);
-            boolean exists = client.indices().existsTemplate(request, RequestOptions.DEFAULT);
+    private static void initializeIndices(RestHighLevelClient client) throws IOException {
+        // Create the alarm state messages index template
+        IndexTemplatesExistRequest request = new IndexTemplatesExistRequest(ALARM_STATE_TEMPLATE);
+        boolean exists = client.indices().existsTemplate(request, RequestOptions.DEFAULT);
 
-            if(!exists) {
-                PutIndexTemplateRequest templateRequest = new PutIndexTemplateRequest(ALARM_STATE_TEMPLATE);
-                templateRequest.patterns(Arrays.asList(ALARM_STATE_TEMPLATE_PATTERN));
+        if(!exists) {
+            PutIndexTemplateRequest templateRequest = new PutIndexTemplateRequest(ALARM_STATE_TEMPLATE);
+            templateRequest.patterns(Arrays.asList(ALARM_STATE_TEMPLATE_PATTERN));
 
-                ObjectMapper mapper = new ObjectMapper();
-                InputStream is = ElasticClientHelper.class.getResourceAsStream("/alarms_state_template.json");
+            ObjectMapper mapper = new ObjectMapper();
+            InputStream is = ElasticClientHelper.class.getResourceAsStream("/alarms_state_template.json");
 
-                Map<String, String> jsonMap = mapper.readValue(is, Map.class);
-                templateRequest.mapping("alarm", XContentFactory.jsonBuilder().map(jsonMap));
-                templateRequest.create(true);
-                AcknowledgedResponse putTemplateResponse = client.indices().putTemplate(templateRequest, RequestOptions.DEFAULT);
-                putTemplateResponse.isAcknowledged();
-                logger.log( Level.INFO, "Created " + ALARM_STATE_TEMPLATE + " template.");
+            Map<String, String> jsonMap = mapper.readValue(is, Map.class);
+            templateRequest.mapping("alarm", XContentFactory.jsonBuilder().map(jsonMap));
+            templateRequest.create(true);
+            AcknowledgedResponse putTemplateResponse = client.indices().putTemplate(templateRequest, RequestOptions.DEFAULT);
+            putTemplateResponse.isAcknowledged();
+            logger.log( Level.INFO, "Created " + ALARM_STATE_TEMPLATE + " template.");
 
-            }
+        }
 
-            // Create the alarm command messages index template
-            request = new IndexTemplatesExistRequest(ALARM_CMD_TEMPLATE);
-            exists = client.indices().existsTemplate(request, RequestOptions.DEFAULT);
+        // Create the alarm command messages index template
+        request = new IndexTemplatesExistRequest(ALARM_CMD_TEMPLATE);
+        exists = client.indices().existsTemplate(request, RequestOptions.DEFAULT);
 
-            if(!exists) {
-                PutIndexTemplateRequest templateRequest = new PutIndexTemplateRequest(ALARM_CMD_TEMPLATE);
-                templateRequest.patterns(Arrays.asList(ALARM_CMD_TEMPLATE_PATTERN));
+        if(!exists) {
+            PutIndexTemplateRequest templateRequest = new PutIndexTemplateRequest(ALARM_CMD_TEMPLATE);
+            templateRequest.patterns(Arrays.asList(ALARM_CMD_TEMPLATE_PATTERN));
 
-                ObjectMapper mapper = new ObjectMapper();
-                InputStream is = ElasticClientHelper.class.getResourceAsStream("/alarms_cmd_template.json");
+            ObjectMapper mapper = new ObjectMapper();
+            InputStream is = ElasticClientHelper.class.getResourceAsStream("/alarms_cmd_template.json");
 
-                Map<String, String> jsonMap = mapper.readValue(is, Map.class);
-                templateRequest.mapping("alarm_cmd", XContentFactory.jsonBuilder().map(jsonMap));
-                templateRequest.create(true);
-                AcknowledgedResponse putTemplateResponse = client.indices().putTemplate(templateRequest, RequestOptions.DEFAULT);
-                putTemplateResponse.isAcknowledged();
-                logger.log( Level.INFO, "Created " + ALARM_CMD_TEMPLATE + " template.");
-            }
+            Map<String, String> jsonMap = mapper.readValue(is, Map.class);
+            templateRequest.mapping("alarm_cmd", XContentFactory.jsonBuilder().map(jsonMap));
+            templateRequest.create(true);
+            AcknowledgedResponse putTemplateResponse = client.indices().putTemplate(templateRequest, RequestOptions.DEFAULT);
+            putTemplateResponse.isAcknowledged();
+            logger.log( Level.INFO, "Created " + ALARM_CMD_TEMPLATE + " template.");
+        }
 
-            // Create the alarm config messages index template
-            request = new IndexTemplatesExistRequest(ALARM_CONFIG_TEMPLATE);
-            exists = client.indices().existsTemplate(request, RequestOptions.DEFAULT);
+        // Create the alarm config messages index template
+        request = new IndexTemplatesExistRequest(ALARM_CONFIG_TEMPLATE);
+        exists = client.indices().existsTemplate(request, RequestOptions.DEFAULT);
 
-            if(!exists) {
-                PutIndexTemplateRequest templateRequest = new PutIndexTemplateRequest(ALARM_CONFIG_TEMPLATE);
-                templateRequest.patterns(Arrays.asList(ALARM_CONFIG_TEMPLATE_PATTERN));
+        if(!exists) {
+            PutIndexTemplateRequest templateRequest = new PutIndexTemplateRequest(ALARM_CONFIG_TEMPLATE);
+            templateRequest.patterns(Arrays.asList(ALARM_CONFIG_TEMPLATE_PATTERN));
 
-                ObjectMapper mapper = new ObjectMapper();
-                InputStream is = ElasticClientHelper.class.getResourceAsStream("/alarms_config_template.json");
+            ObjectMapper mapper = new ObjectMapper();
+            InputStream is = ElasticClientHelper.class.getResourceAsStream("/alarms_config_template.json");
 
-                Map<String, String> jsonMap = mapper.readValue(is, Map.class);
-                templateRequest.mapping("alarm_config", XContentFactory.jsonBuilder().map(jsonMap));
-                templateRequest.create(true);
-                AcknowledgedResponse putTemplateResponse = client.indices().putTemplate(templateRequest, RequestOptions.DEFAULT);
-                putTemplateResponse.isAcknowledged();
-                logger.log( Level.INFO, "Created " + ALARM_CONFIG_TEMPLATE + " template.");
-            }
+            Map<String, String> jsonMap = mapper.readValue(is, Map.class);
+            templateRequest.mapping("alarm_config", XContentFactory.jsonBuilder().map(jsonMap));
+            templateRequest.create(true);
+            AcknowledgedResponse putTemplateResponse = client.indices().putTemplate(templateRequest, RequestOptions.DEFAULT);
+            putTemplateResponse.isAcknowledged();
+            logger.log( Level.INFO, "Created " + ALARM_CONFIG_TEMPLATE + " template.");
         }
     }
 }
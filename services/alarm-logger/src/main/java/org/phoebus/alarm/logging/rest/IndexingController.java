@@ -0,0 +1,41 @@
+package org.phoebus.alarm.logging.rest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.phoebus.alarm.logging.BulkIndexer;
+import org.phoebus.alarm.logging.ElasticClientHelper;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * A REST service for monitoring how alarm messages are indexed into elastic
+ */
+@RestController
+@RequestMapping("/alarm-history")
+public class IndexingController {
+
+    /**
+     * @return Queue depth, bulk request latency and spool size of the indexing pipeline
+     */
+    @RequestMapping(value = "/indexing", method = RequestMethod.GET)
+    public Map<String, Object> getIndexingMetrics() {
+        final BulkIndexer indexer = ElasticClientHelper.getInstance().getBulkIndexer();
+        final Map<String, Object> metrics = new LinkedHashMap<>();
+        if (indexer == null) {
+            return metrics;
+        }
+        metrics.put("elastic_available", indexer.isAvailable());
+        metrics.put("queue_size", indexer.getQueueSize());
+        metrics.put("bulk_requests_in_flight", indexer.getInFlight());
+        metrics.put("spool_size", indexer.getSpoolSize());
+        metrics.put("indexed", indexer.getIndexedCount());
+        metrics.put("failed", indexer.getFailedCount());
+        metrics.put("bulk_requests", indexer.getBulkCount());
+        metrics.put("bulk_latency_last_ms", indexer.getLastBulkLatency());
+        metrics.put("bulk_latency_average_ms", indexer.getAverageBulkLatency());
+        metrics.put("bulk_latency_max_ms", indexer.getMaxBulkLatency());
+        return metrics;
+    }
+}
@@ -0,0 +1,335 @@
+package org.phoebus.alarm.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.apache.http.HttpHost;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test the {@link BulkIndexer} against a local HTTP server that stands in for elastic
+ */
+public class BulkIndexerTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private HttpServer server;
+    private RestHighLevelClient client;
+    private Path spoolFile;
+
+    /** Sources of the indexed documents */
+    private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger largestBulk = new AtomicInteger();
+    /** Respond with 503 to all requests? */
+    private volatile boolean down = false;
+    /** Number of documents to reject with 429 */
+    private final AtomicInteger reject = new AtomicInteger();
+    /** Bulk requests wait for this latch */
+    private volatile CountDownLatch blocked = new CountDownLatch(0);
+    /** Delay of bulk responses in ms */
+    private volatile long delay = 0;
+    /** Status for rejecting complete bulk requests, 0 to accept them */
+    private volatile int bulkStatus = 0;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+        server.start();
+        client = new RestHighLevelClient(RestClient.builder(new HttpHost("localhost", server.getAddress().getPort())));
+        spoolFile = Files.createTempDirectory("alarm_logger").resolve("spool.txt");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        final String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        if (down) {
+            respond(exchange, 503, "{\"error\":\"unavailable\",\"status\":503}");
+            return;
+        }
+        if (!exchange.getRequestURI().getPath().equals("/_bulk")) {
+            // Ping
+            respond(exchange, 200, "{}");
+            return;
+        }
+        if (bulkStatus != 0) {
+            respond(exchange, bulkStatus, "{\"error\":{\"root_cause\":[],\"type\":\"circuit_breaking_exception\"," +
+                    "\"reason\":\"[parent] Data too large\"},\"status\":" + bulkStatus + "}");
+            return;
+        }
+        try {
+            blocked.await();
+            TimeUnit.MILLISECONDS.sleep(delay);
+        } catch (InterruptedException ex) {
+            respond(exchange, 500, "{}");
+            return;
+        }
+        final StringBuilder items = new StringBuilder();
+        final String[] lines = body.split("\n");
+        boolean errors = false;
+        for (int i = 0; i + 1 < lines.length; i += 2) {
+            final JsonNode action = mapper.readTree(lines[i]).get("index");
+            final String index = action.get("_index").asText();
+            final String type = action.get("_type").asText();
+            if (items.length() > 0) {
+                items.append(',');
+            }
+            if (reject.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                errors = true;
+                items.append("{\"index\":{\"_index\":\"" + index + "\",\"_type\":\"" + type + "\",\"_id\":\"" + i + "\",\"status\":429," +
+                        "\"error\":{\"type\":\"es_rejected_execution_exception\",\"reason\":\"rejected\"}}}");
+            } else {
+                received.add(lines[i + 1]);
+                items.append("{\"index\":{\"_index\":\"" + index + "\",\"_type\":\"" + type + "\",\"_id\":\"" + i + "\",\"_version\":1," +
+                        "\"result\":\"created\",\"_shards\":{\"total\":1,\"successful\":1,\"failed\":0},\"_seq_no\":" + i + "," +
+                        "\"_primary_term\":1,\"status\":201}}");
+            }
+        }
+        largestBulk.accumulateAndGet(lines.length / 2, Math::max);
+        respond(exchange, 200, "{\"took\":1,\"errors\":" + errors + ",\"items\":[" + items + "]}");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+
+    private BulkIndexer createIndexer(int queueSize, int maxActions, int maxInFlight) throws IOException {
+        return new BulkIndexer(client, es -> { }, queueSize, maxActions, 1000000, 50, maxInFlight, spoolFile, 100);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        final long end = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timeout", System.currentTimeMillis() < end);
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+    }
+
+    private static String source(int i) {
+        return "{\"pv\":\"pv" + i + "\",\"severity\":\"MAJOR\"}";
+    }
+
+    @Test
+    public void testBulk() throws Exception {
+        final BulkIndexer indexer = createIndexer(10000, 1000, 2);
+        for (int i = 0; i < 2500; ++i) {
+            indexer.index("accelerator_alarms_state", "alarm", source(i));
+        }
+        waitFor(() -> indexer.getIndexedCount() == 2500);
+        assertEquals(2500, received.size());
+        assertTrue(largestBulk.get() <= 1000);
+        assertTrue(indexer.getBulkCount() >= 3);
+        assertEquals(0, indexer.getFailedCount());
+        assertEquals(0, indexer.getQueueSize());
+        indexer.close();
+    }
+
+    @Test
+    public void testSpoolAndReplay() throws Exception {
+        down = true;
+        final BulkIndexer indexer = createIndexer(10000, 30, 2);
+        for (int i = 0; i < 100; ++i) {
+            indexer.index("accelerator_alarms_cmd", "alarm_cmd", source(i));
+        }
+        waitFor(() -> indexer.getSpoolSize() == 100);
+        assertFalse(indexer.isAvailable());
+        assertTrue(received.isEmpty());
+
+        // Spooled documents are replayed when elastic is back
+        down = false;
+        waitFor(() -> received.size() == 100);
+        waitFor(() -> indexer.getSpoolSize() == 0);
+        assertTrue(indexer.isAvailable());
+        for (int i = 0; i < 100; ++i) {
+            assertTrue(received.contains(source(i)));
+        }
+        indexer.close();
+        assertFalse(Files.exists(spoolFile.resolveSibling("spool.txt.replay")));
+    }
+
+    @Test
+    public void testSpoolKeptAcrossRestart() throws Exception {
+        down = true;
+        BulkIndexer indexer = createIndexer(10000, 30, 2);
+        for (int i = 0; i < 10; ++i) {
+            indexer.index("accelerator_alarms_config", "alarm_config", source(i));
+        }
+        indexer.close();
+        assertEquals(10, indexer.getSpoolSize());
+        assertEquals(10, Files.readAllLines(spoolFile).size());
+
+        down = false;
+        indexer = createIndexer(10000, 30, 2);
+        assertEquals(10, indexer.getSpoolSize());
+        waitFor(() -> received.size() == 10);
+        indexer.close();
+        assertEquals(0, indexer.getSpoolSize());
+    }
+
+    @Test
+    public void testRejectedDocumentsAreRetried() throws Exception {
+        final BulkIndexer indexer = createIndexer(10000, 1000, 2);
+        waitFor(indexer::isAvailable);
+        reject.set(5);
+        for (int i = 0; i < 20; ++i) {
+            indexer.index("accelerator_alarms_state", "alarm", source(i));
+        }
+        waitFor(() -> indexer.getIndexedCount() == 20);
+        assertEquals(20, received.size());
+        assertEquals(0, indexer.getFailedCount());
+        indexer.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testRejectedWhileReplaying() throws Exception {
+        // With a single I/O thread, responses to the asynchronous requests
+        // and to the replay are handled by the same thread
+        client.close();
+        client = new RestHighLevelClient(RestClient.builder(new HttpHost("localhost", server.getAddress().getPort()))
+                .setHttpClientConfigCallback(builder -> builder.setDefaultIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(1).build())));
+        down = true;
+        final BulkIndexer indexer = createIndexer(10000, 10, 4);
+        for (int i = 0; i < 200; ++i) {
+            indexer.index("accelerator_alarms_state", "alarm", source(i));
+        }
+        waitFor(() -> indexer.getSpoolSize() == 200);
+
+        // Elastic is back, but rejects documents while spooled and new documents are sent
+        delay = 20;
+        reject.set(100);
+        down = false;
+        waitFor(indexer::isAvailable);
+        for (int i = 200; i < 400; ++i) {
+            indexer.index("accelerator_alarms_state", "alarm", source(i));
+            if (i % 10 == 0) {
+                TimeUnit.MILLISECONDS.sleep(20);
+            }
+        }
+        waitFor(() -> received.size() == 400);
+        waitFor(() -> indexer.getSpoolSize() == 0);
+        assertEquals(0, reject.get());
+        assertEquals(0, indexer.getFailedCount());
+        for (int i = 0; i < 400; ++i) {
+            assertTrue(received.contains(source(i)));
+        }
+        indexer.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testBulkRequestsRejected() throws Exception {
+        // Spool from a previous run
+        final List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 50; ++i) {
+            lines.add(new BulkIndexer.Document("accelerator_alarms_state", "alarm", source(i)).toLine());
+        }
+        Files.write(spoolFile, lines);
+
+        // Elastic can be reached but rejects complete bulk requests
+        for (int status : new int[] { 429, 503 }) {
+            received.clear();
+            bulkStatus = status;
+            final BulkIndexer indexer = createIndexer(10, 5, 2);
+            final Thread producer = new Thread(() -> {
+                try {
+                    for (int i = 50; i < 150; ++i) {
+                        indexer.index("accelerator_alarms_state", "alarm", source(i));
+                    }
+                } catch (InterruptedException ex) {
+                    // Ignore
+                }
+            });
+            producer.start();
+
+            // Producer does not block, messages are spooled
+            producer.join(10000);
+            assertFalse(producer.isAlive());
+            waitFor(() -> indexer.getSpoolSize() == 150);
+            assertTrue(received.isEmpty());
+
+            // Spooled documents are replayed once elastic accepts them
+            bulkStatus = 0;
+            waitFor(() -> received.size() == 150);
+            waitFor(() -> indexer.getSpoolSize() == 0);
+            for (int i = 0; i < 150; ++i) {
+                assertTrue(received.contains(source(i)));
+            }
+
+            // Next run starts with the same spooled documents
+            indexer.close();
+            Files.write(spoolFile, lines);
+        }
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        blocked = new CountDownLatch(1);
+        final BulkIndexer indexer = createIndexer(10, 5, 1);
+        waitFor(indexer::isAvailable);
+
+        final Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 100; ++i) {
+                    indexer.index("accelerator_alarms_state", "alarm", source(i));
+                }
+            } catch (InterruptedException ex) {
+                // Ignore
+            }
+        });
+        producer.start();
+
+        // While elastic does not respond, the producer waits for the full queue
+        waitFor(() -> indexer.getQueueSize() == 10);
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertTrue(producer.isAlive());
+        assertEquals(1, indexer.getInFlight());
+
+        blocked.countDown();
+        producer.join(10000);
+        assertFalse(producer.isAlive());
+        waitFor(() -> indexer.getIndexedCount() == 100);
+        assertEquals(100, received.size());
+        assertTrue(indexer.getMaxBulkLatency() >= 200);
+        indexer.close();
+    }
+}
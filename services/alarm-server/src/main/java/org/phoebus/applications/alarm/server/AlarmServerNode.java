@@ -44,6 +44,9 @@ public class AlarmServerNode extends AlarmClientNode
 
     private volatile String severity_pv_name = null;
 
+    /** Severities of child items, also used to lock updates of this node's severity */
+    private final SeverityCounts counts = new SeverityCounts();
+
     public AlarmServerNode(final ServerModel model, final String parent_path, final String name)
     {
         super(parent_path, name);
@@ -56,49 +59,96 @@ public class AlarmServerNode extends AlarmClientNode
         return (AlarmServerNode) parent;
     }
 
-    /** Set severity of this item by maximizing over its child severities.
+    /** @param child Child item
+     *  @return Severity that the child contributes to this node,
+     *          <code>null</code> for disabled PVs
+     */
+    private static SeverityLevel getContribution(final AlarmTreeItem<?> child)
+    {
+        // Skip disabled PVs
+        if ((child instanceof AlarmServerPV)  &&
+            ! ((AlarmServerPV) child).isEnabled())
+            return null;
+        return child.getState().severity;
+    }
+
+    /** Set severity of this item by maximizing over all its child severities.
+     *
+     *  <p>Needed when the configuration changes, for example
+     *  when a child is removed.
      *  Recursively updates parent items.
      */
     public void maximizeSeverity()
     {
         try
         {
-            SeverityLevel new_severity = SeverityLevel.OK;
-
-            for (AlarmTreeItem<?> child : getChildren())
+            synchronized (counts)
             {
-                // Skip disabled PVs
-                if ((child instanceof AlarmServerPV)  &&
-                    ! ((AlarmServerPV) child).isEnabled())
-                    continue;
-                final SeverityLevel child_severity = child.getState().severity;
-                if (child_severity.ordinal() > new_severity.ordinal())
-                    new_severity = child_severity;
+                counts.clear();
+                for (AlarmTreeItem<?> child : getChildren())
+                    counts.update(child, getContribution(child));
+                updateState();
             }
+        }
+        catch (Throwable ex)
+        {
+            throw new RuntimeException(getPathName() + " failed to maximize severity", ex);
+        }
+    }
 
-            if (never_updated  ||  new_severity != getState().severity)
+    /** Update severity of this item after the severity of one child changed.
+     *
+     *  <p>Only adjusts the counts for that one child
+     *  instead of checking all children.
+     *  Recursively updates parent items if this item's severity changes.
+     *
+     *  @param child Child item that has a new state
+     */
+    public void updateSeverity(final AlarmTreeItem<?> child)
+    {
+        try
+        {
+            synchronized (counts)
             {
-                never_updated = false;
-                final BasicState new_state = new BasicState(new_severity);
-                setState(new_state);
-                model.sendStateUpdate(getPathName(), new_state);
-
-                // Update automated actions
-                AutomatedActionsHelper.update(automated_actions, new_severity);
-
-                // Write optional severity PV
-                final String pv = severity_pv_name;
-                if (pv != null)
-                    SeverityPVHandler.update(pv, new_severity);
+                // Ignore late updates from a child that has been removed
+                if (child.getParent() != this)
+                    return;
+                if (counts.update(child, getContribution(child))  ||  never_updated)
+                    updateState();
             }
-
-            // Percolate changes towards root
-            if (parent instanceof AlarmServerNode)
-                ((AlarmServerNode) parent).maximizeSeverity();
         }
         catch (Throwable ex)
         {
-            throw new RuntimeException(getPathName() + " failed to maximize severity", ex);
+            throw new RuntimeException(getPathName() + " failed to update severity for " + child.getPathName(), ex);
+        }
+    }
+
+    /** Set state to maximum child severity, and if that's a change, update parent.
+     *
+     *  <p>Called with lock on <code>counts</code>.
+     *  Locks are thus taken from the leaf towards the root.
+     */
+    private void updateState()
+    {
+        final SeverityLevel new_severity = counts.getMaximum();
+        if (never_updated  ||  new_severity != getState().severity)
+        {
+            never_updated = false;
+            final BasicState new_state = new BasicState(new_severity);
+            setState(new_state);
+            model.sendNodeStateUpdate(getPathName(), new_state);
+
+            // Update automated actions
+            AutomatedActionsHelper.update(automated_actions, new_severity);
+
+            // Write optional severity PV
+            final String pv = severity_pv_name;
+            if (pv != null)
+                SeverityPVHandler.update(pv, new_severity);
+
+            // Percolate changes towards root
+            if (parent instanceof AlarmServerNode)
+                ((AlarmServerNode) parent).updateSeverity(this);
         }
     }
 
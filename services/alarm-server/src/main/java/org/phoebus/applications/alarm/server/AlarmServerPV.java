@@ -110,10 +110,10 @@ public class AlarmServerPV extends AlarmTreeItem<AlarmState> implements AlarmTre
                 // Update automated actions
                 AutomatedActionsHelper.update(automated_actions, alarm.severity);
 
-                // Whenever logic computes new state, maximize up parent tree
+                // Whenever logic computes new state, update parent tree
                 final AlarmServerNode parent = getParent();
                 if (parent != null)
-                    parent.maximizeSeverity();
+                    parent.updateSeverity(AlarmServerPV.this);
                 else
                     logger.log(Level.FINE, getPathName() + " ignores delayed change to " + current + ", " + alarm + " since no longer in alarm tree");
             }
@@ -198,6 +198,7 @@ public class AlarmServerPV extends AlarmTreeItem<AlarmState> implements AlarmTre
             enabled_datetime_filter = null;
         }
         logic.setEnabled(enable);
+        updateParentSeverity();
         return true;
     }
 
@@ -214,6 +215,7 @@ public class AlarmServerPV extends AlarmTreeItem<AlarmState> implements AlarmTre
 
         enabled = enabled_state;
         logic.setEnabled(enabled.enabled);
+        updateParentSeverity();
         return true;
     }
 
@@ -235,6 +237,7 @@ public class AlarmServerPV extends AlarmTreeItem<AlarmState> implements AlarmTre
 
         enabled = new_enabled_state;
         logic.setEnabled(false);
+        updateParentSeverity();
 
         // cancel existing datetime filter and add new
         if (enabled_datetime_filter != null) {
@@ -261,6 +264,14 @@ public class AlarmServerPV extends AlarmTreeItem<AlarmState> implements AlarmTre
     }
 
 
+    /** Update parent after the enablement changed, since disabled PVs don't count */
+    private void updateParentSeverity()
+    {
+        final AlarmServerNode parent = getParent();
+        if (parent != null)
+            parent.updateSeverity(this);
+    }
+
     @Override
     public boolean isLatching()
     {
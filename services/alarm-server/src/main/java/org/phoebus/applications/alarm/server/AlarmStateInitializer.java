@@ -18,6 +18,7 @@ import java.util.logging.Level;
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.phoebus.applications.alarm.AlarmSystem;
 import org.phoebus.applications.alarm.ResettableTimeout;
 import org.phoebus.applications.alarm.client.ClientState;
@@ -45,7 +46,7 @@ public class AlarmStateInitializer
 {
     private final ResettableTimeout timer = new ResettableTimeout(4);
     private final AtomicBoolean running = new AtomicBoolean(true);
-    private final Consumer<String, String> consumer;
+    private final Consumer<String, byte[]> consumer;
     private final Thread thread;
     private final ConcurrentHashMap<String, ClientState> inititial_severity = new ConcurrentHashMap<>();
 
@@ -54,7 +55,7 @@ public class AlarmStateInitializer
      */
     public AlarmStateInitializer(final String server, final String config_name)
     {
-        consumer = KafkaHelper.connectConsumer(server, List.of(config_name), List.of(config_name));
+        consumer = KafkaHelper.connectConsumer(server, List.of(config_name), List.of(config_name), new ByteArrayDeserializer());
 
         thread = new Thread(this::run, "AlarmStateInitializer");
         thread.setDaemon(true);
@@ -84,8 +85,8 @@ public class AlarmStateInitializer
     /** Perform one check for updates */
     private void checkUpdates()
     {
-        final ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(100));
-        for (final ConsumerRecord<String, String> record : records)
+        final ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofMillis(100));
+        for (final ConsumerRecord<String, byte[]> record : records)
         {
             if (record.key().length() < 2)
             {
@@ -97,7 +98,7 @@ public class AlarmStateInitializer
             if (type.equals(AlarmSystem.STATE_PREFIX))
             {
                 final String path = record.key().substring(3);
-                final String node_config = record.value();
+                final byte[] node_config = record.value();
                 try
                 {
                     // System.out.printf("\n%s - %s:\n", path, node_config);
@@ -109,7 +110,7 @@ public class AlarmStateInitializer
                     else
                     {
                         // Get node_config as JSON map to check for "pv" key
-                        final Object json = JsonModelReader.parseJsonText(node_config);
+                        final Object json = JsonModelReader.parse(node_config);
                         final ClientState state = JsonModelReader.parseClientState(json);
                         if (state != null)
                         {
@@ -126,7 +127,7 @@ public class AlarmStateInitializer
                 {
                     logger.log(Level.WARNING,
                                "Alarm state check error for path " + path +
-                               ", config " + node_config, ex);
+                               ", config " + JsonModelReader.toJsonText(node_config), ex);
                 }
             }
         }
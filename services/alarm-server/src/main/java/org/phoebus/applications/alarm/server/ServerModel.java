@@ -9,11 +9,16 @@ package org.phoebus.applications.alarm.server;
 
 import static org.phoebus.applications.alarm.AlarmSystem.logger;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.time.LocalDateTime;
 
@@ -22,6 +27,8 @@ import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.phoebus.applications.alarm.AlarmSystem;
 import org.phoebus.applications.alarm.client.AlarmClientNode;
 import org.phoebus.applications.alarm.client.ClientState;
@@ -31,6 +38,7 @@ import org.phoebus.applications.alarm.model.AlarmState;
 import org.phoebus.applications.alarm.model.AlarmTreePath;
 import org.phoebus.applications.alarm.model.BasicState;
 import org.phoebus.applications.alarm.model.SeverityLevel;
+import org.phoebus.applications.alarm.model.json.BinaryModelWriter;
 import org.phoebus.applications.alarm.model.json.JsonModelReader;
 import org.phoebus.applications.alarm.model.json.JsonModelWriter;
 
@@ -64,12 +72,30 @@ class ServerModel
     private final ServerModelListener listener;
     private final AlarmServerNode root;
     private volatile boolean running = true;
-    private final Consumer<String, String> consumer;
-    private final Producer<String, String> producer;
+    private final Consumer<String, byte[]> consumer;
+    private final Producer<String, byte[]> producer;
+
+    /** Encoder for binary state and config messages, <code>null</code> to use JSON */
+    private final ThreadLocal<BinaryModelWriter> binary;
     private final Thread thread;
     private long last_state_update = 0;
     private long last_annunciation = 0;
 
+    /** Node states to send, combined over {@link AlarmSystem#node_update_ms} */
+    private final ConcurrentHashMap<String, BasicState> pending_node_states = new ConcurrentHashMap<>();
+
+    /** Has sending the pending node states been scheduled? */
+    private final AtomicBoolean node_update_scheduled = new AtomicBoolean();
+
+    /** Timer for sending the pending node states */
+    private final ScheduledExecutorService node_update_timer = Executors.newSingleThreadScheduledExecutor(runnable ->
+    {
+        final Thread thread = new Thread(runnable);
+        thread.setName("NodeStateUpdates");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     /** @param kafka_servers Servers
      *  @param config_name Name of alarm tree root
      * @param initial_states
@@ -90,10 +116,16 @@ class ServerModel
 
         root = new AlarmServerNode(this, null, config_name);
 
+        // Read values as bytes to handle both JSON and binary messages
         consumer = KafkaHelper.connectConsumer(Objects.requireNonNull(kafka_servers),
                                                List.of(config_state_topic, command_topic),
-                                               List.of(config_state_topic));
-        producer = KafkaHelper.connectProducer(kafka_servers);
+                                               List.of(config_state_topic),
+                                               new ByteArrayDeserializer());
+        producer = KafkaHelper.connectProducer(kafka_servers, new ByteArraySerializer());
+        // State updates are sent from PV and timer threads, each with its own re-used buffer
+        binary = AlarmSystem.useBinaryEncoding(config_name)
+               ? ThreadLocal.withInitial(BinaryModelWriter::new)
+               : null;
 
         thread = new Thread(this::run, "ServerModel");
         thread.setDaemon(true);
@@ -145,8 +177,8 @@ class ServerModel
     /** Perform one check for updates */
     private void checkUpdates()
     {
-        final ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(100));
-        for (ConsumerRecord<String, String> record : records)
+        final ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofMillis(100));
+        for (ConsumerRecord<String, byte[]> record : records)
         {
             final int sep = record.key().indexOf(':');
             if (sep < 0)
@@ -159,12 +191,12 @@ class ServerModel
             final String path = record.key().substring(sep+1);
             if (type.equals(AlarmSystem.COMMAND_PREFIX)  ||  record.topic().equals(command_topic))
             {
-                final String json = record.value();
+                final String json = record.value() == null ? null : new String(record.value(), StandardCharsets.UTF_8);
                 listener.handleCommand(path, json);
             }
             else if (type.equals(AlarmSystem.CONFIG_PREFIX))
             {
-                final String node_config = record.value();
+                final byte[] node_config = record.value();
                 try
                 {
                     // System.out.printf("\n%s - %s:\n", path, node_config);
@@ -178,7 +210,7 @@ class ServerModel
                     else
                     {
                         // Get node_config as JSON map to check for "pv" key
-                        final Object json = JsonModelReader.parseJsonText(node_config);
+                        final Object json = JsonModelReader.parse(node_config);
 
                         // Ignore 'delete' messages because they don't update the config
                         // and would result in superfluous PV stop() and re-start().
@@ -224,7 +256,7 @@ class ServerModel
                 {
                     logger.log(Level.WARNING,
                                "Alarm config update error for path " + path +
-                               ", config " + node_config, ex);
+                               ", config " + JsonModelReader.toJsonText(node_config), ex);
                 }
             }
             // else: Ignore state updates (which we sent ourselves)
@@ -367,6 +399,10 @@ class ServerModel
         final AlarmTreeItem<BasicState> parent = node.getParent();
         node.detachFromParent();
 
+        // Don't send pending states, which would re-create the node in clients
+        pending_node_states.keySet().removeIf(pending -> pending.equals(path)  ||
+                                                         pending.startsWith(path + AlarmTreePath.PATH_SEP));
+
         // Removing a node that was in alarm can update the severity of the parent
         if (parent instanceof AlarmServerNode)
             ((AlarmServerNode)parent).maximizeSeverity();
@@ -398,8 +434,14 @@ class ServerModel
     {
         try
         {
-            final String json = new_state == null ? null : new String(JsonModelWriter.toJsonBytes(new_state, AlarmLogic.getMaintenanceMode(), AlarmLogic.getDisableNotify()));
-            final ProducerRecord<String, String> record = new ProducerRecord<>(config_state_topic, AlarmSystem.STATE_PREFIX + path, json);
+            final byte[] json;
+            if (new_state == null)
+                json = null;
+            else if (binary != null)
+                json = binary.get().toBytes(new_state, AlarmLogic.getMaintenanceMode(), AlarmLogic.getDisableNotify());
+            else
+                json = JsonModelWriter.toJsonBytes(new_state, AlarmLogic.getMaintenanceMode(), AlarmLogic.getDisableNotify());
+            final ProducerRecord<String, byte[]> record = new ProducerRecord<>(config_state_topic, AlarmSystem.STATE_PREFIX + path, json);
             producer.send(record);
             last_state_update = System.currentTimeMillis();
         }
@@ -409,7 +451,43 @@ class ServerModel
         }
     }
 
-        /** Send alarm update to 'config' topic
+    /** Send alarm update for a node to 'state' topic
+     *
+     *  <p>Updates are combined over {@link AlarmSystem#node_update_ms},
+     *  sending only the last state of each node.
+     *  When many PVs change at once, nodes close to the root would otherwise
+     *  send a series of updates that clients don't need to see.
+     *
+     *  @param path Path of node that has a new state
+     *  @param new_state That new state
+     */
+    public void sendNodeStateUpdate(final String path, final BasicState new_state)
+    {
+        if (AlarmSystem.node_update_ms <= 0)
+        {
+            sendStateUpdate(path, new_state);
+            return;
+        }
+        pending_node_states.put(path, new_state);
+        if (node_update_scheduled.compareAndSet(false, true))
+            node_update_timer.schedule(this::sendPendingNodeStates, AlarmSystem.node_update_ms, TimeUnit.MILLISECONDS);
+    }
+
+    /** Send the pending node states */
+    private void sendPendingNodeStates()
+    {
+        // Clear flag before sending, so that updates added
+        // while sending will schedule another call
+        node_update_scheduled.set(false);
+        for (String path : pending_node_states.keySet())
+        {
+            final BasicState state = pending_node_states.remove(path);
+            if (state != null)
+                sendStateUpdate(path, state);
+        }
+    }
+
+    /** Send alarm update to 'config' topic
      *  @param path Path of item that has a new state
      *  @param new_state That new state
      */
@@ -417,8 +495,14 @@ class ServerModel
     {
         try
         {
-            final String json = config == null ? null : new String(JsonModelWriter.toJsonBytes(config));
-            final ProducerRecord<String, String> record = new ProducerRecord<>(config_state_topic, AlarmSystem.CONFIG_PREFIX + path, json);
+            final byte[] json;
+            if (config == null)
+                json = null;
+            else if (binary != null)
+                json = binary.get().toBytes(config);
+            else
+                json = JsonModelWriter.toJsonBytes(config);
+            final ProducerRecord<String, byte[]> record = new ProducerRecord<>(config_state_topic, AlarmSystem.CONFIG_PREFIX + path, json);
             producer.send(record);
         }
         catch (Throwable ex)
@@ -438,8 +522,8 @@ class ServerModel
         {
             last_annunciation = System.currentTimeMillis();
 
-            final String json = JsonModelWriter.talkToString(severity, message);
-            final ProducerRecord<String, String> record = new ProducerRecord<>(talk_topic, AlarmSystem.TALK_PREFIX + path, json);
+            final byte[] json = JsonModelWriter.talkToString(severity, message).getBytes(StandardCharsets.UTF_8);
+            final ProducerRecord<String, byte[]> record = new ProducerRecord<>(talk_topic, AlarmSystem.TALK_PREFIX + path, json);
             producer.send(record);
         }
         catch (Throwable ex)
@@ -528,5 +612,9 @@ class ServerModel
         root.getChildren().clear();
         root.maximizeSeverity();
         logger.info("Cleared configuration for " + root.getName());
+
+        // Send remaining node states
+        node_update_timer.shutdown();
+        sendPendingNodeStates();
     }
 }
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.phoebus.applications.alarm.server;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.phoebus.applications.alarm.model.SeverityLevel;
+
+/** Count of child items at each severity level
+ *
+ *  <p>Remembers the severity that each child contributed,
+ *  so a change of one child's severity updates the counts
+ *  without inspecting the other children.
+ *  The maximum severity is then found by checking the
+ *  few severity levels, independent of the number of children.
+ *
+ *  <p>Not thread-safe, caller needs to synchronize.
+ */
+class SeverityCounts
+{
+    private static final SeverityLevel[] LEVELS = SeverityLevel.values();
+
+    /** Number of children at each severity level, indexed by ordinal */
+    private final int[] counts = new int[LEVELS.length];
+
+    /** Severity last contributed by each child */
+    private final Map<Object, SeverityLevel> contributions = new HashMap<>();
+
+    /** Remove all children */
+    public void clear()
+    {
+        Arrays.fill(counts, 0);
+        contributions.clear();
+    }
+
+    /** @param child Child item
+     *  @param severity Severity of child, <code>null</code> if child does not contribute
+     *  @return <code>true</code> if this changed the counts
+     */
+    public boolean update(final Object child, final SeverityLevel severity)
+    {
+        final SeverityLevel previous = severity == null
+                                     ? contributions.remove(child)
+                                     : contributions.put(child, severity);
+        if (previous == severity)
+            return false;
+        if (previous != null)
+            --counts[previous.ordinal()];
+        if (severity != null)
+            ++counts[severity.ordinal()];
+        return true;
+    }
+
+    /** @return Number of contributing children */
+    public int size()
+    {
+        return contributions.size();
+    }
+
+    /** @return Highest severity of all children, OK if there are none */
+    public SeverityLevel getMaximum()
+    {
+        for (int i=LEVELS.length-1; i>0; --i)
+            if (counts[i] > 0)
+                return LEVELS[i];
+        return SeverityLevel.OK;
+    }
+}
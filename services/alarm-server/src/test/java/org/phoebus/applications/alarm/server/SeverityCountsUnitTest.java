@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.applications.alarm.server;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.phoebus.applications.alarm.model.SeverityLevel;
+
+/** JUnit test of the {@link SeverityCounts}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class SeverityCountsUnitTest
+{
+    @Test
+    public void testMaximum()
+    {
+        final SeverityCounts counts = new SeverityCounts();
+        assertThat(counts.getMaximum(), equalTo(SeverityLevel.OK));
+
+        assertThat(counts.update("a", SeverityLevel.MINOR), equalTo(true));
+        assertThat(counts.update("b", SeverityLevel.MAJOR), equalTo(true));
+        assertThat(counts.update("c", SeverityLevel.MAJOR), equalTo(true));
+        assertThat(counts.getMaximum(), equalTo(SeverityLevel.MAJOR));
+
+        // Same severity again is no change
+        assertThat(counts.update("b", SeverityLevel.MAJOR), equalTo(false));
+
+        // One of the MAJOR children recovers, other one remains
+        assertThat(counts.update("b", SeverityLevel.OK), equalTo(true));
+        assertThat(counts.getMaximum(), equalTo(SeverityLevel.MAJOR));
+
+        // Active MINOR is higher than acknowledged MAJOR
+        assertThat(counts.update("c", SeverityLevel.MAJOR_ACK), equalTo(true));
+        assertThat(counts.getMaximum(), equalTo(SeverityLevel.MINOR));
+        assertThat(counts.update("a", SeverityLevel.UNDEFINED), equalTo(true));
+        assertThat(counts.getMaximum(), equalTo(SeverityLevel.UNDEFINED));
+        assertThat(counts.size(), equalTo(3));
+    }
+
+    @Test
+    public void testRemoval()
+    {
+        final SeverityCounts counts = new SeverityCounts();
+        counts.update("a", SeverityLevel.INVALID);
+        counts.update("b", SeverityLevel.MINOR);
+        assertThat(counts.getMaximum(), equalTo(SeverityLevel.INVALID));
+
+        // Disabled child no longer contributes
+        assertThat(counts.update("a", null), equalTo(true));
+        assertThat(counts.getMaximum(), equalTo(SeverityLevel.MINOR));
+        assertThat(counts.update("a", null), equalTo(false));
+        assertThat(counts.size(), equalTo(1));
+
+        counts.clear();
+        assertThat(counts.size(), equalTo(0));
+        assertThat(counts.getMaximum(), equalTo(SeverityLevel.OK));
+    }
+}
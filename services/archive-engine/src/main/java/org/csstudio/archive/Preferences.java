@@ -27,9 +27,12 @@ public class Preferences
     @Preference public static boolean use_postgres_copy;
     @Preference public static int log_trouble_samples;
     @Preference public static int log_overrun;
+    @Preference public static String write_url;
+    @Preference public static int segment_period;
     @Preference public static int write_period;
     @Preference public static int max_repeats;
     @Preference public static int batch_size;
+    @Preference public static int write_threads;
     @Preference public static double buffer_reserve;
     @Preference public static int ignored_future;
 
@@ -40,8 +40,10 @@ public class EngineModel
     /** Name of this model */
     private String name = "Archive Engine";  //$NON-NLS-1$
 
-    /** Thread that writes to the <code>archive</code> */
-    final private WriteThread writer;
+    /** Threads that write to the <code>archive</code>,
+     *  each handling the channels whose name hashes to its index
+     */
+    final private List<WriteThread> writers = new ArrayList<>();
 
     /** All the channels.
      *  <p>
@@ -91,7 +93,9 @@ public class EngineModel
     /** Construct model that writes to archive */
     public EngineModel()
     {
-        writer = new WriteThread();
+        final int count = Math.max(1, Preferences.write_threads);
+        for (int i=0; i<count; ++i)
+            writers.add(new WriteThread(count > 1 ? "WriteThread " + i : "WriteThread"));
     }
 
     /** @return Name (description) */
@@ -263,7 +267,8 @@ public class EngineModel
             channels.add(channel);
             channel_by_name.put(channel.getName(), channel);
         }
-        writer.addChannel(channel);
+        writers.get(Math.floorMod(channel.getName().hashCode(), writers.size()))
+               .addChannel(channel);
 
         // Connect new or old channel to group
         channel.addGroup(group);
@@ -277,7 +282,8 @@ public class EngineModel
     {
         start_time = Instant.now();
         state = State.RUNNING;
-        writer.start(Preferences.write_period, Preferences.batch_size);
+        for (WriteThread writer : writers)
+            writer.start(Preferences.write_period, Preferences.batch_size);
         for (ArchiveGroup group : groups)
         {
             group.start();
@@ -290,22 +296,45 @@ public class EngineModel
         scan_thread.start();
     }
 
-    /** @return Timestamp of end of last write run */
+    /** @return Write threads */
+    public List<WriteThread> getWriters()
+    {
+        return writers;
+    }
+
+    /** @return Timestamp of end of last write run,
+     *          the oldest one when there are several write threads
+     */
     public Instant getLastWriteTime()
     {
-        return writer.getLastWriteTime();
+        Instant oldest = null;
+        for (WriteThread writer : writers)
+        {
+            final Instant time = writer.getLastWriteTime();
+            if (time == null)
+                return null;
+            if (oldest == null  ||  time.isBefore(oldest))
+                oldest = time;
+        }
+        return oldest;
     }
 
-    /** @return Average number of values per write run */
+    /** @return Average number of values per write run, sum over all write threads */
     public double getWriteCount()
     {
-        return writer.getWriteCount();
+        double count = 0;
+        for (WriteThread writer : writers)
+            count += writer.getWriteCount();
+        return count;
     }
 
-    /** @return  Average duration of write run in seconds */
+    /** @return  Average duration of write run in seconds, longest of all write threads */
     public double getWriteDuration()
     {
-        return writer.getWriteDuration();
+        double duration = 0;
+        for (WriteThread writer : writers)
+            duration = Math.max(duration, writer.getWriteDuration());
+        return duration;
     }
 
     /** @see Scanner#getIdlePercentage() */
@@ -344,7 +373,8 @@ public class EngineModel
     /** Reset engine statistics */
     public void reset()
     {
-        writer.reset();
+        for (WriteThread writer : writers)
+            writer.reset();
         scanner.reset();
         synchronized (this)
         {
@@ -368,7 +398,23 @@ public class EngineModel
             group.stop();
         // Flush all values out
         logger.info("Stopping writer");
-        writer.shutdown();
+        Exception error = null;
+        for (WriteThread writer : writers)
+        {   // Try to flush all write threads, report first error
+            try
+            {
+                writer.shutdown();
+            }
+            catch (Exception ex)
+            {
+                if (error == null)
+                    error = ex;
+                else
+                    error.addSuppressed(ex);
+            }
+        }
+        if (error != null)
+            throw error;
         // Update state
         state = State.IDLE;
         start_time = null;
@@ -7,12 +7,23 @@
  ******************************************************************************/
 package org.csstudio.archive.engine.model;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.csstudio.archive.Preferences;
 import org.csstudio.archive.ThrottledLogger;
+import org.csstudio.archive.writer.ScalarSamples;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VFloat;
+import org.epics.vtype.VNumber;
 import org.epics.vtype.VType;
-import org.phoebus.framework.util.RingBuffer;
 
 /** Buffer for the samples of one channel.
  *
@@ -20,10 +31,25 @@ import org.phoebus.framework.util.RingBuffer;
  *  thread removes them.
  *  When the queue size is reached, older samples get dropped.
  *
+ *  <p>Scalar numbers with valid time stamp, the bulk of all samples,
+ *  are kept in columns of primitives, without the {@link VType} objects.
+ *  Arrays, strings, enums and the 'disconnected' etc. info samples
+ *  are kept as objects.
+ *  The columns for numbers resp. objects are allocated
+ *  when the first such sample arrives,
+ *  so a string channel only has the object column
+ *  while a numeric channel mostly needs the primitive columns.
+ *
  *  @author Kay Kasemir
  */
 public class SampleBuffer
 {
+    /** Kinds of samples in the buffer */
+    private static final byte DOUBLE = 0, LONG = 1, OBJECT = 2;
+
+    private static final AlarmSeverity[] SEVERITIES = AlarmSeverity.values();
+    private static final AlarmStatus[] STATI = AlarmStatus.values();
+
     /** Name of channel that writes to this buffer.
      *  (we keep only the name, not the full channel,
      *  to decouple stuff).
@@ -35,8 +61,26 @@ public class SampleBuffer
      */
     final private String retention;
 
-    /** The actual samples in a thread-save queue. */
-    final private RingBuffer<VType> samples;
+    /** Kind of each sample. Ring buffer, synchronized on this array */
+    final private byte[] kinds;
+
+    /** Index of oldest sample, number of samples */
+    private int start = 0, size = 0;
+
+    /** Columns for numeric samples, allocated on first use */
+    private long[] seconds;
+    private int[] nanos;
+    /** Value bits for DOUBLE, value for LONG */
+    private long[] values;
+    private byte[] severities;
+    private byte[] stati;
+    private String[] messages;
+
+    /** Column for other samples, allocated on first use */
+    private VType[] objects;
+
+    /** Most recent display info of numeric samples */
+    private Display display = null;
 
     /** Statistics */
     final private BufferStats stats = new BufferStats();
@@ -47,10 +91,11 @@ public class SampleBuffer
     /** Logger for overrun messages */
     final private static ThrottledLogger overrun_msg = new ThrottledLogger(Level.WARNING, Preferences.log_overrun);
 
-    /** Is the buffer in an error state because of RDB write errors?
-     *  Note that this is global for all buffers, not per instance!
-     */
-    private static volatile boolean error = false;
+    /** Number of write threads that are in an error state because of RDB write errors */
+    private static final AtomicInteger write_errors = new AtomicInteger();
+
+    /** Is the write thread for this buffer in an error state because of RDB write errors? */
+    private volatile boolean error = false;
 
     /** Create sample buffer of given capacity
      * @deprecated Use {@link #SampleBuffer(String,String,int)} instead*/
@@ -66,7 +111,7 @@ public class SampleBuffer
     {
         this.channel_name = channel_name;
         this.retention = retention;
-        samples = new RingBuffer<>(capacity);
+        kinds = new byte[capacity];
     }
 
     /** @return channel name of this buffer */
@@ -84,61 +129,170 @@ public class SampleBuffer
     /** @return Queue capacity, i.e. maximum queue size. */
     public int getCapacity()
     {
-        synchronized (samples)
-        {
-            return samples.getCapacity();
-        }
+        return kinds.length;
     }
 
     /** @return Current queue size, i.e. number of samples in the queue. */
     public int getQueueSize()
     {
-        synchronized (samples)
+        synchronized (kinds)
         {
-            return samples.size();
+            return size;
         }
     }
 
-    /** @return <code>true</code> if currently experiencing write errors */
+    /** @return <code>true</code> if any write thread is currently experiencing write errors */
     public static boolean isInErrorState()
+    {
+        return write_errors.get() > 0;
+    }
+
+    /** @return <code>true</code> if the write thread for this buffer is currently experiencing write errors */
+    public boolean hasWriteError()
     {
         return error;
     }
 
-    /** Set the error state. */
-    static void setErrorState(final boolean error)
+    /** Set the error state of all buffers handled by one write thread
+     *  @param buffers Buffers of the write thread
+     *  @param error Does the write thread now experience errors?
+     *               Must differ from the previous state of the write thread.
+     */
+    static void setErrorState(final Collection<SampleBuffer> buffers, final boolean error)
     {
-        SampleBuffer.error = error;
+        write_errors.addAndGet(error ? 1 : -1);
+        for (SampleBuffer buffer : buffers)
+            buffer.error = error;
     }
 
     /** Add a sample to the queue, maybe dropping older samples */
     @SuppressWarnings("nls")
     void add(final VType value)
     {
-        synchronized (samples)
+        synchronized (kinds)
         {
-            if (samples.isFull())
+            final int index;
+            if (size == kinds.length)
             {   // Note start of overruns, then drop older sample
                 if (start_of_overruns == null)
                     start_of_overruns = Integer.valueOf(stats.getOverruns());
                 stats.addOverrun();
+                index = start;
+                start = (start + 1) % kinds.length;
             }
-            else if (start_of_overruns != null)
-            {   // Ending a string of overruns. Maybe log it.
-                final int overruns = stats.getOverruns() - start_of_overruns;
-                overrun_msg.log(channel_name + ": " + overruns + " overruns");
-                start_of_overruns = null;
+            else
+            {
+                if (start_of_overruns != null)
+                {   // Ending a string of overruns. Maybe log it.
+                    final int overruns = stats.getOverruns() - start_of_overruns;
+                    overrun_msg.log(channel_name + ": " + overruns + " overruns");
+                    start_of_overruns = null;
+                }
+                index = (start + size) % kinds.length;
+                ++size;
+            }
+            set(index, value);
+        }
+    }
+
+    /** @param index Where to place the value
+     *  @param value Value to place in columns
+     */
+    private void set(final int index, final VType value)
+    {
+        if (value instanceof VNumber)
+        {
+            final VNumber number = (VNumber) value;
+            final Time time = number.getTime();
+            if (time != null  &&  time.isValid())
+            {
+                if (seconds == null)
+                {
+                    final int capacity = kinds.length;
+                    seconds = new long[capacity];
+                    nanos = new int[capacity];
+                    values = new long[capacity];
+                    severities = new byte[capacity];
+                    stati = new byte[capacity];
+                    messages = new String[capacity];
+                }
+                final Instant stamp = time.getTimestamp();
+                seconds[index] = stamp.getEpochSecond();
+                nanos[index] = stamp.getNano();
+                final Alarm alarm = number.getAlarm();
+                severities[index] = (byte) alarm.getSeverity().ordinal();
+                stati[index] = (byte) alarm.getStatus().ordinal();
+                messages[index] = alarm.getName();
+                // Write as double or integer? Same decision as RDB writer
+                if (value instanceof VDouble)
+                {
+                    kinds[index] = DOUBLE;
+                    values[index] = Double.doubleToRawLongBits(((VDouble) value).getValue());
+                }
+                else if (value instanceof VFloat)
+                {
+                    kinds[index] = DOUBLE;
+                    values[index] = Double.doubleToRawLongBits(((VFloat) value).getValue());
+                }
+                else
+                {
+                    final Number num = number.getValue();
+                    if (num instanceof Double  ||  num instanceof Float)
+                    {
+                        kinds[index] = DOUBLE;
+                        values[index] = Double.doubleToRawLongBits(num.doubleValue());
+                    }
+                    else
+                    {
+                        kinds[index] = LONG;
+                        values[index] = num.longValue();
+                    }
+                }
+                if (objects != null)
+                    objects[index] = null;
+                if (number.getDisplay() != null)
+                    display = number.getDisplay();
+                return;
             }
-            samples.add(value);
         }
+        if (objects == null)
+            objects = new VType[kinds.length];
+        kinds[index] = OBJECT;
+        objects[index] = value;
     }
 
-    /** @return latest sample in queue or <code>null</code> if empty */
-    VType remove()
+    /** Move oldest samples from queue into batch
+     *  @param batch Batch that will receive samples until full or queue is empty
+     *  @return Number of samples added to batch, 0 if queue was empty
+     */
+    int remove(final ScalarSamples batch)
     {
-        synchronized (samples)
+        synchronized (kinds)
         {
-            return samples.remove();
+            int count = 0;
+            while (size > 0  &&  !batch.isFull())
+            {
+                switch (kinds[start])
+                {
+                case DOUBLE:
+                    batch.addDouble(seconds[start], nanos[start], Double.longBitsToDouble(values[start]),
+                                    SEVERITIES[severities[start]], STATI[stati[start]], messages[start]);
+                    break;
+                case LONG:
+                    batch.addLong(seconds[start], nanos[start], values[start],
+                                  SEVERITIES[severities[start]], STATI[stati[start]], messages[start]);
+                    break;
+                default:
+                    batch.addObject(objects[start]);
+                    objects[start] = null;
+                }
+                start = (start + 1) % kinds.length;
+                --size;
+                ++count;
+            }
+            if (count > 0)
+                batch.setDisplay(display);
+            return count;
         }
     }
 
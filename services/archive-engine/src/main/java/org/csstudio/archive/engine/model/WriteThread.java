@@ -15,8 +15,8 @@ import java.util.logging.Level;
 
 import org.csstudio.archive.writer.ArchiveWriter;
 import org.csstudio.archive.writer.ArchiveWriterFactory;
+import org.csstudio.archive.writer.ScalarSamples;
 import org.csstudio.archive.writer.WriteChannel;
-import org.epics.vtype.VType;
 
 /** Thread that writes values from multiple <code>SampleBuffer</code>s
  *  to an <code>RDBArchiveServer</code>.
@@ -28,6 +28,10 @@ import org.epics.vtype.VType;
  *  be lost.
  *  The channels that add samples to the sample buffer supposedly notice
  *  the error condition and add a special indicator once we recover.
+ *  <p>
+ *  The engine may use several write threads, each with its own
+ *  writer, i.e. RDB connection, for a subset of the channels.
+ *  The error state is tracked per write thread.
  *
  *  @author Kay Kasemir
  */
@@ -36,6 +40,9 @@ public class WriteThread implements Runnable
     /** Minimum write period [seconds] */
     private static final double MIN_WRITE_PERIOD = 5.0;
 
+    /** Name of this write thread */
+    final private String name;
+
     /** Server to which this thread writes. */
     private ArchiveWriter writer;
 
@@ -44,7 +51,10 @@ public class WriteThread implements Runnable
         new ArrayList<>();
 
     /** Flag that tells the write thread to run or quit. */
-    private boolean do_run;
+    private volatile boolean do_run;
+
+    /** Is this thread experiencing write errors? */
+    private volatile boolean error = false;
 
     /** Synchronization block for waiting.
      *  Signaled in stop().
@@ -57,6 +67,9 @@ public class WriteThread implements Runnable
     /** Number of values to place into one batch */
     private int batch_size = 500;
 
+    /** Samples taken from a buffer, passed to the writer */
+    private ScalarSamples samples = null;
+
     /** Time of end of last write run */
     private Instant last_write_stamp = null;
 
@@ -69,6 +82,24 @@ public class WriteThread implements Runnable
     /** Thread the executes this.run() */
     private Thread thread;
 
+    /** @param name Name of the write thread */
+    public WriteThread(final String name)
+    {
+        this.name = name;
+    }
+
+    /** @return Name of the write thread */
+    public String getName()
+    {
+        return name;
+    }
+
+    /** @return Number of channels written by this thread */
+    public int getChannelCount()
+    {
+        return buffers.size();
+    }
+
     /** Add a channel's buffer that this thread reads */
     public void addChannel(final ArchiveChannel channel)
     {
@@ -96,7 +127,7 @@ public class WriteThread implements Runnable
         }
         millisec_delay = (int)(1000.0 * write_period);
         this.batch_size = batch_size;
-        thread = new Thread(this, "WriteThread");
+        thread = new Thread(this, name);
         thread.start();
     }
 
@@ -135,6 +166,12 @@ public class WriteThread implements Runnable
         return write_time.get();
     }
 
+    /** @return <code>true</code> if currently experiencing write errors */
+    public boolean isInErrorState()
+    {
+        return error;
+    }
+
     /** 'Main loop' of the write thread.
      *  <p>
      *  Writes all values out, then waits.
@@ -152,7 +189,7 @@ public class WriteThread implements Runnable
     @SuppressWarnings("nls")
     public void run()
     {
-        logger.info("WriteThread starts");
+        logger.info(name + " starts");
         boolean write_error = false;
         do_run = true;
         while (do_run)
@@ -187,12 +224,16 @@ public class WriteThread implements Runnable
             }
             catch (Exception ex)
             {   // Error in write() or the preceding reconnect()...
-                logger.log(Level.WARNING, "Error, will try to reconnect", ex);
+                logger.log(Level.WARNING, name + " error, will try to reconnect", ex);
                 // Use max. delay
                 delay = millisec_delay;
                 write_error = true;
             }
-            SampleBuffer.setErrorState(write_error);
+            if (write_error != error)
+            {
+                error = write_error;
+                SampleBuffer.setErrorState(buffers, write_error);
+            }
             // See if there's any time left to wait,
             // or if we already used all that time in the last 'write'
             if (delay > 0)
@@ -210,7 +251,7 @@ public class WriteThread implements Runnable
                 }
             }
         }
-        logger.info("WriteThread exists");
+        logger.info(name + " exits");
     }
 
     /** Stop the write thread, performing a final write. */
@@ -241,6 +282,8 @@ public class WriteThread implements Runnable
      */
     private long write() throws Exception
     {
+        if (samples == null)
+            samples = new ScalarSamples(Math.max(1, batch_size));
         int total_count = 0;
         int count = 0;
         for (SampleBuffer buffer : buffers)
@@ -251,20 +294,25 @@ public class WriteThread implements Runnable
             final String name = buffer.getChannelName();
             final String retention = buffer.getArchiveDataRetention();
             final WriteChannel channel = writer.getChannel(name, retention);
-            VType sample = buffer.remove();
-            while (sample != null)
-            {   // Write one value
-                writer.addSample(channel, sample);
-                // Note: count across different sample buffers!
-                ++count;
-                if (count > batch_size)
-                {
-                    total_count += count;
-                    count = 0;
-                    writer.flush();
+            try
+            {
+                while (buffer.remove(samples) > 0)
+                {   // Write batch of values
+                    writer.addSamples(channel, samples);
+                    // Note: count across different sample buffers!
+                    count += samples.size();
+                    samples.clear();
+                    if (count > batch_size)
+                    {
+                        total_count += count;
+                        count = 0;
+                        writer.flush();
+                    }
                 }
-                // next
-                sample = buffer.remove();
+            }
+            finally
+            {
+                samples.clear();
             }
         }
         // Flush remaining samples (less than batch_size)
@@ -21,6 +21,7 @@ import org.csstudio.archive.Preferences;
 import org.csstudio.archive.engine.model.ArchiveGroup;
 import org.csstudio.archive.engine.model.EngineModel;
 import org.csstudio.archive.engine.model.SampleBuffer;
+import org.csstudio.archive.engine.model.WriteThread;
 import org.csstudio.archive.writer.rdb.TimestampHelper;
 import org.phoebus.util.time.SecondsParser;
 import org.phoebus.util.time.TimeDuration;
@@ -93,6 +94,23 @@ public class MainServlet extends HttpServlet
             jg.writeStringField(Messages.HTTP_LastWriteTime, last_write_time == null ? "Never" : TimestampHelper.format(last_write_time));
             jg.writeNumberField(Messages.HTTP_WriteCount, model.getWriteCount());
             jg.writeNumberField(Messages.HTTP_WriteDuration, model.getWriteDuration());
+
+            jg.writeArrayFieldStart(Messages.HTTP_WriteThreads);
+            for (WriteThread writer : model.getWriters())
+            {
+                final Instant last = writer.getLastWriteTime();
+                jg.writeStartObject();
+                jg.writeStringField(Messages.HTTP_WriteThread, writer.getName());
+                jg.writeNumberField(Messages.HTTP_ChannelCount, writer.getChannelCount());
+                jg.writeStringField(Messages.HTTP_WriteState, (writer.isInErrorState()
+                        ? Messages.HTTP_WriteError : "OK"));
+                jg.writeStringField(Messages.HTTP_LastWriteTime, last == null ? "Never" : TimestampHelper.format(last));
+                jg.writeNumberField(Messages.HTTP_WriteCount, writer.getWriteCount());
+                jg.writeNumberField(Messages.HTTP_WriteDuration, writer.getWriteDuration());
+                jg.writeEndObject();
+            }
+            jg.writeEndArray();
+
             jg.writeNumberField(Messages.HTTP_Idletime, model.getIdlePercentage());
 
             final Runtime runtime = Runtime.getRuntime();
@@ -149,6 +167,26 @@ public class MainServlet extends HttpServlet
                          used_mem / max_mem * 100.0 : 0.0;
             html.tableLine("Memory", String.format("%.1f MB of %.1f MB used (%.1f %%)", used_mem, max_mem, perc_mem));
 
+            html.closeTable();
+
+            html.openTable(1, Messages.HTTP_WriteThread,
+                              Messages.HTTP_ChannelCount,
+                              Messages.HTTP_WriteState,
+                              Messages.HTTP_LastWriteTime,
+                              Messages.HTTP_WriteCount,
+                              Messages.HTTP_WriteDuration);
+            for (WriteThread writer : model.getWriters())
+            {
+                final Instant last = writer.getLastWriteTime();
+                html.tableLine(writer.getName(),
+                               Integer.toString(writer.getChannelCount()),
+                               writer.isInErrorState()
+                               ? HTMLWriter.makeRedText(Messages.HTTP_WriteError)
+                               : "OK",
+                               last == null ? "Never" : TimestampHelper.format(last),
+                               (int) writer.getWriteCount() + " samples",
+                               String.format("%.1f sec", writer.getWriteDuration()));
+            }
             html.closeTable();
             html.close();
         }
@@ -42,6 +42,22 @@ public interface ArchiveWriter
      */
     public void addSample(WriteChannel channel, VType sample) throws Exception;
 
+    /** Add several samples to the archive.
+     *
+     *  <p>Default implementation adds each sample as a {@link VType}.
+     *  Implementations may instead write the primitive values
+     *  of scalar numeric samples directly.
+     *  @param channel Channel to which to add samples
+     *  @param samples Samples to add
+     *  @throws Exception on error
+     *  @see #addSample(WriteChannel, VType)
+     */
+    public default void addSamples(final WriteChannel channel, final ScalarSamples samples) throws Exception
+    {
+        for (int i=0; i<samples.size(); ++i)
+            addSample(channel, samples.toVType(i));
+    }
+
     /** Write all recently added samples to the archive.
      *
      *  <p>Since the underlying implementation is allowed to
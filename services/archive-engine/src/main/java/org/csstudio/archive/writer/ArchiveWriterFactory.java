@@ -7,8 +7,11 @@
  ******************************************************************************/
 package org.csstudio.archive.writer;
 
+import java.nio.file.Paths;
+
 import org.csstudio.archive.Preferences;
 import org.csstudio.archive.writer.rdb.RDBArchiveWriter;
+import org.csstudio.archive.writer.segment.SegmentArchiveWriter;
 
 /** Factory for obtaining an {@link ArchiveWriter}
  *  @author Kay Kasemir
@@ -21,7 +24,11 @@ public class ArchiveWriterFactory
      */
     public static ArchiveWriter getArchiveWriter() throws Exception
     {
-        // XXX Use SPI when there's more than one implementation.
+        // XXX Use SPI when there are more implementations.
+        final String url = Preferences.write_url;
+        if (url.startsWith(SegmentArchiveWriter.PREFIX))
+            return new SegmentArchiveWriter(Paths.get(url.substring(SegmentArchiveWriter.PREFIX.length())),
+                                            Preferences.segment_period);
         return new RDBArchiveWriter(Preferences.url, Preferences.user, Preferences.password, Preferences.schema, Preferences.use_array_blob);
     }
 }
@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer;
+
+import java.time.Instant;
+
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VLong;
+import org.epics.vtype.VType;
+
+/** Batch of scalar numeric samples in columns of primitives
+ *
+ *  <p>Allows passing numeric samples to an {@link ArchiveWriter}
+ *  without creating a {@link VType} for each sample.
+ *  The batch is meant to be re-used: Fill, write, {@link #clear()}, repeat.
+ *
+ *  <p>Samples that are not scalar numbers,
+ *  for example the 'disconnected' info strings,
+ *  are kept as {@link VType} objects.
+ *
+ *  <p>Not thread-safe.
+ */
+public class ScalarSamples
+{
+    /** Kinds of samples */
+    private static final byte DOUBLE = 0, LONG = 1, OBJECT = 2;
+
+    private final long[] seconds;
+    private final int[] nanos;
+    private final byte[] kinds;
+    /** Value bits for DOUBLE, value for LONG */
+    private final long[] values;
+    private final AlarmSeverity[] severities;
+    private final AlarmStatus[] stati;
+    private final String[] messages;
+    private final VType[] objects;
+    private Display display = null;
+    private int size = 0;
+
+    /** @param capacity Maximum number of samples in batch */
+    public ScalarSamples(final int capacity)
+    {
+        seconds = new long[capacity];
+        nanos = new int[capacity];
+        kinds = new byte[capacity];
+        values = new long[capacity];
+        severities = new AlarmSeverity[capacity];
+        stati = new AlarmStatus[capacity];
+        messages = new String[capacity];
+        objects = new VType[capacity];
+    }
+
+    /** @return Maximum number of samples in batch */
+    public int getCapacity()
+    {
+        return kinds.length;
+    }
+
+    /** @return Number of samples in batch */
+    public int size()
+    {
+        return size;
+    }
+
+    /** @return <code>true</code> if batch has no more room */
+    public boolean isFull()
+    {
+        return size >= kinds.length;
+    }
+
+    /** Remove all samples */
+    public void clear()
+    {
+        // Release references to objects
+        for (int i=0; i<size; ++i)
+            objects[i] = null;
+        display = null;
+        size = 0;
+    }
+
+    /** @param display Display info for the numeric samples, may be <code>null</code> */
+    public void setDisplay(final Display display)
+    {
+        this.display = display;
+    }
+
+    /** @return Display info for the numeric samples, may be <code>null</code> */
+    public Display getDisplay()
+    {
+        return display;
+    }
+
+    /** Add floating point sample
+     *  @param seconds Epoch seconds of time stamp
+     *  @param nanos Nanoseconds of time stamp
+     *  @param value Value
+     *  @param severity Alarm severity
+     *  @param status Alarm status
+     *  @param message Alarm message
+     */
+    public void addDouble(final long seconds, final int nanos, final double value,
+                          final AlarmSeverity severity, final AlarmStatus status, final String message)
+    {
+        add(DOUBLE, seconds, nanos, Double.doubleToRawLongBits(value), severity, status, message);
+    }
+
+    /** Add integer sample
+     *  @param seconds Epoch seconds of time stamp
+     *  @param nanos Nanoseconds of time stamp
+     *  @param value Value
+     *  @param severity Alarm severity
+     *  @param status Alarm status
+     *  @param message Alarm message
+     */
+    public void addLong(final long seconds, final int nanos, final long value,
+                        final AlarmSeverity severity, final AlarmStatus status, final String message)
+    {
+        add(LONG, seconds, nanos, value, severity, status, message);
+    }
+
+    private void add(final byte kind, final long seconds, final int nanos, final long value,
+                     final AlarmSeverity severity, final AlarmStatus status, final String message)
+    {
+        this.seconds[size] = seconds;
+        this.nanos[size] = nanos;
+        kinds[size] = kind;
+        values[size] = value;
+        severities[size] = severity;
+        stati[size] = status;
+        messages[size] = message;
+        ++size;
+    }
+
+    /** Add sample that is not a scalar number
+     *  @param value Value
+     */
+    public void addObject(final VType value)
+    {
+        kinds[size] = OBJECT;
+        objects[size] = value;
+        ++size;
+    }
+
+    /** @param index Sample index
+     *  @return <code>true</code> if sample is not a scalar number, see {@link #getObject(int)}
+     */
+    public boolean isObject(final int index)
+    {
+        return kinds[index] == OBJECT;
+    }
+
+    /** @param index Sample index
+     *  @return Sample that is not a scalar number
+     */
+    public VType getObject(final int index)
+    {
+        return objects[index];
+    }
+
+    /** @param index Sample index
+     *  @return <code>true</code> for integer sample, see {@link #getLong(int)}, else {@link #getDouble(int)}
+     */
+    public boolean isLong(final int index)
+    {
+        return kinds[index] == LONG;
+    }
+
+    /** @param index Sample index
+     *  @return Integer value
+     */
+    public long getLong(final int index)
+    {
+        return values[index];
+    }
+
+    /** @param index Sample index
+     *  @return Floating point value
+     */
+    public double getDouble(final int index)
+    {
+        return Double.longBitsToDouble(values[index]);
+    }
+
+    /** @param index Sample index
+     *  @return Epoch seconds of time stamp
+     */
+    public long getEpochSeconds(final int index)
+    {
+        return seconds[index];
+    }
+
+    /** @param index Sample index
+     *  @return Nanoseconds of time stamp
+     */
+    public int getNanos(final int index)
+    {
+        return nanos[index];
+    }
+
+    /** @param index Sample index
+     *  @return Alarm severity
+     */
+    public AlarmSeverity getSeverity(final int index)
+    {
+        return severities[index];
+    }
+
+    /** @param index Sample index
+     *  @return Alarm status
+     */
+    public AlarmStatus getStatus(final int index)
+    {
+        return stati[index];
+    }
+
+    /** @param index Sample index
+     *  @return Alarm message
+     */
+    public String getMessage(final int index)
+    {
+        return messages[index];
+    }
+
+    /** @param index Sample index
+     *  @return Sample as {@link VType}
+     */
+    public VType toVType(final int index)
+    {
+        if (kinds[index] == OBJECT)
+            return objects[index];
+        final Alarm alarm = Alarm.of(severities[index], stati[index], messages[index]);
+        final Time time = Time.of(Instant.ofEpochSecond(seconds[index], nanos[index]));
+        final Display display = this.display == null ? Display.none() : this.display;
+        if (kinds[index] == LONG)
+            return VLong.of(values[index], alarm, time, display);
+        return VDouble.of(getDouble(index), alarm, time, display);
+    }
+}
@@ -27,6 +27,7 @@ import java.util.stream.Collectors;
 
 import org.csstudio.archive.Preferences;
 import org.csstudio.archive.writer.ArchiveWriter;
+import org.csstudio.archive.writer.ScalarSamples;
 import org.csstudio.archive.writer.WriteChannel;
 import org.epics.util.array.ListNumber;
 import org.epics.vtype.Alarm;
@@ -185,6 +186,40 @@ public class RDBArchiveWriter implements ArchiveWriter
         batched_samples.add(sample);
     }
 
+    /** {@inheritDoc}
+     *  RDB implementation batches numeric samples without creating {@link VType}s
+     */
+    @Override
+    public void addSamples(final WriteChannel channel, final ScalarSamples samples) throws Exception
+    {
+        final RDBWriteChannel rdb_channel = (RDBWriteChannel) channel;
+        if (samples.getDisplay() != null)
+            writeNumericMetaData(rdb_channel, samples.getDisplay());
+        for (int i=0; i<samples.size(); ++i)
+        {
+            if (samples.isObject(i))
+            {
+                addSample(channel, samples.getObject(i));
+                continue;
+            }
+            final Timestamp stamp = TimestampHelper.toSQLTimestamp(samples.getEpochSeconds(i), samples.getNanos(i));
+            final int severity = severities.findOrCreate(samples.getSeverity(i));
+            final Status status = stati.findOrCreate(samples.getMessage(i));
+
+            // Severity/status cache may enable auto-commit
+            if (connection.getAutoCommit() == true)
+                connection.setAutoCommit(false);
+
+            if (samples.isLong(i))
+                batchLongSample(rdb_channel, stamp, severity, status, samples.getLong(i));
+            else
+                batchDoubleSamples(rdb_channel, stamp, severity, status, samples.getDouble(i), null);
+            // No VType for the batch history
+            batched_channel.add(rdb_channel);
+            batched_samples.add(null);
+        }
+    }
+
     /** Write meta data if it was never written or has changed
      *  @param channel Channel for which to write the meta data
      *  @param sample Sample that may have meta data to write
@@ -199,16 +234,7 @@ public class RDBArchiveWriter implements ArchiveWriter
 
         final Display display = Display.displayOf(sample);
         if (display != null)
-        {
-            if (MetaDataHelper.equals(display, channel.getMetadata()))
-                return;
-
-            // Clear enumerated meta data, replace numeric
-            EnumMetaDataHelper.delete(connection, sql, channel);
-            NumericMetaDataHelper.delete(connection, sql, channel);
-            NumericMetaDataHelper.insert(connection, sql, channel, display);
-            channel.setMetaData(display);
-        }
+            writeNumericMetaData(channel, display);
         else if (sample instanceof VEnum)
         {
             final List<String> labels = ((VEnum)sample).getDisplay().getChoices();
@@ -223,6 +249,22 @@ public class RDBArchiveWriter implements ArchiveWriter
         }
     }
 
+    /** Write numeric meta data if it was never written or has changed
+     *  @param channel Channel for which to write the meta data
+     *  @param display Numeric meta data
+     */
+    private void writeNumericMetaData(final RDBWriteChannel channel, final Display display) throws Exception
+    {
+        if (MetaDataHelper.equals(display, channel.getMetadata()))
+            return;
+
+        // Clear enumerated meta data, replace numeric
+        EnumMetaDataHelper.delete(connection, sql, channel);
+        NumericMetaDataHelper.delete(connection, sql, channel);
+        NumericMetaDataHelper.insert(connection, sql, channel, display);
+        channel.setMetaData(display);
+    }
+
     private static Instant getTimestamp(final VType value)
     {
         final Time time = Time.timeOf(value);
@@ -98,11 +98,24 @@ public class StringIDHelper
     }
 
     /** Add new name, unless it's already in the RDB.
+     *
+     *  <p>Synchronized across all instances because several
+     *  write threads, each with their own connection,
+     *  may otherwise allocate the same next ID.
+     *
      *  @param name Name to add
      *  @return StringID found or generated
      *  @throws Exception on error
      */
     public StringID add(final String name) throws Exception
+    {
+        synchronized (StringIDHelper.class)
+        {
+            return doAdd(name);
+        }
+    }
+
+    private StringID doAdd(final String name) throws Exception
     {
         StringID entry = find(name);
         if (entry != null)
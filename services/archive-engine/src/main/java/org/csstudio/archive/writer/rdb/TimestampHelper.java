@@ -51,6 +51,17 @@ public class TimestampHelper
         return java.sql.Timestamp.from(timestamp);
     }
 
+    /** @param seconds Epoch seconds
+     *  @param nanos Nanoseconds
+     *  @return SQL Timestamp
+     */
+    public static java.sql.Timestamp toSQLTimestamp(final long seconds, final int nanos)
+    {
+        final java.sql.Timestamp stamp = new java.sql.Timestamp(seconds * 1000);
+        stamp.setNanos(nanos);
+        return stamp;
+    }
+
     /** @param sql_time SQL Timestamp
      *  @return EPICS Timestamp
      */
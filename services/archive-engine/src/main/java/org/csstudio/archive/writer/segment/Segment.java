@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.segment;
+
+import java.nio.BufferOverflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.phoebus.util.segment.SegmentFormat;
+
+/** Memory-mapped segment file
+ *
+ *  <p>Readers must ignore data beyond the 'End' offset in the header,
+ *  which is only updated when the writer flushes.
+ *  See {@link SegmentFormat} for the file format.
+ */
+@SuppressWarnings("nls")
+class Segment
+{
+    /** Initial size of a new mapped segment file */
+    static final int INITIAL_SIZE = 256 * 1024;
+
+    /** Start of the time partition, epoch seconds */
+    private final long start;
+
+    private final Path file;
+
+    private MappedByteBuffer buffer;
+
+    /** Byte offset after the last complete record */
+    private int end;
+
+    /** Has 'end' been updated since the header was written? */
+    private boolean dirty = false;
+
+    /** Open existing segment to append, or create new segment
+     *  @param file Segment file
+     *  @param start Start of the time partition, epoch seconds
+     *  @throws Exception on error
+     */
+    Segment(final Path file, final long start) throws Exception
+    {
+        this.file = file;
+        this.start = start;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            final long size = channel.size();
+            if (size == 0)
+            {
+                buffer = channel.map(MapMode.READ_WRITE, 0, INITIAL_SIZE);
+                buffer.putInt(0, SegmentFormat.MAGIC);
+                buffer.putInt(4, SegmentFormat.VERSION);
+                end = SegmentFormat.HEADER_SIZE;
+                buffer.putLong(SegmentFormat.END_OFFSET, end);
+            }
+            else
+            {
+                if (size > Integer.MAX_VALUE)
+                    throw new Exception("Segment " + file + " is too large");
+                buffer = channel.map(MapMode.READ_WRITE, 0, Math.max(size, INITIAL_SIZE));
+                if (buffer.getInt(0) != SegmentFormat.MAGIC  ||  buffer.getInt(4) != SegmentFormat.VERSION)
+                    throw new Exception("Segment " + file + " has invalid header");
+                end = (int) buffer.getLong(SegmentFormat.END_OFFSET);
+            }
+        }
+    }
+
+    /** @return Start of the time partition, epoch seconds */
+    long getStart()
+    {
+        return start;
+    }
+
+    /** Prepare to append a record
+     *  @param size Size of the record in bytes
+     *  @return Buffer positioned at the end of the segment, with room for the record
+     *  @throws Exception on error
+     */
+    MappedByteBuffer append(final int size) throws Exception
+    {
+        final long needed = (long) end + size;
+        if (needed > buffer.capacity())
+        {   // Grow the file by mapping a larger region
+            final long capacity = Math.min(Integer.MAX_VALUE, Math.max(2L * buffer.capacity(), needed));
+            if (needed > capacity)
+                throw new BufferOverflowException();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE))
+            {
+                buffer = channel.map(MapMode.READ_WRITE, 0, capacity);
+            }
+        }
+        buffer.position(end);
+        buffer.putInt(size);
+        return buffer;
+    }
+
+    /** Mark the record added via {@link #append(int)} as complete */
+    void commit()
+    {
+        end = buffer.position();
+        dirty = true;
+    }
+
+    /** Update the 'end' in the file header, making appended records visible to readers */
+    void writeHeader()
+    {
+        if (dirty)
+        {
+            buffer.putLong(SegmentFormat.END_OFFSET, end);
+            dirty = false;
+        }
+    }
+
+    /** Write header and force content to disk */
+    void close()
+    {
+        writeHeader();
+        buffer.force();
+    }
+
+    @Override
+    public String toString()
+    {
+        return file + " (" + end + " bytes)";
+    }
+}
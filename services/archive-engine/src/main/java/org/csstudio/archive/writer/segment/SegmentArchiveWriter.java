@@ -0,0 +1,362 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.segment;
+
+import static org.csstudio.archive.Engine.logger;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.NumberFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+import org.csstudio.archive.writer.ArchiveWriter;
+import org.csstudio.archive.writer.ScalarSamples;
+import org.csstudio.archive.writer.WriteChannel;
+import org.csstudio.archive.writer.rdb.MetaDataHelper;
+import org.epics.util.array.ListNumber;
+import org.epics.util.stats.Range;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.Display;
+import org.epics.vtype.DisplayProvider;
+import org.epics.vtype.Time;
+import org.epics.vtype.VByteArray;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VFloat;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VString;
+import org.epics.vtype.VStringArray;
+import org.epics.vtype.VType;
+import org.phoebus.pv.LongString;
+import org.phoebus.util.segment.SegmentFormat;
+
+/** ArchiveWriter for append-only, memory-mapped segment files
+ *
+ *  <p>Each channel has a directory below the archive root,
+ *  with one segment file for each time partition of the channel's samples.
+ *  See {@link SegmentFormat} for the directory layout and file format.
+ *
+ *  <p>Samples are appended to the mapped segment files.
+ *  <code>flush()</code> updates the segment headers,
+ *  making the samples visible to readers.
+ */
+@SuppressWarnings("nls")
+public class SegmentArchiveWriter implements ArchiveWriter
+{
+    /** URL prefix for a segment archive, followed by the root directory */
+    public static final String PREFIX = "segments:";
+
+    /** Maximum number of segments that are kept mapped */
+    private static final int MAX_OPEN_SEGMENTS = 1000;
+
+    private final Path root;
+
+    /** Time span of one segment file in seconds */
+    private final long period;
+
+    /** Cache of channels by name */
+    private final Map<String, SegmentWriteChannel> channels = new HashMap<>();
+
+    /** Channels with open segment, least recently used first */
+    private final LinkedHashMap<SegmentWriteChannel, Boolean> open = new LinkedHashMap<>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<SegmentWriteChannel, Boolean> eldest)
+        {
+            if (size() <= MAX_OPEN_SEGMENTS)
+                return false;
+            eldest.getKey().closeSegment();
+            return true;
+        }
+    };
+
+    /** Cache of UTF-8 encoded alarm messages */
+    private final Map<String, byte[]> messages = new HashMap<>();
+
+    /** @param root Root directory of the archive
+     *  @param period Time span of one segment file in seconds
+     *  @throws Exception on error
+     */
+    public SegmentArchiveWriter(final Path root, final long period) throws Exception
+    {
+        this.root = root;
+        this.period = Math.max(1, period);
+        Files.createDirectories(root);
+    }
+
+    @Override
+    public WriteChannel getChannel(final String name) throws Exception
+    {
+        SegmentWriteChannel channel = channels.get(name);
+        if (channel == null)
+        {
+            final Path directory = root.resolve(SegmentFormat.encodeName(name));
+            Files.createDirectories(directory);
+            channel = new SegmentWriteChannel(name, directory);
+            channels.put(name, channel);
+        }
+        return channel;
+    }
+
+    /** @param channel Channel
+     *  @param seconds Epoch seconds of next sample
+     *  @return Segment for that sample
+     *  @throws Exception on error
+     */
+    private Segment getSegment(final SegmentWriteChannel channel, final long seconds) throws Exception
+    {
+        final long start = Math.floorDiv(seconds, period) * period;
+        Segment segment = channel.segment;
+        if (segment == null  ||  segment.getStart() != start)
+        {
+            channel.closeSegment();
+            segment = new Segment(channel.getDirectory().resolve(SegmentFormat.getFileName(start)), start);
+            channel.segment = segment;
+        }
+        open.put(channel, Boolean.TRUE);
+        return segment;
+    }
+
+    private byte[] encode(final String text)
+    {
+        if (text == null  ||  text.isEmpty())
+            return new byte[0];
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] getMessage(final String message)
+    {
+        // Alarm messages are few, typically "NO_ALARM", "HIHI_ALARM", ...
+        byte[] bytes = messages.get(message);
+        if (bytes == null)
+        {
+            bytes = encode(message);
+            if (messages.size() < 1000)
+                messages.put(message, bytes);
+        }
+        return bytes;
+    }
+
+    @Override
+    public void addSample(final WriteChannel channel, final VType sample) throws Exception
+    {
+        final SegmentWriteChannel seg_channel = (SegmentWriteChannel) channel;
+        final Time time = Time.timeOf(sample);
+        final Instant stamp = (time != null  &&  time.isValid()) ? time.getTimestamp() : Instant.now();
+        final Alarm alarm = Alarm.alarmOf(sample);
+        final AlarmSeverity severity = alarm == null ? AlarmSeverity.NONE : alarm.getSeverity();
+        final byte[] message = getMessage(alarm == null ? "" : alarm.getName());
+        final Segment segment = getSegment(seg_channel, stamp.getEpochSecond());
+        writeMetaData(seg_channel, segment, sample);
+
+        final long secs = stamp.getEpochSecond();
+        final int nano = stamp.getNano();
+        if (sample instanceof VDouble)
+            writeDouble(segment, secs, nano, severity, message, ((VDouble)sample).getValue());
+        else if (sample instanceof VFloat)
+            writeDouble(segment, secs, nano, severity, message, ((VFloat)sample).getValue());
+        else if (sample instanceof VNumber)
+        {
+            final Number number = ((VNumber)sample).getValue();
+            if (number instanceof Double  ||  number instanceof Float)
+                writeDouble(segment, secs, nano, severity, message, number.doubleValue());
+            else
+                writeLong(segment, secs, nano, severity, message, number.longValue());
+        }
+        else if (sample instanceof VByteArray)
+            writeString(segment, secs, nano, severity, message, LongString.fromArray((VByteArray)sample));
+        else if (sample instanceof VNumberArray)
+        {
+            final ListNumber data = ((VNumberArray)sample).getData();
+            final ByteBuffer buffer = startSample(segment, SegmentFormat.DOUBLE_ARRAY, 4 + 8*data.size(), secs, nano, severity, message);
+            buffer.putInt(data.size());
+            for (int i=0; i<data.size(); ++i)
+                buffer.putDouble(data.getDouble(i));
+            segment.commit();
+        }
+        else if (sample instanceof VEnum)
+        {
+            final ByteBuffer buffer = startSample(segment, SegmentFormat.ENUM, 4, secs, nano, severity, message);
+            buffer.putInt(((VEnum)sample).getIndex());
+            segment.commit();
+        }
+        else if (sample instanceof VString)
+            writeString(segment, secs, nano, severity, message, ((VString)sample).getValue());
+        else if (sample instanceof VStringArray)
+            writeString(segment, secs, nano, severity, message,
+                        ((VStringArray) sample).getData()
+                                               .stream()
+                                               .filter(element -> ! element.isBlank())
+                                               .collect(Collectors.joining(", ")));
+        else
+            writeString(segment, secs, nano, severity, message, sample.toString());
+    }
+
+    /** {@inheritDoc}
+     *  Segment implementation writes numeric samples without creating {@link VType}s
+     */
+    @Override
+    public void addSamples(final WriteChannel channel, final ScalarSamples samples) throws Exception
+    {
+        final SegmentWriteChannel seg_channel = (SegmentWriteChannel) channel;
+        for (int i=0; i<samples.size(); ++i)
+        {
+            if (samples.isObject(i))
+            {
+                addSample(channel, samples.getObject(i));
+                continue;
+            }
+            final long secs = samples.getEpochSeconds(i);
+            final Segment segment = getSegment(seg_channel, secs);
+            if (samples.getDisplay() != null)
+                writeNumericMetaData(seg_channel, segment, samples.getDisplay());
+            final byte[] message = getMessage(samples.getMessage(i));
+            if (samples.isLong(i))
+                writeLong(segment, secs, samples.getNanos(i), samples.getSeverity(i), message, samples.getLong(i));
+            else
+                writeDouble(segment, secs, samples.getNanos(i), samples.getSeverity(i), message, samples.getDouble(i));
+        }
+    }
+
+    private ByteBuffer startSample(final Segment segment, final byte type, final int value_size,
+                                   final long secs, final int nano, final AlarmSeverity severity, final byte[] message) throws Exception
+    {
+        final ByteBuffer buffer = segment.append(SegmentFormat.SAMPLE_HEADER_SIZE + message.length + value_size);
+        buffer.put(type);
+        buffer.putLong(secs);
+        buffer.putInt(nano);
+        buffer.put((byte) severity.ordinal());
+        buffer.putShort((short) message.length);
+        buffer.put(message);
+        return buffer;
+    }
+
+    private void writeDouble(final Segment segment, final long secs, final int nano,
+                             final AlarmSeverity severity, final byte[] message, final double value) throws Exception
+    {
+        startSample(segment, SegmentFormat.DOUBLE, 8, secs, nano, severity, message).putDouble(value);
+        segment.commit();
+    }
+
+    private void writeLong(final Segment segment, final long secs, final int nano,
+                           final AlarmSeverity severity, final byte[] message, final long value) throws Exception
+    {
+        startSample(segment, SegmentFormat.LONG, 8, secs, nano, severity, message).putLong(value);
+        segment.commit();
+    }
+
+    private void writeString(final Segment segment, final long secs, final int nano,
+                             final AlarmSeverity severity, final byte[] message, final String text) throws Exception
+    {
+        final byte[] bytes = encode(text);
+        final ByteBuffer buffer = startSample(segment, SegmentFormat.STRING, 4 + bytes.length, secs, nano, severity, message);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+        segment.commit();
+    }
+
+    /** Write meta data if it was never written to the segment or has changed */
+    private void writeMetaData(final SegmentWriteChannel channel, final Segment segment, final VType sample) throws Exception
+    {
+        // Like the RDB writer, don't replace meta data for strings,
+        // which might be 'disconnected' info samples of a numeric channel
+        if (sample instanceof DisplayProvider)
+            writeNumericMetaData(channel, segment, ((DisplayProvider) sample).getDisplay());
+        else if (sample instanceof VEnum)
+        {
+            final List<String> labels = ((VEnum)sample).getDisplay().getChoices();
+            if (MetaDataHelper.equals(labels, channel.metadata))
+                return;
+            final List<byte[]> encoded = new ArrayList<>(labels.size());
+            int size = SegmentFormat.RECORD_HEADER_SIZE + 4;
+            for (String label : labels)
+            {
+                final byte[] bytes = encode(label);
+                encoded.add(bytes);
+                size += 2 + bytes.length;
+            }
+            final ByteBuffer buffer = segment.append(size);
+            buffer.put(SegmentFormat.ENUM_META);
+            buffer.putInt(encoded.size());
+            for (byte[] bytes : encoded)
+            {
+                buffer.putShort((short) bytes.length);
+                buffer.put(bytes);
+            }
+            segment.commit();
+            channel.metadata = labels;
+        }
+    }
+
+    private void writeNumericMetaData(final SegmentWriteChannel channel, final Segment segment, final Display display) throws Exception
+    {
+        if (MetaDataHelper.equals(display, channel.metadata))
+            return;
+        final byte[] units = encode(display.getUnit());
+        final ByteBuffer buffer = segment.append(SegmentFormat.NUMERIC_META_SIZE + units.length);
+        buffer.put(SegmentFormat.NUMERIC_META);
+        putRange(buffer, display.getDisplayRange());
+        putRange(buffer, display.getWarningRange());
+        putRange(buffer, display.getAlarmRange());
+        putRange(buffer, display.getControlRange());
+        final NumberFormat format = display.getFormat();
+        buffer.putInt(format == null ? 0 : format.getMinimumFractionDigits());
+        buffer.putShort((short) units.length);
+        buffer.put(units);
+        segment.commit();
+        channel.metadata = display;
+    }
+
+    private static void putRange(final ByteBuffer buffer, final Range range)
+    {
+        buffer.putDouble(range == null ? Double.NaN : range.getMinimum());
+        buffer.putDouble(range == null ? Double.NaN : range.getMaximum());
+    }
+
+    /** {@inheritDoc}
+     *  Segment implementation updates the segment headers
+     */
+    @Override
+    public void flush() throws Exception
+    {
+        for (SegmentWriteChannel channel : open.keySet())
+            if (channel.segment != null)
+                channel.segment.writeHeader();
+    }
+
+    @Override
+    public void close()
+    {
+        for (SegmentWriteChannel channel : open.keySet())
+        {
+            try
+            {
+                channel.closeSegment();
+            }
+            catch (Exception ex)
+            {
+                logger.log(Level.WARNING, "Cannot close " + channel, ex);
+            }
+        }
+        open.clear();
+        channels.clear();
+    }
+}
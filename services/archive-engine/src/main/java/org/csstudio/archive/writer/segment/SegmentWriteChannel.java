@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.segment;
+
+import java.nio.file.Path;
+
+import org.csstudio.archive.writer.WriteChannel;
+
+/** Channel in the segment archive
+ *
+ *  <p>Tracks the currently open segment and
+ *  the meta data written to it.
+ */
+@SuppressWarnings("nls")
+class SegmentWriteChannel implements WriteChannel
+{
+    private final String name;
+
+    /** Directory for the segment files of this channel */
+    private final Path directory;
+
+    /** Currently open segment, may be <code>null</code> */
+    Segment segment = null;
+
+    /** Meta data last written to the current segment, may be <code>null</code> */
+    Object metadata = null;
+
+    SegmentWriteChannel(final String name, final Path directory)
+    {
+        this.name = name;
+        this.directory = directory;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    /** @return Directory for the segment files of this channel */
+    Path getDirectory()
+    {
+        return directory;
+    }
+
+    /** Close current segment */
+    void closeSegment()
+    {
+        if (segment != null)
+        {
+            segment.close();
+            segment = null;
+            metadata = null;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Segment channel '" + name + "' in " + directory;
+    }
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+
+import java.time.Instant;
+
+import org.csstudio.archive.writer.ScalarSamples;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VInt;
+import org.epics.vtype.VLong;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of the {@link SampleBuffer}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class SampleBufferTest
+{
+    private static VType number(final int i)
+    {
+        final Time time = Time.of(Instant.ofEpochSecond(1000 + i, i));
+        if (i % 2 == 0)
+            return VDouble.of(i + 0.5, Alarm.of(AlarmSeverity.MINOR, AlarmStatus.DEVICE, "Low"), time, Display.none());
+        return VInt.of(i, Alarm.none(), time, Display.none());
+    }
+
+    @Test
+    public void testOrderAndKinds()
+    {
+        final SampleBuffer buffer = new SampleBuffer("test", null, 10);
+        buffer.add(VString.of("Disconnected", Alarm.disconnected(), Time.now()));
+        for (int i=0; i<5; ++i)
+            buffer.add(number(i));
+        assertThat(buffer.getQueueSize(), equalTo(6));
+
+        final ScalarSamples samples = new ScalarSamples(100);
+        assertThat(buffer.remove(samples), equalTo(6));
+        assertThat(buffer.getQueueSize(), equalTo(0));
+
+        // Info sample remains an object
+        assertThat(samples.isObject(0), equalTo(true));
+        assertThat(samples.getObject(0), instanceOf(VString.class));
+
+        // Numbers are in columns
+        assertThat(samples.isLong(1), equalTo(false));
+        assertThat(samples.getDouble(1), equalTo(0.5));
+        assertThat(samples.getSeverity(1), equalTo(AlarmSeverity.MINOR));
+        assertThat(samples.getMessage(1), equalTo("Low"));
+        assertThat(samples.isLong(2), equalTo(true));
+        assertThat(samples.getLong(2), equalTo(1L));
+        assertThat(samples.getEpochSeconds(2), equalTo(1001L));
+        assertThat(samples.getNanos(2), equalTo(1));
+
+        // Can be turned back into VType
+        final VType value = samples.toVType(3);
+        assertThat(value, instanceOf(VDouble.class));
+        assertThat(((VDouble) value).getValue(), equalTo(2.5));
+        assertThat(Time.timeOf(value).getTimestamp(), equalTo(Instant.ofEpochSecond(1002, 2)));
+        assertThat(samples.toVType(4), instanceOf(VLong.class));
+
+        assertThat(buffer.remove(samples), equalTo(0));
+    }
+
+    @Test
+    public void testOverrun()
+    {
+        final SampleBuffer buffer = new SampleBuffer("test", null, 5);
+        for (int i=0; i<12; ++i)
+            buffer.add(number(i));
+        assertThat(buffer.getQueueSize(), equalTo(5));
+        assertThat(buffer.getBufferStats().getOverruns(), equalTo(7));
+
+        // Oldest samples were dropped, removal is limited by batch capacity
+        final ScalarSamples samples = new ScalarSamples(3);
+        assertThat(buffer.remove(samples), equalTo(3));
+        assertThat(samples.getEpochSeconds(0), equalTo(1007L));
+        assertThat(samples.getEpochSeconds(2), equalTo(1009L));
+        samples.clear();
+        assertThat(buffer.remove(samples), equalTo(2));
+        assertThat(samples.getEpochSeconds(1), equalTo(1011L));
+    }
+}
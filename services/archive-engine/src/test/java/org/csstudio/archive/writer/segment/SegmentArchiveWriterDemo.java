@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.segment;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.archive.writer.ScalarSamples;
+import org.csstudio.archive.writer.WriteChannel;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+
+/** Write performance of the {@link SegmentArchiveWriter}
+ *
+ *  <p>Writes batches of numeric samples for many channels
+ *  into a temporary directory, like the engine's write thread would,
+ *  and prints the sample rate.
+ */
+@SuppressWarnings("nls")
+public class SegmentArchiveWriterDemo
+{
+    private static final int CHANNELS = 1000, BATCH = 500, RUNS = 20;
+
+    public static void main(String[] args) throws Exception
+    {
+        final Path root = Files.createTempDirectory("segments");
+        System.out.println("Writing to " + root);
+        final SegmentArchiveWriter writer = new SegmentArchiveWriter(root, 24*60*60);
+        final List<WriteChannel> channels = new ArrayList<>();
+        for (int c=0; c<CHANNELS; ++c)
+            channels.add(writer.getChannel("demo:pv" + c));
+
+        final ScalarSamples samples = new ScalarSamples(BATCH);
+        long seconds = System.currentTimeMillis() / 1000;
+        for (int run=0; run<RUNS; ++run)
+        {
+            final long start = System.nanoTime();
+            for (WriteChannel channel : channels)
+            {
+                samples.clear();
+                samples.setDisplay(Display.none());
+                for (int i=0; i<BATCH; ++i)
+                    samples.addDouble(seconds, i * 1000, Math.sin(i), AlarmSeverity.NONE, AlarmStatus.NONE, "NO_ALARM");
+                writer.addSamples(channel, samples);
+            }
+            writer.flush();
+            final double secs = (System.nanoTime() - start) / 1e9;
+            System.out.format("%d samples in %.3f sec: %.0f samples/sec\n",
+                              CHANNELS * BATCH, secs, CHANNELS * BATCH / secs);
+            ++seconds;
+        }
+        writer.close();
+    }
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.segment;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+
+import org.csstudio.archive.writer.ScalarSamples;
+import org.csstudio.archive.writer.WriteChannel;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.phoebus.util.segment.SegmentFormat;
+
+/** JUnit test of the {@link SegmentArchiveWriter}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class SegmentArchiveWriterTest
+{
+    private Path root;
+
+    @Before
+    public void setup() throws Exception
+    {
+        root = Files.createTempDirectory("segments");
+    }
+
+    @After
+    public void cleanup() throws Exception
+    {
+        Files.walk(root)
+             .sorted(Comparator.reverseOrder())
+             .forEach(path -> path.toFile().delete());
+    }
+
+    @Test
+    public void testWrite() throws Exception
+    {
+        final SegmentArchiveWriter writer = new SegmentArchiveWriter(root, 100);
+        final WriteChannel channel = writer.getChannel("test:pv");
+
+        // One VType sample, then numeric samples that span two segments
+        writer.addSample(channel, VString.of("Disconnected", Alarm.disconnected(), Time.of(Instant.ofEpochSecond(1095))));
+        final ScalarSamples samples = new ScalarSamples(10);
+        samples.setDisplay(Display.none());
+        for (int i=0; i<10; ++i)
+            samples.addDouble(1096 + i, i, i * 0.5, AlarmSeverity.MINOR, AlarmStatus.DEVICE, "LOW");
+        writer.addSamples(channel, samples);
+        writer.addSample(channel, VDouble.of(42.0, Alarm.none(), Time.of(Instant.ofEpochSecond(1200)), Display.none()));
+        writer.flush();
+
+        final Path dir = root.resolve("test%3Apv");
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(dir.resolve(SegmentFormat.getFileName(1000))));
+        assertThat(buffer.getInt(0), equalTo(SegmentFormat.MAGIC));
+        final int end = (int) buffer.getLong(SegmentFormat.END_OFFSET);
+        buffer.position(SegmentFormat.HEADER_SIZE);
+        buffer.limit(end);
+
+        // String sample
+        int start = buffer.position();
+        buffer.position(start + buffer.getInt());
+        assertThat(buffer.get(start + 4), equalTo(SegmentFormat.STRING));
+        assertThat(buffer.getLong(start + 5), equalTo(1095L));
+
+        // Numeric meta data, written before first numeric sample
+        start = buffer.position();
+        buffer.position(start + buffer.getInt());
+        assertThat(buffer.get(start + 4), equalTo(SegmentFormat.NUMERIC_META));
+
+        // Numeric samples up to the end of the time partition
+        int count = 0;
+        while (buffer.hasRemaining())
+        {
+            start = buffer.position();
+            buffer.position(start + buffer.getInt());
+            assertThat(buffer.get(start + 4), equalTo(SegmentFormat.DOUBLE));
+            assertThat(buffer.getLong(start + 5), equalTo(1096L + count));
+            assertThat(buffer.getInt(start + 13), equalTo(count));
+            assertThat(buffer.get(start + 17), equalTo((byte) AlarmSeverity.MINOR.ordinal()));
+            assertThat(buffer.getShort(start + 18), equalTo((short) 3));
+            assertThat(buffer.getDouble(start + 23), equalTo(count * 0.5));
+            ++count;
+        }
+        assertThat(count, equalTo(4));
+
+        // Remaining samples are in next segment
+        buffer = ByteBuffer.wrap(Files.readAllBytes(dir.resolve("1100.seg")));
+        assertThat(buffer.getLong(SegmentFormat.END_OFFSET) > SegmentFormat.HEADER_SIZE, equalTo(true));
+        assertThat(Files.exists(dir.resolve("1200.seg")), equalTo(true));
+
+        writer.close();
+    }
+}
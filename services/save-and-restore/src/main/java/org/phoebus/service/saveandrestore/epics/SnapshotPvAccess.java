@@ -0,0 +1,408 @@
+/*
+ * Copyright (C) 2022 European Spallation Source ERIC.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.phoebus.service.saveandrestore.epics;
+
+import io.reactivex.rxjava3.disposables.Disposable;
+import org.epics.vtype.VBoolean;
+import org.epics.vtype.VBooleanArray;
+import org.epics.vtype.VByteArray;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VEnumArray;
+import org.epics.vtype.VFloatArray;
+import org.epics.vtype.VIntArray;
+import org.epics.vtype.VLongArray;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VShortArray;
+import org.epics.vtype.VString;
+import org.epics.vtype.VStringArray;
+import org.epics.vtype.VType;
+import org.epics.vtype.VUByteArray;
+import org.epics.vtype.VUIntArray;
+import org.epics.vtype.VULongArray;
+import org.epics.vtype.VUShortArray;
+import org.phoebus.applications.saveandrestore.model.ConfigPv;
+import org.phoebus.applications.saveandrestore.model.SnapshotItem;
+import org.phoebus.applications.saveandrestore.model.SnapshotPvResult;
+import org.phoebus.core.vtypes.VTypeHelper;
+import org.phoebus.pv.PV;
+import org.phoebus.pv.PVPool;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads and writes the PVs of a configuration, so that the service can take and restore
+ * snapshots without a client that connects to all PVs.
+ * <p>
+ * PVs are connected in parallel, limited to a maximum number of PVs that are connecting
+ * or being written at the same time, and each PV has to connect and complete a write
+ * within a timeout.
+ * The PVs of the most recently used configurations remain connected for some time,
+ * so that repeated snapshots of the same configuration do not need to connect again.
+ */
+public class SnapshotPvAccess implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(SnapshotPvAccess.class.getName());
+
+    private final long timeoutMillis;
+
+    /**
+     * Permits for PVs that are connecting or being written
+     */
+    private final Semaphore permits;
+
+    /**
+     * Waits for writes to complete, since the {@link java.util.concurrent.Future} of
+     * {@link PV#asyncWrite(Object)} may only support blocking
+     */
+    private final ThreadPoolExecutor writers;
+
+    private final int maxConfigurations;
+
+    private final long lingerMillis;
+
+    /**
+     * PVs of recently used configurations by configuration id, least recently used first.
+     * These hold a reference in the {@link PVPool}, keeping the PVs connected.
+     */
+    private final LinkedHashMap<String, ConnectedPvs> configurations = new LinkedHashMap<>();
+
+    private final ScheduledExecutorService cleanup;
+
+    private static class ConnectedPvs {
+        final List<PV> pvs;
+        final long lastUsed = System.currentTimeMillis();
+
+        ConnectedPvs(List<PV> pvs) {
+            this.pvs = pvs;
+        }
+    }
+
+    /**
+     * @param timeoutMillis     Timeout for connecting a PV and for completing a write
+     * @param concurrency       Maximum number of PVs that are connecting or being written at the same time
+     * @param maxConfigurations Number of recently used configurations that remain connected, 0 to disconnect right away
+     * @param lingerMillis      Time that PVs of a configuration remain connected after last use
+     */
+    public SnapshotPvAccess(long timeoutMillis, int concurrency, int maxConfigurations, long lingerMillis) {
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(concurrency);
+        this.writers = new ThreadPoolExecutor(concurrency, concurrency, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "SnapshotPvWriter");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.writers.allowCoreThreadTimeOut(true);
+        this.maxConfigurations = maxConfigurations;
+        this.lingerMillis = lingerMillis;
+        this.cleanup = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SnapshotPvCleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, lingerMillis / 10);
+        cleanup.scheduleWithFixedDelay(this::releaseExpired, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reads the PVs of a configuration
+     *
+     * @param configUniqueId Unique id of the configuration
+     * @param configPvs      PVs of the configuration
+     * @return Value and read-back value of each PV, or the error
+     * @throws InterruptedException if interrupted
+     */
+    public List<SnapshotPvResult> takeSnapshot(String configUniqueId, List<ConfigPv> configPvs) throws InterruptedException {
+        List<PV> pvs = new ArrayList<>();
+        try {
+            List<CompletableFuture<VType>> values = new ArrayList<>(configPvs.size());
+            List<CompletableFuture<VType>> readbackValues = new ArrayList<>(configPvs.size());
+            for (ConfigPv configPv : configPvs) {
+                values.add(read(configPv.getPvName(), pvs));
+                if (configPv.getReadbackPvName() == null || configPv.getReadbackPvName().isEmpty()) {
+                    readbackValues.add(CompletableFuture.completedFuture(null));
+                } else {
+                    readbackValues.add(read(configPv.getReadbackPvName(), pvs));
+                }
+            }
+
+            List<SnapshotPvResult> results = new ArrayList<>(configPvs.size());
+            for (int i = 0; i < configPvs.size(); i++) {
+                SnapshotPvResult result = SnapshotPvResult.builder().configPv(configPvs.get(i)).build();
+                try {
+                    result.setValue(values.get(i).join());
+                } catch (CompletionException ex) {
+                    result.setError(getMessage(ex));
+                }
+                try {
+                    result.setReadbackValue(readbackValues.get(i).join());
+                } catch (CompletionException ex) {
+                    LOGGER.log(Level.FINE, "Cannot read " + configPvs.get(i).getReadbackPvName(), ex);
+                }
+                results.add(result);
+            }
+            return results;
+        } finally {
+            keep(configUniqueId, pvs);
+        }
+    }
+
+    /**
+     * Writes the values of a snapshot to the PVs.
+     * Read-only PVs and PVs without value are skipped.
+     *
+     * @param configUniqueId Unique id of the configuration
+     * @param snapshotItems  Items of a snapshot of the configuration
+     * @return Written value of each PV, or the error
+     * @throws InterruptedException if interrupted
+     */
+    public List<SnapshotPvResult> restore(String configUniqueId, List<SnapshotItem> snapshotItems) throws InterruptedException {
+        List<PV> pvs = new ArrayList<>();
+        try {
+            List<SnapshotItem> restored = new ArrayList<>(snapshotItems.size());
+            List<CompletableFuture<?>> writes = new ArrayList<>(snapshotItems.size());
+            for (SnapshotItem snapshotItem : snapshotItems) {
+                if (snapshotItem.getConfigPv().isReadOnly() || snapshotItem.getValue() == null) {
+                    continue;
+                }
+                restored.add(snapshotItem);
+                writes.add(write(snapshotItem.getConfigPv().getPvName(), snapshotItem.getValue(), pvs));
+            }
+
+            List<SnapshotPvResult> results = new ArrayList<>(restored.size());
+            for (int i = 0; i < restored.size(); i++) {
+                SnapshotPvResult result = SnapshotPvResult.builder()
+                        .configPv(restored.get(i).getConfigPv())
+                        .value(restored.get(i).getValue())
+                        .build();
+                try {
+                    writes.get(i).join();
+                } catch (CompletionException ex) {
+                    result.setError(getMessage(ex));
+                }
+                results.add(result);
+            }
+            return results;
+        } finally {
+            keep(configUniqueId, pvs);
+        }
+    }
+
+    /**
+     * @param name Name of PV to read
+     * @param pvs  List to which the PV is added, to be released by the caller
+     * @return Value of the PV
+     * @throws InterruptedException if interrupted while waiting for a permit
+     */
+    private CompletableFuture<VType> read(String name, List<PV> pvs) throws InterruptedException {
+        permits.acquire();
+        CompletableFuture<VType> value;
+        try {
+            PV pv = PVPool.getPV(name);
+            pvs.add(pv);
+            value = connect(pv);
+        } catch (Exception ex) {
+            value = CompletableFuture.failedFuture(ex);
+        }
+        value.whenComplete((result, error) -> permits.release());
+        return value;
+    }
+
+    /**
+     * @param name  Name of PV to write
+     * @param value Value to write
+     * @param pvs   List to which the PV is added, to be released by the caller
+     * @return Completion of the write
+     * @throws InterruptedException if interrupted while waiting for a permit
+     */
+    private CompletableFuture<?> write(String name, VType value, List<PV> pvs) throws InterruptedException {
+        permits.acquire();
+        CompletableFuture<?> written;
+        try {
+            Object rawValue = toRawValue(value);
+            PV pv = PVPool.getPV(name);
+            pvs.add(pv);
+            written = connect(pv).thenRunAsync(() -> {
+                try {
+                    pv.asyncWrite(rawValue).get(timeoutMillis, TimeUnit.MILLISECONDS);
+                } catch (Exception ex) {
+                    throw new CompletionException(ex);
+                }
+            }, writers);
+        } catch (Exception ex) {
+            written = CompletableFuture.failedFuture(ex);
+        }
+        written.whenComplete((result, error) -> permits.release());
+        return written;
+    }
+
+    /**
+     * @param pv PV
+     * @return First value received from the connected PV
+     */
+    private CompletableFuture<VType> connect(PV pv) {
+        CompletableFuture<VType> value = new CompletableFuture<>();
+        Disposable subscription = pv.onValueEvent()
+                .filter(update -> !PV.isDisconnected(update))
+                .firstElement()
+                .subscribe(value::complete, value::completeExceptionally);
+        value.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((result, error) -> subscription.dispose());
+        return value;
+    }
+
+    private String getMessage(CompletionException ex) {
+        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof TimeoutException) {
+            return "No response within " + timeoutMillis + " ms";
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getName();
+    }
+
+    /**
+     * Converts a value into the type written to a PV, like the client does when restoring
+     *
+     * @param value Value
+     * @return Number, String, array of primitives or strings
+     */
+    protected static Object toRawValue(VType value) {
+        if (value instanceof VNumberArray) {
+            if (value instanceof VIntArray || value instanceof VUIntArray) {
+                return VTypeHelper.toIntegers(value);
+            } else if (value instanceof VFloatArray) {
+                return VTypeHelper.toFloats(value);
+            } else if (value instanceof VLongArray || value instanceof VULongArray) {
+                return VTypeHelper.toLongs(value);
+            } else if (value instanceof VShortArray || value instanceof VUShortArray) {
+                return VTypeHelper.toShorts(value);
+            } else if (value instanceof VByteArray || value instanceof VUByteArray) {
+                return VTypeHelper.toBytes(value);
+            }
+            return VTypeHelper.toDoubles(value);
+        } else if (value instanceof VEnumArray) {
+            return ((VEnumArray) value).getData().toArray(new String[0]);
+        } else if (value instanceof VStringArray) {
+            return ((VStringArray) value).getData().toArray(new String[0]);
+        } else if (value instanceof VBooleanArray) {
+            return VTypeHelper.toBooleans(value);
+        } else if (value instanceof VNumber) {
+            return ((VNumber) value).getValue();
+        } else if (value instanceof VEnum) {
+            VEnum vEnum = (VEnum) value;
+            // If all labels are empty, write the index as a string, otherwise the label
+            if (vEnum.getValue().isEmpty() && vEnum.getDisplay().getChoices().stream().allMatch(String::isEmpty)) {
+                return String.valueOf(vEnum.getIndex());
+            }
+            return vEnum.getValue();
+        } else if (value instanceof VString) {
+            return ((VString) value).getValue();
+        } else if (value instanceof VBoolean) {
+            return ((VBoolean) value).getValue();
+        }
+        throw new IllegalArgumentException("Cannot restore " + VType.typeOf(value).getSimpleName());
+    }
+
+    /**
+     * Keeps the PVs of a configuration connected, or releases them right away
+     *
+     * @param configUniqueId Unique id of the configuration
+     * @param pvs            PVs that were obtained from the {@link PVPool} to read or write the configuration
+     */
+    private void keep(String configUniqueId, List<PV> pvs) {
+        List<ConnectedPvs> released = new ArrayList<>();
+        synchronized (configurations) {
+            // Re-insert as the most recently used configuration
+            ConnectedPvs previous = configurations.remove(configUniqueId);
+            if (previous != null) {
+                released.add(previous);
+            }
+            configurations.put(configUniqueId, new ConnectedPvs(pvs));
+            Iterator<ConnectedPvs> iterator = configurations.values().iterator();
+            while (configurations.size() > maxConfigurations) {
+                released.add(iterator.next());
+                iterator.remove();
+            }
+        }
+        released.forEach(this::release);
+    }
+
+    private void releaseExpired() {
+        long expired = System.currentTimeMillis() - lingerMillis;
+        List<ConnectedPvs> released = new ArrayList<>();
+        synchronized (configurations) {
+            Iterator<ConnectedPvs> iterator = configurations.values().iterator();
+            while (iterator.hasNext()) {
+                ConnectedPvs connected = iterator.next();
+                if (connected.lastUsed < expired) {
+                    released.add(connected);
+                    iterator.remove();
+                }
+            }
+        }
+        released.forEach(this::release);
+    }
+
+    private void release(ConnectedPvs connected) {
+        for (PV pv : connected.pvs) {
+            PVPool.releasePV(pv);
+        }
+    }
+
+    /**
+     * @return Number of configurations whose PVs remain connected
+     */
+    public int getConnectedConfigurations() {
+        synchronized (configurations) {
+            return configurations.size();
+        }
+    }
+
+    /**
+     * Releases all PVs
+     */
+    @Override
+    public void close() {
+        cleanup.shutdownNow();
+        writers.shutdownNow();
+        List<ConnectedPvs> released;
+        synchronized (configurations) {
+            released = new ArrayList<>(configurations.values());
+            configurations.clear();
+        }
+        released.forEach(this::release);
+    }
+}
@@ -49,6 +49,11 @@ public class SnapshotPv {
 	private long time;
 	private int timens;
 	private String value;
+	/**
+	 * Numeric value in the binary format of the {@link org.phoebus.service.saveandrestore.persistence.dao.SnapshotDataConverter},
+	 * used instead of the JSON <code>value</code>.
+	 */
+	private byte[] binaryValue;
 	private ConfigPv configPv;
 	private SnapshotPvDataType dataType;
 	private String sizes;
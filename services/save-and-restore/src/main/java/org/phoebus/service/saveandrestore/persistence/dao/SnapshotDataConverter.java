@@ -31,22 +31,45 @@ import org.phoebus.applications.saveandrestore.model.SnapshotItem;
 import org.phoebus.service.saveandrestore.epics.exception.PVConversionException;
 import org.phoebus.service.saveandrestore.model.internal.SnapshotPv;
 
+import java.nio.ByteBuffer;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 
 /**
  * Provides static methods to convert between {@link SnapshotPv}, which is the internal representation used to persist 
  * snapshot data, and the {@link VType} types which are the data representation provided by the general
  * purpose EPICS client. 
+ * <p>
+ * Values are persisted as JSON text. Numeric scalars and arrays may instead use a binary format:
+ * A format byte, a flags byte and the elements in network byte order. If compressed, the flags byte is
+ * followed by the uncompressed length and the deflated elements.
  * @author georgweiss
  * Created 28 Nov 2018
  */
 public class SnapshotDataConverter {
 	
 	protected static final String SCALAR_AS_JSON = "[1]";
+
+	/**
+	 * First byte of binary data, identifying the format
+	 */
+	protected static final byte BINARY_FORMAT = 1;
+
+	/**
+	 * Flag for compressed binary data
+	 */
+	protected static final byte BINARY_COMPRESSED = 1;
+
+	/**
+	 * Binary data of at least this number of bytes is compressed, unless compression does not reduce the size
+	 */
+	protected static final int COMPRESSION_THRESHOLD = 256;
 	
 	private SnapshotDataConverter() {
 		
@@ -62,7 +85,7 @@ public class SnapshotDataConverter {
 				.snapshotId(snapshotPv.getSnapshotId())
 				.build();
 	
-		if(snapshotPv.getValue() != null) {
+		if(snapshotPv.getValue() != null || snapshotPv.getBinaryValue() != null) {
 			snapshotItem.setValue(toVType(snapshotPv));
 		}
 		
@@ -156,10 +179,57 @@ public class SnapshotDataConverter {
 
 		throw new PVConversionException(String.format("VType \"%s\" not supported", vType.getClass().getCanonicalName()));
 	}
+
+	/**
+	 * Like {@link #fromVType(VType)}, but numeric scalars and arrays are converted to the binary format,
+	 * see {@link SnapshotPv#getBinaryValue()}. Other types use JSON.
+	 * @param vType The value
+	 * @param compress Compress larger arrays?
+	 * @return The {@link SnapshotPv}
+	 */
+	public static SnapshotPv fromVType(VType vType, boolean compress) {
+		if(vType instanceof VNumber) {
+			VNumber vNumber = (VNumber)vType;
+			SnapshotPvDataType dataType = getDataType(vNumber);
+			Alarm alarm = vNumber.getAlarm();
+			Instant instant = vNumber.getTime().getTimestamp();
+			ByteBuffer buffer = ByteBuffer.allocate(getElementSize(dataType));
+			putScalar(buffer, dataType, vNumber.getValue());
+			return SnapshotPv.builder()
+					.alarmSeverity(alarm.getSeverity())
+					.alarmName(alarm.getName())
+					.alarmStatus(alarm.getStatus())
+					.time(instant.getEpochSecond())
+					.timens(instant.getNano())
+					.binaryValue(toBinary(buffer.array(), false))
+					.dataType(dataType)
+					.sizes(SCALAR_AS_JSON)
+					.build();
+		}
+		else if(vType instanceof VNumberArray) {
+			VNumberArray vNumberArray = (VNumberArray)vType;
+			SnapshotPvDataType dataType = getDataType(vNumberArray);
+			Alarm alarm = vNumberArray.getAlarm();
+			Instant instant = vNumberArray.getTime().getTimestamp();
+			ByteBuffer buffer = ByteBuffer.allocate(vNumberArray.getData().size() * getElementSize(dataType));
+			putArray(buffer, dataType, vNumberArray.getData());
+			return SnapshotPv.builder()
+					.alarmSeverity(alarm.getSeverity())
+					.alarmName(alarm.getName())
+					.alarmStatus(alarm.getStatus())
+					.time(instant.getEpochSecond())
+					.timens(instant.getNano())
+					.binaryValue(toBinary(buffer.array(), compress))
+					.dataType(dataType)
+					.sizes(getDimensionString(vNumberArray))
+					.build();
+		}
+		return fromVType(vType);
+	}
 	
 	public static VType toVType(SnapshotPv snapshotPv) {
 		
-		if(snapshotPv.getValue() == null) {
+		if(snapshotPv.getValue() == null && snapshotPv.getBinaryValue() == null) {
 			return null;
 		}
 		
@@ -173,9 +243,11 @@ public class SnapshotDataConverter {
 		Display display = Display.none();
 		
 		try {
+			// Binary data is only used for numeric types, all others are JSON
+			ByteBuffer binary = snapshotPv.getBinaryValue() == null ? null : fromBinary(snapshotPv.getBinaryValue());
 			switch(snapshotPv.getDataType()) {
 				case BYTE:{
-					byte[] values = objectMapper.readValue(snapshotPv.getValue(), byte[].class);
+					byte[] values = binary != null ? toByteArray(binary) : objectMapper.readValue(snapshotPv.getValue(), byte[].class);
 					if(isScalar) {
 						return VByte.of(values[0], alarm, time, display);
 					}
@@ -184,7 +256,7 @@ public class SnapshotDataConverter {
 					}
 				}
 				case UBYTE:{
-					byte[] values = objectMapper.readValue(snapshotPv.getValue(), byte[].class);
+					byte[] values = binary != null ? toByteArray(binary) : objectMapper.readValue(snapshotPv.getValue(), byte[].class);
 					if(isScalar) {
 						return VUByte.of(values[0], alarm, time, display);
 					}
@@ -193,7 +265,7 @@ public class SnapshotDataConverter {
 					}
 				}
 				case SHORT:{
-					short[] values = objectMapper.readValue(snapshotPv.getValue(), short[].class);
+					short[] values = binary != null ? toShortArray(binary) : objectMapper.readValue(snapshotPv.getValue(), short[].class);
 					if(isScalar) {
 						return VShort.of(values[0], alarm, time, display);
 					}
@@ -202,7 +274,7 @@ public class SnapshotDataConverter {
 					}
 				}
 				case USHORT:{
-					short[] values = objectMapper.readValue(snapshotPv.getValue(), short[].class);
+					short[] values = binary != null ? toShortArray(binary) : objectMapper.readValue(snapshotPv.getValue(), short[].class);
 					if(isScalar) {
 						return VUShort.of(values[0], alarm, time, display);
 					}
@@ -211,7 +283,7 @@ public class SnapshotDataConverter {
 					}
 				}
 				case INTEGER:{
-					int[] values = objectMapper.readValue(snapshotPv.getValue(), int[].class);
+					int[] values = binary != null ? toIntArray(binary) : objectMapper.readValue(snapshotPv.getValue(), int[].class);
 					if(isScalar) {
 						return VInt.of(values[0], alarm, time, display);
 					}
@@ -220,7 +292,7 @@ public class SnapshotDataConverter {
 					}
 				}
 				case UINTEGER:{
-					int[] values = objectMapper.readValue(snapshotPv.getValue(), int[].class);
+					int[] values = binary != null ? toIntArray(binary) : objectMapper.readValue(snapshotPv.getValue(), int[].class);
 					if(isScalar) {
 						return VUInt.of(values[0], alarm, time, display);
 					}
@@ -229,7 +301,7 @@ public class SnapshotDataConverter {
 					}
 				}
 				case LONG:{
-					long[] values = objectMapper.readValue(snapshotPv.getValue(), long[].class);
+					long[] values = binary != null ? toLongArray(binary) : objectMapper.readValue(snapshotPv.getValue(), long[].class);
 					if(isScalar) {
 						return VLong.of(values[0], alarm, time, display);
 					}
@@ -238,7 +310,7 @@ public class SnapshotDataConverter {
 					}
 				}
 				case ULONG:{
-					long[] values = objectMapper.readValue(snapshotPv.getValue(), long[].class);
+					long[] values = binary != null ? toLongArray(binary) : objectMapper.readValue(snapshotPv.getValue(), long[].class);
 					if(isScalar) {
 						return VULong.of(values[0], alarm, time, display);
 					}
@@ -247,7 +319,7 @@ public class SnapshotDataConverter {
 					}
 				}
 				case FLOAT:{
-					float[] values = objectMapper.readValue(snapshotPv.getValue(), float[].class);
+					float[] values = binary != null ? toFloatArray(binary) : objectMapper.readValue(snapshotPv.getValue(), float[].class);
 					if(isScalar) { 
 						return VFloat.of(values[0], alarm, time, display);
 					}
@@ -256,7 +328,7 @@ public class SnapshotDataConverter {
 					}
 				}
 				case DOUBLE:{
-					double[] values = objectMapper.readValue(snapshotPv.getValue(), double[].class);
+					double[] values = binary != null ? toDoubleArray(binary) : objectMapper.readValue(snapshotPv.getValue(), double[].class);
 					if(isScalar) { 
 						return VDouble.of(values[0], alarm, time, display);
 					}
@@ -306,6 +378,204 @@ public class SnapshotDataConverter {
 		throw new PVConversionException(String.format("Cannot convert to PVType from internal type %s", snapshotPv.getDataType()));
 	}
 	
+	/**
+	 * @param dataType Numeric data type
+	 * @return Number of bytes used by one element in the binary format
+	 */
+	protected static int getElementSize(SnapshotPvDataType dataType) {
+		switch(dataType) {
+			case BYTE:
+			case UBYTE:
+				return Byte.BYTES;
+			case SHORT:
+			case USHORT:
+				return Short.BYTES;
+			case INTEGER:
+			case UINTEGER:
+				return Integer.BYTES;
+			case LONG:
+			case ULONG:
+				return Long.BYTES;
+			case FLOAT:
+				return Float.BYTES;
+			case DOUBLE:
+				return Double.BYTES;
+			default:
+				throw new PVConversionException(String.format("No binary format for data type %s", dataType));
+		}
+	}
+
+	private static void putScalar(ByteBuffer buffer, SnapshotPvDataType dataType, Number value) {
+		switch(dataType) {
+			case BYTE:
+			case UBYTE:
+				buffer.put(value.byteValue());
+				break;
+			case SHORT:
+			case USHORT:
+				buffer.putShort(value.shortValue());
+				break;
+			case INTEGER:
+			case UINTEGER:
+				buffer.putInt(value.intValue());
+				break;
+			case LONG:
+			case ULONG:
+				buffer.putLong(value.longValue());
+				break;
+			case FLOAT:
+				buffer.putFloat(value.floatValue());
+				break;
+			default:
+				buffer.putDouble(value.doubleValue());
+		}
+	}
+
+	private static void putArray(ByteBuffer buffer, SnapshotPvDataType dataType, ListNumber data) {
+		int size = data.size();
+		switch(dataType) {
+			case BYTE:
+			case UBYTE:
+				for(int i = 0; i < size; i++) {
+					buffer.put(data.getByte(i));
+				}
+				break;
+			case SHORT:
+			case USHORT:
+				for(int i = 0; i < size; i++) {
+					buffer.putShort(data.getShort(i));
+				}
+				break;
+			case INTEGER:
+			case UINTEGER:
+				for(int i = 0; i < size; i++) {
+					buffer.putInt(data.getInt(i));
+				}
+				break;
+			case LONG:
+			case ULONG:
+				for(int i = 0; i < size; i++) {
+					buffer.putLong(data.getLong(i));
+				}
+				break;
+			case FLOAT:
+				for(int i = 0; i < size; i++) {
+					buffer.putFloat(data.getFloat(i));
+				}
+				break;
+			default:
+				for(int i = 0; i < size; i++) {
+					buffer.putDouble(data.getDouble(i));
+				}
+		}
+	}
+
+	/**
+	 * @param data Elements of a numeric value
+	 * @param compress Compress the data if it's large enough and compression reduces the size?
+	 * @return Binary format of the data
+	 */
+	protected static byte[] toBinary(byte[] data, boolean compress) {
+		if(compress && data.length >= COMPRESSION_THRESHOLD) {
+			Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+			try {
+				deflater.setInput(data);
+				deflater.finish();
+				// Only use compressed data if it fits into less than the original size
+				byte[] compressed = new byte[data.length];
+				int length = 0;
+				while(!deflater.finished() && length < compressed.length) {
+					length += deflater.deflate(compressed, length, compressed.length - length);
+				}
+				if(deflater.finished() && length + Integer.BYTES < data.length) {
+					ByteBuffer buffer = ByteBuffer.allocate(2 + Integer.BYTES + length);
+					buffer.put(BINARY_FORMAT);
+					buffer.put(BINARY_COMPRESSED);
+					buffer.putInt(data.length);
+					buffer.put(compressed, 0, length);
+					return buffer.array();
+				}
+			} finally {
+				deflater.end();
+			}
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(2 + data.length);
+		buffer.put(BINARY_FORMAT);
+		buffer.put((byte)0);
+		buffer.put(data);
+		return buffer.array();
+	}
+
+	/**
+	 * @param binary Binary format of a numeric value
+	 * @return Buffer with the elements of the value
+	 */
+	protected static ByteBuffer fromBinary(byte[] binary) {
+		ByteBuffer buffer = ByteBuffer.wrap(binary);
+		byte format = buffer.get();
+		if(format != BINARY_FORMAT) {
+			throw new PVConversionException(String.format("Unsupported binary format %d", format));
+		}
+		byte flags = buffer.get();
+		if((flags & BINARY_COMPRESSED) == 0) {
+			return buffer.slice();
+		}
+		byte[] data = new byte[buffer.getInt()];
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(binary, buffer.position(), buffer.remaining());
+			int length = 0;
+			while(length < data.length) {
+				int inflated = inflater.inflate(data, length, data.length - length);
+				if(inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					throw new PVConversionException("Compressed binary data is truncated");
+				}
+				length += inflated;
+			}
+		} catch (DataFormatException e) {
+			throw new PVConversionException(String.format("Unable to decompress binary data, cause: %s", e.getMessage()));
+		} finally {
+			inflater.end();
+		}
+		return ByteBuffer.wrap(data);
+	}
+
+	private static byte[] toByteArray(ByteBuffer buffer) {
+		byte[] values = new byte[buffer.remaining()];
+		buffer.get(values);
+		return values;
+	}
+
+	private static short[] toShortArray(ByteBuffer buffer) {
+		short[] values = new short[buffer.remaining() / Short.BYTES];
+		buffer.asShortBuffer().get(values);
+		return values;
+	}
+
+	private static int[] toIntArray(ByteBuffer buffer) {
+		int[] values = new int[buffer.remaining() / Integer.BYTES];
+		buffer.asIntBuffer().get(values);
+		return values;
+	}
+
+	private static long[] toLongArray(ByteBuffer buffer) {
+		long[] values = new long[buffer.remaining() / Long.BYTES];
+		buffer.asLongBuffer().get(values);
+		return values;
+	}
+
+	private static float[] toFloatArray(ByteBuffer buffer) {
+		float[] values = new float[buffer.remaining() / Float.BYTES];
+		buffer.asFloatBuffer().get(values);
+		return values;
+	}
+
+	private static double[] toDoubleArray(ByteBuffer buffer) {
+		double[] values = new double[buffer.remaining() / Double.BYTES];
+		buffer.asDoubleBuffer().get(values);
+		return values;
+	}
+
 	private static Alarm toAlarm(SnapshotPv snapshotPv) {
 		return Alarm.of(snapshotPv.getAlarmSeverity(), snapshotPv.getAlarmStatus(), snapshotPv.getAlarmName());
 	}
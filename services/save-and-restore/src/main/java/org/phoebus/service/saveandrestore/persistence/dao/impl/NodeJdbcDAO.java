@@ -30,17 +30,24 @@ import org.phoebus.service.saveandrestore.persistence.dao.SnapshotDataConverter;
 import org.phoebus.service.saveandrestore.services.exception.NodeNotFoundException;
 import org.phoebus.service.saveandrestore.services.exception.SnapshotNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -94,6 +101,23 @@ public class NodeJdbcDAO implements NodeDAO {
     @Autowired
     private SimpleJdbcInsert snapshotPvInsert;
 
+    @SuppressWarnings("unused")
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Compress larger numeric arrays when saving snapshots?
+     */
+    @Value("${snapshot.compression:true}")
+    private boolean compression;
+
+    /**
+     * Values of at least this size (bytes of binary data or characters of JSON) that are unchanged
+     * from the previous snapshot of the same configuration are saved as a reference to that snapshot.
+     * Smaller values are saved in each snapshot, since a reference would not save much space.
+     */
+    private static final int MIN_VALUE_REFERENCE_SIZE = 64;
+
     private static final int NO_ID = -1;
     private static final Logger LOG = Logger.getLogger(NodeJdbcDAO.class.getName());
 
@@ -105,6 +129,10 @@ public class NodeJdbcDAO implements NodeDAO {
      * after such a failed move would require manual update of the database.
      * <p>
      * Consequently a synchronization object is used to synchronize deletion and move operations.
+     * <p>
+     * Saving a snapshot is synchronized as well, since its values may reference those of the
+     * previous snapshot. A concurrent deletion of that snapshot would otherwise remove the values
+     * after they have been looked up, but before the references to them have been inserted.
      */
     private final Object deleteNodeSyncObject = new Object();
 
@@ -210,7 +238,9 @@ public class NodeJdbcDAO implements NodeDAO {
         if (nodeToDelete == null || nodeToDelete.getId() == Node.ROOT_NODE_ID){
             throw new IllegalArgumentException("Cannot delete non-existing node");
         }
-        deleteNode(nodeToDelete);
+        synchronized (deleteNodeSyncObject) {
+            deleteNode(nodeToDelete);
+        }
     }
 
     @Override
@@ -240,7 +270,14 @@ public class NodeJdbcDAO implements NodeDAO {
                 deleteNode(node);
             }
         } else if (nodeToDelete.getNodeType().equals(NodeType.SNAPSHOT)) {
-            jdbcTemplate.update("delete from snapshot_node_pv where snapshot_node_id=?", nodeToDelete.getId());
+            // Values referenced by other snapshots must be copied before they are deleted,
+            // so either all of this happens or nothing
+            new TransactionTemplate(transactionManager).execute(status -> {
+                resolveValueReferences(nodeToDelete.getId(), "value");
+                resolveValueReferences(nodeToDelete.getId(), "readback_value");
+                jdbcTemplate.update("delete from snapshot_node_pv where snapshot_node_id=?", nodeToDelete.getId());
+                return null;
+            });
         }
 
         jdbcTemplate.update("delete from node where unique_id=?", nodeToDelete.getUniqueId());
@@ -599,51 +636,156 @@ public class NodeJdbcDAO implements NodeDAO {
     }
 
     private Node saveSnapshotInternal(String parentsUniqueId, List<SnapshotItem> snapshotItems, String snapshotName, String comment, String userName, Timestamp created, Timestamp lastModified) {
-        Node snapshotNode = createNodeInternal(parentsUniqueId, Node.builder()
-                .name(snapshotName)
-                .nodeType(NodeType.SNAPSHOT)
-                .build(),
-                created,
-                lastModified);
-
-        List<Map<String, Object>> paramsForBatch = new ArrayList<>();
-        for (SnapshotItem snapshotItem : snapshotItems) {
-            Map<String, Object> params = new HashMap<>(6);
-            params.put("snapshot_node_id", snapshotNode.getId());
-
-            params.put("config_pv_id", snapshotItem.getConfigPv().getId());
-            // Should not happen, but if the snapshot value has not been set, continue...
-            if (snapshotItem.getValue() == null) {
-                continue;
-            }
+        // The previous snapshot must not be deleted while references to its values are inserted
+        synchronized (deleteNodeSyncObject) {
+            Node snapshotNode = createNodeInternal(parentsUniqueId, Node.builder()
+                    .name(snapshotName)
+                    .nodeType(NodeType.SNAPSHOT)
+                    .build(),
+                    created,
+                    lastModified);
+
+            Map<Integer, SnapshotPv> previousValues = new HashMap<>();
+            Map<Integer, SnapshotPv> previousReadbackValues = new HashMap<>();
+            getPreviousSnapshotValues(parentsUniqueId, snapshotNode.getId(), previousValues, previousReadbackValues);
+
+            List<Map<String, Object>> paramsForBatch = new ArrayList<>();
+            for (SnapshotItem snapshotItem : snapshotItems) {
+                Map<String, Object> params = new HashMap<>(6);
+                params.put("snapshot_node_id", snapshotNode.getId());
+
+                params.put("config_pv_id", snapshotItem.getConfigPv().getId());
+                // Should not happen, but if the snapshot value has not been set, continue...
+                if (snapshotItem.getValue() == null) {
+                    continue;
+                }
 
-            SnapshotPv snapshotPv = SnapshotDataConverter.fromVType(snapshotItem.getValue());
-            params.put("severity", snapshotPv.getAlarmSeverity().toString());
-            params.put("status", snapshotPv.getAlarmStatus().toString());
-            params.put("time", snapshotPv.getTime());
-            params.put("timens", snapshotPv.getTimens());
-            params.put("sizes", snapshotPv.getSizes());
-            params.put("data_type", snapshotPv.getDataType().toString());
-            params.put("value", snapshotPv.getValue());
-
-            if (snapshotItem.getReadbackValue() != null) {
-                SnapshotPv snapshotReadbackPv = SnapshotDataConverter.fromVType(snapshotItem.getReadbackValue());
-                params.put("readback_severity", snapshotReadbackPv.getAlarmSeverity().toString());
-                params.put("readback_status", snapshotReadbackPv.getAlarmStatus().toString());
-                params.put("readback_time", snapshotReadbackPv.getTime());
-                params.put("readback_timens", snapshotReadbackPv.getTimens());
-                params.put("readback_sizes", snapshotReadbackPv.getSizes());
-                params.put("readback_data_type", snapshotReadbackPv.getDataType().toString());
-                params.put("readback_value", snapshotReadbackPv.getValue());
+                SnapshotPv snapshotPv = SnapshotDataConverter.fromVType(snapshotItem.getValue(), compression);
+                params.put("severity", snapshotPv.getAlarmSeverity().toString());
+                params.put("status", snapshotPv.getAlarmStatus().toString());
+                params.put("time", snapshotPv.getTime());
+                params.put("timens", snapshotPv.getTimens());
+                params.put("sizes", snapshotPv.getSizes());
+                params.put("data_type", snapshotPv.getDataType().toString());
+                putValue(params, "value", snapshotPv, previousValues.get(snapshotItem.getConfigPv().getId()));
+
+                if (snapshotItem.getReadbackValue() != null) {
+                    SnapshotPv snapshotReadbackPv = SnapshotDataConverter.fromVType(snapshotItem.getReadbackValue(), compression);
+                    params.put("readback_severity", snapshotReadbackPv.getAlarmSeverity().toString());
+                    params.put("readback_status", snapshotReadbackPv.getAlarmStatus().toString());
+                    params.put("readback_time", snapshotReadbackPv.getTime());
+                    params.put("readback_timens", snapshotReadbackPv.getTimens());
+                    params.put("readback_sizes", snapshotReadbackPv.getSizes());
+                    params.put("readback_data_type", snapshotReadbackPv.getDataType().toString());
+                    putValue(params, "readback_value", snapshotReadbackPv, previousReadbackValues.get(snapshotItem.getConfigPv().getId()));
+                }
+                paramsForBatch.add(params);
             }
-            paramsForBatch.add(params);
+            snapshotPvInsert.executeBatch(paramsForBatch.toArray(new Map[paramsForBatch.size()]));
+
+            jdbcTemplate.update("update node set name=?, username=?, last_modified=? where unique_id=?", snapshotName, userName, lastModified, snapshotNode.getUniqueId());
+            insertOrUpdateProperty(snapshotNode.getId(), new AbstractMap.SimpleEntry<String, String>("comment", comment));
+
+            return getSnapshot(snapshotNode.getUniqueId());
+        }
+    }
+
+    /**
+     * Reads the values of the most recent snapshot of a configuration that was saved before the specified snapshot.
+     * The {@link SnapshotPv}s only hold the value and the id of the snapshot that holds it,
+     * which is an earlier snapshot if the previous snapshot references the value.
+     *
+     * @param configUniqueId         Unique id of the configuration
+     * @param snapshotId             Id of the snapshot that is being saved
+     * @param values                 Map of config PV id to value, populated by this method
+     * @param readbackValues         Map of config PV id to read-back value, populated by this method
+     */
+    private void getPreviousSnapshotValues(String configUniqueId, int snapshotId, Map<Integer, SnapshotPv> values, Map<Integer, SnapshotPv> readbackValues) {
+        Integer previousSnapshotId = jdbcTemplate.queryForObject("select max(n.id) from node as n " +
+                        "join node_closure as nc on n.id=nc.descendant " +
+                        "where nc.ancestor=(select id from node where unique_id=?) and nc.depth=1 and n.type=? and n.id<?",
+                new Object[]{configUniqueId, NodeType.SNAPSHOT.toString(), snapshotId}, Integer.class);
+        if (previousSnapshotId == null) {
+            return;
+        }
+
+        jdbcTemplate.query("select snp.*, " + SnapshotItemRowMapper.VALUE_REFERENCE_COLUMNS + " from snapshot_node_pv as snp " +
+                        SnapshotItemRowMapper.VALUE_REFERENCE_JOINS +
+                        "where snp.snapshot_node_id=?",
+                new Object[]{previousSnapshotId},
+                (RowCallbackHandler) resultSet -> {
+                    int configPvId = resultSet.getInt("config_pv_id");
+                    values.put(configPvId, getStoredValue(resultSet, "value"));
+                    readbackValues.put(configPvId, getStoredValue(resultSet, "readback_value"));
+                });
+    }
+
+    private static SnapshotPv getStoredValue(ResultSet resultSet, String column) throws SQLException {
+        int snapshotId = resultSet.getInt(column + "_ref");
+        if (resultSet.wasNull()) {
+            snapshotId = resultSet.getInt("snapshot_node_id");
+        }
+        return SnapshotPv.builder()
+                .snapshotId(snapshotId)
+                .value(SnapshotItemRowMapper.getValue(resultSet, column))
+                .binaryValue(SnapshotItemRowMapper.getBinaryValue(resultSet, column))
+                .build();
+    }
+
+    /**
+     * Adds the value to the parameters for inserting a snapshot_node_pv row, either the value itself or,
+     * if it is unchanged from the previous snapshot, a reference to the snapshot holding the value.
+     *
+     * @param params   Parameters for the insert
+     * @param column   Value column, <code>value</code> or <code>readback_value</code>
+     * @param snapshotPv Value to save
+     * @param previous Value of the previous snapshot, may be <code>null</code>
+     */
+    private void putValue(Map<String, Object> params, String column, SnapshotPv snapshotPv, SnapshotPv previous) {
+        int size = snapshotPv.getBinaryValue() != null ? snapshotPv.getBinaryValue().length :
+                snapshotPv.getValue() != null ? snapshotPv.getValue().length() : 0;
+        if (previous != null && size >= MIN_VALUE_REFERENCE_SIZE &&
+                Objects.equals(snapshotPv.getValue(), previous.getValue()) &&
+                Arrays.equals(snapshotPv.getBinaryValue(), previous.getBinaryValue())) {
+            params.put(column + "_ref", previous.getSnapshotId());
+        } else {
+            params.put(column, snapshotPv.getValue());
+            params.put(column + "_binary", snapshotPv.getBinaryValue());
         }
-        snapshotPvInsert.executeBatch(paramsForBatch.toArray(new Map[paramsForBatch.size()]));
+    }
 
-        jdbcTemplate.update("update node set name=?, username=?, last_modified=? where unique_id=?", snapshotName, userName, lastModified, snapshotNode.getUniqueId());
-        insertOrUpdateProperty(snapshotNode.getId(), new AbstractMap.SimpleEntry<String, String>("comment", comment));
+    /**
+     * Copies the values of a snapshot that is about to be deleted to the snapshots referencing them.
+     * The earliest snapshot that references a value receives a copy, and later snapshots are updated
+     * to reference that copy.
+     *
+     * @param snapshotId Id of the snapshot that is about to be deleted
+     * @param column     Value column, <code>value</code> or <code>readback_value</code>
+     */
+    private void resolveValueReferences(int snapshotId, String column) {
+        Map<Integer, Integer> firstReferences = new HashMap<>();
+        jdbcTemplate.query("select snapshot_node_id, config_pv_id from snapshot_node_pv where " + column + "_ref=? order by snapshot_node_id",
+                new Object[]{snapshotId},
+                (RowCallbackHandler) resultSet -> firstReferences.putIfAbsent(resultSet.getInt("config_pv_id"), resultSet.getInt("snapshot_node_id")));
+        if (firstReferences.isEmpty()) {
+            return;
+        }
 
-        return getSnapshot(snapshotNode.getUniqueId());
+        List<Object[]> copyArgs = new ArrayList<>();
+        List<Object[]> referenceArgs = new ArrayList<>();
+        jdbcTemplate.query("select config_pv_id, " + column + ", " + column + "_binary from snapshot_node_pv where snapshot_node_id=?",
+                new Object[]{snapshotId},
+                (RowCallbackHandler) resultSet -> {
+                    int configPvId = resultSet.getInt("config_pv_id");
+                    Integer referencingSnapshotId = firstReferences.get(configPvId);
+                    if (referencingSnapshotId != null) {
+                        copyArgs.add(new Object[]{resultSet.getString(column), resultSet.getBytes(column + "_binary"), referencingSnapshotId, configPvId});
+                        referenceArgs.add(new Object[]{referencingSnapshotId, snapshotId, configPvId});
+                    }
+                });
+        jdbcTemplate.batchUpdate("update snapshot_node_pv set " + column + "=?, " + column + "_binary=?, " + column + "_ref=null " +
+                "where snapshot_node_id=? and config_pv_id=?", copyArgs);
+        jdbcTemplate.batchUpdate("update snapshot_node_pv set " + column + "_ref=? where " + column + "_ref=? and config_pv_id=?", referenceArgs);
     }
 
     /**
@@ -671,11 +813,13 @@ public class NodeJdbcDAO implements NodeDAO {
     @Override
     public List<SnapshotItem> getSnapshotItems(String snapshotUniqueId) {
 
-        List<SnapshotItem> snapshotItems = jdbcTemplate.query("select snp.*, pv1.name, pv2.name as readback_name, cp.readonly, cp.id as id from snapshot_node_pv as snp " +
+        List<SnapshotItem> snapshotItems = jdbcTemplate.query("select snp.*, pv1.name, pv2.name as readback_name, cp.readonly, cp.id as id, " +
+                        SnapshotItemRowMapper.VALUE_REFERENCE_COLUMNS + " from snapshot_node_pv as snp " +
                         "join config_pv as cp on snp.config_pv_id=cp.id " +
                         "left join pv pv1 on cp.pv_id=pv1.id " +
                         "left join pv pv2 on cp.readback_pv_id=pv2.id " +
-                        "where snapshot_node_id=(select id from node where unique_id=?)",
+                        SnapshotItemRowMapper.VALUE_REFERENCE_JOINS +
+                        "where snp.snapshot_node_id=(select id from node where unique_id=?)",
                 new Object[]{snapshotUniqueId},
                 new SnapshotItemRowMapper());
 
@@ -29,9 +29,51 @@ import org.springframework.jdbc.core.RowMapper;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+/**
+ * Maps rows of the snapshot_node_pv table to {@link SnapshotItem}s.
+ * <p>
+ * Values that are unchanged from a previous snapshot may be stored as a reference to the row
+ * holding the value. The query must then provide the referenced value columns with a <code>ref_</code> prefix,
+ * see {@link #VALUE_REFERENCE_COLUMNS} and {@link #VALUE_REFERENCE_JOINS}.
+ */
 public class SnapshotItemRowMapper implements RowMapper<SnapshotItem> {
-	
-	
+
+	/**
+	 * Columns of the values referenced by a snapshot_node_pv table aliased as <code>snp</code>
+	 */
+	public static final String VALUE_REFERENCE_COLUMNS =
+			"vref.value as ref_value, vref.value_binary as ref_value_binary, " +
+			"rbref.readback_value as ref_readback_value, rbref.readback_value_binary as ref_readback_value_binary";
+
+	/**
+	 * Joins providing the {@link #VALUE_REFERENCE_COLUMNS}
+	 */
+	public static final String VALUE_REFERENCE_JOINS =
+			"left join snapshot_node_pv as vref on vref.snapshot_node_id=snp.value_ref and vref.config_pv_id=snp.config_pv_id " +
+			"left join snapshot_node_pv as rbref on rbref.snapshot_node_id=snp.readback_value_ref and rbref.config_pv_id=snp.config_pv_id ";
+
+	/**
+	 * @param resultSet Result set
+	 * @param column JSON value column, <code>value</code> or <code>readback_value</code>
+	 * @return JSON value of the row or of the referenced row
+	 * @throws SQLException on error
+	 */
+	static String getValue(ResultSet resultSet, String column) throws SQLException {
+		String value = resultSet.getString(column);
+		return value != null ? value : resultSet.getString("ref_" + column);
+	}
+
+	/**
+	 * @param resultSet Result set
+	 * @param column JSON value column, <code>value</code> or <code>readback_value</code>
+	 * @return Binary value of the row or of the referenced row
+	 * @throws SQLException on error
+	 */
+	static byte[] getBinaryValue(ResultSet resultSet, String column) throws SQLException {
+		byte[] value = resultSet.getBytes(column + "_binary");
+		return value != null ? value : resultSet.getBytes("ref_" + column + "_binary");
+	}
+
 	@Override
 	public SnapshotItem mapRow(ResultSet resultSet, int rowIndex) throws SQLException {
 		
@@ -44,21 +86,24 @@ public class SnapshotItemRowMapper implements RowMapper<SnapshotItem> {
 				.alarmStatus(resultSet.getString("status") ==  null ? null : AlarmStatus.valueOf(resultSet.getString("status")))
 				.time(resultSet.getLong("time"))
 				.timens(resultSet.getInt("timens"))
-				.value(resultSet.getString("value"))
+				.value(getValue(resultSet, "value"))
+				.binaryValue(getBinaryValue(resultSet, "value"))
 				.sizes(resultSet.getString("sizes"))
 				.dataType(resultSet.getString("data_type") == null ? null : SnapshotPvDataType.valueOf(resultSet.getString("data_type")))
 				.build();
 
 		SnapshotPv readbackPvValue = null;
-		String readbackValue = resultSet.getString("readback_value");
+		String readbackValue = getValue(resultSet, "readback_value");
+		byte[] readbackBinaryValue = getBinaryValue(resultSet, "readback_value");
 
-		if(readbackValue != null){
+		if(readbackValue != null || readbackBinaryValue != null){
 			readbackPvValue = SnapshotPv.builder()
 					.alarmSeverity(resultSet.getString("readback_severity") == null ? null : AlarmSeverity.valueOf(resultSet.getString("readback_severity")))
 					.alarmStatus(resultSet.getString("readback_status") ==  null ? null : AlarmStatus.valueOf(resultSet.getString("readback_status")))
 					.time(resultSet.getLong("readback_time"))
 					.timens(resultSet.getInt("readback_timens"))
 					.value(readbackValue)
+					.binaryValue(readbackBinaryValue)
 					.sizes(resultSet.getString("readback_sizes"))
 					.dataType(resultSet.getString("readback_data_type") == null ? null : SnapshotPvDataType.valueOf(resultSet.getString("readback_data_type")))
 					.build();
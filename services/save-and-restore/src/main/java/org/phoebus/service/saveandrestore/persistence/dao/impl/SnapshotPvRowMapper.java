@@ -44,6 +44,7 @@ public class SnapshotPvRowMapper implements RowMapper<SnapshotPv> {
 				.time(resultSet.getLong("time"))
 				.timens(resultSet.getInt("timens"))
 				.value(resultSet.getString("value"))
+				.binaryValue(resultSet.getBytes("value_binary"))
 				.sizes(resultSet.getString("sizes"))
 				.dataType(resultSet.getString("data_type") == null ? null : SnapshotPvDataType.valueOf(resultSet.getString("data_type")))
 				.build();
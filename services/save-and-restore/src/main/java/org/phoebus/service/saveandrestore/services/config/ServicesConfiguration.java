@@ -17,8 +17,10 @@
  */
 package org.phoebus.service.saveandrestore.services.config;
 
+import org.phoebus.service.saveandrestore.epics.SnapshotPvAccess;
 import org.phoebus.service.saveandrestore.persistence.dao.NodeDAO;
 import org.phoebus.service.saveandrestore.persistence.dao.impl.NodeJdbcDAO;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -31,4 +33,12 @@ public class ServicesConfiguration {
 		return new NodeJdbcDAO();
 	}
 
+	@Bean
+	public SnapshotPvAccess snapshotPvAccess(@Value("${pv.timeout:5000}") long timeout,
+											 @Value("${pv.concurrency:100}") int concurrency,
+											 @Value("${pv.connected.configurations:10}") int connectedConfigurations,
+											 @Value("${pv.connected.linger:600000}") long linger) {
+		return new SnapshotPvAccess(timeout, concurrency, connectedConfigurations, linger);
+	}
+
 }
@@ -23,14 +23,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import org.phoebus.applications.saveandrestore.model.Node;
+import org.phoebus.applications.saveandrestore.model.NodeType;
 import org.phoebus.applications.saveandrestore.model.SnapshotItem;
+import org.phoebus.applications.saveandrestore.model.SnapshotPvResult;
+import org.phoebus.service.saveandrestore.epics.SnapshotPvAccess;
 import org.phoebus.service.saveandrestore.services.IServices;
+import org.phoebus.service.saveandrestore.services.exception.NodeNotFoundException;
 
 @RestController
 public class SnapshotController extends BaseController {
@@ -38,6 +43,9 @@ public class SnapshotController extends BaseController {
 	@Autowired
 	private IServices services;
 
+	@Autowired
+	private SnapshotPvAccess snapshotPvAccess;
+
 	/**
 	 * Retrieves a snapshot {@link Node}.
 	 * 
@@ -78,4 +86,41 @@ public class SnapshotController extends BaseController {
 
 		return services.saveSnapshot(configUniqueId, snapshotItems, snapshotName, userName, comment);
 	}
+
+	/**
+	 * Reads the PVs of a configuration. The values are not saved, a client may save them
+	 * as a new snapshot of the configuration.
+	 * 
+	 * A {@link HttpStatus#NOT_FOUND} is returned if the specified configuration does not exist.
+	 * 
+	 * @param configUniqueId The unique id of the configuration
+	 * @return The value and read-back value of each PV, or the reason why the PV could not be read.
+	 * @throws InterruptedException if interrupted
+	 */
+	@GetMapping("/config/{configUniqueId}/take-snapshot")
+	public List<SnapshotPvResult> takeSnapshot(@PathVariable String configUniqueId) throws InterruptedException {
+		Node config = services.getNode(configUniqueId);
+		if(config == null || !config.getNodeType().equals(NodeType.CONFIGURATION)) {
+			throw new NodeNotFoundException("Configuration with id " + configUniqueId + " not found");
+		}
+
+		return snapshotPvAccess.takeSnapshot(configUniqueId, services.getConfigPvs(configUniqueId));
+	}
+
+	/**
+	 * Writes the values of a snapshot to the PVs. Read-only PVs are not written.
+	 * 
+	 * A {@link HttpStatus#NOT_FOUND} is returned if the specified snapshot does not exist.
+	 * 
+	 * @param uniqueNodeId The unique id of the snapshot
+	 * @return The value written to each PV, or the reason why the PV could not be written.
+	 * @throws InterruptedException if interrupted
+	 */
+	@PostMapping("/snapshot/{uniqueNodeId}/restore")
+	public List<SnapshotPvResult> restoreSnapshot(@PathVariable String uniqueNodeId) throws InterruptedException {
+		services.getSnapshot(uniqueNodeId);
+		Node config = services.getParentNode(uniqueNodeId);
+
+		return snapshotPvAccess.restore(config.getUniqueId(), services.getSnapshotItems(uniqueNodeId));
+	}
 }
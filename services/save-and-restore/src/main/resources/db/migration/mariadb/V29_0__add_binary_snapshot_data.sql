@@ -0,0 +1,9 @@
+-- Numeric values in binary format, and references to unchanged values of a previous snapshot
+ALTER TABLE snapshot_node_pv
+    ADD value_binary LONGBLOB,
+    ADD readback_value_binary LONGBLOB,
+    ADD value_ref BIGINT UNSIGNED,
+    ADD readback_value_ref BIGINT UNSIGNED;
+
+CREATE INDEX snapshot_node_pv_value_ref_idx ON snapshot_node_pv(value_ref);
+CREATE INDEX snapshot_node_pv_readback_value_ref_idx ON snapshot_node_pv(readback_value_ref);
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2022 European Spallation Source ERIC.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.phoebus.service.saveandrestore.epics;
+
+import org.epics.util.array.ArrayDouble;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VDoubleArray;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.phoebus.applications.saveandrestore.model.ConfigPv;
+import org.phoebus.applications.saveandrestore.model.SnapshotItem;
+import org.phoebus.applications.saveandrestore.model.SnapshotPvResult;
+import org.phoebus.pv.PV;
+import org.phoebus.pv.PVPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotPvAccessTest {
+
+    private SnapshotPvAccess pvAccess;
+
+    @Before
+    public void setUp() {
+        pvAccess = new SnapshotPvAccess(2000, 4, 2, 60000);
+    }
+
+    @After
+    public void tearDown() {
+        pvAccess.close();
+    }
+
+    @Test
+    public void testTakeSnapshot() throws Exception {
+        List<ConfigPv> configPvs = Arrays.asList(
+                ConfigPv.builder().pvName("loc://snapshotA(3.14)").readbackPvName("sim://const(42)").build(),
+                ConfigPv.builder().pvName("loc://snapshotB<VString>(\"Hello\")").build(),
+                ConfigPv.builder().pvName("sim://noise").build(),
+                ConfigPv.builder().pvName("unknown://snapshotC").build());
+
+        List<SnapshotPvResult> results = pvAccess.takeSnapshot("config", configPvs);
+
+        assertEquals(4, results.size());
+        assertEquals(3.14, ((VNumber) results.get(0).getValue()).getValue().doubleValue(), 0);
+        assertEquals(42, ((VNumber) results.get(0).getReadbackValue()).getValue().doubleValue(), 0);
+        assertEquals("Hello", ((VString) results.get(1).getValue()).getValue());
+        assertNull(results.get(1).getReadbackValue());
+        assertTrue(results.get(2).getValue() instanceof VDouble);
+        assertTrue(results.get(2).isSuccessful());
+        assertNull(results.get(3).getValue());
+        assertNotNull(results.get(3).getError());
+        assertEquals(configPvs.get(3), results.get(3).getConfigPv());
+    }
+
+    @Test
+    public void testManyPvs() throws Exception {
+        // More PVs than may connect at the same time
+        List<ConfigPv> configPvs = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            configPvs.add(ConfigPv.builder().pvName("loc://snapshotMany" + i + "(" + i + ")").build());
+        }
+
+        List<SnapshotPvResult> results = pvAccess.takeSnapshot("many", configPvs);
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, ((VNumber) results.get(i).getValue()).getValue().intValue());
+        }
+    }
+
+    @Test
+    public void testRestore() throws Exception {
+        ConfigPv scalar = ConfigPv.builder().pvName("loc://snapshotD(0)").build();
+        ConfigPv array = ConfigPv.builder().pvName("loc://snapshotE(0, 0)").build();
+        ConfigPv readOnly = ConfigPv.builder().pvName("loc://snapshotF(0)").readOnly(true).build();
+        ConfigPv simulated = ConfigPv.builder().pvName("sim://const(1)").build();
+        List<SnapshotItem> snapshotItems = Arrays.asList(
+                SnapshotItem.builder().configPv(scalar)
+                        .value(VDouble.of(2.5, Alarm.none(), Time.now(), Display.none())).build(),
+                SnapshotItem.builder().configPv(array)
+                        .value(VDoubleArray.of(ArrayDouble.of(1, 2, 3), Alarm.none(), Time.now(), Display.none())).build(),
+                SnapshotItem.builder().configPv(readOnly)
+                        .value(VDouble.of(2.5, Alarm.none(), Time.now(), Display.none())).build(),
+                SnapshotItem.builder().configPv(simulated)
+                        .value(VDouble.of(2.5, Alarm.none(), Time.now(), Display.none())).build());
+
+        List<SnapshotPvResult> results = pvAccess.restore("config", snapshotItems);
+
+        // Read-only PV is skipped, simulated PV cannot be written
+        assertEquals(3, results.size());
+        assertNull(results.get(0).getError());
+        assertNull(results.get(1).getError());
+        assertEquals(simulated, results.get(2).getConfigPv());
+        assertNotNull(results.get(2).getError());
+
+        assertEquals(2.5, ((VNumber) read(scalar.getPvName())).getValue().doubleValue(), 0);
+        assertArrayEquals(new double[]{1, 2, 3}, ((VDoubleArray) read(array.getPvName())).getData().toArray(new double[3]), 0);
+        assertEquals(0, ((VNumber) read(readOnly.getPvName())).getValue().doubleValue(), 0);
+    }
+
+    @Test
+    public void testConnectedConfigurations() throws Exception {
+        List<ConfigPv> configPvs = Arrays.asList(ConfigPv.builder().pvName("loc://snapshotG(1)").build());
+
+        pvAccess.takeSnapshot("a", configPvs);
+        pvAccess.takeSnapshot("a", configPvs);
+        assertEquals(1, pvAccess.getConnectedConfigurations());
+        assertTrue(PVPool.getPVReferences().stream().anyMatch(ref -> ref.getEntry().getName().contains("snapshotG")));
+
+        // Least recently used configuration is released
+        pvAccess.takeSnapshot("b", configPvs);
+        pvAccess.takeSnapshot("c", configPvs);
+        assertEquals(2, pvAccess.getConnectedConfigurations());
+
+        pvAccess.close();
+        assertEquals(0, pvAccess.getConnectedConfigurations());
+        assertTrue(PVPool.getPVReferences().stream().noneMatch(ref -> ref.getEntry().getName().contains("snapshotG")));
+    }
+
+    private VType read(String name) throws Exception {
+        PV pv = PVPool.getPV(name);
+        try {
+            return pv.read();
+        } finally {
+            PVPool.releasePV(pv);
+        }
+    }
+}
@@ -25,6 +25,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -65,6 +66,11 @@ public class JdbcDAOTestConfig {
 		return Mockito.mock(SimpleJdbcInsert.class);
 	}
 
+	@Bean
+	public PlatformTransactionManager transactionManager() {
+		return Mockito.mock(PlatformTransactionManager.class);
+	}
+
 	@Bean
 	public ObjectMapper objectMapper() {
 		return new ObjectMapper();
@@ -35,6 +35,7 @@ import org.phoebus.service.saveandrestore.model.internal.SnapshotPv;
 import javax.json.Json;
 import java.io.ByteArrayInputStream;
 import java.time.Instant;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -631,4 +632,119 @@ public class SnapshotDataConverterTest {
 
 	}
 
+	@Test
+	public void testBinaryScalars() {
+		VType[] values = {
+				VByte.of((byte) -1, alarm, time, display),
+				VUByte.of(new UByte((byte) 200), alarm, time, display),
+				VShort.of((short) -1000, alarm, time, display),
+				VUShort.of(new UShort((short) 60000), alarm, time, display),
+				VInt.of(-100000, alarm, time, display),
+				VUInt.of(new UInteger(-1), alarm, time, display),
+				VLong.of(-10000000000L, alarm, time, display),
+				VULong.of(new ULong(-1L), alarm, time, display),
+				VFloat.of(1.5f, alarm, time, display),
+				VDouble.of(7.7, alarm, time, display) };
+
+		for (VType value : values) {
+			SnapshotPv snapshotPv = SnapshotDataConverter.fromVType(value, true);
+			assertNull(snapshotPv.getValue());
+			assertNotNull(snapshotPv.getBinaryValue());
+			assertEquals(SnapshotDataConverter.SCALAR_AS_JSON, snapshotPv.getSizes());
+			assertEquals(SnapshotDataConverter.getDataType(value), snapshotPv.getDataType());
+			assertEquals(1000, snapshotPv.getTime());
+			assertEquals(7000, snapshotPv.getTimens());
+
+			VNumber vNumber = (VNumber) SnapshotDataConverter.toVType(snapshotPv);
+			assertEquals(value.getClass(), vNumber.getClass());
+			assertEquals(((VNumber) value).getValue(), vNumber.getValue());
+			assertEquals("name", vNumber.getAlarm().getName());
+		}
+	}
+
+	@Test
+	public void testBinaryArrays() {
+		VNumberArray[] values = {
+				VByteArray.of(CollectionNumbers.toListByte((byte) 1, (byte) -2, (byte) 3), alarm, time, display),
+				VUByteArray.of(CollectionNumbers.toListUByte((byte) 1, (byte) -2, (byte) 3), alarm, time, display),
+				VShortArray.of(CollectionNumbers.toListShort((short) 1, (short) -2, (short) 3), alarm, time, display),
+				VUShortArray.of(CollectionNumbers.toListUShort((short) 1, (short) -2, (short) 3), alarm, time, display),
+				VIntArray.of(CollectionNumbers.toListInt(1, -2, 3), alarm, time, display),
+				VUIntArray.of(CollectionNumbers.toListUInt(1, -2, 3), alarm, time, display),
+				VLongArray.of(CollectionNumbers.toListLong(1L, -2L, 3L), alarm, time, display),
+				VULongArray.of(CollectionNumbers.toListULong(1L, -2L, 3L), alarm, time, display),
+				VFloatArray.of(CollectionNumbers.toListFloat(1.5f, -2.5f, 3.5f), alarm, time, display),
+				VDoubleArray.of(CollectionNumbers.toListDouble(1.5, -2.5, 3.5), alarm, time, display) };
+
+		for (VNumberArray value : values) {
+			SnapshotPv snapshotPv = SnapshotDataConverter.fromVType(value, true);
+			assertNull(snapshotPv.getValue());
+			assertEquals("[3]", snapshotPv.getSizes());
+
+			VNumberArray vNumberArray = (VNumberArray) SnapshotDataConverter.toVType(snapshotPv);
+			assertEquals(value.getClass(), vNumberArray.getClass());
+			assertEquals(value.getData(), vNumberArray.getData());
+			assertEquals(value.getSizes(), vNumberArray.getSizes());
+		}
+
+		// Multi-dimensional array
+		VDoubleArray matrix = VDoubleArray.of(CollectionNumbers.toListDouble(1, 2, 3, 4, 5, 6), CollectionNumbers.toListInt(2, 3), alarm, time, display);
+		SnapshotPv snapshotPv = SnapshotDataConverter.fromVType(matrix, true);
+		assertEquals("[2,3]", snapshotPv.getSizes());
+		VDoubleArray vDoubleArray = (VDoubleArray) SnapshotDataConverter.toVType(snapshotPv);
+		assertEquals(matrix.getData(), vDoubleArray.getData());
+		assertEquals(matrix.getSizes(), vDoubleArray.getSizes());
+	}
+
+	@Test
+	public void testBinaryCompression() {
+		// Slowly changing waveform compresses well
+		int[] waveform = new int[10000];
+		for (int i = 0; i < waveform.length; i++) {
+			waveform[i] = i / 100;
+		}
+		VIntArray vIntArray = VIntArray.of(CollectionNumbers.toListInt(waveform), alarm, time, display);
+
+		byte[] uncompressed = SnapshotDataConverter.fromVType(vIntArray, false).getBinaryValue();
+		assertEquals(2 + waveform.length * Integer.BYTES, uncompressed.length);
+		assertEquals(0, uncompressed[1] & SnapshotDataConverter.BINARY_COMPRESSED);
+
+		SnapshotPv snapshotPv = SnapshotDataConverter.fromVType(vIntArray, true);
+		assertTrue(snapshotPv.getBinaryValue().length < uncompressed.length / 10);
+		assertEquals(SnapshotDataConverter.BINARY_COMPRESSED, snapshotPv.getBinaryValue()[1] & SnapshotDataConverter.BINARY_COMPRESSED);
+		assertEquals(vIntArray.getData(), ((VIntArray) SnapshotDataConverter.toVType(snapshotPv)).getData());
+
+		// Noise does not compress, so it's stored uncompressed
+		byte[] noise = new byte[1000];
+		new Random(42).nextBytes(noise);
+		VByteArray vByteArray = VByteArray.of(CollectionNumbers.toListByte(noise), alarm, time, display);
+		snapshotPv = SnapshotDataConverter.fromVType(vByteArray, true);
+		assertEquals(0, snapshotPv.getBinaryValue()[1] & SnapshotDataConverter.BINARY_COMPRESSED);
+		assertEquals(vByteArray.getData(), ((VByteArray) SnapshotDataConverter.toVType(snapshotPv)).getData());
+
+		// Small arrays are not compressed
+		snapshotPv = SnapshotDataConverter.fromVType(VIntArray.of(CollectionNumbers.toListInt(new int[10]), alarm, time, display), true);
+		assertEquals(0, snapshotPv.getBinaryValue()[1] & SnapshotDataConverter.BINARY_COMPRESSED);
+	}
+
+	@Test
+	public void testBinaryOnlyForNumbers() {
+		// Strings and enums remain JSON
+		SnapshotPv snapshotPv = SnapshotDataConverter.fromVType(VString.of("someString", alarm, time), true);
+		assertEquals("[\"someString\"]", snapshotPv.getValue());
+		assertNull(snapshotPv.getBinaryValue());
+
+		snapshotPv = SnapshotDataConverter.fromVType(VEnum.of(1, EnumDisplay.of("a", "b", "c"), alarm, time), true);
+		assertEquals("[1,[\"a\",\"b\",\"c\"]]", snapshotPv.getValue());
+		assertNull(snapshotPv.getBinaryValue());
+	}
+
+	@Test(expected = PVConversionException.class)
+	public void testBadBinaryFormat() {
+		SnapshotPv snapshotPv = SnapshotPv.builder().alarmName("name").alarmStatus(AlarmStatus.NONE)
+				.alarmSeverity(AlarmSeverity.NONE).dataType(SnapshotPvDataType.DOUBLE)
+				.sizes(SnapshotDataConverter.SCALAR_AS_JSON).time(1000L).timens(7000).binaryValue(new byte[]{99, 0, 1, 2}).build();
+		SnapshotDataConverter.toVType(snapshotPv);
+	}
+
 }
@@ -23,7 +23,9 @@ import org.epics.vtype.AlarmSeverity;
 import org.epics.vtype.AlarmStatus;
 import org.epics.vtype.Display;
 import org.epics.vtype.Time;
+import org.epics.util.array.CollectionNumbers;
 import org.epics.vtype.VDouble;
+import org.epics.vtype.VDoubleArray;
 import org.epics.vtype.VInt;
 import org.flywaydb.test.FlywayTestExecutionListener;
 import org.flywaydb.test.annotation.FlywayTest;
@@ -41,6 +43,7 @@ import org.phoebus.service.saveandrestore.services.exception.NodeNotFoundExcepti
 import org.phoebus.service.saveandrestore.services.exception.SnapshotNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.ContextHierarchy;
 import org.springframework.test.context.TestExecutionListeners;
@@ -55,6 +58,10 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -73,6 +80,9 @@ public class DAOTest {
     @Autowired
     private NodeJdbcDAO nodeDAO;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private Alarm alarm;
     private Time time;
     private Display display;
@@ -320,6 +330,137 @@ public class DAOTest {
         assertTrue(snapshots.isEmpty());
     }
 
+    @Test
+    @FlywayTest(invokeCleanDB = true)
+    public void testSnapshotValueReferences() {
+        Node rootNode = nodeDAO.getRootNode();
+
+        Node config = Node.builder().name("My config 3").nodeType(NodeType.CONFIGURATION).build();
+
+        config = nodeDAO.createNode(rootNode.getUniqueId(), config);
+        nodeDAO.updateConfiguration(config, Arrays.asList(ConfigPv.builder().pvName("waveform").readbackPvName("readback_waveform").build()));
+        ConfigPv configPv = nodeDAO.getConfigPvs(config.getUniqueId()).get(0);
+
+        double[] waveform = new double[1000];
+        for (int i = 0; i < waveform.length; i++) {
+            waveform[i] = Math.sin(i / 10.0);
+        }
+        VDoubleArray value = VDoubleArray.of(CollectionNumbers.toListDouble(waveform.clone()), alarm, time, display);
+        waveform[0] = 42.0;
+        VDoubleArray readback = VDoubleArray.of(CollectionNumbers.toListDouble(waveform.clone()), alarm, time, display);
+        waveform[1] = 43.0;
+        VDoubleArray changedReadback = VDoubleArray.of(CollectionNumbers.toListDouble(waveform.clone()), alarm, time, display);
+
+        Node snapshot1 = nodeDAO.saveSnapshot(config.getUniqueId(),
+                Arrays.asList(SnapshotItem.builder().configPv(configPv).value(value).readbackValue(readback).build()),
+                "snapshot 1", "comment", "user");
+        Node snapshot2 = nodeDAO.saveSnapshot(config.getUniqueId(),
+                Arrays.asList(SnapshotItem.builder().configPv(configPv).value(value).readbackValue(changedReadback).build()),
+                "snapshot 2", "comment", "user");
+        Node snapshot3 = nodeDAO.saveSnapshot(config.getUniqueId(),
+                Arrays.asList(SnapshotItem.builder().configPv(configPv).value(value).readbackValue(changedReadback).build()),
+                "snapshot 3", "comment", "user");
+
+        // Unchanged values of snapshot 2 and 3 reference the value of snapshot 1
+        assertEquals(Integer.valueOf(2), jdbcTemplate.queryForObject("select count(*) from snapshot_node_pv where value_ref=?",
+                new Object[]{snapshot1.getId()}, Integer.class));
+        assertEquals(Integer.valueOf(1), jdbcTemplate.queryForObject("select count(*) from snapshot_node_pv where readback_value_ref=?",
+                new Object[]{snapshot2.getId()}, Integer.class));
+
+        for (Node snapshot : Arrays.asList(snapshot1, snapshot2, snapshot3)) {
+            List<SnapshotItem> snapshotItems = nodeDAO.getSnapshotItems(snapshot.getUniqueId());
+            assertEquals(1, snapshotItems.size());
+            assertEquals(value.getData(), ((VDoubleArray) snapshotItems.get(0).getValue()).getData());
+            assertEquals(snapshot == snapshot1 ? readback.getData() : changedReadback.getData(),
+                    ((VDoubleArray) snapshotItems.get(0).getReadbackValue()).getData());
+        }
+
+        // Deleting a snapshot moves the referenced values to the next snapshot
+        nodeDAO.deleteNode(snapshot1.getUniqueId());
+        nodeDAO.deleteNode(snapshot2.getUniqueId());
+        List<SnapshotItem> snapshotItems = nodeDAO.getSnapshotItems(snapshot3.getUniqueId());
+        assertEquals(value.getData(), ((VDoubleArray) snapshotItems.get(0).getValue()).getData());
+        assertEquals(changedReadback.getData(), ((VDoubleArray) snapshotItems.get(0).getReadbackValue()).getData());
+        assertEquals(Integer.valueOf(0), jdbcTemplate.queryForObject("select count(*) from snapshot_node_pv where value_ref is not null or readback_value_ref is not null",
+                Integer.class));
+    }
+
+    @Test
+    @FlywayTest(invokeCleanDB = true)
+    public void testDeleteReferencedSnapshot() {
+        Node rootNode = nodeDAO.getRootNode();
+
+        Node config = Node.builder().name("My config 3").nodeType(NodeType.CONFIGURATION).build();
+
+        config = nodeDAO.createNode(rootNode.getUniqueId(), config);
+        nodeDAO.updateConfiguration(config, Arrays.asList(ConfigPv.builder().pvName("waveform").readbackPvName("readback_waveform").build()));
+        ConfigPv configPv = nodeDAO.getConfigPvs(config.getUniqueId()).get(0);
+
+        double[] waveform = new double[1000];
+        for (int i = 0; i < waveform.length; i++) {
+            waveform[i] = Math.cos(i / 10.0);
+        }
+        VDoubleArray value = VDoubleArray.of(CollectionNumbers.toListDouble(waveform), alarm, time, display);
+        List<SnapshotItem> items = Arrays.asList(SnapshotItem.builder().configPv(configPv).value(value).readbackValue(value).build());
+
+        Node snapshot1 = nodeDAO.saveSnapshot(config.getUniqueId(), items, "snapshot 1", "comment", "user");
+        Node snapshot2 = nodeDAO.saveSnapshot(config.getUniqueId(), items, "snapshot 2", "comment", "user");
+        Node snapshot3 = nodeDAO.saveSnapshot(config.getUniqueId(), items, "snapshot 3", "comment", "user");
+        assertEquals(Integer.valueOf(2), jdbcTemplate.queryForObject("select count(*) from snapshot_node_pv where value_ref=? and readback_value_ref=?",
+                new Object[]{snapshot1.getId(), snapshot1.getId()}, Integer.class));
+
+        nodeDAO.deleteNodes(Arrays.asList(snapshot1.getUniqueId()));
+
+        // Snapshot 2 received a copy of the values, snapshot 3 now references it
+        assertEquals(Integer.valueOf(1), jdbcTemplate.queryForObject("select count(*) from snapshot_node_pv where value_ref=? and readback_value_ref=?",
+                new Object[]{snapshot2.getId(), snapshot2.getId()}, Integer.class));
+        for (Node snapshot : Arrays.asList(snapshot2, snapshot3)) {
+            List<SnapshotItem> snapshotItems = nodeDAO.getSnapshotItems(snapshot.getUniqueId());
+            assertEquals(1, snapshotItems.size());
+            assertEquals(value.getData(), ((VDoubleArray) snapshotItems.get(0).getValue()).getData());
+            assertEquals(value.getData(), ((VDoubleArray) snapshotItems.get(0).getReadbackValue()).getData());
+        }
+    }
+
+    @Test
+    @FlywayTest(invokeCleanDB = true)
+    public void testDeleteSnapshotWhileSaving() throws Exception {
+        Node rootNode = nodeDAO.getRootNode();
+
+        Node config = Node.builder().name("My config 3").nodeType(NodeType.CONFIGURATION).build();
+
+        config = nodeDAO.createNode(rootNode.getUniqueId(), config);
+        nodeDAO.updateConfiguration(config, Arrays.asList(ConfigPv.builder().pvName("waveform").build()));
+        ConfigPv configPv = nodeDAO.getConfigPvs(config.getUniqueId()).get(0);
+
+        double[] waveform = new double[1000];
+        for (int i = 0; i < waveform.length; i++) {
+            waveform[i] = Math.sin(i / 10.0);
+        }
+        VDoubleArray value = VDoubleArray.of(CollectionNumbers.toListDouble(waveform), alarm, time, display);
+        List<SnapshotItem> items = Arrays.asList(SnapshotItem.builder().configPv(configPv).value(value).build());
+        String configId = config.getUniqueId();
+
+        // Each new snapshot references the values of the previous one, which is deleted at the same time
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Node previous = nodeDAO.saveSnapshot(configId, items, "snapshot 0", "comment", "user");
+            for (int i = 1; i <= 20; i++) {
+                String name = "snapshot " + i;
+                Future<Node> saved = executor.submit(() -> nodeDAO.saveSnapshot(configId, items, name, "comment", "user"));
+                nodeDAO.deleteNodes(Arrays.asList(previous.getUniqueId()));
+                previous = saved.get(10, TimeUnit.SECONDS);
+
+                List<SnapshotItem> snapshotItems = nodeDAO.getSnapshotItems(previous.getUniqueId());
+                assertEquals(1, snapshotItems.size());
+                assertNotNull(snapshotItems.get(0).getValue());
+                assertEquals(value.getData(), ((VDoubleArray) snapshotItems.get(0).getValue()).getData());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     @FlywayTest(invokeCleanDB = true)
     public void testGetSnapshotsNoSnapshots() {
@@ -19,6 +19,7 @@
 package org.phoebus.service.saveandrestore.web.config;
 
 import org.mockito.Mockito;
+import org.phoebus.service.saveandrestore.epics.SnapshotPvAccess;
 import org.phoebus.service.saveandrestore.services.IServices;
 import org.springframework.boot.SpringBootConfiguration;
 import org.springframework.context.annotation.Bean;
@@ -32,4 +33,9 @@ public class ControllersTestConfig {
 	public IServices services() {
 		return Mockito.mock(IServices.class);
 	}
+
+	@Bean
+	public SnapshotPvAccess snapshotPvAccess() {
+		return Mockito.mock(SnapshotPvAccess.class);
+	}
 }
@@ -18,8 +18,11 @@
 
 package org.phoebus.service.saveandrestore.web.controllers;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -32,6 +35,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentMatcher;
 import org.mockito.Mockito;
+import org.phoebus.service.saveandrestore.epics.SnapshotPvAccess;
 import org.phoebus.service.saveandrestore.services.IServices;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -49,6 +53,7 @@ import org.phoebus.applications.saveandrestore.model.ConfigPv;
 import org.phoebus.applications.saveandrestore.model.Node;
 import org.phoebus.applications.saveandrestore.model.NodeType;
 import org.phoebus.applications.saveandrestore.model.SnapshotItem;
+import org.phoebus.applications.saveandrestore.model.SnapshotPvResult;
 import org.phoebus.service.saveandrestore.services.exception.SnapshotNotFoundException;
 import org.phoebus.service.saveandrestore.web.config.ControllersTestConfig;
 
@@ -61,6 +66,9 @@ public class SnapshotControllerTest {
 	@Autowired
 	private IServices services;
 
+	@Autowired
+	private SnapshotPvAccess snapshotPvAccess;
+
 	@Autowired
 	private MockMvc mockMvc;
 
@@ -227,4 +235,65 @@ public class SnapshotControllerTest {
 		// Make sure response contains expected data
 		objectMapper.readValue(result.getResponse().getContentAsString(), Node.class);
 	}	
+
+	@Test
+	public void testTakeSnapshot() throws Exception{
+		ConfigPv configPv = ConfigPv.builder().id(1).pvName("pvName").build();
+		SnapshotPvResult pvResult = SnapshotPvResult.builder().configPv(configPv).error("Disconnected").build();
+
+		when(services.getNode("a")).thenReturn(config1);
+		when(services.getConfigPvs("a")).thenReturn(Arrays.asList(configPv));
+		when(snapshotPvAccess.takeSnapshot("a", Arrays.asList(configPv))).thenReturn(Arrays.asList(pvResult));
+
+		MockHttpServletRequestBuilder request = get("/config/a/take-snapshot");
+
+		MvcResult result = mockMvc.perform(request).andExpect(status().isOk()).andExpect(content().contentType(JSON))
+				.andReturn();
+
+		// Make sure response contains expected data
+		List<SnapshotPvResult> pvResults = objectMapper.readValue(result.getResponse().getContentAsString(),
+				new TypeReference<List<SnapshotPvResult>>() {
+		});
+		assertEquals("Disconnected", pvResults.get(0).getError());
+	}
+
+	@Test
+	public void testTakeSnapshotNonExistingConfig() throws Exception{
+		when(services.getNode("x")).thenReturn(null);
+		when(services.getNode("b")).thenReturn(snapshot);
+
+		mockMvc.perform(get("/config/x/take-snapshot")).andExpect(status().isNotFound());
+		mockMvc.perform(get("/config/b/take-snapshot")).andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void testRestoreSnapshot() throws Exception{
+		SnapshotItem si = SnapshotItem.builder()
+				.configPv(ConfigPv.builder().id(1).pvName("pvName").build())
+				.snapshotId(7)
+				.build();
+
+		when(services.getSnapshot("s")).thenReturn(snapshot);
+		when(services.getParentNode("s")).thenReturn(config1);
+		when(services.getSnapshotItems("s")).thenReturn(Arrays.asList(si));
+		when(snapshotPvAccess.restore("a", Arrays.asList(si)))
+				.thenReturn(Arrays.asList(SnapshotPvResult.builder().configPv(si.getConfigPv()).build()));
+
+		MvcResult result = mockMvc.perform(post("/snapshot/s/restore")).andExpect(status().isOk())
+				.andExpect(content().contentType(JSON))
+				.andReturn();
+
+		List<SnapshotPvResult> pvResults = objectMapper.readValue(result.getResponse().getContentAsString(),
+				new TypeReference<List<SnapshotPvResult>>() {
+		});
+		assertEquals(1, pvResults.size());
+		assertNull(pvResults.get(0).getError());
+	}
+
+	@Test
+	public void testRestoreNonExistingSnapshot() throws Exception{
+		when(services.getSnapshot("x")).thenThrow(new SnapshotNotFoundException("lasdfk"));
+
+		mockMvc.perform(post("/snapshot/x/restore")).andExpect(status().isNotFound());
+	}
 }
@@ -0,0 +1,7 @@
+ALTER TABLE snapshot_node_pv ADD value_binary BLOB;
+ALTER TABLE snapshot_node_pv ADD readback_value_binary BLOB;
+ALTER TABLE snapshot_node_pv ADD value_ref INTEGER;
+ALTER TABLE snapshot_node_pv ADD readback_value_ref INTEGER;
+
+CREATE INDEX IF NOT EXISTS snapshot_node_pv_value_ref_idx ON snapshot_node_pv(value_ref);
+CREATE INDEX IF NOT EXISTS snapshot_node_pv_readback_value_ref_idx ON snapshot_node_pv(readback_value_ref);
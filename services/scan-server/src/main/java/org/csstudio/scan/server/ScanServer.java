@@ -103,6 +103,31 @@ public interface ScanServer
      */
     public ScanData getScanData(long id) throws Exception;
 
+    /** Wait for scan data logged after a serial.
+     *
+     *  <p>While the scan is running, waits until
+     *  samples after the given serial have been logged.
+     *  Otherwise returns right away.
+     *
+     *  @param id ID that uniquely identifies a scan
+     *  @param since_serial Serial of last sample that caller already has
+     *  @param timeout_ms Maximum time to wait
+     *  @return Serial up to which samples are complete,
+     *          to be used as <code>since_serial</code> of the next call
+     *  @throws Exception on error
+     *  @see #getScanData(long, long)
+     */
+    public long waitForScanData(long id, long since_serial, long timeout_ms) throws Exception;
+
+    /** Query server for scan data logged after a serial
+     *  @param id ID that uniquely identifies a scan
+     *  @param since_serial Only return samples with serial greater than this, -1 for all samples
+     *  @return Data for that scan on the server
+     *  @throws Exception on error
+     *  @see #waitForScanData(long, long, long)
+     */
+    public ScanData getScanData(long id, long since_serial) throws Exception;
+
     /** Ask server to update a command parameter to a new value
      *  @param id ID that uniquely identifies a scan
      *  @param address Address of the command
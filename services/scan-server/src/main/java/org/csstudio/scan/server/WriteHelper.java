@@ -162,6 +162,7 @@ public class WriteHelper
             final DataLog log = context.getDataLog().get();
             final long serial = log.getNextScanDataSerial();
             log.log(readback.getAlias(), ScanSampleHelper.createSample(serial, log_value));
+            log.flush();
         }
     }
 
@@ -265,6 +265,7 @@ public class LoopCommandImpl extends ScanCommandImpl<LoopCommand>
                 final DataLog log = context.getDataLog().get();
                 final long serial = log.getNextScanDataSerial();
                 log.log(readback.getAlias(), ScanSampleHelper.createSample(serial, readback.read()));
+                log.flush();
             }
         }
         catch (InterruptedException ex)
@@ -81,6 +81,7 @@ public class ScriptCommandContextImpl extends ScanScriptContext
                 ScanSampleFactory.createSample(timestamp , serial++, iter.nextDouble());
             context.getDataLog().get().log(device, sample);
         }
+        context.getDataLog().get().flush();
     }
 
     /** {@inheritDoc} */
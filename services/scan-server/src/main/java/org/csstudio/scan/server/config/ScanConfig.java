@@ -37,6 +37,7 @@ public class ScanConfig
 {
     final private static String XML_ALIAS = "alias",
                                 XML_DATALOG = "data_log",
+                                XML_DATALOG_ASYNC = "data_log_async",
                                 XML_MACROS = "macros",
                                 XML_MAXIMUM = "maximum",
                                 XML_MINIMUM = "minimum",
@@ -58,6 +59,8 @@ public class ScanConfig
 
     private String data_log = "/tmp/scan_log_db";
 
+    private boolean data_log_async = true;
+
     private final List<String> pre_scan = new ArrayList<>();
     private final List<String> post_scan = new ArrayList<>();
 
@@ -133,6 +136,12 @@ public class ScanConfig
         return data_log;
     }
 
+    /** @return Write logged samples in background? */
+    public boolean isDataLogAsync()
+    {
+        return data_log_async;
+    }
+
     public List<String> getPreScanPaths()
     {
         return pre_scan;
@@ -233,6 +242,9 @@ public class ScanConfig
         XMLUtil.getChildString(xml, XML_DATALOG)
                .ifPresent(parm -> data_log = parm);
 
+        XMLUtil.getChildBoolean(xml, XML_DATALOG_ASYNC)
+               .ifPresent(async -> data_log_async = async);
+
         for (Element path : XMLUtil.getChildElements(xml, XML_PRE_SCAN))
             pre_scan.add(XMLUtil.getString(path));
 
@@ -14,6 +14,7 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import javax.servlet.ServletException;
@@ -41,6 +42,9 @@ import org.w3c.dom.Element;
 public class ScanServlet extends HttpServlet
 {
     private final static long serialVersionUID = 1L;
+
+    /** Maximum time in seconds that a "data?since=..&wait=.." request may wait */
+    private final static long MAX_WAIT_SECS = 60;
     private final ScanServer scan_server = ScanServerInstance.getScanServer();
 
     /** POST scan/{name}: Submit a new, named, scan
@@ -252,6 +256,8 @@ public class ScanServlet extends HttpServlet
      *  <p>GET scan/{id} - get scan info
      *  <p>GET scan/{id}/commands - get scan commands
      *  <p>GET scan/{id}/data - get scan data
+     *  <p>GET scan/{id}/data?since={serial} - get scan data logged after serial
+     *  <p>GET scan/{id}/data?since={serial}&amp;wait={seconds} - wait for scan data logged after serial
      *  <p>GET scan/{id}/last_serial - get scan data's last serial
      *  <p>GET scan/{id}/devices - get devices used by a scan
      */
@@ -297,11 +303,28 @@ public class ScanServlet extends HttpServlet
                 out.flush();
             }
             else if ("data".equalsIgnoreCase(object))
-            {   // Get data
-                final ScanData data = scan_server.getScanData(id);
-                final XMLStreamWriter writer = ServletHelper.createXML(response);
-                ServletHelper.write(writer, data);
-                ServletHelper.submitXML(writer);
+            {
+                final String since = request.getParameter("since");
+                if (since == null)
+                {   // Get all data
+                    final ScanData data = scan_server.getScanData(id);
+                    final XMLStreamWriter writer = ServletHelper.createXML(response);
+                    ServletHelper.write(writer, data);
+                    ServletHelper.submitXML(writer);
+                }
+                else
+                {   // Get data logged after serial, waiting for new samples
+                    final long since_serial = Long.parseLong(since);
+                    final String wait = request.getParameter("wait");
+                    final long wait_secs = wait == null ? 0 : Math.min(Math.max(0, Long.parseLong(wait)), MAX_WAIT_SECS);
+                    // Determine serial of complete data before fetching samples.
+                    // Samples beyond that serial may be fetched again by the next request.
+                    final long serial = scan_server.waitForScanData(id, since_serial, TimeUnit.SECONDS.toMillis(wait_secs));
+                    final ScanData data = scan_server.getScanData(id, since_serial);
+                    final XMLStreamWriter writer = ServletHelper.createXML(response);
+                    ServletHelper.write(writer, data, serial);
+                    ServletHelper.submitXML(writer);
+                }
             }
             else if ("last_serial".equalsIgnoreCase(object))
             {   // Get last serial of data
@@ -162,7 +162,26 @@ public class ServletHelper
     public static void write(final XMLStreamWriter writer, final ScanData data) throws Exception
     {
         writer.writeStartElement("data");
+        writeDevices(writer, data);
+        writer.writeEndElement();
+    }
+
+    /** Write recently logged scan data
+     *  @param writer {@link XMLStreamWriter}
+     *  @param data Samples logged after a serial
+     *  @param serial Serial up to which samples are complete
+     *  @throws Exception on error
+     */
+    public static void write(final XMLStreamWriter writer, final ScanData data, final long serial) throws Exception
+    {
+        writer.writeStartElement("data");
+        writer.writeAttribute("serial", Long.toString(serial));
+        writeDevices(writer, data);
+        writer.writeEndElement();
+    }
 
+    private static void writeDevices(final XMLStreamWriter writer, final ScanData data) throws Exception
+    {
         for (String device_name : data.getDevices())
         {
             writer.writeStartElement("device");
@@ -181,7 +200,6 @@ public class ServletHelper
             }
             writer.writeEndElement();
         }
-        writer.writeEndElement();
     }
 
     public static void submitXML(XMLStreamWriter writer) throws Exception
@@ -412,6 +412,26 @@ public class ExecutableScan extends LoggedScan implements ScanContext, Callable<
         return logger.getScanData();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public ScanData getScanData(final long since_serial) throws Exception
+    {
+        final DataLog logger = data_logger.orElse(null);
+        if (logger == null)
+            return super.getScanData(since_serial);
+        return logger.getScanData(since_serial);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long waitForScanData(final long since_serial, final long timeout_ms) throws Exception
+    {
+        final DataLog logger = data_logger.orElse(null);
+        if (logger == null)
+            return super.waitForScanData(since_serial, timeout_ms);
+        return logger.waitForData(since_serial, timeout_ms);
+    }
+
     /** Callable for executing all commands on the scan,
      *  turning exceptions into a 'Failed' scan state.
      */
@@ -461,7 +481,18 @@ public class ExecutableScan extends LoggedScan implements ScanContext, Callable<
         end_ms = System.currentTimeMillis();
         // Close data logger
         if (data_logger.isPresent())
-            data_logger.get().close();
+        {
+            try
+            {
+                data_logger.get().close();
+            }
+            catch (Exception ex)
+            {   // Scan that otherwise finished failed to log all its data
+                if (state.compareAndSet(ScanState.Finished, ScanState.Failed))
+                    error = Optional.of(ex.getMessage());
+                logger.log(Level.WARNING, "Scan " + getName() + " cannot close data log", ex);
+            }
+        }
         data_logger = Optional.empty();
         logger.log(Level.CONFIG, "Completed ID " + getId() + " \"" + getName() + "\"");
 
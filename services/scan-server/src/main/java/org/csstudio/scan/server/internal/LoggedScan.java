@@ -77,6 +77,37 @@ public class LoggedScan extends Scan
         }
     }
 
+    /** Get samples logged after a serial.
+     *  @param since_serial Only return samples with serial greater than this, -1 for all samples
+     *  @return {@link ScanData}
+     *  @throws Exception on error
+     */
+    public ScanData getScanData(final long since_serial) throws Exception
+    {
+        try
+        (
+            final DataLog logger = DataLogFactory.getDataLog(this);
+        )
+        {
+            return logger.getScanData(since_serial);
+        }
+    }
+
+    /** Wait for samples logged after a serial.
+     *
+     *  <p>A logged scan will not add samples, so this returns right away.
+     *
+     *  @param since_serial Serial of last sample that caller already has
+     *  @param timeout_ms Maximum time to wait for new samples while the scan is running
+     *  @return Serial up to which samples are complete
+     *  @throws Exception on error
+     *  @see #getScanData(long)
+     */
+    public long waitForScanData(final long since_serial, final long timeout_ms) throws Exception
+    {
+        return getLastScanDataSerial();
+    }
+
     // Compare by ID
     @Override
     public boolean equals(final Object obj)
@@ -358,6 +358,29 @@ public class ScanServerImpl implements ScanServer
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public long waitForScanData(final long id, final long since_serial, final long timeout_ms) throws Exception
+    {
+        final LoggedScan scan = scan_engine.getScan(id);
+        return scan.waitForScanData(since_serial, timeout_ms);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ScanData getScanData(final long id, final long since_serial) throws Exception
+    {
+        try
+        {
+            final LoggedScan scan = scan_engine.getScan(id);
+            return scan.getScanData(since_serial);
+        }
+        catch (Exception ex)
+        {
+            throw new Exception("Error retrieving log data", ex);
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void updateScanProperty(final long id, final long address,
@@ -15,8 +15,10 @@
  ******************************************************************************/
 package org.csstudio.scan.server.log;
 
-import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.csstudio.scan.data.ScanData;
@@ -29,11 +31,20 @@ import org.csstudio.scan.data.ScanSample;
  *
  *  @author Kay Kasemir
  */
-abstract public class DataLog implements Closeable
+abstract public class DataLog implements AutoCloseable
 {
     /** Serial of last logged sample */
     protected long last_serial = -1;
 
+    /** Serial of last sample that was flushed.
+     *  Samples up to this serial are complete.
+     *  SYNC on this
+     */
+    protected long flushed_serial = -1;
+
+    /** Has the log been closed? SYNC on this */
+    private boolean closed = false;
+
     final private List<DataLogListener> listeners = new CopyOnWriteArrayList<>();
 
     /** @param listener Listener to add */
@@ -90,9 +101,16 @@ abstract public class DataLog implements Closeable
      *
      *  <p>Implementation may override, but must call base implementation
      *  at the end to notify listeners.
+     *
+     *  @throws Exception on error, for example when samples could not be written
      */
-    public void flush()
+    public void flush() throws Exception
     {
+        synchronized (this)
+        {
+            flushed_serial = Math.max(flushed_serial, last_serial);
+            notifyAll();
+        }
         for (DataLogListener listener : listeners)
             listener.logDataChanged(this);
     }
@@ -115,12 +133,71 @@ abstract public class DataLog implements Closeable
      */
     abstract public ScanData getScanData() throws Exception;
 
+    /** Get samples logged after a serial
+     *
+     *  <p>Default implementation filters all samples.
+     *  Derived classes may override with a more efficient query.
+     *
+     *  @param since_serial Only return samples with serial greater than this, -1 for all samples
+     *  @return {@link ScanData} with copy of samples logged after <code>since_serial</code> or <code>null</code>
+     *  @throws Exception on error
+     */
+    public ScanData getScanData(final long since_serial) throws Exception
+    {
+        final ScanData data = getScanData();
+        if (data == null  ||  since_serial < 0)
+            return data;
+        final Map<String, List<ScanSample>> recent = new HashMap<>();
+        for (String device : data.getDevices())
+        {
+            final List<ScanSample> samples = new ArrayList<>();
+            for (ScanSample sample : data.getSamples(device))
+                if (sample.getSerial() > since_serial)
+                    samples.add(sample);
+            if (! samples.isEmpty())
+                recent.put(device, samples);
+        }
+        return new ScanData(recent);
+    }
+
+    /** Wait for samples to be flushed after a serial
+     *
+     *  <p>Returns early when the log is closed,
+     *  i.e. there won't be any more samples.
+     *
+     *  @param since_serial Serial of last sample that caller already has
+     *  @param timeout_ms Maximum time to wait, 0 to return right away
+     *  @return Serial up to which samples are complete
+     *  @throws InterruptedException when interrupted while waiting
+     */
+    public synchronized long waitForData(final long since_serial, final long timeout_ms) throws InterruptedException
+    {
+        final long end = System.currentTimeMillis() + timeout_ms;
+        long wait = timeout_ms;
+        while (flushed_serial <= since_serial  &&  !closed  &&  wait > 0)
+        {
+            wait(wait);
+            wait = end - System.currentTimeMillis();
+        }
+        return flushed_serial;
+    }
+
     /** Should be called when done logging samples
      *  to allow logging mechanism to release resources.
+     *
+     *  <p>Implementation may override, but must call base implementation
+     *  to wake callers of <code>waitForData</code>.
+     *
+     *  @throws Exception on error, for example when samples could not be written
      */
     @Override
-    public void close()
+    public void close() throws Exception
     {
-        // NOP
+        synchronized (this)
+        {
+            flushed_serial = Math.max(flushed_serial, last_serial);
+            closed = true;
+            notifyAll();
+        }
     }
 }
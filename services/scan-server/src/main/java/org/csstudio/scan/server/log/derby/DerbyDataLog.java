@@ -7,9 +7,21 @@
  ******************************************************************************/
 package org.csstudio.scan.server.log.derby;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import org.csstudio.scan.data.ScanData;
 import org.csstudio.scan.data.ScanSample;
 import org.csstudio.scan.server.log.DataLog;
+import org.phoebus.framework.jobs.NamedThreadFactory;
 
 /** {@link DataLog} for Derby
  *
@@ -17,25 +29,70 @@ import org.csstudio.scan.server.log.DataLog;
  *  Creates a logger on <code>doLog()</code> and keeps that open
  *  until <code>close()</code>
  *
+ *  <p>In asynchronous mode, <code>doLog()</code> only queues the sample.
+ *  A background writer then inserts queued samples in batches.
+ *  Until written, queued samples are included in the data
+ *  returned by <code>getScanData()</code>.
+ *  When a batch fails, its samples are written one by one.
+ *  Samples that still fail are reported by the next
+ *  <code>doLog()</code>, <code>flush()</code> or <code>close()</code>.
+ *
  *  @author Kay Kasemir
  */
+@SuppressWarnings("nls")
 public class DerbyDataLog extends DataLog
 {
+    /** Maximum number of queued samples. <code>doLog()</code> blocks when reached */
+    private static final int MAX_QUEUED_SAMPLES = 100000;
+
+    /** Maximum number of samples written in one transaction */
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    /** Threads that write queued samples */
+    private static final ExecutorService writers = Executors.newCachedThreadPool(new NamedThreadFactory("DataLogWriter"));
+
     final private long scan_id;
 
+    /** Queue samples, writing them in background? */
+    final private boolean async;
+
+    /** Logger used by <code>doLog()</code> or, in asynchronous mode, the writer */
     private RDBDataLogger logger = null;
 
+    /** Samples to write.
+     *  Remain in queue until written so they can be read.
+     *  SYNC on queue
+     */
+    final private List<DeviceSample> queue = new ArrayList<>();
+
+    /** Is the writer active? SYNC on queue */
+    private boolean writing = false;
+
+    /** Error from writer, to be reported by next <code>doLog()</code>, <code>flush()</code> or <code>close()</code>. SYNC on queue */
+    private Exception write_error = null;
+
     /** Initialize
      *  @param scan_id ID of scan for which this logger should operate
      */
     public DerbyDataLog(final long scan_id) throws Exception
+    {
+        this(scan_id, false);
+    }
+
+    /** Initialize
+     *  @param scan_id ID of scan for which this logger should operate
+     *  @param async Queue samples and write them in background?
+     */
+    public DerbyDataLog(final long scan_id, final boolean async) throws Exception
     {
         this.scan_id = scan_id;
+        this.async = async;
         // Initialize sample serial
         final RDBDataLogger logger = new DerbyDataLogger();
         try
         {
             last_serial = logger.getLastScanDataSerial(scan_id);
+            flushed_serial = last_serial;
         }
         finally
         {
@@ -47,36 +104,234 @@ public class DerbyDataLog extends DataLog
     @Override
     public void doLog(final String device, final ScanSample sample) throws Exception
     {
-        if (logger == null)
-            logger = new DerbyDataLogger();
-        logger.log(scan_id, device, sample);
+        if (! async)
+        {
+            if (logger == null)
+                logger = new DerbyDataLogger();
+            logger.log(scan_id, device, sample);
+            return;
+        }
+
+        synchronized (queue)
+        {
+            checkWriteError();
+            // Throttle when writer can't keep up
+            while (queue.size() >= MAX_QUEUED_SAMPLES)
+                queue.wait();
+            queue.add(new DeviceSample(device, sample));
+            if (! writing)
+            {
+                writing = true;
+                writers.execute(this::write);
+            }
+        }
+    }
+
+    /** Throw and clear error from writer
+     *  @throws Exception if writer failed to write samples
+     */
+    private void checkWriteError() throws Exception
+    {
+        synchronized (queue)
+        {
+            if (write_error != null)
+            {
+                final Exception error = write_error;
+                write_error = null;
+                throw new Exception("Cannot write data log for scan " + scan_id, error);
+            }
+        }
+    }
+
+    /** Write queued samples until queue is empty */
+    private void write()
+    {
+        while (true)
+        {
+            final List<DeviceSample> batch;
+            synchronized (queue)
+            {
+                if (queue.isEmpty())
+                {
+                    writing = false;
+                    queue.notifyAll();
+                    return;
+                }
+                batch = new ArrayList<>(queue.subList(0, Math.min(queue.size(), MAX_BATCH_SIZE)));
+            }
+
+            try
+            {
+                if (logger == null)
+                    logger = new DerbyDataLogger();
+                logger.log(scan_id, batch);
+            }
+            catch (Exception ex)
+            {
+                Logger.getLogger(getClass().getName())
+                      .log(Level.WARNING, "Cannot write batch of " + batch.size() + " samples for scan " + scan_id + ", writing them one by one", ex);
+                writeEach(batch);
+            }
+
+            // Remove written (or failed) samples
+            synchronized (queue)
+            {
+                queue.subList(0, batch.size()).clear();
+                queue.notifyAll();
+            }
+        }
+    }
+
+    /** Write samples one by one, for example after a batch failed
+     *  @param samples Samples to write
+     */
+    private void writeEach(final List<DeviceSample> samples)
+    {
+        // Start over with new connection in case the old one failed
+        if (logger != null)
+        {
+            logger.close();
+            logger = null;
+        }
+        int failed = 0;
+        Exception error = null;
+        for (DeviceSample sample : samples)
+        {
+            try
+            {
+                if (logger == null)
+                    logger = new DerbyDataLogger();
+                logger.log(scan_id, sample.device, sample.sample);
+            }
+            catch (Exception ex)
+            {
+                ++failed;
+                error = ex;
+            }
+        }
+        if (error != null)
+        {
+            Logger.getLogger(getClass().getName())
+                  .log(Level.WARNING, "Cannot write " + failed + " of " + samples.size() + " samples for scan " + scan_id, error);
+            synchronized (queue)
+            {
+                write_error = error;
+            }
+        }
+    }
+
+    /** {@inheritDoc}
+     *
+     *  <p>Reports an error from writing queued samples.
+     */
+    @Override
+    public void flush() throws Exception
+    {
+        super.flush();
+        checkWriteError();
     }
 
     /** {@inheritDoc} */
     @Override
     public ScanData getScanData() throws Exception
     {
+        return getScanData(-1);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ScanData getScanData(final long since_serial) throws Exception
+    {
+        // Check queue before reading the database.
+        // A queued sample is then either in the copy of the queue
+        // or already written
+        final List<DeviceSample> queued;
+        synchronized (queue)
+        {
+            queued = queue.isEmpty() ? List.of() : new ArrayList<>(queue);
+        }
+
         // Can be called without doLog(), so use separate logger just for this call
         final RDBDataLogger logger = new DerbyDataLogger();
+        final ScanData data;
         try
         {
-            return logger.getScanData(scan_id);
+            data = since_serial < 0
+                 ? logger.getScanData(scan_id)
+                 : logger.getScanData(scan_id, since_serial);
         }
         finally
         {
             logger.close();
         }
+
+        if (queued.isEmpty())
+            return data;
+        return addQueuedSamples(data, queued, since_serial);
     }
 
-    /** {@inheritDoc} */
+    /** @param data Samples read from database
+     *  @param queued Samples that were queued before reading the database
+     *  @param since_serial Only add samples with serial greater than this
+     *  @return Combined samples
+     */
+    private static ScanData addQueuedSamples(final ScanData data, final List<DeviceSample> queued, final long since_serial)
+    {
+        final Map<String, List<ScanSample>> device_logs = new HashMap<>();
+        for (String device : data.getDevices())
+            device_logs.put(device, new ArrayList<>(data.getSamples(device)));
+        for (DeviceSample queued_sample : queued)
+            if (queued_sample.sample.getSerial() > since_serial)
+                device_logs.computeIfAbsent(queued_sample.device, d -> new ArrayList<>())
+                           .add(queued_sample.sample);
+
+        // Queued samples may have been written while reading the database.
+        // Sort by serial and remove such duplicates
+        for (List<ScanSample> samples : device_logs.values())
+        {
+            samples.sort(Comparator.comparingLong(ScanSample::getSerial));
+            final Iterator<ScanSample> iter = samples.iterator();
+            long previous = Long.MIN_VALUE;
+            while (iter.hasNext())
+            {
+                final long serial = iter.next().getSerial();
+                if (serial == previous)
+                    iter.remove();
+                previous = serial;
+            }
+        }
+        return new ScanData(device_logs);
+    }
+
+    /** {@inheritDoc}
+     *
+     *  <p>Waits for queued samples to be written
+     *  and reports an error from writing them.
+     */
     @Override
-    public synchronized void close()
+    public synchronized void close() throws Exception
     {
+        // Wait for queued samples to be written
+        synchronized (queue)
+        {
+            try
+            {
+                while (writing)
+                    queue.wait();
+            }
+            catch (InterruptedException ex)
+            {
+                Logger.getLogger(getClass().getName())
+                      .log(Level.WARNING, "Interrupted while writing " + queue.size() + " queued samples for scan " + scan_id);
+                Thread.currentThread().interrupt();
+            }
+        }
         if (logger != null)
         {
             logger.close();
             logger = null;
         }
         super.close();
+        checkWriteError();
     }
 }
@@ -10,6 +10,8 @@ package org.csstudio.scan.server.log.derby;
 import java.util.List;
 
 import org.csstudio.scan.info.Scan;
+import org.csstudio.scan.server.ScanServerInstance;
+import org.csstudio.scan.server.config.ScanConfig;
 import org.csstudio.scan.server.log.DataLog;
 import org.csstudio.scan.server.log.DataLogFactorySPI;
 
@@ -58,7 +60,7 @@ public class DerbyDataLogFactory implements DataLogFactorySPI
         )
         {
             if (log.getScan(scan.getId()) != null)
-                return new DerbyDataLog(scan.getId());
+                return new DerbyDataLog(scan.getId(), isAsync());
         }
         return null;
 	}
@@ -75,6 +77,13 @@ public class DerbyDataLogFactory implements DataLogFactorySPI
         }
 	}
 
+    /** @return Write samples in background, as configured? */
+    private static boolean isAsync()
+    {
+        final ScanConfig config = ScanServerInstance.getScanConfig();
+        return config != null  &&  config.isDataLogAsync();
+    }
+
 	@Override
     public void shutdown() throws Exception
 	{
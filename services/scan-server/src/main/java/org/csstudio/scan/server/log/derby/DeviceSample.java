@@ -0,0 +1,23 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.scan.server.log.derby;
+
+import org.csstudio.scan.data.ScanSample;
+
+/** Sample of a device, queued to be written */
+class DeviceSample
+{
+    final String device;
+    final ScanSample sample;
+
+    DeviceSample(final String device, final ScanSample sample)
+    {
+        this.device = device;
+        this.sample = sample;
+    }
+}
@@ -271,6 +271,55 @@ abstract public class RDBDataLogger implements AutoCloseable
             throw new Exception("Sample insert affected " + rows + " rows");
     }
 
+    /** Log samples in one batch
+     *
+     *  <p>Samples are written in one transaction,
+     *  so either all or none of them are logged.
+     *
+     *  @param scan_id ID of associated scan
+     *  @param samples Samples to log
+     *  @throws Exception on error
+     */
+    void log(final long scan_id, final List<DeviceSample> samples) throws Exception
+    {
+        // Resolve devices outside of the transaction,
+        // since new devices are cached even if the transaction fails
+        final int[] device_ids = new int[samples.size()];
+        for (int i=0; i<device_ids.length; ++i)
+            device_ids[i] = getDevice(samples.get(i).device);
+
+        if (insert_sample_statement == null)
+            insert_sample_statement = connection.prepareStatement(
+                    "INSERT INTO samples(scan_id, device_id, serial, timestamp, value)" +
+                    " VALUES (?,?,?,?,?)");
+        connection.setAutoCommit(false);
+        try
+        {
+            for (int i=0; i<device_ids.length; ++i)
+            {
+                final ScanSample sample = samples.get(i).sample;
+                insert_sample_statement.setLong(1, scan_id);
+                insert_sample_statement.setInt(2, device_ids[i]);
+                insert_sample_statement.setLong(3, sample.getSerial());
+                insert_sample_statement.setTimestamp(4, Timestamp.from(sample.getTimestamp()));
+                insert_sample_statement.setObject(5, new SampleValue(sample.getValues()));
+                insert_sample_statement.addBatch();
+            }
+            insert_sample_statement.executeBatch();
+            connection.commit();
+        }
+        catch (Exception ex)
+        {
+            insert_sample_statement.clearBatch();
+            connection.rollback();
+            throw ex;
+        }
+        finally
+        {
+            connection.setAutoCommit(true);
+        }
+    }
+
     /** Get serial of last logged sample.
      *
      *  <p>Can be used to determine if there are new samples
@@ -328,6 +377,42 @@ abstract public class RDBDataLogger implements AutoCloseable
         return new ScanData(device_logs);
     }
 
+    /** Obtain data that a scan logged after a serial
+     *  @param scan_id ID of the scan
+     *  @param since_serial Only return samples with serial greater than this
+     *  @return {@link ScanData}
+     *  @throws Exception on error
+     */
+    public ScanData getScanData(final long scan_id, final long since_serial) throws Exception
+    {
+        final Map<String, List<ScanSample>> device_logs = new HashMap<String, List<ScanSample>>();
+
+        // Unlike the complete data, fetch recent samples of all devices in one query
+        try
+        (
+            final PreparedStatement statement = connection.prepareStatement(
+                    "SELECT d.name, s.serial, s.timestamp, s.value FROM samples s JOIN devices d ON s.device_id = d.id" +
+                    " WHERE s.scan_id=? AND s.serial>? ORDER BY s.serial");
+        )
+        {
+            statement.setLong(1, scan_id);
+            statement.setLong(2, since_serial);
+            final ResultSet result = statement.executeQuery();
+            while (result.next())
+            {
+                final String device = result.getString(1);
+                final long serial = result.getLong(2);
+                final Instant timestamp = result.getTimestamp(3).toInstant();
+                final SampleValue value = (SampleValue) result.getObject(4);
+                device_logs.computeIfAbsent(device, d -> new ArrayList<>())
+                           .add(ScanSampleFactory.createSample(timestamp, serial, value.getValues()));
+            }
+            result.close();
+        }
+
+        return new ScanData(device_logs);
+    }
+
     /** Get samples
      *  @param scan_id ID of the scan
      *  @param device_name Name of the device
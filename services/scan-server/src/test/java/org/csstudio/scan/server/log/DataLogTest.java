@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.scan.server.log;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.csstudio.scan.data.ScanData;
+import org.csstudio.scan.data.ScanSample;
+import org.csstudio.scan.data.ScanSampleFactory;
+import org.junit.Test;
+
+/** JUnit test of the {@link DataLog} updates
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class DataLogTest
+{
+    /** Data log that keeps samples in memory */
+    private static class MemoryDataLog extends DataLog
+    {
+        private final Map<String, List<ScanSample>> samples = new HashMap<>();
+
+        @Override
+        protected synchronized void doLog(final String device, final ScanSample sample) throws Exception
+        {
+            samples.computeIfAbsent(device, d -> new ArrayList<>()).add(sample);
+        }
+
+        @Override
+        public synchronized ScanData getScanData() throws Exception
+        {
+            final Map<String, List<ScanSample>> copy = new HashMap<>();
+            samples.forEach((device, list) -> copy.put(device, new ArrayList<>(list)));
+            return new ScanData(copy);
+        }
+    }
+
+    /** Log one sample for each device with the same serial, like the 'Log' command */
+    private static void log(final DataLog log, final double value, final String... devices) throws Exception
+    {
+        final long serial = log.getNextScanDataSerial();
+        for (String device : devices)
+            log.log(device, ScanSampleFactory.createSample(Instant.now(), serial, value));
+        log.flush();
+    }
+
+    private static int count(final ScanData data)
+    {
+        int count = 0;
+        for (String device : data.getDevices())
+            count += data.getSamples(device).size();
+        return count;
+    }
+
+    @Test
+    public void testUpdates() throws Exception
+    {
+        final DataLog log = new MemoryDataLog();
+        log(log, 1, "x", "y");
+        log(log, 2, "x", "y");
+        log(log, 3, "y");
+
+        // Fetch all, then only the new samples
+        long serial = log.waitForData(-1, 0);
+        assertThat(serial, equalTo(2L));
+        ScanData data = log.getScanData(-1);
+        assertThat(count(data), equalTo(5));
+
+        log(log, 4, "x", "y");
+        log(log, 5, "x");
+        serial = log.waitForData(serial, 0);
+        assertThat(serial, equalTo(4L));
+        final ScanData update = log.getScanData(2);
+        assertThat(count(update), equalTo(3));
+        assertThat(update.getLastSerial(), equalTo(4L));
+
+        // Appending the update results in the complete data
+        data = data.append(update);
+        assertThat(count(data), equalTo(8));
+        assertThat(data.getDevices(), equalTo(log.getScanData().getDevices()));
+        for (String device : data.getDevices())
+            assertThat(data.getSamples(device).toString(), equalTo(log.getScanData().getSamples(device).toString()));
+
+        // Overlapping update only appends what's new
+        assertThat(data.append(update), sameInstance(data));
+        assertThat(count(data.append(log.getScanData(0))), equalTo(8));
+        log.close();
+    }
+
+    @Test
+    public void testPartialUpdate() throws Exception
+    {
+        final DataLog log = new MemoryDataLog();
+        log(log, 1, "x", "y");
+
+        // Samples of serial 1 are being logged, not flushed
+        final long serial = log.getNextScanDataSerial();
+        log.log("x", ScanSampleFactory.createSample(Instant.now(), serial, 2));
+
+        // Data is only complete up to serial 0
+        assertThat(log.waitForData(-1, 0), equalTo(0L));
+        ScanData data = log.getScanData(-1);
+        assertThat(count(data), equalTo(3));
+
+        // Next update, from the last complete serial, includes the rest of serial 1
+        log.log("y", ScanSampleFactory.createSample(Instant.now(), serial, 2));
+        log.flush();
+        assertThat(log.waitForData(0, 0), equalTo(1L));
+        data = data.append(log.getScanData(0));
+        assertThat(count(data), equalTo(4));
+        assertThat(data.getSamples("y").size(), equalTo(2));
+        log.close();
+    }
+
+    @Test(timeout=10000)
+    public void testWait() throws Exception
+    {
+        final DataLog log = new MemoryDataLog();
+        log(log, 1, "x");
+
+        // No new data, wait times out
+        long start = System.currentTimeMillis();
+        assertThat(log.waitForData(0, 500), equalTo(0L));
+        assertTrue(System.currentTimeMillis() - start >= 500);
+
+        // Wait ends as soon as new data is flushed
+        CompletableFuture<Long> waiting = CompletableFuture.supplyAsync(() -> waitForData(log, 0, 60000));
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertThat(waiting.isDone(), equalTo(false));
+        log(log, 2, "x");
+        assertThat(waiting.get(5, TimeUnit.SECONDS), equalTo(1L));
+
+        // .. or when log is closed
+        waiting = CompletableFuture.supplyAsync(() -> waitForData(log, 1, 60000));
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertThat(waiting.isDone(), equalTo(false));
+        log.close();
+        assertThat(waiting.get(5, TimeUnit.SECONDS), equalTo(1L));
+        start = System.currentTimeMillis();
+        assertThat(log.waitForData(1, 60000), equalTo(1L));
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertThat(log.getScanData(1), not(nullValue()));
+    }
+
+    private static long waitForData(final DataLog log, final long serial, final long timeout_ms)
+    {
+        try
+        {
+            return log.waitForData(serial, timeout_ms);
+        }
+        catch (InterruptedException ex)
+        {
+            throw new RuntimeException(ex);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.scan.server.log.derby;
+
+import java.time.Instant;
+
+import org.csstudio.scan.data.NumberScanSample;
+import org.csstudio.scan.data.ScanData;
+import org.csstudio.scan.server.log.DataLog;
+
+/** Scan step rate with synchronous and asynchronous {@link DerbyDataLog}
+ *
+ *  <p>Each step logs a sample for each of several devices,
+ *  like a loop that reads many devices after each step.
+ *  Optionally, the data is read back while logging,
+ *  as done by clients that monitor the scan.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class DerbyDataLogDemo
+{
+    private static final int DEVICES = 20, STEPS = 2000, RUNS = 2;
+
+    private static int count(final ScanData data)
+    {
+        int count = 0;
+        for (String device : data.getDevices())
+            count += data.getSamples(device).size();
+        return count;
+    }
+
+    /** @param rdb Database
+     *  @param async Use asynchronous log?
+     *  @param read_every Read data back every N steps, 0 to never read back
+     */
+    private static void benchmark(final RDBDataLogger rdb, final boolean async, final int read_every) throws Exception
+    {
+        final long scan_id = rdb.createScan(async ? "Async Benchmark" : "Sync Benchmark").getId();
+        final DataLog log = new DerbyDataLog(scan_id, async);
+
+        final long start = System.nanoTime();
+        for (int step=0; step<STEPS; ++step)
+        {
+            final long serial = log.getNextScanDataSerial();
+            final Instant now = Instant.now();
+            for (int d=0; d<DEVICES; ++d)
+                log.log("device" + d, new NumberScanSample(now, serial, step * d));
+            log.flush();
+
+            // Read back, including samples that are still queued
+            if (read_every > 0  &&  (step+1) % read_every == 0)
+            {
+                final int samples = count(log.getScanData());
+                if (samples != (step+1) * DEVICES)
+                    throw new Exception("Read " + samples + " instead of " + (step+1) * DEVICES + " samples");
+            }
+        }
+        final long logged = System.nanoTime();
+        log.close();
+        final long closed = System.nanoTime();
+
+        final double secs = (logged - start) / 1e9;
+        System.out.format("%-5s, %-22s: %8.1f steps per second, %6.3f s to log, %6.3f s to close\n",
+                          async ? "Async" : "Sync",
+                          read_every > 0 ? "read every " + read_every + " steps" : "no read",
+                          STEPS / secs, secs, (closed - logged) / 1e9);
+
+        final int samples = count(rdb.getScanData(scan_id));
+        if (samples != STEPS * DEVICES)
+            throw new Exception("Database holds " + samples + " instead of " + STEPS * DEVICES + " samples");
+        rdb.deleteDataLog(scan_id);
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        DerbyDataLogger.startup("/tmp/scan_log_benchmark_db");
+        final RDBDataLogger rdb = new DerbyDataLogger();
+
+        System.out.println(STEPS + " steps, logging " + DEVICES + " devices per step");
+        for (int run=0; run<RUNS; ++run)
+        {
+            benchmark(rdb, false, 0);
+            benchmark(rdb, true, 0);
+            benchmark(rdb, false, 500);
+            benchmark(rdb, true, 500);
+        }
+
+        rdb.close();
+        DerbyDataLogger.shutdown();
+    }
+}
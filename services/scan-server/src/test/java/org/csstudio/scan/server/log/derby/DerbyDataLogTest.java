@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.scan.server.log.derby;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Files;
+import java.time.Instant;
+
+import org.csstudio.scan.data.NumberScanSample;
+import org.csstudio.scan.data.ScanData;
+import org.csstudio.scan.server.log.DataLog;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** JUnit test of the asynchronous {@link DerbyDataLog}
+ *
+ *  <p>Uses a Derby database in a temporary directory.
+ */
+@SuppressWarnings("nls")
+public class DerbyDataLogTest
+{
+    @BeforeClass
+    public static void startup() throws Exception
+    {
+        DerbyDataLogger.startup(Files.createTempDirectory("scan_log").toString());
+    }
+
+    @AfterClass
+    public static void shutdown() throws Exception
+    {
+        DerbyDataLogger.shutdown();
+    }
+
+    private static int count(final ScanData data)
+    {
+        int count = 0;
+        for (String device : data.getDevices())
+            count += data.getSamples(device).size();
+        return count;
+    }
+
+    @Test
+    public void testFailedBatch() throws Exception
+    {
+        final RDBDataLogger rdb = new DerbyDataLogger();
+        try
+        {
+            final long scan_id = rdb.createScan("Failed Batch").getId();
+            final DataLog log = new DerbyDataLog(scan_id, true);
+            for (int i=0; i<10; ++i)
+                log.log("device", new NumberScanSample(Instant.now(), i, i));
+            // Device name that's too long for the database fails its batch
+            log.log("x".repeat(200), new NumberScanSample(Instant.now(), 10, 10));
+
+            // Error is reported when closing the log
+            try
+            {
+                log.close();
+                fail("Expected error for device name that's too long");
+            }
+            catch (Exception ex)
+            {
+                // Expected
+            }
+
+            // Other samples of a failed batch are still written
+            assertThat(count(rdb.getScanData(scan_id)), equalTo(10));
+        }
+        finally
+        {
+            rdb.close();
+        }
+    }
+}